@@ -0,0 +1,186 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.benchmarks;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.studio.benchmarks.LdifCorpus.Shape;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.jobs.ExportBenchmarkSupport;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.model.LdifFile;
+import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifRecord;
+import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
+import org.apache.directory.studio.ldifparser.parser.LdifParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks of the conversion of search results to CSV and LDIF, without the
+ * network and file I/O of the export jobs.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ExportBenchmark
+{
+    /** The exported CSV columns */
+    private static final String[] ATTRIBUTES =
+        { "uid", "cn", "sn", "givenName", "mail", "telephoneNumber", "seeAlso", "description", "displayName", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+            "jpegPhoto" }; //$NON-NLS-1$
+
+    @Param(
+        { "1000", "10000" })
+    private int entries;
+
+    @Param(
+        { "CONTENT", "BINARY" })
+    private Shape shape;
+
+    /** An LDIF file with content records used instead of the generated corpus */
+    @Param(
+        { "" })
+    private String ldifFile;
+
+    private List<Entry> searchResult;
+
+    private LdifFormatParameters formatParameters = new LdifFormatParameters( true, 76, "\n" ); //$NON-NLS-1$
+
+
+    @Setup
+    public void setup() throws IOException, LdapException
+    {
+        LdifFile ldif = new LdifParser().parse( LdifCorpus.get( shape, entries, ldifFile ) );
+        searchResult = new ArrayList<>();
+
+        for ( LdifRecord ldifRecord : ldif.getRecords() )
+        {
+            if ( !( ldifRecord instanceof LdifContentRecord ) )
+            {
+                continue;
+            }
+
+            LdifContentRecord record = ( LdifContentRecord ) ldifRecord;
+            Entry entry = new DefaultEntry( record.getDnLine().getValueAsString() );
+
+            for ( LdifAttrValLine line : record.getAttrVals() )
+            {
+                Object value = line.getValueAsObject();
+
+                if ( value instanceof byte[] )
+                {
+                    entry.add( line.getUnfoldedAttributeDescription(), ( byte[] ) value );
+                }
+                else
+                {
+                    entry.add( line.getUnfoldedAttributeDescription(), ( String ) value );
+                }
+            }
+
+            searchResult.add( entry );
+        }
+    }
+
+
+    /**
+     * Converts the search result to CSV, as done by the CSV export.
+     */
+    @Benchmark
+    public long csv() throws IOException
+    {
+        CountingWriter writer = new CountingWriter();
+        ExportBenchmarkSupport.writeCsv( searchResult, writer, ATTRIBUTES, ",", "|", "\"", "\n", "UTF-8", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+            BrowserCoreConstants.BINARYENCODING_BASE64, true );
+
+        return writer.count;
+    }
+
+
+    /**
+     * Converts the search result to LDIF, as done by the LDIF export.
+     */
+    @Benchmark
+    public long ldif() throws IOException
+    {
+        CountingWriter writer = new CountingWriter();
+        ExportBenchmarkSupport.writeLdif( searchResult, writer, formatParameters );
+
+        return writer.count;
+    }
+
+    /**
+     * A writer that only counts the written characters.
+     */
+    private static class CountingWriter extends Writer
+    {
+        private long count;
+
+
+        @Override
+        public void write( char[] cbuf, int off, int len )
+        {
+            count += len;
+        }
+
+
+        @Override
+        public void write( String str )
+        {
+            count += str.length();
+        }
+
+
+        @Override
+        public void flush()
+        {
+        }
+
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.benchmarks;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.studio.ldapbrowser.core.model.filter.LdapFilter;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.parser.LdapFilterParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks of the {@link LdapFilterParser}, used by the filter editor and the
+ * search dialog on each key stroke.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LdapFilterParserBenchmark
+{
+    /** The kind of filter */
+    @Param(
+        { "simple", "nested", "substring", "extensible", "largeOr", "invalid" })
+    private String filterKind;
+
+    private String filter;
+
+
+    @Setup
+    public void setup()
+    {
+        switch ( filterKind )
+        {
+            case "simple": //$NON-NLS-1$
+                filter = "(objectClass=*)"; //$NON-NLS-1$
+                break;
+
+            case "nested": //$NON-NLS-1$
+                filter = "(&(objectClass=inetOrgPerson)(|(uid=jdoe)(mail=jdoe@example.com)(cn=John*Doe))" //$NON-NLS-1$
+                    + "(!(employeeType=contractor))(modifyTimestamp>=20190101000000Z))"; //$NON-NLS-1$
+                break;
+
+            case "substring": //$NON-NLS-1$
+                filter = "(&(cn=*John*Do*e*)(sn=Do*)(mail=*@example.com)(telephoneNumber=*555*))"; //$NON-NLS-1$
+                break;
+
+            case "extensible": //$NON-NLS-1$
+                filter = "(&(ou:dn:=people)(cn:caseExactMatch:=John Doe)(:1.2.3.4.5:=value))"; //$NON-NLS-1$
+                break;
+
+            case "largeOr": //$NON-NLS-1$
+                StringBuilder sb = new StringBuilder( "(|" ); //$NON-NLS-1$
+                for ( int i = 0; i < 500; i++ )
+                {
+                    sb.append( "(uid=user" ).append( i ).append( ')' ); //$NON-NLS-1$
+                }
+                filter = sb.append( ')' ).toString();
+                break;
+
+            default:
+                filter = "(&(objectClass=person)(|(uid=jdoe)(cn=John"; //$NON-NLS-1$
+        }
+    }
+
+
+    @Benchmark
+    public LdapFilter parse()
+    {
+        LdapFilterParser parser = new LdapFilterParser();
+        parser.parse( filter );
+        return parser.getModel();
+    }
+}
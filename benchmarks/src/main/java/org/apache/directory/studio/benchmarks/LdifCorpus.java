@@ -0,0 +1,262 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.benchmarks;
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Random;
+
+
+/**
+ * Generates synthetic LDIF corpora. The generated LDIF is deterministic for a given
+ * shape and size, so results of different runs and versions are comparable.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class LdifCorpus
+{
+    /**
+     * The shape of a corpus.
+     */
+    public enum Shape
+    {
+        /** Content records with short text values only */
+        CONTENT,
+
+        /** Content records with base64 encoded binary values and long folded values */
+        BINARY,
+
+        /** Change records: add, modify, delete and moddn */
+        CHANGES,
+
+        /** A mix of all of the above, including comments */
+        MIXED
+    }
+
+    /** The maximum line length before a line is folded */
+    private static final int LINE_WIDTH = 76;
+
+    /** The line separator */
+    private static final String LINE_SEPARATOR = "\n"; //$NON-NLS-1$
+
+    /** The seed of the random generator */
+    private static final long SEED = 20190301L;
+
+
+    private LdifCorpus()
+    {
+    }
+
+
+    /**
+     * Gets a corpus, either generated or read from the given file.
+     *
+     * @param shape the shape of a generated corpus
+     * @param entries the number of records of a generated corpus
+     * @param file the LDIF file to read instead, may be null or empty
+     * @return the LDIF
+     * @throws IOException if the file could not be read
+     */
+    public static String get( Shape shape, int entries, String file ) throws IOException
+    {
+        if ( file != null && !file.isEmpty() )
+        {
+            return new String( Files.readAllBytes( Paths.get( file ) ), StandardCharsets.UTF_8 );
+        }
+
+        return generate( shape, entries );
+    }
+
+
+    /**
+     * Generates a corpus.
+     *
+     * @param shape the shape
+     * @param entries the number of records
+     * @return the LDIF
+     */
+    public static String generate( Shape shape, int entries )
+    {
+        Random random = new Random( SEED );
+        StringBuilder sb = new StringBuilder( entries * 512 );
+        sb.append( "version: 1" ).append( LINE_SEPARATOR ).append( LINE_SEPARATOR ); //$NON-NLS-1$
+
+        for ( int i = 0; i < entries; i++ )
+        {
+            switch ( shape )
+            {
+                case CONTENT:
+                    appendContentRecord( sb, random, i, false );
+                    break;
+
+                case BINARY:
+                    appendContentRecord( sb, random, i, true );
+                    break;
+
+                case CHANGES:
+                    appendChangeRecord( sb, random, i );
+                    break;
+
+                default:
+                    if ( random.nextInt( 10 ) == 0 )
+                    {
+                        line( sb, "# record " + i ); //$NON-NLS-1$
+                    }
+
+                    int kind = random.nextInt( 3 );
+                    if ( kind == 2 )
+                    {
+                        appendChangeRecord( sb, random, i );
+                    }
+                    else
+                    {
+                        appendContentRecord( sb, random, i, kind == 1 );
+                    }
+            }
+
+            sb.append( LINE_SEPARATOR );
+        }
+
+        return sb.toString();
+    }
+
+
+    private static void appendContentRecord( StringBuilder sb, Random random, int i, boolean binary )
+    {
+        line( sb, "dn: " + dn( i ) ); //$NON-NLS-1$
+        line( sb, "objectClass: top" ); //$NON-NLS-1$
+        line( sb, "objectClass: person" ); //$NON-NLS-1$
+        line( sb, "objectClass: organizationalPerson" ); //$NON-NLS-1$
+        line( sb, "objectClass: inetOrgPerson" ); //$NON-NLS-1$
+        line( sb, "uid: user" + i ); //$NON-NLS-1$
+        line( sb, "cn: User " + i ); //$NON-NLS-1$
+        line( sb, "sn: " + word( random, 8 ) ); //$NON-NLS-1$
+        line( sb, "givenName: " + word( random, 6 ) ); //$NON-NLS-1$
+        line( sb, "mail: user" + i + "@example.com" ); //$NON-NLS-1$ //$NON-NLS-2$
+        line( sb, "telephoneNumber: +1 555 " + ( 1000000 + random.nextInt( 9000000 ) ) ); //$NON-NLS-1$
+
+        int members = random.nextInt( 4 );
+        for ( int j = 0; j < members; j++ )
+        {
+            line( sb, "seeAlso: cn=group" + random.nextInt( 100 ) + ",ou=groups,dc=example,dc=com" ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        if ( binary )
+        {
+            byte[] photo = new byte[256 + random.nextInt( 2048 )];
+            random.nextBytes( photo );
+            line( sb, "jpegPhoto:: " + Base64.getEncoder().encodeToString( photo ) ); //$NON-NLS-1$
+
+            // non-ASCII values must be base64 encoded
+            line( sb, "displayName:: " //$NON-NLS-1$
+                + Base64.getEncoder().encodeToString( ( "Usér Ñame " + i ).getBytes( StandardCharsets.UTF_8 ) ) ); //$NON-NLS-1$
+
+            StringBuilder description = new StringBuilder();
+            int words = 20 + random.nextInt( 80 );
+            for ( int j = 0; j < words; j++ )
+            {
+                description.append( word( random, 3 + random.nextInt( 8 ) ) ).append( ' ' );
+            }
+            line( sb, "description: " + description.toString().trim() ); //$NON-NLS-1$
+        }
+    }
+
+
+    private static void appendChangeRecord( StringBuilder sb, Random random, int i )
+    {
+        line( sb, "dn: " + dn( i ) ); //$NON-NLS-1$
+
+        switch ( i % 4 )
+        {
+            case 0:
+                line( sb, "changetype: add" ); //$NON-NLS-1$
+                line( sb, "objectClass: top" ); //$NON-NLS-1$
+                line( sb, "objectClass: person" ); //$NON-NLS-1$
+                line( sb, "cn: User " + i ); //$NON-NLS-1$
+                line( sb, "sn: " + word( random, 8 ) ); //$NON-NLS-1$
+                break;
+
+            case 1:
+                line( sb, "changetype: modify" ); //$NON-NLS-1$
+                line( sb, "replace: sn" ); //$NON-NLS-1$
+                line( sb, "sn: " + word( random, 8 ) ); //$NON-NLS-1$
+                line( sb, "-" ); //$NON-NLS-1$
+                line( sb, "add: telephoneNumber" ); //$NON-NLS-1$
+                line( sb, "telephoneNumber: +1 555 " + ( 1000000 + random.nextInt( 9000000 ) ) ); //$NON-NLS-1$
+                line( sb, "-" ); //$NON-NLS-1$
+                line( sb, "delete: description" ); //$NON-NLS-1$
+                line( sb, "-" ); //$NON-NLS-1$
+                break;
+
+            case 2:
+                line( sb, "changetype: moddn" ); //$NON-NLS-1$
+                line( sb, "newrdn: uid=renamed" + i ); //$NON-NLS-1$
+                line( sb, "deleteoldrdn: 1" ); //$NON-NLS-1$
+                line( sb, "newsuperior: ou=moved,dc=example,dc=com" ); //$NON-NLS-1$
+                break;
+
+            default:
+                line( sb, "control: 1.2.840.113556.1.4.805 true" ); //$NON-NLS-1$
+                line( sb, "changetype: delete" ); //$NON-NLS-1$
+        }
+    }
+
+
+    private static String dn( int i )
+    {
+        return "uid=user" + i + ",ou=people" + ( i % 10 ) + ",dc=example,dc=com"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+
+    private static String word( Random random, int length )
+    {
+        char[] chars = new char[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            chars[i] = ( char ) ( 'a' + random.nextInt( 26 ) );
+        }
+
+        return new String( chars );
+    }
+
+
+    /**
+     * Appends a line, folded if it is longer than the line width.
+     */
+    private static void line( StringBuilder sb, String line )
+    {
+        int start = 0;
+        int width = LINE_WIDTH;
+
+        while ( line.length() - start > width )
+        {
+            sb.append( line, start, start + width ).append( LINE_SEPARATOR ).append( ' ' );
+            start += width;
+            width = LINE_WIDTH - 1;
+        }
+
+        sb.append( line, start, line.length() ).append( LINE_SEPARATOR );
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.benchmarks;
+
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.studio.benchmarks.LdifCorpus.Shape;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
+import org.apache.directory.studio.ldifparser.model.LdifFile;
+import org.apache.directory.studio.ldifparser.parser.LdifParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Benchmarks of the {@link LdifParser}, including the LdifScanner, and of the
+ * formatting of parsed LDIF.
+ * <p>
+ * The corpus size and shape are configurable with <code>-p entries=...</code> and
+ * <code>-p shape=...</code>, an own LDIF file can be used with <code>-p ldifFile=...</code>.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LdifParserBenchmark
+{
+    @Param(
+        { "1000", "10000" })
+    private int entries;
+
+    @Param(
+        { "CONTENT", "BINARY", "CHANGES", "MIXED" })
+    private Shape shape;
+
+    /** An LDIF file used instead of the generated corpus */
+    @Param(
+        { "" })
+    private String ldifFile;
+
+    private String ldif;
+
+    private LdifFile parsed;
+
+    private LdifFormatParameters formatParameters = new LdifFormatParameters( true, 76, "\n" ); //$NON-NLS-1$
+
+
+    @Setup
+    public void setup() throws IOException
+    {
+        ldif = LdifCorpus.get( shape, entries, ldifFile );
+        parsed = new LdifParser().parse( ldif );
+    }
+
+
+    /**
+     * Parses the whole LDIF into an LdifFile, as done by the LDIF editor.
+     */
+    @Benchmark
+    public LdifFile parse()
+    {
+        return new LdifParser().parse( ldif );
+    }
+
+
+    /**
+     * Parses the LDIF container by container, as done by the LDIF import.
+     */
+    @Benchmark
+    public void parseStream( Blackhole blackhole ) throws LdapException
+    {
+        LdifEnumeration enumeration = new LdifParser().parse( new StringReader( ldif ) );
+
+        while ( enumeration.hasNext() )
+        {
+            blackhole.consume( enumeration.next() );
+        }
+    }
+
+
+    /**
+     * Formats the parsed LDIF.
+     */
+    @Benchmark
+    public String format()
+    {
+        return parsed.toFormattedString( formatParameters );
+    }
+}
@@ -341,25 +341,24 @@ public class LoadConfigurationRunnable implements StudioRunnableWithProgress
 
             // Looking for the 'ou=config' base entry
             Entry configEntry = null;
-            StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, configSearchParameter,
-                monitor );
-
-            // Checking if an error occurred
-            if ( monitor.errorsReported() )
+            try ( StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection,
+                configSearchParameter, monitor ) )
             {
-                throw monitor.getException();
-            }
+                // Checking if an error occurred
+                if ( monitor.errorsReported() )
+                {
+                    throw monitor.getException();
+                }
 
-            // Getting the entry
-            if ( enumeration.hasMore() )
-            {
-                // Creating the 'ou=config' base entry
-                StudioSearchResult searchResult = enumeration.next();
-                configEntry = new DefaultEntry( schemaManager, searchResult.getEntry() );
+                // Getting the entry
+                if ( enumeration.hasMore() )
+                {
+                    // Creating the 'ou=config' base entry
+                    StudioSearchResult searchResult = enumeration.next();
+                    configEntry = new DefaultEntry( schemaManager, searchResult.getEntry() );
+                }
             }
 
-            enumeration.close();
-
             // Verifying we found the 'ou=config' base entry
             if ( configEntry == null )
             {
@@ -391,23 +390,22 @@ public class LoadConfigurationRunnable implements StudioRunnableWithProgress
                 searchParameter.setReturningAttributes( SchemaConstants.ALL_USER_ATTRIBUTES_ARRAY );
 
                 // Looking for the children of the entry
-                StudioSearchResultEnumeration childrenEnumeration = SearchRunnable.search( browserConnection,
-                    searchParameter, monitor );
-
-                // Checking if an error occurred
-                if ( monitor.errorsReported() )
+                try ( StudioSearchResultEnumeration childrenEnumeration = SearchRunnable.search( browserConnection,
+                    searchParameter, monitor ) )
                 {
-                    throw monitor.getException();
-                }
+                    // Checking if an error occurred
+                    if ( monitor.errorsReported() )
+                    {
+                        throw monitor.getException();
+                    }
 
-                while ( childrenEnumeration.hasMore() )
-                {
-                    // Adding the children to the list of entries
-                    StudioSearchResult searchResult = childrenEnumeration.next();
-                    entries.add( new DefaultEntry( schemaManager, searchResult.getEntry() ) );
+                    while ( childrenEnumeration.hasMore() )
+                    {
+                        // Adding the children to the list of entries
+                        StudioSearchResult searchResult = childrenEnumeration.next();
+                        entries.add( new DefaultEntry( schemaManager, searchResult.getEntry() ) );
+                    }
                 }
-                
-                childrenEnumeration.close();
             }
 
             // Setting the created partition to the input
@@ -0,0 +1,488 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.common.core.jobs;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The JobLockManager grants the locks of the {@link StudioJob}s.
+ * <p>
+ * A lock is identified by a type and a path, e.g. the runnable class and the
+ * connection followed by the RDNs of an entry from the root to the entry. A lock
+ * covers the whole subtree below its path: two locks of the same type conflict
+ * if the path of one lock is a prefix of the path of the other lock, locks of
+ * different types never conflict. The locks are kept in a trie, each node knows
+ * the owners of the locks in its subtree, so a conflict is detected in O(depth).
+ * <p>
+ * Owners that can't get their locks are queued and get their locks granted, in
+ * the order they were queued, as soon as the conflicting locks are released. The
+ * locks of the queued owners are kept in a second trie: a lock is only granted if
+ * it neither conflicts with a held lock nor with the lock of an owner queued
+ * before, so a stream of new owners can't starve a queued one.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class JobLockManager
+{
+    /** The root node of the lock trie */
+    private Node root = new Node( null, null );
+
+    /** The nodes locked by each owner */
+    private Map<Object, List<LockedNode>> ownedNodes = new IdentityHashMap<>();
+
+    /** The owners waiting for their locks, in queue order */
+    private Map<Object, Waiter> waiters = new LinkedHashMap<>();
+
+    /** The root node of the trie of the locks the queued owners wait for */
+    private Node waitingRoot = new Node( null, null );
+
+    /** The number of owners that had to wait for their locks */
+    private long waitCount;
+
+    /** The sum of the wait times, in milliseconds */
+    private long totalWaitTime;
+
+    /** The maximum wait time, in milliseconds */
+    private long maxWaitTime;
+
+
+    /**
+     * Acquires the given locks for the given owner. If any lock conflicts with
+     * the lock of another owner the owner is queued, and the given callback is
+     * invoked once all locks were granted.
+     * <p>
+     * All locks of an owner are acquired at once; an owner that already holds
+     * locks gets no additional locks until it released them.
+     *
+     * @param owner the owner of the locks
+     * @param locks the locks to acquire
+     * @param onGranted the callback invoked when the locks of a queued owner were granted
+     * @return true if the locks were acquired, false if the owner was queued
+     */
+    public boolean acquire( Object owner, List<Lock> locks, Runnable onGranted )
+    {
+        synchronized ( this )
+        {
+            if ( ownedNodes.containsKey( owner ) )
+            {
+                return true;
+            }
+
+            if ( waiters.containsKey( owner ) )
+            {
+                return false;
+            }
+
+            // all queued owners were queued before, their locks take precedence
+            if ( tryAcquire( owner, locks, waitingRoot ) )
+            {
+                return true;
+            }
+
+            waiters.put( owner, new Waiter( locks, onGranted ) );
+            insert( waitingRoot, owner, locks );
+
+            return false;
+        }
+    }
+
+
+    /**
+     * Releases all locks of the given owner and grants the locks of the queued
+     * owners that don't conflict anymore.
+     *
+     * @param owner the owner of the locks
+     */
+    public void release( Object owner )
+    {
+        List<Runnable> granted = new ArrayList<>();
+
+        synchronized ( this )
+        {
+            boolean wasWaiting = waiters.remove( owner ) != null;
+            List<LockedNode> nodes = ownedNodes.remove( owner );
+
+            if ( nodes == null && !wasWaiting )
+            {
+                return;
+            }
+
+            if ( nodes != null )
+            {
+                for ( LockedNode lockedNode : nodes )
+                {
+                    unlock( owner, lockedNode.node, lockedNode.type );
+                }
+            }
+
+            // the queued owners are visited in queue order, each one must not conflict with
+            // the owners still queued before it, these are collected in a new waiting trie
+            Node stillWaiting = new Node( null, null );
+            long now = System.currentTimeMillis();
+
+            for ( Iterator<Map.Entry<Object, Waiter>> it = waiters.entrySet().iterator(); it.hasNext(); )
+            {
+                Map.Entry<Object, Waiter> entry = it.next();
+                Waiter waiter = entry.getValue();
+
+                if ( tryAcquire( entry.getKey(), waiter.locks, stillWaiting ) )
+                {
+                    it.remove();
+                    long waitTime = now - waiter.since;
+                    waitCount++;
+                    totalWaitTime += waitTime;
+                    maxWaitTime = Math.max( maxWaitTime, waitTime );
+                    granted.add( waiter.onGranted );
+                }
+                else
+                {
+                    insert( stillWaiting, entry.getKey(), waiter.locks );
+                }
+            }
+
+            waitingRoot = stillWaiting;
+        }
+
+        // invoke the callbacks outside of the lock, they usually schedule the job
+        for ( Runnable onGranted : granted )
+        {
+            onGranted.run();
+        }
+    }
+
+
+    /**
+     * Gets the number of owners currently waiting for their locks.
+     *
+     * @return the number of waiting owners
+     */
+    public synchronized int getQueuedCount()
+    {
+        return waiters.size();
+    }
+
+
+    /**
+     * Gets the number of owners that had to wait for their locks.
+     *
+     * @return the number of owners that had to wait
+     */
+    public synchronized long getWaitCount()
+    {
+        return waitCount;
+    }
+
+
+    /**
+     * Gets the sum of the times owners had to wait for their locks.
+     *
+     * @return the total wait time, in milliseconds
+     */
+    public synchronized long getTotalWaitTime()
+    {
+        return totalWaitTime;
+    }
+
+
+    /**
+     * Gets the maximum time an owner had to wait for its locks.
+     *
+     * @return the maximum wait time, in milliseconds
+     */
+    public synchronized long getMaxWaitTime()
+    {
+        return maxWaitTime;
+    }
+
+
+    /**
+     * Checks if no lock is held or queued and the lock tries are pruned.
+     *
+     * @return true if the lock manager is empty
+     */
+    synchronized boolean isEmpty()
+    {
+        return ownedNodes.isEmpty() && waiters.isEmpty() && root.isEmpty() && waitingRoot.isEmpty();
+    }
+
+
+    /**
+     * Acquires all locks if none of them conflicts with a held lock of another owner
+     * or with a lock of the given waiting trie.
+     */
+    private boolean tryAcquire( Object owner, List<Lock> locks, Node waiting )
+    {
+        for ( Lock lock : locks )
+        {
+            if ( isConflicting( root, owner, lock ) || isConflicting( waiting, owner, lock ) )
+            {
+                return false;
+            }
+        }
+
+        ownedNodes.put( owner, insert( root, owner, locks ) );
+
+        return true;
+    }
+
+
+    /**
+     * Adds the given locks of the owner to the trie with the given root node.
+     *
+     * @return the locked nodes
+     */
+    private List<LockedNode> insert( Node trie, Object owner, List<Lock> locks )
+    {
+        List<LockedNode> nodes = new ArrayList<>( locks.size() );
+
+        for ( Lock lock : locks )
+        {
+            Node node = trie;
+            node.addOwner( owner, lock.type );
+
+            for ( Object segment : lock.path )
+            {
+                node = node.getOrCreateChild( segment );
+                node.addOwner( owner, lock.type );
+            }
+
+            node.holders.put( lock.type, owner );
+            nodes.add( new LockedNode( node, lock.type ) );
+        }
+
+        return nodes;
+    }
+
+
+    /**
+     * Checks if the given lock conflicts with a lock of another owner in the trie
+     * with the given root node: a lock of the same type on an ancestor, on the node
+     * itself, or in its subtree.
+     */
+    private boolean isConflicting( Node trie, Object owner, Lock lock )
+    {
+        Node node = trie;
+
+        for ( Object segment : lock.path )
+        {
+            if ( node.isHeldByOther( owner, lock.type ) )
+            {
+                return true;
+            }
+
+            node = node.children.get( segment );
+
+            if ( node == null )
+            {
+                return false;
+            }
+        }
+
+        return node.isOwnedByOther( owner, lock.type );
+    }
+
+
+    /**
+     * Removes the lock of the given type from the node and updates the owners
+     * of its ancestors, empty nodes are pruned.
+     */
+    private void unlock( Object owner, Node node, Object type )
+    {
+        if ( node.holders.get( type ) == owner )
+        {
+            node.holders.remove( type );
+        }
+
+        for ( Node current = node; current != null; current = current.parent )
+        {
+            current.removeOwner( owner, type );
+
+            if ( current.parent != null && current.isEmpty() )
+            {
+                current.parent.children.remove( current.segment );
+            }
+        }
+    }
+
+    /**
+     * A lock request: a type and the path from the root of the trie.
+     */
+    public static final class Lock
+    {
+        private final Object type;
+
+        private final Object[] path;
+
+
+        /**
+         * Creates a new instance of Lock.
+         *
+         * @param type the type of the lock, only locks of the same type conflict
+         * @param path the path of the locked object, the lock covers the subtree below it
+         */
+        public Lock( Object type, Object... path )
+        {
+            this.type = type;
+            this.path = path;
+        }
+    }
+
+    /**
+     * A node of the lock trie.
+     */
+    private static final class Node
+    {
+        private final Node parent;
+
+        private final Object segment;
+
+        private final Map<Object, Node> children = new HashMap<>();
+
+        /** The owner of the lock on this node, by lock type */
+        private final Map<Object, Object> holders = new HashMap<>( 2 );
+
+        /** The number of locks in the subtree of this node, by lock type and owner */
+        private final Map<Object, Map<Object, Integer>> owners = new HashMap<>( 2 );
+
+
+        private Node( Node parent, Object segment )
+        {
+            this.parent = parent;
+            this.segment = segment;
+        }
+
+
+        private Node getOrCreateChild( Object segment )
+        {
+            Node child = children.get( segment );
+
+            if ( child == null )
+            {
+                child = new Node( this, segment );
+                children.put( segment, child );
+            }
+
+            return child;
+        }
+
+
+        private boolean isHeldByOther( Object owner, Object type )
+        {
+            Object holder = holders.get( type );
+
+            return holder != null && holder != owner;
+        }
+
+
+        private boolean isOwnedByOther( Object owner, Object type )
+        {
+            Map<Object, Integer> counts = owners.get( type );
+
+            return counts != null && ( counts.size() > 1 || !counts.containsKey( owner ) );
+        }
+
+
+        private void addOwner( Object owner, Object type )
+        {
+            Map<Object, Integer> counts = owners.get( type );
+
+            if ( counts == null )
+            {
+                counts = new IdentityHashMap<>( 2 );
+                owners.put( type, counts );
+            }
+
+            Integer count = counts.get( owner );
+            counts.put( owner, count == null ? 1 : count + 1 );
+        }
+
+
+        private void removeOwner( Object owner, Object type )
+        {
+            Map<Object, Integer> counts = owners.get( type );
+            Integer count = counts.get( owner );
+
+            if ( count == 1 )
+            {
+                counts.remove( owner );
+
+                if ( counts.isEmpty() )
+                {
+                    owners.remove( type );
+                }
+            }
+            else
+            {
+                counts.put( owner, count - 1 );
+            }
+        }
+
+
+        private boolean isEmpty()
+        {
+            return children.isEmpty() && owners.isEmpty();
+        }
+    }
+
+    /**
+     * A node locked by an owner.
+     */
+    private static final class LockedNode
+    {
+        private final Node node;
+
+        private final Object type;
+
+
+        private LockedNode( Node node, Object type )
+        {
+            this.node = node;
+            this.type = type;
+        }
+    }
+
+    /**
+     * An owner waiting for its locks.
+     */
+    private static final class Waiter
+    {
+        private final List<Lock> locks;
+
+        private final Runnable onGranted;
+
+        private final long since = System.currentTimeMillis();
+
+
+        private Waiter( List<Lock> locks, Runnable onGranted )
+        {
+            this.locks = locks;
+            this.onGranted = onGranted;
+        }
+    }
+}
@@ -21,10 +21,15 @@
 package org.apache.directory.studio.common.core.jobs;
 
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 
 
 /**
@@ -34,6 +39,9 @@ import org.eclipse.core.runtime.jobs.Job;
  */
 public class StudioJob<T extends StudioRunnableWithProgress> extends Job
 {
+    /** The lock manager shared by all jobs. */
+    private static final JobLockManager lockManager = new JobLockManager();
+
     /** The runnables. */
     protected T[] runnables;
 
@@ -47,6 +55,26 @@ public class StudioJob<T extends StudioRunnableWithProgress> extends Job
     {
         super( runnables[0].getName() );
         this.runnables = runnables;
+
+        // release the locks when the job is done or was canceled before it ran
+        addJobChangeListener( new JobChangeAdapter()
+        {
+            public void done( IJobChangeEvent event )
+            {
+                lockManager.release( StudioJob.this );
+            }
+        } );
+    }
+
+
+    /**
+     * Gets the lock manager that grants the locks of the jobs.
+     *
+     * @return the lock manager
+     */
+    public static JobLockManager getLockManager()
+    {
+        return lockManager;
     }
 
 
@@ -142,53 +170,51 @@ public class StudioJob<T extends StudioRunnableWithProgress> extends Job
 
     /**
      * {@inheritDoc}
+     *
+     * A job is only scheduled if it gets the locks on the objects of its runnables:
+     * the same type of runnable must not work on the same object, or on a parent
+     * or child of it, concurrently. Otherwise the job is queued and scheduled as
+     * soon as the conflicting jobs are done.
      */
     public boolean shouldSchedule()
     {
-        // We don't schedule a job if the same type of runnable should run
-        // that works on the same entry as the current runnable.
+        List<JobLockManager.Lock> locks = new ArrayList<>();
 
         for ( T runnable : runnables )
         {
-            Object[] myLockedObjects = runnable.getLockedObjects();
-            String[] myLockedObjectsIdentifiers = getLockIdentifiers( myLockedObjects );
-
-            Job[] jobs = getJobManager().find( null );
-            
-            for ( Job job : jobs )
+            for ( Object lockedObject : runnable.getLockedObjects() )
             {
-                if ( job instanceof StudioJob )
-                {
-                    @SuppressWarnings("unchecked")
-                    StudioJob<StudioRunnableWithProgress> otherJob = ( StudioJob<StudioRunnableWithProgress> ) job;
-                    
-                    for ( StudioRunnableWithProgress otherRunnable : otherJob.runnables )
-                    {
-                        if ( ( runnable.getClass() == otherRunnable.getClass() ) && ( runnable != otherRunnable ) )
-                        {
-                            Object[] otherLockedObjects = otherRunnable.getLockedObjects();
-                            String[] otherLockedObjectIdentifiers = getLockIdentifiers( otherLockedObjects );
-
-                            for ( String other : otherLockedObjectIdentifiers )
-                            {
-                                for ( String myLockedObjectIdentifier : myLockedObjectsIdentifiers )
-                                {
-                                    if ( other.startsWith( myLockedObjectIdentifier ) || myLockedObjectIdentifier.startsWith( other ) )
-                                    {
-                                        return false;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
+                locks.add( new JobLockManager.Lock( runnable.getClass(), getLockPath( lockedObject ) ) );
             }
         }
-        
+
+        if ( !lockManager.acquire( this, locks, this::schedule ) )
+        {
+            return false;
+        }
+
         return super.shouldSchedule();
     }
 
 
+    /**
+     * Gets the lock path of the given object, the path from the root of the lock
+     * hierarchy to the object. A lock on the object also covers all objects whose
+     * lock path starts with the path of the object.
+     * <p>
+     * This implementation returns a single element path containing the
+     * lock identifier of the object.
+     *
+     * @param object the object
+     * @return the lock path of the object
+     */
+    protected Object[] getLockPath( Object object )
+    {
+        return getLockIdentifiers( new Object[]
+            { object } );
+    }
+
+
     /**
      * Gets the string identifiers for the given objects.
      *
@@ -83,7 +83,14 @@ public class StudioProgressMonitor extends ProgressMonitorWrapper
         super( monitor );
         this.pluginId = pluginId;
         isDone = false;
-        CommonCorePlugin.getDefault().getStudioProgressMonitorWatcherJob().addMonitor(this);
+
+        // the watcher job is not available if the plug-in isn't started, e.g. in unit tests
+        CommonCorePlugin plugin = CommonCorePlugin.getDefault();
+        if ( plugin != null && plugin.getStudioProgressMonitorWatcherJob() != null )
+        {
+            plugin.getStudioProgressMonitorWatcherJob().addMonitor( this );
+        }
+
         allowMessageReporting = new AtomicBoolean( true );
     }
 
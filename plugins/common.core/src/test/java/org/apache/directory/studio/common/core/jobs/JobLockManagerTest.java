@@ -0,0 +1,188 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.common.core.jobs;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.directory.studio.common.core.jobs.JobLockManager.Lock;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link JobLockManager}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class JobLockManagerTest
+{
+    private JobLockManager manager = new JobLockManager();
+
+    /** The owners whose queued locks were granted, in grant order */
+    private List<String> granted = new ArrayList<String>();
+
+
+    private boolean acquire( final String owner, Lock... locks )
+    {
+        return manager.acquire( owner, Arrays.asList( locks ), new Runnable()
+        {
+            public void run()
+            {
+                assertFalse( "callback invoked while holding the monitor", Thread.holdsLock( manager ) ); //$NON-NLS-1$
+                granted.add( owner );
+            }
+        } );
+    }
+
+
+    private static Lock lock( Object type, Object... path )
+    {
+        return new Lock( type, path );
+    }
+
+
+    @Test
+    public void testSameTypePrefixAndSubtreeConflicts()
+    {
+        assertTrue( acquire( "A", lock( "t", "c", "a" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+        // a sibling path doesn't conflict
+        assertTrue( acquire( "S", lock( "t", "c", "s" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+        // the same path, a path in the subtree and an ancestor path conflict
+        assertFalse( acquire( "B", lock( "t", "c", "a" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        assertFalse( acquire( "C", lock( "t", "c", "a", "x" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        assertFalse( acquire( "D", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertEquals( 3, manager.getQueuedCount() );
+
+        // an owner that already holds locks gets no additional locks
+        assertTrue( acquire( "A", lock( "t", "c", "s" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    }
+
+
+    @Test
+    public void testDifferentTypesDontConflict()
+    {
+        assertTrue( acquire( "A", lock( "t1", "c", "a" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        assertTrue( acquire( "B", lock( "t2", "c", "a" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        assertTrue( acquire( "C", lock( "t2", "c", "b" ), lock( "t3", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+        assertEquals( 0, manager.getQueuedCount() );
+    }
+
+
+    @Test
+    public void testFifoGrantOrder()
+    {
+        assertTrue( acquire( "A", lock( "t", "c", "a" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        assertFalse( acquire( "B", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        // C doesn't conflict with the held lock of A, but with the lock B waits for
+        assertFalse( acquire( "C", lock( "t", "c", "b" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+        // D waits on the same path as B
+        assertFalse( acquire( "D", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        // an unrelated path is granted at once
+        assertTrue( acquire( "E", lock( "t", "d" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        manager.release( "A" ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "B" ), granted ); //$NON-NLS-1$
+
+        manager.release( "B" ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "B", "C" ), granted ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        manager.release( "C" ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "B", "C", "D" ), granted ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertEquals( 0, manager.getQueuedCount() );
+        assertEquals( 3, manager.getWaitCount() );
+    }
+
+
+    @Test
+    public void testReleaseQueuedOwner()
+    {
+        assertTrue( acquire( "A", lock( "t", "c", "a" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        assertFalse( acquire( "B", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertFalse( acquire( "C", lock( "t", "c", "b" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+        // B is removed from the queue before its locks were granted, C only waited for B
+        manager.release( "B" ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "C" ), granted ); //$NON-NLS-1$
+        assertEquals( 0, manager.getQueuedCount() );
+
+        // the callback of B is never invoked
+        manager.release( "A" ); //$NON-NLS-1$
+        manager.release( "C" ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "C" ), granted ); //$NON-NLS-1$
+        assertTrue( manager.isEmpty() );
+    }
+
+
+    @Test
+    public void testCallbackInvokedOnceOutsideMonitor()
+    {
+        assertTrue( acquire( "A", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertFalse( acquire( "B", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        // queuing the same owner again doesn't register a second callback
+        assertFalse( acquire( "B", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertEquals( 1, manager.getQueuedCount() );
+
+        // the callback asserts that the monitor isn't held
+        manager.release( "A" ); //$NON-NLS-1$
+        manager.release( "A" ); //$NON-NLS-1$
+        assertTrue( acquire( "B", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertEquals( Arrays.asList( "B" ), granted ); //$NON-NLS-1$
+
+        manager.release( "B" ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "B" ), granted ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testTriePrunedAfterRelease()
+    {
+        assertTrue( manager.isEmpty() );
+
+        assertTrue( acquire( "A", lock( "t", "c", "a", "1" ), lock( "u", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+        assertTrue( acquire( "B", lock( "t", "c", "a", "2" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        assertFalse( acquire( "C", lock( "t", "c" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertFalse( manager.isEmpty() );
+
+        manager.release( "A" ); //$NON-NLS-1$
+        manager.release( "B" ); //$NON-NLS-1$
+        assertFalse( manager.isEmpty() );
+
+        manager.release( "C" ); //$NON-NLS-1$
+        assertTrue( manager.isEmpty() );
+
+        // the pruned paths can be locked again
+        assertTrue( acquire( "D", lock( "t", "c", "a" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        manager.release( "D" ); //$NON-NLS-1$
+        assertTrue( manager.isEmpty() );
+    }
+}
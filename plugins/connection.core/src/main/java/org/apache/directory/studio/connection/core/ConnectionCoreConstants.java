@@ -76,6 +76,12 @@ public final class ConnectionCoreConstants
     /** The constant used to identify the "search log file size" preference  */
     public static final String PREFERENCE_SEARCHLOGS_FILE_SIZE = "searchLogsFileSize"; //$NON-NLS-1$
 
+    /** The constant used to identify the "log buffer size" preference, the maximum number of queued log records  */
+    public static final String PREFERENCE_LOGS_BUFFER_SIZE = "logsBufferSize"; //$NON-NLS-1$
+
+    /** The constant used to identify the "log overflow policy" preference, BLOCK or DROP  */
+    public static final String PREFERENCE_LOGS_OVERFLOW_POLICY = "logsOverflowPolicy"; //$NON-NLS-1$
+
     /** The constant used to identify the "masked attributes" preference  */
     public static final String PREFERENCE_MODIFICATIONLOGS_MASKED_ATTRIBUTES = "modificationLogsMaskedAttributes"; //$NON-NLS-1$
 
@@ -93,4 +99,31 @@ public final class ConnectionCoreConstants
 
     /** The constant used to identify the 'on' value for the connections passwords keystore setting */
     public static final int PREFERENCE_CONNECTIONS_PASSWORDS_KEYSTORE_ON = 1;
+
+    /** The constant used to identify the "connection pool max size" preference  */
+    public static final String PREFERENCE_CONNECTION_POOL_MAX_SIZE = "connectionPoolMaxSize"; //$NON-NLS-1$
+
+    /** The constant used to identify the "connection pool min idle" preference  */
+    public static final String PREFERENCE_CONNECTION_POOL_MIN_IDLE = "connectionPoolMinIdle"; //$NON-NLS-1$
+
+    /** The constant used to identify the "connection pool idle timeout" preference (in seconds) */
+    public static final String PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT = "connectionPoolIdleTimeout"; //$NON-NLS-1$
+
+    /** The constant used to identify the "connection pool validate on borrow" preference  */
+    public static final String PREFERENCE_CONNECTION_POOL_VALIDATE_ON_BORROW = "connectionPoolValidateOnBorrow"; //$NON-NLS-1$
+
+    /** The constant used to identify the "pipeline window size" preference, the maximum number of outstanding bulk operations */
+    public static final String PREFERENCE_PIPELINE_WINDOW_SIZE = "pipelineWindowSize"; //$NON-NLS-1$
+
+    /** The key for the connection parameter "Connection Pool Max Size", overrides the preference */
+    public static final String CONNECTION_PARAMETER_POOL_MAX_SIZE = "connection.poolMaxSize"; //$NON-NLS-1$
+
+    /** The key for the connection parameter "Connection Pool Min Idle", overrides the preference */
+    public static final String CONNECTION_PARAMETER_POOL_MIN_IDLE = "connection.poolMinIdle"; //$NON-NLS-1$
+
+    /** The key for the connection parameter "Connection Pool Idle Timeout", overrides the preference */
+    public static final String CONNECTION_PARAMETER_POOL_IDLE_TIMEOUT = "connection.poolIdleTimeout"; //$NON-NLS-1$
+
+    /** The key for the connection parameter "Connection Pool Validate On Borrow", overrides the preference */
+    public static final String CONNECTION_PARAMETER_POOL_VALIDATE_ON_BORROW = "connection.poolValidateOnBorrow"; //$NON-NLS-1$
 }
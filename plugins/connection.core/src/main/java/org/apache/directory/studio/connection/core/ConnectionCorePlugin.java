@@ -173,6 +173,23 @@ public class ConnectionCorePlugin extends Plugin
             connectionManager = null;
         }
 
+        if ( ldapLoggers != null )
+        {
+            // write the queued log records
+            for ( ILdapLogger ldapLogger : ldapLoggers )
+            {
+                if ( ldapLogger instanceof LdifModificationLogger )
+                {
+                    ( ( LdifModificationLogger ) ldapLogger ).dispose();
+                }
+                else if ( ldapLogger instanceof LdifSearchLogger )
+                {
+                    ( ( LdifSearchLogger ) ldapLogger ).dispose();
+                }
+            }
+            ldapLoggers = null;
+        }
+
         if ( connectionFolderManager != null )
         {
             connectionFolderManager = null;
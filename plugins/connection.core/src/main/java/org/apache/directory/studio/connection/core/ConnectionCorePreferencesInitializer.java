@@ -21,6 +21,7 @@
 package org.apache.directory.studio.connection.core;
 
 
+import org.apache.directory.studio.connection.core.io.api.LdifLogWriter;
 import org.eclipse.core.runtime.Preferences;
 import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
 
@@ -45,6 +46,13 @@ public class ConnectionCorePreferencesInitializer extends AbstractPreferenceInit
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE, defaultKrb5LoginModule );
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES, false );
 
+        // Connection Pool
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MAX_SIZE, 1 );
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MIN_IDLE, 0 );
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT, 300 );
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_VALIDATE_ON_BORROW, true );
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_PIPELINE_WINDOW_SIZE, 1 );
+
         // Modification Logs
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_ENABLE, true );
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_COUNT, 10 );
@@ -56,6 +64,11 @@ public class ConnectionCorePreferencesInitializer extends AbstractPreferenceInit
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_COUNT, 10 );
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_SIZE, 100 );
 
+        // Log Writers
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_LOGS_BUFFER_SIZE, 10000 );
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_LOGS_OVERFLOW_POLICY,
+            LdifLogWriter.OverflowPolicy.BLOCK.name() );
+
         // Connections Passwords Keystore
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTIONS_PASSWORDS_KEYSTORE,
             ConnectionCoreConstants.PREFERENCE_CONNECTIONS_PASSWORDS_KEYSTORE_OFF );
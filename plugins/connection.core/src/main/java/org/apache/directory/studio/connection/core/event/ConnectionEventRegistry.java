@@ -21,18 +21,14 @@
 package org.apache.directory.studio.connection.core.event;
 
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.directory.studio.connection.core.Connection;
-import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
-import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
 import org.apache.directory.studio.connection.core.ConnectionFolder;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 
 
 /**
@@ -44,17 +40,32 @@ import org.eclipse.core.runtime.Status;
 public class ConnectionEventRegistry
 {
 
-    /** The list of threads with suspended event firing. */
-    private static List<Long> suspendedEventFiringThreads = new ArrayList<Long>();
+    /** The suspension depth of event firing, per thread. */
+    private static final ThreadLocal<int[]> suspensionDepth = new ThreadLocal<int[]>()
+    {
+        protected int[] initialValue()
+        {
+            return new int[1];
+        }
+    };
 
     /** The lock used to synchronize event firings */
     protected static Object lock = new Object();
 
-    /** The list with time stamps of recent event firings */
-    private static List<Long> fireTimeStamps = new ArrayList<Long>();
-
     /** A counter for fired events */
-    private static long fireCount = 0L;
+    private static final AtomicLong fireCount = new AtomicLong();
+
+    /** A counter for events that were not fired because event firing was suspended */
+    private static final AtomicLong suspendedFireCount = new AtomicLong();
+
+    /** The second of the current fire rate measurement */
+    private static final AtomicLong fireRateSecond = new AtomicLong();
+
+    /** The number of events fired within the current second */
+    private static final AtomicInteger fireRate = new AtomicInteger();
+
+    /** The maximum number of events fired within one second */
+    private static final AtomicInteger maxFireRate = new AtomicInteger();
 
 
     /**
@@ -64,45 +75,44 @@ public class ConnectionEventRegistry
      */
     protected static boolean isEventFiringSuspendedInCurrentThread()
     {
-        boolean suspended = suspendedEventFiringThreads.contains( Thread.currentThread().getId() );
-
-        // count the number of fired event in the last second
-        // if more then five per second: print a warning
-        if ( !suspended )
+        if ( suspensionDepth.get()[0] > 0 )
         {
-            fireCount++;
+            suspendedFireCount.incrementAndGet();
+            return true;
+        }
 
-            synchronized ( fireTimeStamps )
-            {
-                long now = System.currentTimeMillis();
+        fireCount.incrementAndGet();
+        updateFireRate();
 
-                // remove all time stamps older than one second
-                for ( Iterator<Long> it = fireTimeStamps.iterator(); it.hasNext(); )
-                {
-                    Long ts = it.next();
-                    if ( ts + 1000 < now )
-                    {
-                        it.remove();
-                    }
-                    else
-                    {
-                        break;
-                    }
-                }
+        return false;
+    }
 
-                fireTimeStamps.add( now );
 
-                if ( fireTimeStamps.size() > 5 )
-                {
-                    String message = "Warning: More then " + fireTimeStamps.size() + " events were fired per second!"; //$NON-NLS-1$ //$NON-NLS-2$
-                    ConnectionCorePlugin.getDefault().getLog().log(
-                        new Status( IStatus.WARNING, ConnectionCoreConstants.PLUGIN_ID, message,
-                            new Exception( message ) ) );
-                }
-            }
+    /**
+     * Counts the fired event in the fire rate of the current second.
+     */
+    private static void updateFireRate()
+    {
+        long second = System.currentTimeMillis() / 1000L;
+        long rateSecond = fireRateSecond.get();
+        int rate;
+
+        if ( second != rateSecond && fireRateSecond.compareAndSet( rateSecond, second ) )
+        {
+            fireRate.set( 1 );
+            rate = 1;
+        }
+        else
+        {
+            rate = fireRate.incrementAndGet();
         }
 
-        return suspended;
+        int max = maxFireRate.get();
+
+        while ( rate > max && !maxFireRate.compareAndSet( max, rate ) )
+        {
+            max = maxFireRate.get();
+        }
     }
 
 
@@ -113,7 +123,30 @@ public class ConnectionEventRegistry
      */
     public static long getFireCount()
     {
-        return fireCount;
+        return fireCount.get();
+    }
+
+
+    /**
+     * Gets the number of events that were not fired because event firing
+     * was suspended in the firing thread.
+     * 
+     * @return the number of suspended events
+     */
+    public static long getSuspendedFireCount()
+    {
+        return suspendedFireCount.get();
+    }
+
+
+    /**
+     * Gets the maximum number of events fired within one second.
+     * 
+     * @return the maximum number of events fired within one second
+     */
+    public static int getMaxFireRate()
+    {
+        return maxFireRate.get();
     }
 
 
@@ -122,22 +155,25 @@ public class ConnectionEventRegistry
      */
     public static void resumeEventFiringInCurrentThread()
     {
-        synchronized ( suspendedEventFiringThreads )
+        int[] depth = suspensionDepth.get();
+
+        if ( depth[0] > 0 )
         {
-            suspendedEventFiringThreads.remove( Thread.currentThread().getId() );
+            depth[0]--;
         }
     }
 
 
     /**
      * Suspends event firing in the current thread.
+     * 
+     * Suspensions nest, event firing is resumed when
+     * {@link #resumeEventFiringInCurrentThread()} was called as often as
+     * this method.
      */
     public static void suspendEventFiringInCurrentThread()
     {
-        synchronized ( suspendedEventFiringThreads )
-        {
-            suspendedEventFiringThreads.add( Thread.currentThread().getId() );
-        }
+        suspensionDepth.get()[0]++;
     }
 
     private static final EventManager<ConnectionUpdateListener, EventRunner> connectionUpdateEventManager = new EventManager<ConnectionUpdateListener, EventRunner>();
@@ -375,7 +411,8 @@ public class ConnectionEventRegistry
 
     public static class EventManager<L, R extends EventRunner>
     {
-        private Map<L, EventRunner> listeners = new HashMap<L, EventRunner>();
+        /** The listeners and their runners, replaced on each modification and read without locking */
+        private volatile Map<L, EventRunner> listeners = Collections.emptyMap();
 
 
         /**
@@ -389,11 +426,13 @@ public class ConnectionEventRegistry
             assert listener != null;
             assert runner != null;
 
-            synchronized ( listeners )
+            synchronized ( this )
             {
                 if ( !listeners.containsKey( listener ) )
                 {
-                    listeners.put( listener, runner );
+                    Map<L, EventRunner> copy = new LinkedHashMap<L, EventRunner>( listeners );
+                    copy.put( listener, runner );
+                    listeners = copy;
                 }
             }
         }
@@ -406,22 +445,23 @@ public class ConnectionEventRegistry
          */
         public void removeListener( L listener )
         {
-            synchronized ( listeners )
+            synchronized ( this )
             {
                 if ( listeners.containsKey( listener ) )
                 {
-                    listeners.remove( listener );
+                    Map<L, EventRunner> copy = new LinkedHashMap<L, EventRunner>( listeners );
+                    copy.remove( listener );
+                    listeners = copy;
                 }
             }
         }
 
 
         /**
-         * Notifies each {@link ConnectionUpdateListener} about the removed connection.
-         * Uses the {@link EventRunner}s.
+         * Notifies each listener using the {@link EventRunnable}s created
+         * by the given factory. Uses the {@link EventRunner}s.
          *
-         * @param connection the removed connection
-         * @param source the source
+         * @param factory the event runnable factory
          */
         public void fire( EventRunnableFactory<L> factory )
         {
@@ -430,14 +470,19 @@ public class ConnectionEventRegistry
                 return;
             }
 
-            Map<L, EventRunner> clone = new HashMap<L, EventRunner>( listeners );
-            for ( final L listener : clone.keySet() )
+            Map<L, EventRunner> snapshot = listeners;
+
+            if ( snapshot.isEmpty() )
+            {
+                return;
+            }
+
+            synchronized ( lock )
             {
-                EventRunner runner = clone.get( listener );
-                synchronized ( lock )
+                for ( Map.Entry<L, EventRunner> entry : snapshot.entrySet() )
                 {
-                    EventRunnable runnable = factory.createEventRunnable( listener );
-                    runner.execute( runnable );
+                    EventRunnable runnable = factory.createEventRunnable( entry.getKey() );
+                    entry.getValue().execute( runnable );
                 }
             }
         }
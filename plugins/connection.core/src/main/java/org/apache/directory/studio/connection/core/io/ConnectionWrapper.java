@@ -21,6 +21,7 @@ package org.apache.directory.studio.connection.core.io;
 
 
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 import javax.naming.directory.SearchControls;
 
@@ -78,6 +79,16 @@ public interface ConnectionWrapper
     boolean isConnected();
 
 
+    /**
+     * Gets the maximum number of operations that can run concurrently, i.e. the
+     * maximum size of the connection pool. A value of 1 means that all operations
+     * share one single connection.
+     * 
+     * @return the maximum number of concurrent operations, at least 1
+     */
+    int getConnectionPoolSize();
+
+
     /**
      * Sets the binary attributes.
      * 
@@ -155,4 +166,88 @@ public interface ConnectionWrapper
      */
     void deleteEntry( final Dn dn, final Control[] controls, final StudioProgressMonitor monitor,
         final ReferralsInfo referralsInfo );
+
+
+    /**
+     * Runs the given operations asynchronously. The operations are executed by a 
+     * thread owned by this connection wrapper, several asynchronous operations may
+     * run concurrently. The caller is responsible to limit the number of outstanding
+     * operations and to order dependent operations.
+     * 
+     * @param operations the operations to run
+     * 
+     * @return the future, completed when the operations are done
+     */
+    CompletableFuture<Void> runAsync( Runnable operations );
+
+
+    /**
+     * Modifies attributes of an entry asynchronously, errors are reported to the monitor.
+     * 
+     * @param dn the Dn
+     * @param modifications the modification items
+     * @param controls the controls
+     * @param monitor the progress monitor, must not be shared with other outstanding operations
+     * @param referralsInfo the referrals info
+     * 
+     * @return the future, completed when the operation is done
+     */
+    default CompletableFuture<Void> modifyEntryAsync( final Dn dn, final Collection<Modification> modifications,
+        final Control[] controls, final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
+    {
+        return runAsync( () -> modifyEntry( dn, modifications, controls, monitor, referralsInfo ) );
+    }
+
+
+    /**
+     * Renames an entry asynchronously, errors are reported to the monitor.
+     * 
+     * @param oldDn the old Dn
+     * @param newDn the new Dn
+     * @param deleteOldRdn true to delete the old Rdn
+     * @param controls the controls
+     * @param monitor the progress monitor, must not be shared with other outstanding operations
+     * @param referralsInfo the referrals info
+     * 
+     * @return the future, completed when the operation is done
+     */
+    default CompletableFuture<Void> renameEntryAsync( final Dn oldDn, final Dn newDn, final boolean deleteOldRdn,
+        final Control[] controls, final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
+    {
+        return runAsync( () -> renameEntry( oldDn, newDn, deleteOldRdn, controls, monitor, referralsInfo ) );
+    }
+
+
+    /**
+     * Creates an entry asynchronously, errors are reported to the monitor.
+     * 
+     * @param entry the entry
+     * @param controls the controls
+     * @param monitor the progress monitor, must not be shared with other outstanding operations
+     * @param referralsInfo the referrals info
+     * 
+     * @return the future, completed when the operation is done
+     */
+    default CompletableFuture<Void> createEntryAsync( final Entry entry, final Control[] controls,
+        final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
+    {
+        return runAsync( () -> createEntry( entry, controls, monitor, referralsInfo ) );
+    }
+
+
+    /**
+     * Deletes an entry asynchronously, errors are reported to the monitor.
+     * 
+     * @param dn the Dn of the entry to delete
+     * @param controls the controls
+     * @param monitor the progress monitor, must not be shared with other outstanding operations
+     * @param referralsInfo the referrals info
+     * 
+     * @return the future, completed when the operation is done
+     */
+    default CompletableFuture<Void> deleteEntryAsync( final Dn dn, final Control[] controls,
+        final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
+    {
+        return runAsync( () -> deleteEntry( dn, controls, monitor, referralsInfo ) );
+    }
 }
@@ -0,0 +1,338 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.connection.core.io;
+
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
+import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
+
+
+/**
+ * Keeps a window of outstanding asynchronous operations on a {@link ConnectionWrapper}.
+ * <p>
+ * Operations are submitted together with a context object and the Dns they affect.
+ * The results are handed to the {@link ResultHandler} in the caller thread and in
+ * submission order, so logging and bookkeeping look exactly like a sequential execution.
+ * An operation is not started before all outstanding operations on the same Dn, an
+ * ancestor Dn or a descendant Dn are finished.
+ * <p>
+ * With a window size of 1 each operation is executed synchronously in the caller thread.
+ *
+ * @param <T> the type of the context object
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class OperationPipeline<T>
+{
+    /**
+     * An operation, executed with its own progress monitor.
+     */
+    @FunctionalInterface
+    public interface Operation
+    {
+        /**
+         * Runs the operation. Errors are reported to the given monitor.
+         *
+         * @param monitor the progress monitor of the operation
+         * @throws Exception if an error occurs
+         */
+        void run( StudioProgressMonitor monitor ) throws Exception;
+    }
+
+    /**
+     * Handles the result of an operation.
+     *
+     * @param <T> the type of the context object
+     */
+    @FunctionalInterface
+    public interface ResultHandler<T>
+    {
+        /**
+         * Handles the result of an operation.
+         *
+         * @param context the context object given on submission
+         * @param monitor the progress monitor of the operation, contains the reported errors,
+         *      null if no operation was submitted with the context object
+         * @return false to stop the pipeline, no more operations are accepted afterwards
+         * @throws Exception if an error occurs
+         */
+        boolean handle( T context, StudioProgressMonitor monitor ) throws Exception;
+    }
+
+    /** The connection wrapper */
+    private ConnectionWrapper connectionWrapper;
+
+    /** The maximum number of outstanding operations */
+    private int windowSize;
+
+    /** The result handler */
+    private ResultHandler<T> resultHandler;
+
+    /** The outstanding operations, in submission order */
+    private Deque<PendingOperation> pendingOperations = new ArrayDeque<>();
+
+    /** The progress monitors not used by an outstanding operation */
+    private Deque<StudioProgressMonitor> freeMonitors = new ArrayDeque<>();
+
+    /** Flag indicating if the pipeline was stopped by the result handler */
+    private boolean stopped = false;
+
+
+    /**
+     * Creates a new instance of OperationPipeline.
+     *
+     * @param connectionWrapper the connection wrapper
+     * @param windowSize the maximum number of outstanding operations
+     * @param monitor the progress monitor, parent of the operation monitors
+     * @param resultHandler the result handler
+     */
+    public OperationPipeline( ConnectionWrapper connectionWrapper, int windowSize, StudioProgressMonitor monitor,
+        ResultHandler<T> resultHandler )
+    {
+        this.connectionWrapper = connectionWrapper;
+        this.windowSize = Math.max( 1, windowSize );
+        this.resultHandler = resultHandler;
+
+        for ( int i = 0; i < this.windowSize; i++ )
+        {
+            freeMonitors.add( new StudioProgressMonitor( monitor ) );
+        }
+    }
+
+
+    /**
+     * Gets the default window size, as configured in the preferences.
+     *
+     * @return the default window size
+     */
+    public static int getDefaultWindowSize()
+    {
+        return Math.max( 1, ConnectionCorePlugin.getDefault().getPluginPreferences()
+            .getInt( ConnectionCoreConstants.PREFERENCE_PIPELINE_WINDOW_SIZE ) );
+    }
+
+
+    /**
+     * Submits an operation. If the window is full this method waits until the
+     * oldest outstanding operation is finished.
+     *
+     * @param context the context object passed to the result handler
+     * @param dns the Dns affected by the operation
+     * @param operation the operation, may be null to pass the context object to
+     *      the result handler in order, without executing anything
+     * @return false if the pipeline was stopped and the operation was not submitted
+     * @throws Exception if the result handler fails
+     */
+    public boolean submit( T context, Collection<Dn> dns, Operation operation ) throws Exception
+    {
+        if ( stopped )
+        {
+            return false;
+        }
+
+        if ( operation == null )
+        {
+            if ( pendingOperations.isEmpty() )
+            {
+                stopped = !resultHandler.handle( context, null );
+            }
+            else
+            {
+                pendingOperations.add( new PendingOperation( context, Collections.emptyList(), null, null ) );
+            }
+
+            return true;
+        }
+
+        // wait for conflicting operations and for a free slot
+        while ( !pendingOperations.isEmpty() && ( pendingOperations.size() >= windowSize || isConflicting( dns ) ) )
+        {
+            completeOldest();
+        }
+
+        if ( stopped )
+        {
+            return false;
+        }
+
+        StudioProgressMonitor operationMonitor = freeMonitors.poll();
+        operationMonitor.reset();
+
+        if ( windowSize == 1 )
+        {
+            run( operation, operationMonitor );
+            freeMonitors.add( operationMonitor );
+            stopped = !resultHandler.handle( context, operationMonitor );
+        }
+        else
+        {
+            CompletableFuture<Void> future = connectionWrapper.runAsync( () -> run( operation, operationMonitor ) );
+            pendingOperations.add( new PendingOperation( context, dns, operationMonitor, future ) );
+        }
+
+        return !stopped;
+    }
+
+
+    /**
+     * Waits until all outstanding operations are finished and handled.
+     *
+     * @throws Exception if the result handler fails
+     */
+    public void flush() throws Exception
+    {
+        while ( !pendingOperations.isEmpty() )
+        {
+            completeOldest();
+        }
+    }
+
+
+    /**
+     * Checks if the pipeline was stopped by the result handler.
+     *
+     * @return true if the pipeline was stopped
+     */
+    public boolean isStopped()
+    {
+        return stopped;
+    }
+
+
+    private void completeOldest() throws Exception
+    {
+        PendingOperation pending = pendingOperations.poll();
+
+        if ( pending.future != null )
+        {
+            try
+            {
+                pending.future.get();
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause();
+                pending.monitor.reportError( cause instanceof Exception ? ( Exception ) cause : e );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                pending.monitor.reportError( e );
+            }
+
+            freeMonitors.add( pending.monitor );
+        }
+
+        // results of operations that were already sent are handled even if the pipeline was stopped
+        boolean proceed = resultHandler.handle( pending.context, pending.monitor );
+        stopped = stopped || !proceed;
+    }
+
+
+    private static void run( Operation operation, StudioProgressMonitor monitor )
+    {
+        try
+        {
+            operation.run( monitor );
+        }
+        catch ( Exception e )
+        {
+            monitor.reportError( e );
+        }
+    }
+
+
+    private boolean isConflicting( Collection<Dn> dns )
+    {
+        for ( PendingOperation pending : pendingOperations )
+        {
+            for ( String pendingDn : pending.dns )
+            {
+                for ( Dn dn : dns )
+                {
+                    if ( isSameOrRelated( pendingDn, normalize( dn ) ) )
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Checks if the Dns are equal or if one Dn is an ancestor of the other one. The
+     * check is done on the normalized, lower-cased form and errs on the side of a conflict.
+     */
+    private static boolean isSameOrRelated( String dn1, String dn2 )
+    {
+        if ( dn1.isEmpty() || dn2.isEmpty() || dn1.equals( dn2 ) )
+        {
+            return true;
+        }
+
+        return dn1.endsWith( "," + dn2 ) || dn2.endsWith( "," + dn1 ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    private static String normalize( Dn dn )
+    {
+        return dn == null ? "" : dn.getNormName().toLowerCase( Locale.ROOT ); //$NON-NLS-1$
+    }
+
+    /**
+     * An outstanding operation.
+     */
+    private class PendingOperation
+    {
+        private final T context;
+        private final String[] dns;
+        private final StudioProgressMonitor monitor;
+        private final CompletableFuture<Void> future;
+
+
+        PendingOperation( T context, Collection<Dn> dns, StudioProgressMonitor monitor,
+            CompletableFuture<Void> future )
+        {
+            this.context = context;
+            this.dns = new String[dns.size()];
+            this.monitor = monitor;
+            this.future = future;
+
+            int i = 0;
+
+            for ( Dn dn : dns )
+            {
+                this.dns[i++] = normalize( dn );
+            }
+        }
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
+import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
+import org.eclipse.core.runtime.Preferences;
+
+
+/**
+ * A pool of bound LDAP connections used by the {@link DirectoryApiConnectionWrapper}
+ * to run several operations concurrently against the same directory server.
+ * <p>
+ * The primary connection of the wrapper is always part of the pool. Additional
+ * connections are opened and bound on demand (using the same bind identity as the
+ * primary connection) until the maximum size is reached. When the pool is exhausted
+ * and no connection is released within the connection timeout, the primary connection
+ * is shared, the underlying LDAP connection is able to multiplex requests.
+ * <p>
+ * With a maximum size of 1 (the default) the pool always returns the primary
+ * connection, which is the historical behaviour of the wrapper.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DirectoryApiConnectionPool
+{
+    /** The wrapper used to open and bind new connections */
+    private DirectoryApiConnectionWrapper connectionWrapper;
+
+    /** The maximum number of physical connections, including the primary connection */
+    private int maxSize;
+
+    /** The minimum number of idle connections kept open */
+    private int minIdle;
+
+    /** The time in milliseconds after which an idle connection is closed */
+    private long idleTimeoutMillis;
+
+    /** Flag indicating if a connection is validated with a Root DSE lookup before it is handed out */
+    private boolean validateOnBorrow;
+
+    /** The maximum time in milliseconds to wait for a free connection */
+    private long maxWaitMillis;
+
+    /** The idle pooled connections, the most recently used first */
+    private Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+
+    /** The opened pooled connections (idle or borrowed), excluding the primary connection */
+    private Set<LdapNetworkConnection> pooledConnections = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+    /** The number of pooled connections currently being opened */
+    private int pendingConnectionCount = 0;
+
+    /** The number of leases of the primary connection */
+    private int primaryLeaseCount = 0;
+
+    /** Flag indicating if the pool is closed */
+    private boolean closed = false;
+
+
+    /**
+     * Creates a new instance of DirectoryApiConnectionPool.
+     * <p>
+     * The pool settings are read from the connection parameters, if not defined
+     * there the plugin preferences are used.
+     *
+     * @param connectionWrapper the connection wrapper
+     * @param connection the connection
+     */
+    public DirectoryApiConnectionPool( DirectoryApiConnectionWrapper connectionWrapper, Connection connection )
+    {
+        this.connectionWrapper = connectionWrapper;
+
+        Preferences preferences = ConnectionCorePlugin.getDefault().getPluginPreferences();
+        maxSize = getMaxSize( connection );
+        minIdle = getParameter( connection, ConnectionCoreConstants.CONNECTION_PARAMETER_POOL_MIN_IDLE,
+            preferences.getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MIN_IDLE ) );
+        idleTimeoutMillis = 1000L * getParameter( connection,
+            ConnectionCoreConstants.CONNECTION_PARAMETER_POOL_IDLE_TIMEOUT,
+            preferences.getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT ) );
+        validateOnBorrow = getParameter( connection,
+            ConnectionCoreConstants.CONNECTION_PARAMETER_POOL_VALIDATE_ON_BORROW,
+            preferences.getBoolean( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_VALIDATE_ON_BORROW ) );
+        maxWaitMillis = connection.getTimeoutMillis() > 0 ? connection.getTimeoutMillis() : 30000L;
+    }
+
+
+    private static int getParameter( Connection connection, String key, int defaultValue )
+    {
+        int value = connection.getConnectionParameter().getExtendedIntProperty( key );
+
+        return value >= 0 ? value : defaultValue;
+    }
+
+
+    private static boolean getParameter( Connection connection, String key, boolean defaultValue )
+    {
+        String value = connection.getConnectionParameter().getExtendedProperty( key );
+
+        return value != null ? Boolean.parseBoolean( value ) : defaultValue;
+    }
+
+
+    /**
+     * Gets the configured maximum size of the pool of the given connection,
+     * without creating a pool.
+     *
+     * @param connection the connection
+     * @return the configured maximum size of the pool, not normalized
+     */
+    static int getMaxSize( Connection connection )
+    {
+        return getParameter( connection, ConnectionCoreConstants.CONNECTION_PARAMETER_POOL_MAX_SIZE,
+            ConnectionCorePlugin.getDefault().getPluginPreferences()
+                .getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MAX_SIZE ) );
+    }
+
+
+    /**
+     * Gets the maximum number of physical connections of this pool, including
+     * the primary connection.
+     *
+     * @return the maximum size of the pool, at least 1
+     */
+    public int getMaxSize()
+    {
+        return Math.max( 1, maxSize );
+    }
+
+
+    /**
+     * Gets the number of physical connections currently opened by this pool,
+     * excluding the primary connection.
+     *
+     * @return the number of pooled connections
+     */
+    public synchronized int getPooledConnectionCount()
+    {
+        return pooledConnections.size();
+    }
+
+
+    /**
+     * Borrows a connection from the pool. The returned connection must be
+     * given back using {@link #release(LdapNetworkConnection)}.
+     *
+     * @param primary the primary connection of the wrapper
+     * @return the connection to use, either the primary connection or a pooled one
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public LdapNetworkConnection borrow( LdapNetworkConnection primary ) throws InterruptedException
+    {
+        if ( getMaxSize() <= 1 )
+        {
+            synchronized ( this )
+            {
+                primaryLeaseCount++;
+            }
+
+            return primary;
+        }
+
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+
+        while ( true )
+        {
+            LdapNetworkConnection candidate = null;
+            boolean create = false;
+
+            synchronized ( this )
+            {
+                evictIdleConnections();
+
+                if ( primaryLeaseCount == 0 || closed )
+                {
+                    primaryLeaseCount++;
+                    return primary;
+                }
+                else if ( !idleConnections.isEmpty() )
+                {
+                    candidate = idleConnections.pollFirst().connection;
+                }
+                else if ( pooledConnections.size() + pendingConnectionCount + 1 < maxSize )
+                {
+                    // reserve the slot, the connection is opened outside of the lock
+                    pendingConnectionCount++;
+                    create = true;
+                }
+                else
+                {
+                    long remaining = deadline - System.currentTimeMillis();
+
+                    if ( remaining <= 0 )
+                    {
+                        // share the primary connection rather than failing the operation
+                        primaryLeaseCount++;
+                        return primary;
+                    }
+
+                    wait( remaining );
+                    continue;
+                }
+            }
+
+            if ( create )
+            {
+                LdapNetworkConnection created = null;
+
+                try
+                {
+                    created = connectionWrapper.openPooledConnection();
+                }
+                catch ( Exception e )
+                {
+                    // fall through, the primary connection is used
+                }
+
+                synchronized ( this )
+                {
+                    pendingConnectionCount--;
+
+                    if ( created != null )
+                    {
+                        pooledConnections.add( created );
+                        return created;
+                    }
+
+                    primaryLeaseCount++;
+                    notifyAll();
+                }
+
+                return primary;
+            }
+            else if ( isValid( candidate ) )
+            {
+                return candidate;
+            }
+            else
+            {
+                discard( candidate );
+            }
+        }
+    }
+
+
+    /**
+     * Gives back a connection obtained by {@link #borrow(LdapNetworkConnection)}.
+     *
+     * @param connection the borrowed connection
+     */
+    public void release( LdapNetworkConnection connection )
+    {
+        if ( connection == null )
+        {
+            return;
+        }
+
+        synchronized ( this )
+        {
+            if ( !pooledConnections.contains( connection ) )
+            {
+                // a lease of the primary connection
+                primaryLeaseCount = Math.max( 0, primaryLeaseCount - 1 );
+                notifyAll();
+                return;
+            }
+
+            if ( !closed && connection.isConnected() )
+            {
+                idleConnections.addFirst( new IdleConnection( connection ) );
+                evictIdleConnections();
+                notifyAll();
+                return;
+            }
+        }
+
+        discard( connection );
+    }
+
+
+    /**
+     * Closes the given pooled connection instead of returning it to the pool,
+     * used when the connection turned out to be broken.
+     *
+     * @param connection the borrowed connection
+     */
+    public void invalidate( LdapNetworkConnection connection )
+    {
+        if ( isPooled( connection ) )
+        {
+            discard( connection );
+        }
+        else
+        {
+            release( connection );
+        }
+    }
+
+
+    /**
+     * Checks if the given connection is a pooled connection, i.e. not the primary
+     * connection of the wrapper.
+     *
+     * @param connection the connection
+     * @return true if the connection is owned by this pool
+     */
+    public synchronized boolean isPooled( LdapNetworkConnection connection )
+    {
+        return pooledConnections.contains( connection );
+    }
+
+
+    /**
+     * Checks if the primary connection is currently leased more than once, i.e. it
+     * is shared by concurrent operations or open search result enumerations.
+     *
+     * @return true if the primary connection is shared
+     */
+    public synchronized boolean isPrimaryShared()
+    {
+        return primaryLeaseCount > 1;
+    }
+
+
+    /**
+     * Closes all idle connections and the pool. Connections that are still
+     * borrowed are closed when they are released.
+     */
+    public void close()
+    {
+        Deque<IdleConnection> toClose;
+
+        synchronized ( this )
+        {
+            closed = true;
+            toClose = idleConnections;
+            idleConnections = new ArrayDeque<>();
+            primaryLeaseCount = 0;
+            notifyAll();
+        }
+
+        for ( IdleConnection idleConnection : toClose )
+        {
+            discard( idleConnection.connection );
+        }
+    }
+
+
+    /**
+     * Closes idle connections exceeding the minimum idle count that were
+     * not used within the idle timeout. Must be called while holding the lock.
+     */
+    private void evictIdleConnections()
+    {
+        if ( idleTimeoutMillis <= 0 )
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int idleCount = idleConnections.size();
+        Iterator<IdleConnection> iterator = idleConnections.descendingIterator();
+
+        while ( iterator.hasNext() && idleCount > minIdle )
+        {
+            IdleConnection idleConnection = iterator.next();
+
+            if ( now - idleConnection.idleSince > idleTimeoutMillis )
+            {
+                iterator.remove();
+                idleCount--;
+                pooledConnections.remove( idleConnection.connection );
+                closeQuietly( idleConnection.connection );
+            }
+        }
+    }
+
+
+    private boolean isValid( LdapNetworkConnection connection )
+    {
+        if ( connection == null || !connection.isConnected() || !connection.isAuthenticated() )
+        {
+            return false;
+        }
+
+        if ( validateOnBorrow )
+        {
+            try
+            {
+                return connection.lookup( Dn.ROOT_DSE, SchemaConstants.NO_ATTRIBUTE ) != null;
+            }
+            catch ( Exception e )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    private void discard( LdapNetworkConnection connection )
+    {
+        synchronized ( this )
+        {
+            pooledConnections.remove( connection );
+            notifyAll();
+        }
+
+        closeQuietly( connection );
+    }
+
+
+    private static void closeQuietly( LdapNetworkConnection connection )
+    {
+        try
+        {
+            if ( connection != null )
+            {
+                connection.close();
+            }
+        }
+        catch ( Exception e )
+        {
+            // ignore
+        }
+    }
+
+    /**
+     * An idle pooled connection with the time it was released.
+     */
+    private static class IdleConnection
+    {
+        private final LdapNetworkConnection connection;
+        private final long idleSince;
+
+
+        IdleConnection( LdapNetworkConnection connection )
+        {
+            this.connection = connection;
+            this.idleSince = System.currentTimeMillis();
+        }
+    }
+}
@@ -25,6 +25,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.naming.directory.SearchControls;
 import javax.net.ssl.TrustManager;
@@ -102,7 +108,7 @@ import org.eclipse.osgi.util.NLS;
 public class DirectoryApiConnectionWrapper implements ConnectionWrapper
 {
     /** The search request number */
-    private static int searchRequestNum = 0;
+    private static AtomicLong searchRequestNum = new AtomicLong();
 
     /** The connection*/
     private Connection connection;
@@ -110,17 +116,23 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     /** The LDAP Connection Configuration */
     private LdapConnectionConfig ldapConnectionConfig;
 
-    /** The LDAP Connection */
-    private LdapNetworkConnection ldapConnection;
+    /** The primary LDAP Connection */
+    private volatile LdapNetworkConnection ldapConnection;
+
+    /** The pool of additional LDAP connections */
+    private volatile DirectoryApiConnectionPool connectionPool;
 
     /** The binary attribute detector */
     private DefaultConfigurableBinaryAttributeDetector binaryAttributeDetector;
 
     /** Indicates if the wrapper is connected */
-    private boolean isConnected = false;
+    private volatile boolean isConnected = false;
+
+    /** The job threads currently running an operation */
+    private Set<Thread> jobThreads = ConcurrentHashMap.newKeySet();
 
-    /** The current job thread */
-    private Thread jobThread;
+    /** The executor for asynchronous operations */
+    private ExecutorService asyncExecutor;
 
     /** The bind principal */
     private String bindPrincipal;
@@ -150,7 +162,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     {
         ldapConnection = null;
         isConnected = false;
-        jobThread = null;
+        jobThreads.clear();
 
         try
         {
@@ -169,6 +181,11 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         ldapConnection = null;
         isConnected = true;
 
+        if ( connectionPool == null )
+        {
+            connectionPool = new DirectoryApiConnectionPool( this, connection );
+        }
+
         ldapConnectionConfig = new LdapConnectionConfig();
         ldapConnectionConfig.setLdapHost( connection.getHost() );
         ldapConnectionConfig.setLdapPort( connection.getPort() );
@@ -223,21 +240,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             {
                 try
                 {
-                    // Set lower timeout for connecting
-                    long oldTimeout = ldapConnectionConfig.getTimeout();
-                    ldapConnectionConfig.setTimeout( Math.min( oldTimeout, 5000L ) );
-
-                    // Connecting
-                    ldapConnection = new LdapNetworkConnection( ldapConnectionConfig );
-                    boolean connected = ldapConnection.connect();
-
-                    if ( !connected )
-                    {
-                        throw new Exception( Messages.DirectoryApiConnectionWrapper_UnableToConnect );
-                    }
-
-                    // Set old timeout again
-                    ldapConnectionConfig.setTimeout( oldTimeout );
+                    ldapConnection = openConnection();
                 }
                 catch ( Exception e )
                 {
@@ -272,17 +275,114 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
+    /**
+     * Opens a new network connection using the current connection configuration.
+     *
+     * @return the opened connection
+     * @throws Exception if the connection can't be opened
+     */
+    private LdapNetworkConnection openConnection() throws Exception
+    {
+        synchronized ( ldapConnectionConfig )
+        {
+            // Set lower timeout for connecting
+            long oldTimeout = ldapConnectionConfig.getTimeout();
+            ldapConnectionConfig.setTimeout( Math.min( oldTimeout, 5000L ) );
+
+            LdapNetworkConnection networkConnection = null;
+
+            try
+            {
+                // Connecting
+                networkConnection = new LdapNetworkConnection( ldapConnectionConfig );
+                boolean connected = networkConnection.connect();
+
+                if ( !connected )
+                {
+                    throw new Exception( Messages.DirectoryApiConnectionWrapper_UnableToConnect );
+                }
+
+                return networkConnection;
+            }
+            catch ( Exception e )
+            {
+                if ( networkConnection != null )
+                {
+                    try
+                    {
+                        networkConnection.close();
+                    }
+                    catch ( Exception exception )
+                    {
+                        // Nothing to do
+                    }
+                }
+
+                throw e;
+            }
+            finally
+            {
+                // Set old timeout again
+                ldapConnectionConfig.setTimeout( oldTimeout );
+            }
+        }
+    }
+
+
+    /**
+     * Opens and binds an additional connection for the connection pool, using
+     * the bind identity of the primary connection.
+     *
+     * @return the bound connection
+     * @throws Exception if the connection can't be opened or bound
+     */
+    LdapNetworkConnection openPooledConnection() throws Exception
+    {
+        if ( !isConnected || ldapConnectionConfig == null )
+        {
+            throw new InvalidConnectionException( Messages.DirectoryApiConnectionWrapper_NoConnection );
+        }
+
+        LdapNetworkConnection pooledConnection = openConnection();
+
+        try
+        {
+            checkResponse( bindConnection( pooledConnection ) );
+            return pooledConnection;
+        }
+        catch ( Exception e )
+        {
+            pooledConnection.close();
+            throw e;
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
     public void disconnect()
     {
-        if ( jobThread != null )
+        for ( Thread t : jobThreads )
         {
-            Thread t = jobThread;
-            jobThread = null;
             t.interrupt();
         }
+        jobThreads.clear();
+
+        synchronized ( this )
+        {
+            if ( asyncExecutor != null )
+            {
+                asyncExecutor.shutdown();
+                asyncExecutor = null;
+            }
+        }
+
+        if ( connectionPool != null )
+        {
+            connectionPool.close();
+            connectionPool = null;
+        }
         if ( ldapConnection != null )
         {
             try
@@ -317,7 +417,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
-    private BindResponse bindSimple( String bindPrincipal, String bindPassword ) throws LdapException
+    private BindResponse bindSimple( LdapNetworkConnection ldapConnection, String bindPrincipal,
+        String bindPassword ) throws LdapException
     {
         BindRequest bindRequest = new BindRequestImpl();
         bindRequest.setName( bindPrincipal );
@@ -327,7 +428,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
-    private BindResponse bindSaslPlain() throws LdapException
+    private BindResponse bindSaslPlain( LdapNetworkConnection ldapConnection ) throws LdapException
     {
         SaslPlainRequest saslPlainRequest = new SaslPlainRequest();
         saslPlainRequest.setUsername( bindPrincipal );
@@ -354,18 +455,10 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                 {
                     try
                     {
-                        BindResponse bindResponse = null;
-
-                        // No Authentication
+                        // Setup credentials
                         if ( connection.getConnectionParameter()
-                            .getAuthMethod() == ConnectionParameter.AuthenticationMethod.NONE )
+                            .getAuthMethod() != ConnectionParameter.AuthenticationMethod.NONE )
                         {
-                            BindRequest bindRequest = new BindRequestImpl();
-                            bindResponse = ldapConnection.bind( bindRequest );
-                        }
-                        else
-                        {
-                            // Setup credentials
                             IAuthHandler authHandler = ConnectionCorePlugin.getDefault().getAuthHandler();
                             if ( authHandler == null )
                             {
@@ -391,102 +484,10 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                             }
                             bindPrincipal = credentials.getBindPrincipal();
                             bindPassword = credentials.getBindPassword();
-
-                            switch ( connection.getConnectionParameter().getAuthMethod() )
-                            {
-                                case SIMPLE:
-                                    // Simple Authentication
-                                    bindResponse = bindSimple( bindPrincipal, bindPassword );
-
-                                    break;
-
-                                case SASL_PLAIN:
-                                    // SASL Plain authentication
-                                    bindResponse = bindSaslPlain();
-
-                                    break;
-
-                                case SASL_CRAM_MD5:
-                                    // CRAM-MD5 Authentication
-                                    SaslCramMd5Request cramMd5Request = new SaslCramMd5Request();
-                                    cramMd5Request.setUsername( bindPrincipal );
-                                    cramMd5Request.setCredentials( bindPassword );
-                                    cramMd5Request
-                                        .setQualityOfProtection( connection.getConnectionParameter().getSaslQop() );
-                                    cramMd5Request.setSecurityStrength( connection.getConnectionParameter()
-                                        .getSaslSecurityStrength() );
-                                    cramMd5Request.setMutualAuthentication( connection.getConnectionParameter()
-                                        .isSaslMutualAuthentication() );
-
-                                    bindResponse = ldapConnection.bind( cramMd5Request );
-                                    break;
-
-                                case SASL_DIGEST_MD5:
-                                    // DIGEST-MD5 Authentication
-                                    SaslDigestMd5Request digestMd5Request = new SaslDigestMd5Request();
-                                    digestMd5Request.setUsername( bindPrincipal );
-                                    digestMd5Request.setCredentials( bindPassword );
-                                    digestMd5Request.setRealmName( connection.getConnectionParameter().getSaslRealm() );
-                                    digestMd5Request.setQualityOfProtection( connection.getConnectionParameter()
-                                        .getSaslQop() );
-                                    digestMd5Request.setSecurityStrength( connection.getConnectionParameter()
-                                        .getSaslSecurityStrength() );
-                                    digestMd5Request.setMutualAuthentication( connection.getConnectionParameter()
-                                        .isSaslMutualAuthentication() );
-
-                                    bindResponse = ldapConnection.bind( digestMd5Request );
-                                    break;
-
-                                case SASL_GSSAPI:
-                                    // GSSAPI Authentication
-                                    SaslGssApiRequest gssApiRequest = new SaslGssApiRequest();
-
-                                    Preferences preferences = ConnectionCorePlugin.getDefault().getPluginPreferences();
-                                    boolean useKrb5SystemProperties = preferences
-                                        .getBoolean( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES );
-                                    String krb5LoginModule = preferences
-                                        .getString( ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE );
-
-                                    if ( !useKrb5SystemProperties )
-                                    {
-                                        gssApiRequest.setUsername( bindPrincipal );
-                                        gssApiRequest.setCredentials( bindPassword );
-                                        gssApiRequest.setQualityOfProtection( connection
-                                            .getConnectionParameter().getSaslQop() );
-                                        gssApiRequest.setSecurityStrength( connection
-                                            .getConnectionParameter()
-                                            .getSaslSecurityStrength() );
-                                        gssApiRequest.setMutualAuthentication( connection
-                                            .getConnectionParameter()
-                                            .isSaslMutualAuthentication() );
-                                        gssApiRequest
-                                            .setLoginModuleConfiguration( new InnerConfiguration(
-                                                krb5LoginModule ) );
-
-                                        switch ( connection.getConnectionParameter().getKrb5Configuration() )
-                                        {
-                                            case FILE:
-                                                gssApiRequest.setKrb5ConfFilePath( connection.getConnectionParameter()
-                                                    .getKrb5ConfigurationFile() );
-                                                break;
-                                            case MANUAL:
-                                                gssApiRequest.setRealmName( connection.getConnectionParameter()
-                                                    .getKrb5Realm() );
-                                                gssApiRequest.setKdcHost( connection.getConnectionParameter()
-                                                    .getKrb5KdcHost() );
-                                                gssApiRequest.setKdcPort( connection.getConnectionParameter()
-                                                    .getKrb5KdcPort() );
-                                                break;
-                                            default:
-                                                break;
-                                        }
-                                    }
-
-                                    bindResponse = ldapConnection.bind( gssApiRequest );
-                                    break;
-                            }
                         }
 
+                        BindResponse bindResponse = bindConnection( ldapConnection );
+
                         checkResponse( bindResponse );
                     }
                     catch ( Exception e )
@@ -510,6 +511,110 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
+    /**
+     * Binds the given network connection, using the authentication method of the
+     * connection and the credentials obtained during the last bind.
+     *
+     * @param ldapConnection the network connection to bind
+     * @return the bind response
+     * @throws Exception if the bind request can't be sent
+     */
+    private BindResponse bindConnection( LdapNetworkConnection ldapConnection ) throws Exception
+    {
+        switch ( connection.getConnectionParameter().getAuthMethod() )
+        {
+            case SIMPLE:
+                // Simple Authentication
+                return bindSimple( ldapConnection, bindPrincipal, bindPassword );
+
+            case SASL_PLAIN:
+                // SASL Plain authentication
+                return bindSaslPlain( ldapConnection );
+
+            case SASL_CRAM_MD5:
+                // CRAM-MD5 Authentication
+                SaslCramMd5Request cramMd5Request = new SaslCramMd5Request();
+                cramMd5Request.setUsername( bindPrincipal );
+                cramMd5Request.setCredentials( bindPassword );
+                cramMd5Request
+                    .setQualityOfProtection( connection.getConnectionParameter().getSaslQop() );
+                cramMd5Request.setSecurityStrength( connection.getConnectionParameter()
+                    .getSaslSecurityStrength() );
+                cramMd5Request.setMutualAuthentication( connection.getConnectionParameter()
+                    .isSaslMutualAuthentication() );
+
+                return ldapConnection.bind( cramMd5Request );
+
+            case SASL_DIGEST_MD5:
+                // DIGEST-MD5 Authentication
+                SaslDigestMd5Request digestMd5Request = new SaslDigestMd5Request();
+                digestMd5Request.setUsername( bindPrincipal );
+                digestMd5Request.setCredentials( bindPassword );
+                digestMd5Request.setRealmName( connection.getConnectionParameter().getSaslRealm() );
+                digestMd5Request.setQualityOfProtection( connection.getConnectionParameter()
+                    .getSaslQop() );
+                digestMd5Request.setSecurityStrength( connection.getConnectionParameter()
+                    .getSaslSecurityStrength() );
+                digestMd5Request.setMutualAuthentication( connection.getConnectionParameter()
+                    .isSaslMutualAuthentication() );
+
+                return ldapConnection.bind( digestMd5Request );
+
+            case SASL_GSSAPI:
+                // GSSAPI Authentication
+                SaslGssApiRequest gssApiRequest = new SaslGssApiRequest();
+
+                Preferences preferences = ConnectionCorePlugin.getDefault().getPluginPreferences();
+                boolean useKrb5SystemProperties = preferences
+                    .getBoolean( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES );
+                String krb5LoginModule = preferences
+                    .getString( ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE );
+
+                if ( !useKrb5SystemProperties )
+                {
+                    gssApiRequest.setUsername( bindPrincipal );
+                    gssApiRequest.setCredentials( bindPassword );
+                    gssApiRequest.setQualityOfProtection( connection
+                        .getConnectionParameter().getSaslQop() );
+                    gssApiRequest.setSecurityStrength( connection
+                        .getConnectionParameter()
+                        .getSaslSecurityStrength() );
+                    gssApiRequest.setMutualAuthentication( connection
+                        .getConnectionParameter()
+                        .isSaslMutualAuthentication() );
+                    gssApiRequest
+                        .setLoginModuleConfiguration( new InnerConfiguration(
+                            krb5LoginModule ) );
+
+                    switch ( connection.getConnectionParameter().getKrb5Configuration() )
+                    {
+                        case FILE:
+                            gssApiRequest.setKrb5ConfFilePath( connection.getConnectionParameter()
+                                .getKrb5ConfigurationFile() );
+                            break;
+                        case MANUAL:
+                            gssApiRequest.setRealmName( connection.getConnectionParameter()
+                                .getKrb5Realm() );
+                            gssApiRequest.setKdcHost( connection.getConnectionParameter()
+                                .getKrb5KdcHost() );
+                            gssApiRequest.setKdcPort( connection.getConnectionParameter()
+                                .getKrb5KdcPort() );
+                            break;
+                        default:
+                            break;
+                    }
+                }
+
+                return ldapConnection.bind( gssApiRequest );
+
+            default:
+                // No Authentication
+                BindRequest bindRequest = new BindRequestImpl();
+                return ldapConnection.bind( bindRequest );
+        }
+    }
+
+
     /***
      * {@inheritDoc}
      */
@@ -528,6 +633,22 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public int getConnectionPoolSize()
+    {
+        DirectoryApiConnectionPool pool = connectionPool;
+
+        if ( pool != null )
+        {
+            return pool.getMaxSize();
+        }
+
+        return Math.max( 1, DirectoryApiConnectionPool.getMaxSize( connection ) );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -555,7 +676,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         final ReferralHandlingMethod referralsHandlingMethod, final Control[] controls,
         final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
     {
-        final long requestNum = searchRequestNum++;
+        final long requestNum = searchRequestNum.getAndIncrement();
 
         InnerRunnable runnable = new InnerRunnable()
         {
@@ -582,12 +703,15 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     request.setDerefAliases( convertAliasDerefMode( aliasesDereferencingMethod ) );
 
                     // Performing the search operation
-                    SearchCursor cursor = ldapConnection.search( request );
+                    SearchCursor cursor = leasedConnection.search( request );
 
                     // Returning the result of the search
                     searchResultEnumeration = new StudioSearchResultEnumeration( connection, cursor, searchBase, filter,
                         searchControls, aliasesDereferencingMethod, referralsHandlingMethod, controls, requestNum,
                         monitor, referralsInfo );
+
+                    // The connection is given back to the pool once all results are consumed
+                    keepLease( searchResultEnumeration );
                 }
                 catch ( Exception e )
                 {
@@ -731,7 +855,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the modify operation
-                    ModifyResponse modifyResponse = ldapConnection.modify( request );
+                    ModifyResponse modifyResponse = leasedConnection.modify( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -812,7 +936,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the rename operation
-                    ModifyDnResponse modifyDnResponse = ldapConnection.modifyDn( request );
+                    ModifyDnResponse modifyDnResponse = leasedConnection.modifyDn( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -890,7 +1014,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the add operation
-                    AddResponse addResponse = ldapConnection.add( request );
+                    AddResponse addResponse = leasedConnection.add( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> {
@@ -971,7 +1095,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the delete operation
-                    DeleteResponse deleteResponse = ldapConnection.delete( request );
+                    DeleteResponse deleteResponse = leasedConnection.delete( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -1019,6 +1143,32 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public CompletableFuture<Void> runAsync( Runnable operations )
+    {
+        return CompletableFuture.runAsync( operations, getAsyncExecutor() );
+    }
+
+
+    private synchronized ExecutorService getAsyncExecutor()
+    {
+        if ( asyncExecutor == null )
+        {
+            String threadName = "Directory Studio Async Operation - " + connection.getName(); //$NON-NLS-1$
+
+            asyncExecutor = Executors.newCachedThreadPool( runnable -> {
+                Thread thread = new Thread( runnable, threadName );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+
+        return asyncExecutor;
+    }
+
+
     /**
      * Inner runnable used in connection wrapper operations.
      *
@@ -1030,6 +1180,31 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         protected Exception exception = null;
         protected boolean canceled = false;
 
+        /** The connection borrowed from the pool to run this operation */
+        protected LdapNetworkConnection leasedConnection = null;
+
+        /** Flag indicating that the leased connection is released later by the search result enumeration */
+        protected boolean leaseKept = false;
+
+
+        /**
+         * Hands over the leased connection to the given search result enumeration,
+         * which releases it when it is closed or when all results were read.
+         *
+         * @param enumeration the search result enumeration
+         */
+        protected void keepLease( StudioSearchResultEnumeration enumeration )
+        {
+            final LdapNetworkConnection lease = leasedConnection;
+            final DirectoryApiConnectionPool pool = connectionPool;
+
+            if ( pool != null && lease != null )
+            {
+                leaseKept = true;
+                enumeration.setReleaseHandler( () -> pool.release( lease ) );
+            }
+        }
+
 
         /**
          * Gets the exception.
@@ -1072,6 +1247,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             searchResultEnumeration = null;
             exception = null;
             canceled = false;
+            leasedConnection = null;
+            leaseKept = false;
         }
     }
 
@@ -1143,10 +1320,13 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         throws Exception
     {
         // check connection
-        if ( !isConnected || ldapConnection == null )
+        synchronized ( this )
         {
-            doConnect( monitor );
-            doBind( monitor );
+            if ( !isConnected || ldapConnection == null )
+            {
+                doConnect( monitor );
+                doBind( monitor );
+            }
         }
         if ( ldapConnection == null )
         {
@@ -1156,13 +1336,47 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         // loop for reconnection
         for ( int i = 0; i <= 1; i++ )
         {
-            runAndMonitor( runnable, monitor );
+            DirectoryApiConnectionPool pool = connectionPool;
+            LdapNetworkConnection primary = ldapConnection;
+            runnable.leasedConnection = pool != null ? pool.borrow( primary ) : primary;
+            boolean pooled = pool != null && pool.isPooled( runnable.leasedConnection );
+
+            try
+            {
+                runAndMonitor( runnable, monitor );
+            }
+            finally
+            {
+                if ( pool != null && !runnable.leaseKept )
+                {
+                    if ( runnable.getException() instanceof InvalidConnectionException )
+                    {
+                        pool.invalidate( runnable.leasedConnection );
+                    }
+                    else
+                    {
+                        pool.release( runnable.leasedConnection );
+                    }
+                }
+            }
 
             // check reconnection
             if ( ( i == 0 ) && ( runnable.getException() instanceof InvalidConnectionException ) )
             {
-                doConnect( monitor );
-                doBind( monitor );
+                // only the primary connection needs to be re-established, broken
+                // pooled connections were discarded above
+                if ( !pooled )
+                {
+                    synchronized ( this )
+                    {
+                        if ( ldapConnection == null || ldapConnection == primary )
+                        {
+                            doConnect( monitor );
+                            doBind( monitor );
+                        }
+                    }
+                }
+
                 runnable.reset();
             }
             else
@@ -1178,35 +1392,58 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     {
         if ( !monitor.isCanceled() )
         {
+            final Thread jobThread = Thread.currentThread();
+
             // monitor
             StudioProgressMonitor.CancelListener listener = event -> {
                 if ( monitor.isCanceled() )
                 {
-                    if ( jobThread != null && jobThread.isAlive() )
+                    if ( jobThread.isAlive() )
                     {
                         jobThread.interrupt();
                     }
 
-                    if ( ldapConnection != null )
+                    LdapNetworkConnection leased = runnable.leasedConnection;
+                    DirectoryApiConnectionPool pool = connectionPool;
+
+                    if ( leased != null && pool != null && pool.isPooled( leased ) )
                     {
+                        // only close the pooled connection used by the canceled operation,
+                        // it is discarded when it is released
                         try
                         {
-                            ldapConnection.close();
+                            leased.close();
                         }
                         catch ( Exception e )
                         {
                         }
+                    }
+                    else if ( pool == null || !pool.isPrimaryShared() )
+                    {
+                        if ( ldapConnection != null )
+                        {
+                            try
+                            {
+                                ldapConnection.close();
+                            }
+                            catch ( Exception e )
+                            {
+                            }
+
+                            isConnected = false;
+                            ldapConnection = null;
+                        }
 
                         isConnected = false;
-                        ldapConnection = null;
                     }
 
-                    isConnected = false;
+                    // otherwise other operations use the primary connection too, it is kept
+                    // open and only the thread of the canceled operation is interrupted
                 }
             };
 
             monitor.addCancelListener( listener );
-            jobThread = Thread.currentThread();
+            jobThreads.add( jobThread );
 
             // run
             try
@@ -1216,7 +1453,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             finally
             {
                 monitor.removeCancelListener( listener );
-                jobThread = null;
+                jobThreads.remove( jobThread );
             }
 
             if ( monitor.isCanceled() )
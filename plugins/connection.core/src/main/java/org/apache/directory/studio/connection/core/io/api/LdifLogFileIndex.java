@@ -0,0 +1,700 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+
+
+/**
+ * An index of the records of a log file written by the {@link LdifSearchLogger}
+ * or the {@link LdifModificationLogger}.
+ * <p>
+ * Each record of such a log file starts with a <code>#!</code> header line,
+ * e.g. <code>#!SEARCH REQUEST (12) OK</code> or <code>#!RESULT OK</code>.
+ * The index remembers the start offset, the request number and the DN of each
+ * record. On {@link #update()} only the bytes appended since the last update
+ * are read, a truncated or rotated log file is detected and indexed again.
+ * <p>
+ * The records may be narrowed by a filter and are read in pages: the newest
+ * page is read by {@link #readLastPage()}, older pages are read on demand by
+ * {@link #readPreviousPage()} and records appended to the log file by
+ * {@link #readAppended()}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifLogFileIndex
+{
+
+    /** The prefix of a record header line */
+    private static final String HEADER_PREFIX = "#!"; //$NON-NLS-1$
+
+    /** The prefixes of the header lines that don't start a record */
+    private static final String[] NO_RECORD_PREFIXES =
+        { "#!CONNECTION ", "#!DATE ", "#!ERROR " }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+    /** The prefix of a DN line */
+    private static final String DN_PREFIX = "dn:"; //$NON-NLS-1$
+
+    /** The prefix of the base DN comment of a search request */
+    private static final String BASE_OBJECT_PREFIX = "# baseObject"; //$NON-NLS-1$
+
+    /** The number of bytes of a line that are examined */
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    /** The charset of the log files, the file handlers of the loggers use the default charset */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /** The log file */
+    private File file;
+
+    /** The maximum number of records of a page */
+    private int pageSize;
+
+    /** The key of the indexed log file, used to detect a rotated log file */
+    private Object fileKey;
+
+    /** The number of indexed bytes, the log file is indexed up to the last complete line */
+    private long indexedLength;
+
+    /** The start offsets of the records */
+    private long[] recordOffsets = new long[64];
+
+    /** The request numbers of the records, -1 if the record has no request number */
+    private long[] requestNumbers = new long[64];
+
+    /** The lower-cased DNs of the records, null if the record has no DN */
+    private String[] dns = new String[64];
+
+    /** The number of records */
+    private int recordCount;
+
+    /** The DN line that is currently read, null if no DN line is read */
+    private StringBuilder dnLine;
+
+    /** The filter, null if all records match */
+    private String filter;
+
+    /** The matching records */
+    private int[] matches = new int[64];
+
+    /** The number of matching records */
+    private int matchCount;
+
+    /** The number of records checked against the filter */
+    private int filteredCount;
+
+    /** The position of the first read record within the matching records */
+    private int firstReadMatch;
+
+    /** The position after the last read record within the matching records */
+    private int lastReadMatch;
+
+    /** The end offset of the last read record at the time it was read */
+    private long lastReadEnd;
+
+
+    /**
+     * Creates a new instance of LdifLogFileIndex.
+     *
+     * @param file the log file
+     * @param pageSize the maximum number of records of a page
+     */
+    public LdifLogFileIndex( File file, int pageSize )
+    {
+        this.file = file;
+        this.pageSize = pageSize;
+    }
+
+
+    /**
+     * Gets the log file.
+     *
+     * @return the log file
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+
+    /**
+     * Sets the filter. A numeric filter matches the records with the given
+     * request number, any other filter matches the records whose DN contains
+     * the filter, ignoring case. A null or empty filter matches all records.
+     * <p>
+     * The read position is reset, call {@link #readLastPage()} afterwards.
+     *
+     * @param filter the filter, may be null
+     */
+    public synchronized void setFilter( String filter )
+    {
+        this.filter = ( filter == null || filter.trim().length() == 0 ) ? null : filter.trim().toLowerCase(
+            Locale.ENGLISH );
+        matchCount = 0;
+        filteredCount = 0;
+        firstReadMatch = 0;
+        lastReadMatch = 0;
+        lastReadEnd = 0;
+    }
+
+
+    /**
+     * Gets the filter.
+     *
+     * @return the filter, null if all records match
+     */
+    public synchronized String getFilter()
+    {
+        return filter;
+    }
+
+
+    /**
+     * Gets the number of indexed records.
+     *
+     * @return the number of indexed records
+     */
+    public synchronized int getRecordCount()
+    {
+        return recordCount;
+    }
+
+
+    /**
+     * Gets the request number of the given record.
+     *
+     * @param record the record
+     * @return the request number, -1 if the record has no request number
+     */
+    public synchronized long getRequestNumber( int record )
+    {
+        return requestNumbers[record];
+    }
+
+
+    /**
+     * Gets the lower-cased DN of the given record, that is the DN of an
+     * entry or modification or the base DN of a search request.
+     *
+     * @param record the record
+     * @return the lower-cased DN, null if the record has no DN
+     */
+    public synchronized String getDn( int record )
+    {
+        return dns[record];
+    }
+
+
+    /**
+     * Indexes the bytes appended to the log file since the last update.
+     * If the log file was truncated or replaced by a new log file
+     * the log file is indexed again from the start.
+     *
+     * @return true if the log file was indexed again from the start
+     * @throws IOException if the log file could not be read
+     */
+    public synchronized boolean update() throws IOException
+    {
+        boolean reset = false;
+        Object key = null;
+        long length = 0;
+
+        if ( file.exists() )
+        {
+            key = Files.readAttributes( file.toPath(), BasicFileAttributes.class ).fileKey();
+            length = file.length();
+        }
+
+        if ( length < indexedLength || ( fileKey != null && !fileKey.equals( key ) ) )
+        {
+            reset();
+            reset = true;
+        }
+        fileKey = key;
+
+        if ( length > indexedLength )
+        {
+            index( length );
+        }
+
+        return reset;
+    }
+
+
+    /**
+     * Clears the index.
+     */
+    private void reset()
+    {
+        indexedLength = 0;
+        recordCount = 0;
+        dnLine = null;
+        matchCount = 0;
+        filteredCount = 0;
+        firstReadMatch = 0;
+        lastReadMatch = 0;
+        lastReadEnd = 0;
+    }
+
+
+    /**
+     * Indexes the complete lines between the indexed length and the given length.
+     *
+     * @param length the current length of the log file
+     * @throws IOException if the log file could not be read
+     */
+    private void index( long length ) throws IOException
+    {
+        FileInputStream fis = new FileInputStream( file );
+
+        try
+        {
+            fis.getChannel().position( indexedLength );
+            InputStream in = new BufferedInputStream( fis, 64 * 1024 );
+            byte[] line = new byte[MAX_LINE_LENGTH];
+            int lineLength = 0;
+            long lineStart = indexedLength;
+            long position = indexedLength;
+
+            for ( int b = in.read(); b != -1 && position < length; b = in.read() )
+            {
+                position++;
+
+                if ( b == '\n' )
+                {
+                    int end = ( lineLength > 0 && line[lineLength - 1] == '\r' ) ? lineLength - 1 : lineLength;
+                    indexLine( new String( line, 0, end, CHARSET ), lineStart );
+                    lineLength = 0;
+                    lineStart = position;
+                    indexedLength = position;
+                }
+                else if ( lineLength < line.length )
+                {
+                    line[lineLength++] = ( byte ) b;
+                }
+            }
+        }
+        finally
+        {
+            fis.close();
+        }
+    }
+
+
+    /**
+     * Indexes a line of the log file.
+     *
+     * @param line the line, without line separator
+     * @param offset the start offset of the line
+     */
+    private void indexLine( String line, long offset )
+    {
+        if ( dnLine != null )
+        {
+            if ( line.startsWith( " " ) ) //$NON-NLS-1$
+            {
+                // folded DN line
+                dnLine.append( line, 1, line.length() );
+                return;
+            }
+
+            dns[recordCount - 1] = parseDn( dnLine.toString() );
+            dnLine = null;
+        }
+
+        if ( isRecordHeader( line ) )
+        {
+            addRecord( offset, parseRequestNumber( line ) );
+        }
+        else if ( recordCount == 0 )
+        {
+            addRecord( offset, -1 );
+        }
+
+        if ( dns[recordCount - 1] == null
+            && ( line.regionMatches( true, 0, DN_PREFIX, 0, DN_PREFIX.length() ) || line.startsWith( BASE_OBJECT_PREFIX ) ) )
+        {
+            dnLine = new StringBuilder( line );
+        }
+    }
+
+
+    /**
+     * Checks if the given line is a record header line.
+     *
+     * @param line the line
+     * @return true if the line is a record header line
+     */
+    private static boolean isRecordHeader( String line )
+    {
+        if ( !line.startsWith( HEADER_PREFIX ) )
+        {
+            return false;
+        }
+
+        for ( String prefix : NO_RECORD_PREFIXES )
+        {
+            if ( line.startsWith( prefix ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Parses the request number of a record header line, e.g. 12 of
+     * <code>#!SEARCH REQUEST (12) OK</code>.
+     *
+     * @param line the record header line
+     * @return the request number, -1 if the line contains no request number
+     */
+    private static long parseRequestNumber( String line )
+    {
+        int start = line.indexOf( '(' );
+        int end = line.indexOf( ')', start + 1 );
+
+        if ( start > -1 && end > start + 1 )
+        {
+            try
+            {
+                return Long.parseLong( line.substring( start + 1, end ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                // no request number
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Parses the value of an unfolded DN line or base DN comment.
+     *
+     * @param line the unfolded line
+     * @return the lower-cased DN
+     */
+    private static String parseDn( String line )
+    {
+        int colon = line.indexOf( ':' );
+        String dn = line.substring( colon + 1 );
+
+        if ( dn.startsWith( ":" ) ) //$NON-NLS-1$
+        {
+            try
+            {
+                dn = new String( Base64.getDecoder().decode( dn.substring( 1 ).trim() ), "UTF-8" ); //$NON-NLS-1$
+            }
+            catch ( Exception e )
+            {
+                // keep the encoded value
+            }
+        }
+
+        return dn.trim().toLowerCase( Locale.ENGLISH );
+    }
+
+
+    /**
+     * Adds a record to the index.
+     *
+     * @param offset the start offset of the record
+     * @param requestNumber the request number, -1 if none
+     */
+    private void addRecord( long offset, long requestNumber )
+    {
+        if ( recordCount == recordOffsets.length )
+        {
+            int capacity = recordCount * 2;
+            recordOffsets = Arrays.copyOf( recordOffsets, capacity );
+            requestNumbers = Arrays.copyOf( requestNumbers, capacity );
+            dns = Arrays.copyOf( dns, capacity );
+        }
+
+        recordOffsets[recordCount] = offset;
+        requestNumbers[recordCount] = requestNumber;
+        dns[recordCount] = null;
+        recordCount++;
+    }
+
+
+    /**
+     * Checks the records indexed since the last call against the filter.
+     */
+    private void filter()
+    {
+        // the last record may still be incomplete, it is only checked
+        // against a filter once it is followed by the next record
+        int complete = ( filter != null ) ? recordCount - 1 : recordCount;
+
+        for ( ; filteredCount < complete; filteredCount++ )
+        {
+            if ( matches( filteredCount ) )
+            {
+                if ( matchCount == matches.length )
+                {
+                    matches = Arrays.copyOf( matches, matchCount * 2 );
+                }
+                matches[matchCount++] = filteredCount;
+            }
+        }
+    }
+
+
+    /**
+     * Checks if the given record matches the filter.
+     *
+     * @param record the record
+     * @return true if the record matches the filter
+     */
+    private boolean matches( int record )
+    {
+        if ( filter == null )
+        {
+            return true;
+        }
+
+        if ( requestNumbers[record] > -1 && filter.equals( Long.toString( requestNumbers[record] ) ) )
+        {
+            return true;
+        }
+
+        return dns[record] != null && dns[record].contains( filter );
+    }
+
+
+    /**
+     * Updates the index and reads the newest page of matching records.
+     *
+     * @return the text of the newest page of matching records
+     * @throws IOException if the log file could not be read
+     */
+    public synchronized String readLastPage() throws IOException
+    {
+        update();
+        filter();
+
+        lastReadMatch = matchCount;
+        firstReadMatch = Math.max( 0, lastReadMatch - pageSize );
+        lastReadEnd = ( lastReadMatch > 0 ) ? getEnd( matches[lastReadMatch - 1] ) : 0;
+
+        return read( firstReadMatch, lastReadMatch );
+    }
+
+
+    /**
+     * Checks if there are matching records before the read records.
+     *
+     * @return true if there are matching records before the read records
+     */
+    public synchronized boolean hasPreviousPage()
+    {
+        return firstReadMatch > 0;
+    }
+
+
+    /**
+     * Reads the page of matching records before the read records.
+     *
+     * @return the text of the previous page, empty if there is no previous page
+     * @throws IOException if the log file could not be read
+     */
+    public synchronized String readPreviousPage() throws IOException
+    {
+        int end = firstReadMatch;
+        firstReadMatch = Math.max( 0, end - pageSize );
+
+        return read( firstReadMatch, end );
+    }
+
+
+    /**
+     * Updates the index and reads the matching records appended to the log
+     * file since the last read.
+     *
+     * @return the text of the appended matching records, empty if there are
+     *         none, or null if the log file was truncated or replaced and
+     *         the last page must be read again
+     * @throws IOException if the log file could not be read
+     */
+    public synchronized String readAppended() throws IOException
+    {
+        if ( update() )
+        {
+            return null;
+        }
+        filter();
+
+        StringBuilder sb = new StringBuilder();
+
+        if ( lastReadMatch > 0 )
+        {
+            // lines appended to the last read record
+            long end = getEnd( matches[lastReadMatch - 1] );
+
+            if ( end > lastReadEnd )
+            {
+                sb.append( read( lastReadEnd, end ) );
+                lastReadEnd = end;
+            }
+        }
+
+        if ( matchCount > lastReadMatch )
+        {
+            sb.append( read( lastReadMatch, matchCount ) );
+            lastReadMatch = matchCount;
+            lastReadEnd = getEnd( matches[lastReadMatch - 1] );
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Gets the number of read matching records.
+     *
+     * @return the number of read matching records
+     */
+    public synchronized int getReadCount()
+    {
+        return lastReadMatch - firstReadMatch;
+    }
+
+
+    /**
+     * Reads the given matching records from the log file. Adjacent records
+     * are read at once.
+     *
+     * @param from the position of the first matching record, inclusive
+     * @param to the position of the last matching record, exclusive
+     * @return the text of the records
+     * @throws IOException if the log file could not be read
+     */
+    private String read( int from, int to ) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+
+        if ( from >= to )
+        {
+            return sb.toString();
+        }
+
+        RandomAccessFile raf = new RandomAccessFile( file, "r" ); //$NON-NLS-1$
+
+        try
+        {
+            int i = from;
+
+            while ( i < to )
+            {
+                // extend the range over adjacent records
+                int j = i + 1;
+
+                while ( j < to && matches[j] == matches[j - 1] + 1 )
+                {
+                    j++;
+                }
+
+                sb.append( read( raf, recordOffsets[matches[i]], getEnd( matches[j - 1] ) ) );
+                i = j;
+            }
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        return sb.toString();
+    }
+
+
+
+    /**
+     * Reads the given byte range from the log file.
+     *
+     * @param start the start offset, inclusive
+     * @param end the end offset, exclusive
+     * @return the text of the byte range
+     * @throws IOException if the log file could not be read
+     */
+    private String read( long start, long end ) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" ); //$NON-NLS-1$
+
+        try
+        {
+            return read( raf, start, end );
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+
+    /**
+     * Reads the given byte range from the opened log file.
+     *
+     * @param raf the opened log file
+     * @param start the start offset, inclusive
+     * @param end the end offset, exclusive
+     * @return the text of the byte range
+     * @throws IOException if the log file could not be read
+     */
+    private static String read( RandomAccessFile raf, long start, long end ) throws IOException
+    {
+        byte[] bytes = new byte[( int ) ( end - start )];
+        raf.seek( start );
+        raf.readFully( bytes );
+
+        return new String( bytes, CHARSET );
+    }
+
+
+    /**
+     * Gets the end offset of the given record, that is the start offset of
+     * the next record or the indexed length for the last record.
+     *
+     * @param record the record
+     * @return the end offset of the record
+     */
+    private long getEnd( int record )
+    {
+        return ( record + 1 < recordCount ) ? recordOffsets[record + 1] : indexedLength;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.model.lines.LdifCommentLine;
+
+
+/**
+ * A log record queued to a {@link LdifLogWriter}.
+ * <p>
+ * The record only holds the raw data captured by the logging thread, the
+ * header and the body are formatted by the background thread of the
+ * log writer.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public abstract class LdifLogRecord
+{
+
+    /** The type of the record, e.g. RESULT or SEARCH REQUEST (1) */
+    private String type;
+
+    /** The host of the connection */
+    private String host;
+
+    /** The port of the connection */
+    private int port;
+
+    /** The time the record was logged */
+    private long time;
+
+    /** Flag indicating that the operation failed */
+    private boolean error;
+
+    /** The error message, may be null */
+    private String errorMessage;
+
+
+    /**
+     * Creates a new instance of LdifLogRecord.
+     *
+     * @param type the type of the record
+     * @param connection the connection
+     * @param ex the exception of the operation, null if the operation succeeded
+     */
+    protected LdifLogRecord( String type, Connection connection, LdapException ex )
+    {
+        this.type = type;
+        this.host = connection.getHost();
+        this.port = connection.getPort();
+        this.time = System.currentTimeMillis();
+        this.error = ex != null;
+        this.errorMessage = ex != null ? ex.getMessage() : null;
+    }
+
+
+    /**
+     * Formats the header and the body of this record.
+     *
+     * @return the formatted record
+     */
+    public String format()
+    {
+        StringBuilder sb = new StringBuilder();
+        DateFormat df = new SimpleDateFormat( ConnectionCoreConstants.DATEFORMAT );
+        df.setTimeZone( ConnectionCoreConstants.UTC_TIME_ZONE );
+
+        sb.append( LdifCommentLine.create( "#!" + type + ( error ? " ERROR" : " OK" ) ) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            .toFormattedString( LdifFormatParameters.DEFAULT ) );
+        sb.append( LdifCommentLine.create( "#!CONNECTION ldap://" + host + ":" + port ) //$NON-NLS-1$//$NON-NLS-2$
+            .toFormattedString( LdifFormatParameters.DEFAULT ) );
+        sb.append( LdifCommentLine.create( "#!DATE " + df.format( new Date( time ) ) ) //$NON-NLS-1$
+            .toFormattedString( LdifFormatParameters.DEFAULT ) );
+
+        if ( error )
+        {
+            String errorComment = "#!ERROR " + errorMessage; //$NON-NLS-1$
+            errorComment = errorComment.replaceAll( "\r", " " ); //$NON-NLS-1$ //$NON-NLS-2$
+            errorComment = errorComment.replaceAll( "\n", " " ); //$NON-NLS-1$ //$NON-NLS-2$
+            sb.append( LdifCommentLine.create( errorComment ).toFormattedString( LdifFormatParameters.DEFAULT ) );
+        }
+
+        sb.append( formatBody() );
+        return sb.toString();
+    }
+
+
+    /**
+     * Formats the body of this record.
+     *
+     * @return the formatted body
+     */
+    protected abstract String formatBody();
+
+}
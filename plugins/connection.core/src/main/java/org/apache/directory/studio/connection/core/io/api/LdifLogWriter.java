@@ -0,0 +1,370 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The LdifLogWriter writes the log records of a connection asynchronously
+ * into a set of rotating log files.
+ * <p>
+ * The records are queued unformatted into a bounded buffer, they are
+ * formatted and written in batches by a shared background thread, the
+ * log file is flushed once per batch.
+ * If the buffer is full the logging thread either waits or the record is
+ * dropped, depending on the {@link OverflowPolicy}. The log files are
+ * rotated when the current log file exceeds the maximum file size:
+ * file 0 is always the newest one, the oldest file is deleted.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifLogWriter
+{
+
+    /**
+     * The policy if the buffer of a log writer is full.
+     */
+    public enum OverflowPolicy
+    {
+        /** The logging thread waits until the record could be queued */
+        BLOCK,
+
+        /** The record is dropped and counted */
+        DROP
+    }
+
+    /** The charset of the log files, the same as the one used by the log views */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /** The size of the output buffer */
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    /** The shared thread that writes the log records of all log writers */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor( new ThreadFactory()
+    {
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, "LDIF Log Writer" ); //$NON-NLS-1$
+            thread.setDaemon( true );
+            return thread;
+        }
+    } );
+
+    /** The log files, index 0 is the newest one */
+    private File[] files;
+
+    /** The maximum size of a log file in bytes */
+    private long maxFileSize;
+
+    /** The overflow policy */
+    private OverflowPolicy overflowPolicy;
+
+    /** The queued records */
+    private BlockingQueue<LdifLogRecord> queue;
+
+    /** Flag indicating that a drain of the queue is scheduled */
+    private AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** The number of dropped records */
+    private AtomicLong droppedCount = new AtomicLong();
+
+    /** The number of dropped records that are already noted in the log file */
+    private long notedDroppedCount;
+
+    /** The output stream to the newest log file, null if not opened */
+    private OutputStream out;
+
+    /** The size of the newest log file */
+    private long fileSize;
+
+    /** Flag indicating that this log writer is closed */
+    private volatile boolean closed;
+
+    /** Flag indicating that the log file is finally closed */
+    private boolean finished;
+
+    /** The runnable that writes the queued records */
+    private Runnable drain = new Runnable()
+    {
+        public void run()
+        {
+            scheduled.set( false );
+            drain();
+            schedule();
+        }
+    };
+
+
+    /**
+     * Creates a new instance of LdifLogWriter.
+     *
+     * @param fileNamePattern the file name pattern of the log files,
+     *        %u is replaced by 0 and %g by the generation number
+     * @param fileCount the number of log files
+     * @param maxFileSize the maximum size of a log file in bytes
+     * @param bufferSize the maximum number of queued records
+     * @param overflowPolicy the policy if the buffer is full
+     */
+    public LdifLogWriter( String fileNamePattern, int fileCount, long maxFileSize, int bufferSize,
+        OverflowPolicy overflowPolicy )
+    {
+        this.files = new File[Math.max( 1, fileCount )];
+        for ( int i = 0; i < files.length; i++ )
+        {
+            files[i] = new File( fileNamePattern.replace( "%u", "0" ).replace( "%g", Integer.toString( i ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        this.maxFileSize = maxFileSize;
+        this.queue = new ArrayBlockingQueue<LdifLogRecord>( Math.max( 1, bufferSize ) );
+        this.overflowPolicy = overflowPolicy;
+    }
+
+
+    /**
+     * Gets the log files, index 0 is the newest one.
+     * Log files may not exist.
+     *
+     * @return the log files
+     */
+    public File[] getFiles()
+    {
+        return files.clone();
+    }
+
+
+    /**
+     * Gets the number of records dropped because the buffer was full.
+     *
+     * @return the number of dropped records
+     */
+    public long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+
+
+    /**
+     * Queues the given record. The record is formatted and written asynchronously.
+     *
+     * @param record the record
+     * @return false if this log writer is closed and the record was ignored
+     */
+    public boolean log( LdifLogRecord record )
+    {
+        if ( closed )
+        {
+            return false;
+        }
+
+        if ( overflowPolicy == OverflowPolicy.BLOCK )
+        {
+            try
+            {
+                if ( !queue.offer( record ) )
+                {
+                    // make sure the queue is drained while waiting
+                    schedule();
+                    queue.put( record );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                droppedCount.incrementAndGet();
+            }
+        }
+        else if ( !queue.offer( record ) )
+        {
+            droppedCount.incrementAndGet();
+        }
+
+        schedule();
+        return true;
+    }
+
+
+    /**
+     * Schedules the writing of the queued records, if not already scheduled.
+     */
+    private void schedule()
+    {
+        if ( !queue.isEmpty() && scheduled.compareAndSet( false, true ) )
+        {
+            executor.execute( drain );
+        }
+    }
+
+
+    /**
+     * Formats and writes all queued records and flushes the log file.
+     */
+    private synchronized void drain()
+    {
+        List<LdifLogRecord> records = new ArrayList<LdifLogRecord>();
+        queue.drainTo( records );
+
+        if ( records.isEmpty() || finished )
+        {
+            return;
+        }
+
+        try
+        {
+            long dropped = droppedCount.get();
+            if ( dropped > notedDroppedCount )
+            {
+                write( "# " + ( dropped - notedDroppedCount ) + " log records dropped\n" ); //$NON-NLS-1$ //$NON-NLS-2$
+                notedDroppedCount = dropped;
+            }
+
+            for ( LdifLogRecord record : records )
+            {
+                String formatted;
+                try
+                {
+                    formatted = record.format();
+                }
+                catch ( RuntimeException e )
+                {
+                    // a record that can't be formatted must not discard the whole batch
+                    continue;
+                }
+
+                write( formatted );
+            }
+
+            out.flush();
+        }
+        catch ( IOException e )
+        {
+            closeFile();
+        }
+    }
+
+
+    /**
+     * Writes a record into the newest log file, rotates the log files if
+     * the newest log file would exceed the maximum file size.
+     *
+     * @param record the record
+     * @throws IOException if the record could not be written
+     */
+    private void write( String record ) throws IOException
+    {
+        byte[] bytes = record.getBytes( CHARSET );
+
+        if ( out == null )
+        {
+            openFile();
+        }
+        else if ( fileSize > 0 && fileSize + bytes.length > maxFileSize )
+        {
+            closeFile();
+            rotate();
+            openFile();
+        }
+
+        out.write( bytes );
+        fileSize += bytes.length;
+    }
+
+
+    /**
+     * Opens the newest log file for appending.
+     *
+     * @throws IOException if the log file could not be opened
+     */
+    private void openFile() throws IOException
+    {
+        files[0].getParentFile().mkdirs();
+        fileSize = files[0].length();
+        out = new BufferedOutputStream( new FileOutputStream( files[0], true ), OUTPUT_BUFFER_SIZE );
+    }
+
+
+    /**
+     * Closes the newest log file.
+     */
+    private void closeFile()
+    {
+        if ( out != null )
+        {
+            try
+            {
+                out.close();
+            }
+            catch ( IOException e )
+            {
+            }
+            out = null;
+        }
+    }
+
+
+    /**
+     * Rotates the log files: the oldest log file is deleted, the other
+     * log files are renamed to the next generation.
+     */
+    private void rotate()
+    {
+        files[files.length - 1].delete();
+        for ( int i = files.length - 2; i >= 0; i-- )
+        {
+            if ( files[i].exists() )
+            {
+                files[i].renameTo( files[i + 1] );
+            }
+        }
+    }
+
+
+    /**
+     * Writes the queued records and closes the log file. Further records
+     * are ignored.
+     */
+    public void close()
+    {
+        closed = true;
+
+        synchronized ( this )
+        {
+            drain();
+            closeFile();
+            finished = true;
+        }
+    }
+
+}
@@ -22,22 +22,11 @@ package org.apache.directory.studio.connection.core.io.api;
 
 
 import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Field;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.Collection;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.logging.FileHandler;
-import java.util.logging.Formatter;
-import java.util.logging.Handler;
-import java.util.logging.Level;
-import java.util.logging.LogRecord;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.naming.directory.SearchControls;
 
@@ -68,7 +57,6 @@ import org.apache.directory.studio.ldifparser.model.container.LdifChangeRecord;
 import org.apache.directory.studio.ldifparser.model.container.LdifModSpec;
 import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
 import org.apache.directory.studio.ldifparser.model.lines.LdifChangeTypeLine;
-import org.apache.directory.studio.ldifparser.model.lines.LdifCommentLine;
 import org.apache.directory.studio.ldifparser.model.lines.LdifControlLine;
 import org.apache.directory.studio.ldifparser.model.lines.LdifDeloldrdnLine;
 import org.apache.directory.studio.ldifparser.model.lines.LdifDnLine;
@@ -97,11 +85,8 @@ public class LdifModificationLogger implements ILdapLogger
     /** The description. */
     private String description;
 
-    /** The file handlers. */
-    private Map<String, FileHandler> fileHandlers = new HashMap<String, FileHandler>();
-
-    /** The loggers. */
-    private Map<String, Logger> loggers = new HashMap<String, Logger>();
+    /** The log writers. */
+    private ConcurrentMap<String, LdifLogWriter> writers = new ConcurrentHashMap<String, LdifLogWriter>();
 
 
     /**
@@ -115,37 +100,30 @@ public class LdifModificationLogger implements ILdapLogger
                 public void propertyChange( PropertyChangeEvent event )
                 {
                     if ( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_COUNT.equals( event.getProperty() )
-                        || ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_SIZE.equals( event.getProperty() ) )
+                        || ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_SIZE.equals( event.getProperty() )
+                        || ConnectionCoreConstants.PREFERENCE_LOGS_BUFFER_SIZE.equals( event.getProperty() )
+                        || ConnectionCoreConstants.PREFERENCE_LOGS_OVERFLOW_POLICY.equals( event.getProperty() ) )
                     {
-                        // dispose all loggers/handlers
-                        for ( Logger logger : loggers.values() )
+                        // close all writers, loggers that still hold a closed writer get a new one
+                        for ( String connectionId : writers.keySet() )
                         {
-                            for ( Handler handler : logger.getHandlers() )
+                            LdifLogWriter writer = writers.remove( connectionId );
+                            if ( writer == null )
                             {
-                                handler.close();
+                                continue;
                             }
-                        }
+                            writer.close();
 
-                        // delete files with index greater than new file count
-                        for ( FileHandler fh : fileHandlers.values() )
-                        {
-                            try
+                            // delete files with index greater than new file count
+                            File[] logFiles = writer.getFiles();
+                            for ( int i = getFileCount(); i < logFiles.length; i++ )
                             {
-                                File[] logFiles = getLogFiles( fh );
-                                for ( int i = getFileCount(); i < logFiles.length; i++ )
+                                if ( logFiles[i] != null && logFiles[i].exists() )
                                 {
-                                    if ( logFiles[i] != null && logFiles[i].exists() )
-                                    {
-                                        logFiles[i].delete();
-                                    }
+                                    logFiles[i].delete();
                                 }
                             }
-                            catch ( Exception e )
-                            {
-                            }
                         }
-
-                        loggers.clear();
                     }
                 }
             } );
@@ -153,36 +131,27 @@ public class LdifModificationLogger implements ILdapLogger
 
 
     /**
-     * Inits the modification logger.
+     * Gets the log writer of the given connection, creates it if necessary.
+     *
+     * @param connection the connection
+     * @return the log writer, null if the connection has no name
      */
-    private void initModificationLogger( Connection connection )
+    private LdifLogWriter getWriter( Connection connection )
     {
-        Logger logger = Logger.getAnonymousLogger();
-        loggers.put( connection.getId(), logger );
-        logger.setLevel( Level.ALL );
+        LdifLogWriter writer = writers.get( connection.getId() );
 
-        String logfileName = ConnectionManager.getModificationLogFileName( connection );
-        try
+        if ( writer == null && connection.getName() != null )
         {
-            FileHandler fileHandler = new FileHandler( logfileName, getFileSizeInKb() * 1000, getFileCount(), true );
-            fileHandlers.put( connection.getId(), fileHandler );
-            fileHandler.setFormatter( new Formatter()
+            LdifLogWriter newWriter = new LdifLogWriter( ConnectionManager.getModificationLogFileName( connection ),
+                getFileCount(), getFileSizeInKb() * 1000L, getBufferSize(), getOverflowPolicy() );
+            writer = writers.putIfAbsent( connection.getId(), newWriter );
+            if ( writer == null )
             {
-                public String format( LogRecord record )
-                {
-                    return record.getMessage();
-                }
-            } );
-            logger.addHandler( fileHandler );
-        }
-        catch ( SecurityException e )
-        {
-            e.printStackTrace();
-        }
-        catch ( IOException e )
-        {
-            e.printStackTrace();
+                writer = newWriter;
+            }
         }
+
+        return writer;
     }
 
 
@@ -193,67 +162,46 @@ public class LdifModificationLogger implements ILdapLogger
      */
     public void dispose( Connection connection )
     {
-        String id = connection.getId();
-        if ( loggers.containsKey( id ) )
+        LdifLogWriter writer = writers.remove( connection.getId() );
+        if ( writer != null )
         {
-            Handler[] handlers = loggers.get( id ).getHandlers();
-            for ( Handler handler : handlers )
-            {
-                handler.close();
-            }
-
-            loggers.remove( id );
+            writer.close();
         }
     }
 
 
-    private void log( String text, LdapException ex, Connection connection )
+    /**
+     * Disposes the modification loggers of all connections, the queued
+     * log records are written.
+     */
+    public void dispose()
     {
-        String id = connection.getId();
-        if ( !loggers.containsKey( id ) )
+        for ( String connectionId : writers.keySet() )
         {
-            if ( connection.getName() != null )
+            LdifLogWriter writer = writers.remove( connectionId );
+            if ( writer != null )
             {
-                initModificationLogger( connection );
+                writer.close();
             }
         }
+    }
 
-        if ( loggers.containsKey( id ) )
-        {
-            Logger logger = loggers.get( id );
-            DateFormat df = new SimpleDateFormat( ConnectionCoreConstants.DATEFORMAT );
-            df.setTimeZone( ConnectionCoreConstants.UTC_TIME_ZONE );
-
-            if ( ex != null )
-            {
-                logger.log( Level.ALL, LdifCommentLine
-                    .create( "#!RESULT ERROR" ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$
-            }
-            else
-            {
-                logger.log( Level.ALL, LdifCommentLine
-                    .create( "#!RESULT OK" ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$
-            }
-
-            logger
-                .log(
-                    Level.ALL,
-                    LdifCommentLine
-                        .create( "#!CONNECTION ldap://" + connection.getHost() + ":" + connection.getPort() ) //$NON-NLS-1$//$NON-NLS-2$
-                        .toFormattedString( LdifFormatParameters.DEFAULT ) );
-            logger.log( Level.ALL, LdifCommentLine
-                .create( "#!DATE " + df.format( new Date() ) ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$
 
-            if ( ex != null )
-            {
-                String errorComment = "#!ERROR " + ex.getMessage(); //$NON-NLS-1$
-                errorComment = errorComment.replaceAll( "\r", " " ); //$NON-NLS-1$ //$NON-NLS-2$
-                errorComment = errorComment.replaceAll( "\n", " " ); //$NON-NLS-1$ //$NON-NLS-2$
-                LdifCommentLine errorCommentLine = LdifCommentLine.create( errorComment );
-                logger.log( Level.ALL, errorCommentLine.toFormattedString( LdifFormatParameters.DEFAULT ) );
-            }
+    /**
+     * Queues the given record to the log writer of the given connection.
+     *
+     * @param record the record
+     * @param connection the connection
+     */
+    private void log( LdifLogRecord record, Connection connection )
+    {
+        LdifLogWriter writer = getWriter( connection );
 
-            logger.log( Level.ALL, text );
+        while ( writer != null && !writer.log( record ) )
+        {
+            // the writer was closed concurrently
+            writers.remove( connection.getId(), writer );
+            writer = getWriter( connection );
         }
     }
 
@@ -268,36 +216,41 @@ public class LdifModificationLogger implements ILdapLogger
             return;
         }
 
-        Set<String> maskedAttributes = getMaskedAttributes();
-        LdifChangeAddRecord record = new LdifChangeAddRecord( LdifDnLine.create( entry.getDn().getName() ) );
-        addControlLines( record, controls );
-        record.setChangeType( LdifChangeTypeLine.createAdd() );
-        for ( Attribute attribute : entry )
+        log( new LdifLogRecord( "RESULT", connection, ex ) //$NON-NLS-1$
         {
-            String attributeName = attribute.getUpId();
-            for ( Value value : attribute )
+            protected String formatBody()
             {
-                if ( maskedAttributes.contains( Strings.toLowerCase( attributeName ) ) )
-                {
-                    record.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
-                }
-                else
+                Set<String> maskedAttributes = getMaskedAttributes();
+                LdifChangeAddRecord record = new LdifChangeAddRecord( LdifDnLine.create( entry.getDn().getName() ) );
+                addControlLines( record, controls );
+                record.setChangeType( LdifChangeTypeLine.createAdd() );
+                for ( Attribute attribute : entry )
                 {
-                    if ( value.isHumanReadable() )
-                    {
-                        record.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
-                    }
-                    else
+                    String attributeName = attribute.getUpId();
+                    for ( Value value : attribute )
                     {
-                        record.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                        if ( maskedAttributes.contains( Strings.toLowerCase( attributeName ) ) )
+                        {
+                            record.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
+                        }
+                        else
+                        {
+                            if ( value.isHumanReadable() )
+                            {
+                                record.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                            }
+                            else
+                            {
+                                record.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                            }
+                        }
                     }
                 }
-            }
-        }
-        record.finish( LdifSepLine.create() );
+                record.finish( LdifSepLine.create() );
 
-        String formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        log( formattedString, ex, connection );
+                return record.toFormattedString( LdifFormatParameters.DEFAULT );
+            }
+        }, connection );
     }
 
 
@@ -312,13 +265,18 @@ public class LdifModificationLogger implements ILdapLogger
             return;
         }
 
-        LdifChangeDeleteRecord record = new LdifChangeDeleteRecord( LdifDnLine.create( dn.getName() ) );
-        addControlLines( record, controls );
-        record.setChangeType( LdifChangeTypeLine.createDelete() );
-        record.finish( LdifSepLine.create() );
+        log( new LdifLogRecord( "RESULT", connection, ex ) //$NON-NLS-1$
+        {
+            protected String formatBody()
+            {
+                LdifChangeDeleteRecord record = new LdifChangeDeleteRecord( LdifDnLine.create( dn.getName() ) );
+                addControlLines( record, controls );
+                record.setChangeType( LdifChangeTypeLine.createDelete() );
+                record.finish( LdifSepLine.create() );
 
-        String formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        log( formattedString, ex, connection );
+                return record.toFormattedString( LdifFormatParameters.DEFAULT );
+            }
+        }, connection );
     }
 
 
@@ -333,54 +291,59 @@ public class LdifModificationLogger implements ILdapLogger
             return;
         }
 
-        Set<String> maskedAttributes = getMaskedAttributes();
-        LdifChangeModifyRecord record = new LdifChangeModifyRecord( LdifDnLine.create( dn.getName() ) );
-        addControlLines( record, controls );
-        record.setChangeType( LdifChangeTypeLine.createModify() );
-        for ( Modification item : modifications )
+        log( new LdifLogRecord( "RESULT", connection, ex ) //$NON-NLS-1$
         {
-            String attributeName = item.getAttribute().getUpId();
-            LdifModSpec modSpec;
-            switch ( item.getOperation() )
-            {
-                case ADD_ATTRIBUTE:
-                    modSpec = LdifModSpec.createAdd( attributeName );
-                    break;
-                case REMOVE_ATTRIBUTE:
-                    modSpec = LdifModSpec.createDelete( attributeName );
-                    break;
-                case REPLACE_ATTRIBUTE:
-                    modSpec = LdifModSpec.createReplace( attributeName );
-                    break;
-                default:
-                    continue;
-            }
-            for ( Value value : item.getAttribute() )
+            protected String formatBody()
             {
-                if ( maskedAttributes.contains( Strings.toLowerCase( attributeName ) ) )
+                Set<String> maskedAttributes = getMaskedAttributes();
+                LdifChangeModifyRecord record = new LdifChangeModifyRecord( LdifDnLine.create( dn.getName() ) );
+                addControlLines( record, controls );
+                record.setChangeType( LdifChangeTypeLine.createModify() );
+                for ( Modification item : modifications )
                 {
-                    modSpec.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
-                }
-                else
-                {
-                    if ( value.isHumanReadable() )
+                    String attributeName = item.getAttribute().getUpId();
+                    LdifModSpec modSpec;
+                    switch ( item.getOperation() )
                     {
-                        modSpec.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                        case ADD_ATTRIBUTE:
+                            modSpec = LdifModSpec.createAdd( attributeName );
+                            break;
+                        case REMOVE_ATTRIBUTE:
+                            modSpec = LdifModSpec.createDelete( attributeName );
+                            break;
+                        case REPLACE_ATTRIBUTE:
+                            modSpec = LdifModSpec.createReplace( attributeName );
+                            break;
+                        default:
+                            continue;
                     }
-                    else
+                    for ( Value value : item.getAttribute() )
                     {
-                        modSpec.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                        if ( maskedAttributes.contains( Strings.toLowerCase( attributeName ) ) )
+                        {
+                            modSpec.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
+                        }
+                        else
+                        {
+                            if ( value.isHumanReadable() )
+                            {
+                                modSpec.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                            }
+                            else
+                            {
+                                modSpec.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                            }
+                        }
                     }
-                }
-            }
-            modSpec.finish( LdifModSpecSepLine.create() );
+                    modSpec.finish( LdifModSpecSepLine.create() );
 
-            record.addModSpec( modSpec );
-        }
-        record.finish( LdifSepLine.create() );
+                    record.addModSpec( modSpec );
+                }
+                record.finish( LdifSepLine.create() );
 
-        String formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        log( formattedString, ex, connection );
+                return record.toFormattedString( LdifFormatParameters.DEFAULT );
+            }
+        }, connection );
     }
 
 
@@ -395,19 +358,24 @@ public class LdifModificationLogger implements ILdapLogger
             return;
         }
 
-        Rdn newrdn = newDn.getRdn();
-        Dn newsuperior = newDn.getParent();
-
-        LdifChangeModDnRecord record = new LdifChangeModDnRecord( LdifDnLine.create( oldDn.getName() ) );
-        addControlLines( record, controls );
-        record.setChangeType( LdifChangeTypeLine.createModDn() );
-        record.setNewrdn( LdifNewrdnLine.create( newrdn.getName() ) );
-        record.setDeloldrdn( deleteOldRdn ? LdifDeloldrdnLine.create1() : LdifDeloldrdnLine.create0() );
-        record.setNewsuperior( LdifNewsuperiorLine.create( newsuperior.getName() ) );
-        record.finish( LdifSepLine.create() );
-
-        String formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        log( formattedString, ex, connection );
+        log( new LdifLogRecord( "RESULT", connection, ex ) //$NON-NLS-1$
+        {
+            protected String formatBody()
+            {
+                Rdn newrdn = newDn.getRdn();
+                Dn newsuperior = newDn.getParent();
+
+                LdifChangeModDnRecord record = new LdifChangeModDnRecord( LdifDnLine.create( oldDn.getName() ) );
+                addControlLines( record, controls );
+                record.setChangeType( LdifChangeTypeLine.createModDn() );
+                record.setNewrdn( LdifNewrdnLine.create( newrdn.getName() ) );
+                record.setDeloldrdn( deleteOldRdn ? LdifDeloldrdnLine.create1() : LdifDeloldrdnLine.create0() );
+                record.setNewsuperior( LdifNewsuperiorLine.create( newsuperior.getName() ) );
+                record.finish( LdifSepLine.create() );
+
+                return record.toFormattedString( LdifFormatParameters.DEFAULT );
+            }
+        }, connection );
     }
 
 
@@ -472,65 +440,8 @@ public class LdifModificationLogger implements ILdapLogger
      */
     public File[] getFiles( Connection connection )
     {
-        String id = connection.getId();
-        if ( !loggers.containsKey( id ) )
-        {
-            if ( connection.getName() != null )
-            {
-                initModificationLogger( connection );
-            }
-        }
-
-        try
-        {
-            return getLogFiles( fileHandlers.get( id ) );
-        }
-        catch ( Exception e )
-        {
-            return new File[0];
-        }
-    }
-
-
-    /**
-     * Gets the log files.
-     * 
-     * @param fileHandler the file handler
-     * 
-     * @return the log files
-     * 
-     * @throws Exception the exception
-     */
-    private static File[] getLogFiles( FileHandler fileHandler ) throws Exception
-    {
-        Field field = getFieldFromClass( "java.util.logging.FileHandler", "files" ); //$NON-NLS-1$ //$NON-NLS-2$
-        field.setAccessible( true );
-        File[] files = ( File[] ) field.get( fileHandler );
-        return files;
-    }
-
-
-    /**
-     * Gets the field from class.
-     * 
-     * @param className the class name
-     * @param fieldName the field name
-     * 
-     * @return the field from class
-     * 
-     * @throws Exception the exception
-     */
-    private static Field getFieldFromClass( String className, String fieldName ) throws Exception
-    {
-        Class<?> clazz = Class.forName( className );
-        Field[] fields = clazz.getDeclaredFields();
-
-        for ( int i = 0; i < fields.length; i++ )
-        {
-            if ( fields[i].getName().equals( fieldName ) )
-                return fields[i];
-        }
-        return null;
+        LdifLogWriter writer = getWriter( connection );
+        return writer != null ? writer.getFiles() : new File[0];
     }
 
 
@@ -570,6 +481,32 @@ public class LdifModificationLogger implements ILdapLogger
     }
 
 
+    /**
+     * Gets the maximum number of queued log records.
+     * 
+     * @return the maximum number of queued log records
+     */
+    private int getBufferSize()
+    {
+        return ConnectionCorePlugin.getDefault().getPluginPreferences().getInt(
+            ConnectionCoreConstants.PREFERENCE_LOGS_BUFFER_SIZE );
+    }
+
+
+    /**
+     * Gets the policy if the log buffer is full.
+     * 
+     * @return the overflow policy
+     */
+    private LdifLogWriter.OverflowPolicy getOverflowPolicy()
+    {
+        String policy = ConnectionCorePlugin.getDefault().getPluginPreferences().getString(
+            ConnectionCoreConstants.PREFERENCE_LOGS_OVERFLOW_POLICY );
+        return LdifLogWriter.OverflowPolicy.DROP.name().equals( policy ) ? LdifLogWriter.OverflowPolicy.DROP
+            : LdifLogWriter.OverflowPolicy.BLOCK;
+    }
+
+
     /**
      * Gets the masked attributes.
      * 
@@ -22,21 +22,10 @@ package org.apache.directory.studio.connection.core.io.api;
 
 
 import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Field;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.logging.FileHandler;
-import java.util.logging.Formatter;
-import java.util.logging.Handler;
-import java.util.logging.Level;
-import java.util.logging.LogRecord;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.naming.directory.SearchControls;
 
@@ -81,11 +70,8 @@ public class LdifSearchLogger implements ILdapLogger
     /** The description. */
     private String description;
 
-    /** The file handlers. */
-    private Map<String, FileHandler> fileHandlers = new HashMap<String, FileHandler>();
-
-    /** The loggers. */
-    private Map<String, Logger> loggers = new HashMap<String, Logger>();
+    /** The log writers. */
+    private ConcurrentMap<String, LdifLogWriter> writers = new ConcurrentHashMap<String, LdifLogWriter>();
 
 
     /**
@@ -99,37 +85,30 @@ public class LdifSearchLogger implements ILdapLogger
                 public void propertyChange( PropertyChangeEvent event )
                 {
                     if ( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_COUNT.equals( event.getProperty() )
-                        || ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_SIZE.equals( event.getProperty() ) )
+                        || ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_SIZE.equals( event.getProperty() )
+                        || ConnectionCoreConstants.PREFERENCE_LOGS_BUFFER_SIZE.equals( event.getProperty() )
+                        || ConnectionCoreConstants.PREFERENCE_LOGS_OVERFLOW_POLICY.equals( event.getProperty() ) )
                     {
-                        // dispose all loggers/handlers
-                        for ( Logger logger : loggers.values() )
+                        // close all writers, loggers that still hold a closed writer get a new one
+                        for ( String connectionId : writers.keySet() )
                         {
-                            for ( Handler handler : logger.getHandlers() )
+                            LdifLogWriter writer = writers.remove( connectionId );
+                            if ( writer == null )
                             {
-                                handler.close();
+                                continue;
                             }
-                        }
+                            writer.close();
 
-                        // delete files with index greater than new file count
-                        for ( FileHandler fh : fileHandlers.values() )
-                        {
-                            try
+                            // delete files with index greater than new file count
+                            File[] logFiles = writer.getFiles();
+                            for ( int i = getFileCount(); i < logFiles.length; i++ )
                             {
-                                File[] logFiles = getLogFiles( fh );
-                                for ( int i = getFileCount(); i < logFiles.length; i++ )
+                                if ( logFiles[i] != null && logFiles[i].exists() )
                                 {
-                                    if ( logFiles[i] != null && logFiles[i].exists() )
-                                    {
-                                        logFiles[i].delete();
-                                    }
+                                    logFiles[i].delete();
                                 }
                             }
-                            catch ( Exception e )
-                            {
-                            }
                         }
-
-                        loggers.clear();
                     }
                 }
             } );
@@ -137,36 +116,27 @@ public class LdifSearchLogger implements ILdapLogger
 
 
     /**
-     * Inits the search logger.
+     * Gets the log writer of the given connection, creates it if necessary.
+     *
+     * @param connection the connection
+     * @return the log writer, null if the connection has no name
      */
-    private void initSearchLogger( Connection connection )
+    private LdifLogWriter getWriter( Connection connection )
     {
-        Logger logger = Logger.getAnonymousLogger();
-        loggers.put( connection.getId(), logger );
-        logger.setLevel( Level.ALL );
+        LdifLogWriter writer = writers.get( connection.getId() );
 
-        String logfileName = ConnectionManager.getSearchLogFileName( connection );
-        try
+        if ( writer == null && connection.getName() != null )
         {
-            FileHandler fileHandler = new FileHandler( logfileName, getFileSizeInKb() * 1000, getFileCount(), true );
-            fileHandlers.put( connection.getId(), fileHandler );
-            fileHandler.setFormatter( new Formatter()
+            LdifLogWriter newWriter = new LdifLogWriter( ConnectionManager.getSearchLogFileName( connection ),
+                getFileCount(), getFileSizeInKb() * 1000L, getBufferSize(), getOverflowPolicy() );
+            writer = writers.putIfAbsent( connection.getId(), newWriter );
+            if ( writer == null )
             {
-                public String format( LogRecord record )
-                {
-                    return record.getMessage();
-                }
-            } );
-            logger.addHandler( fileHandler );
-        }
-        catch ( SecurityException e )
-        {
-            e.printStackTrace();
-        }
-        catch ( IOException e )
-        {
-            e.printStackTrace();
+                writer = newWriter;
+            }
         }
+
+        return writer;
     }
 
 
@@ -177,67 +147,46 @@ public class LdifSearchLogger implements ILdapLogger
      */
     public void dispose( Connection connection )
     {
-        String id = connection.getId();
-        if ( loggers.containsKey( id ) )
+        LdifLogWriter writer = writers.remove( connection.getId() );
+        if ( writer != null )
         {
-            Handler[] handlers = loggers.get( id ).getHandlers();
-            for ( Handler handler : handlers )
-            {
-                handler.close();
-            }
-
-            loggers.remove( id );
+            writer.close();
         }
     }
 
 
-    private void log( String text, String type, LdapException ex, Connection connection )
+    /**
+     * Disposes the search loggers of all connections, the queued
+     * log records are written.
+     */
+    public void dispose()
     {
-        String id = connection.getId();
-        if ( !loggers.containsKey( id ) )
+        for ( String connectionId : writers.keySet() )
         {
-            if ( connection.getName() != null )
+            LdifLogWriter writer = writers.remove( connectionId );
+            if ( writer != null )
             {
-                initSearchLogger( connection );
+                writer.close();
             }
         }
+    }
 
-        if ( loggers.containsKey( id ) )
-        {
-            Logger logger = loggers.get( id );
-            DateFormat df = new SimpleDateFormat( ConnectionCoreConstants.DATEFORMAT );
-            df.setTimeZone( ConnectionCoreConstants.UTC_TIME_ZONE );
-
-            if ( ex != null )
-            {
-                logger.log( Level.ALL, LdifCommentLine
-                    .create( "#!" + type + " ERROR" ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$ //$NON-NLS-2$
-            }
-            else
-            {
-                logger.log( Level.ALL, LdifCommentLine
-                    .create( "#!" + type + " OK" ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$ //$NON-NLS-2$
-            }
-
-            logger
-                .log(
-                    Level.ALL,
-                    LdifCommentLine
-                        .create( "#!CONNECTION ldap://" + connection.getHost() + ":" + connection.getPort() ) //$NON-NLS-1$//$NON-NLS-2$
-                        .toFormattedString( LdifFormatParameters.DEFAULT ) );
-            logger.log( Level.ALL, LdifCommentLine
-                .create( "#!DATE " + df.format( new Date() ) ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$
 
-            if ( ex != null )
-            {
-                String errorComment = "#!ERROR " + ex.getMessage(); //$NON-NLS-1$
-                errorComment = errorComment.replaceAll( "\r", " " ); //$NON-NLS-1$ //$NON-NLS-2$
-                errorComment = errorComment.replaceAll( "\n", " " ); //$NON-NLS-1$ //$NON-NLS-2$
-                LdifCommentLine errorCommentLine = LdifCommentLine.create( errorComment );
-                logger.log( Level.ALL, errorCommentLine.toFormattedString( LdifFormatParameters.DEFAULT ) );
-            }
+    /**
+     * Queues the given record to the log writer of the given connection.
+     *
+     * @param record the record
+     * @param connection the connection
+     */
+    private void log( LdifLogRecord record, Connection connection )
+    {
+        LdifLogWriter writer = getWriter( connection );
 
-            logger.log( Level.ALL, text );
+        while ( writer != null && !writer.log( record ) )
+        {
+            // the writer was closed concurrently
+            writers.remove( connection.getId(), writer );
+            writer = getWriter( connection );
         }
     }
 
@@ -284,71 +233,74 @@ public class LdifSearchLogger implements ILdapLogger
     /**
      * {@inheritDoc}
      */
-    public void logSearchRequest( Connection connection, String searchBase, String filter,
-        SearchControls searchControls, AliasDereferencingMethod aliasesDereferencingMethod,
-        Control[] controls, long requestNum, LdapException ex )
+    public void logSearchRequest( final Connection connection, final String searchBase, final String filter,
+        SearchControls searchControls, final AliasDereferencingMethod aliasesDereferencingMethod,
+        final Control[] controls, long requestNum, LdapException ex )
     {
         if ( !isSearchRequestLogEnabled() )
         {
             return;
         }
 
-        String scopeAsString = searchControls.getSearchScope() == SearchControls.SUBTREE_SCOPE ? "wholeSubtree (2)" //$NON-NLS-1$
-            : searchControls.getSearchScope() == SearchControls.ONELEVEL_SCOPE ? "singleLevel (1)" : "baseObject (0)"; //$NON-NLS-1$ //$NON-NLS-2$
-        String attributesAsString = searchControls.getReturningAttributes() == null ? "*" //$NON-NLS-1$
-            : searchControls
-                .getReturningAttributes().length == 0 ? "1.1" //$NON-NLS-1$
-                    : StringUtils.join( searchControls.getReturningAttributes(),
-                        " " );
-        String aliasAsString = aliasesDereferencingMethod == AliasDereferencingMethod.ALWAYS ? "derefAlways (3)" //$NON-NLS-1$
-            : aliasesDereferencingMethod == AliasDereferencingMethod.FINDING ? "derefFindingBaseObj (2)" //$NON-NLS-1$
-                : aliasesDereferencingMethod == AliasDereferencingMethod.SEARCH ? "derefInSearching (1)" //$NON-NLS-1$
-                    : "neverDerefAliases (0)"; //$NON-NLS-1$
-
-        // build LDAP URL
-        LdapUrl url = Utils.getLdapURL( connection, searchBase, searchControls.getSearchScope(), filter, searchControls
-            .getReturningAttributes() );
-
-        // build command line
-        String cmdLine = Utils.getLdapSearchCommandLine( connection, searchBase, searchControls.getSearchScope(),
-            aliasesDereferencingMethod, searchControls.getCountLimit(), searchControls.getTimeLimit(), filter,
-            searchControls.getReturningAttributes() );
-
-        // build 
-        Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
-        lines.add( LdifCommentLine.create( "# LDAP URL     : " + url.toString() ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# command line : " + cmdLine.toString() ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# baseObject   : " + searchBase ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# scope        : " + scopeAsString ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# derefAliases : " + aliasAsString ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# sizeLimit    : " + searchControls.getCountLimit() ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# timeLimit    : " + searchControls.getTimeLimit() ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# typesOnly    : " + "False" ) ); //$NON-NLS-1$ //$NON-NLS-2$
-        lines.add( LdifCommentLine.create( "# filter       : " + filter ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# attributes   : " + attributesAsString ) ); //$NON-NLS-1$
-        if ( controls != null )
-        {
-            for ( Control control : controls )
-            {
-                lines.add( LdifCommentLine.create( "# control      : " + control.getOid() ) ); //$NON-NLS-1$
-            }
-        }
-        lines.add( LdifSepLine.create() );
+        // the search controls are mutable, capture their values
+        final int scope = searchControls.getSearchScope();
+        final long countLimit = searchControls.getCountLimit();
+        final int timeLimit = searchControls.getTimeLimit();
+        final String[] returningAttributes = searchControls.getReturningAttributes() == null ? null
+            : searchControls.getReturningAttributes().clone();
 
-        String formattedString = ""; //$NON-NLS-1$
-        for ( LdifLineBase line : lines )
+        log( new LdifLogRecord( "SEARCH REQUEST (" + requestNum + ")", connection, ex ) //$NON-NLS-1$ //$NON-NLS-2$
         {
-            formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
-        }
+            protected String formatBody()
+            {
+                String scopeAsString = scope == SearchControls.SUBTREE_SCOPE ? "wholeSubtree (2)" //$NON-NLS-1$
+                    : scope == SearchControls.ONELEVEL_SCOPE ? "singleLevel (1)" : "baseObject (0)"; //$NON-NLS-1$ //$NON-NLS-2$
+                String attributesAsString = returningAttributes == null ? "*" //$NON-NLS-1$
+                    : returningAttributes.length == 0 ? "1.1" //$NON-NLS-1$
+                        : StringUtils.join( returningAttributes, " " ); //$NON-NLS-1$
+                String aliasAsString = aliasesDereferencingMethod == AliasDereferencingMethod.ALWAYS ? "derefAlways (3)" //$NON-NLS-1$
+                    : aliasesDereferencingMethod == AliasDereferencingMethod.FINDING ? "derefFindingBaseObj (2)" //$NON-NLS-1$
+                        : aliasesDereferencingMethod == AliasDereferencingMethod.SEARCH ? "derefInSearching (1)" //$NON-NLS-1$
+                            : "neverDerefAliases (0)"; //$NON-NLS-1$
+
+                // build LDAP URL
+                LdapUrl url = Utils.getLdapURL( connection, searchBase, scope, filter, returningAttributes );
+
+                // build command line
+                String cmdLine = Utils.getLdapSearchCommandLine( connection, searchBase, scope,
+                    aliasesDereferencingMethod, countLimit, timeLimit, filter, returningAttributes );
+
+                // build 
+                Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
+                lines.add( LdifCommentLine.create( "# LDAP URL     : " + url.toString() ) ); //$NON-NLS-1$
+                lines.add( LdifCommentLine.create( "# command line : " + cmdLine.toString() ) ); //$NON-NLS-1$
+                lines.add( LdifCommentLine.create( "# baseObject   : " + searchBase ) ); //$NON-NLS-1$
+                lines.add( LdifCommentLine.create( "# scope        : " + scopeAsString ) ); //$NON-NLS-1$
+                lines.add( LdifCommentLine.create( "# derefAliases : " + aliasAsString ) ); //$NON-NLS-1$
+                lines.add( LdifCommentLine.create( "# sizeLimit    : " + countLimit ) ); //$NON-NLS-1$
+                lines.add( LdifCommentLine.create( "# timeLimit    : " + timeLimit ) ); //$NON-NLS-1$
+                lines.add( LdifCommentLine.create( "# typesOnly    : " + "False" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+                lines.add( LdifCommentLine.create( "# filter       : " + filter ) ); //$NON-NLS-1$
+                lines.add( LdifCommentLine.create( "# attributes   : " + attributesAsString ) ); //$NON-NLS-1$
+                if ( controls != null )
+                {
+                    for ( Control control : controls )
+                    {
+                        lines.add( LdifCommentLine.create( "# control      : " + control.getOid() ) ); //$NON-NLS-1$
+                    }
+                }
+                lines.add( LdifSepLine.create() );
 
-        log( formattedString, "SEARCH REQUEST (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
+                return toFormattedString( lines );
+            }
+        }, connection );
     }
 
 
     /**
      * {@inheritDoc}
      */
-    public void logSearchResultReference( Connection connection, Referral referral,
+    public void logSearchResultReference( Connection connection, final Referral referral,
         ReferralsInfo referralsInfo, long requestNum, LdapException ex )
     {
         if ( !isSearchResultEntryLogEnabled() )
@@ -356,111 +308,73 @@ public class LdifSearchLogger implements ILdapLogger
             return;
         }
 
-        Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
-        lines
-            .add( LdifCommentLine.create( "# reference : " + ( referral != null ? referral.getLdapUrls() : "null" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$
-        lines.add( LdifSepLine.create() );
-
-        String formattedString = ""; //$NON-NLS-1$
-        for ( LdifLineBase line : lines )
+        log( new LdifLogRecord( "SEARCH RESULT REFERENCE (" + requestNum + ")", connection, ex ) //$NON-NLS-1$ //$NON-NLS-2$
         {
-            formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
-        }
-        log( formattedString, "SEARCH RESULT REFERENCE (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
+            protected String formatBody()
+            {
+                Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
+                lines.add( LdifCommentLine
+                    .create( "# reference : " + ( referral != null ? referral.getLdapUrls() : "null" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$
+                lines.add( LdifSepLine.create() );
+
+                return toFormattedString( lines );
+            }
+        }, connection );
     }
 
 
     /**
      * {@inheritDoc}
      */
-    public void logSearchResultDone( Connection connection, long count, long requestNum, LdapException ex )
+    public void logSearchResultDone( Connection connection, final long count, long requestNum, LdapException ex )
     {
         if ( !isSearchRequestLogEnabled() )
         {
             return;
         }
 
-        Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
-        lines.add( LdifCommentLine.create( "# numEntries : " + count ) ); //$NON-NLS-1$
-        lines.add( LdifSepLine.create() );
-
-        String formattedString = ""; //$NON-NLS-1$
-        for ( LdifLineBase line : lines )
+        log( new LdifLogRecord( "SEARCH RESULT DONE (" + requestNum + ")", connection, ex ) //$NON-NLS-1$ //$NON-NLS-2$
         {
-            formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
-        }
-        log( formattedString, "SEARCH RESULT DONE (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
-    }
-
-
-    /**
-     * Gets the files.
-     * 
-     * @param connection the connection
-     * 
-     * @return the files
-     */
-    public File[] getFiles( Connection connection )
-    {
-        String id = connection.getId();
-        if ( !loggers.containsKey( id ) )
-        {
-            if ( connection.getName() != null )
+            protected String formatBody()
             {
-                initSearchLogger( connection );
-            }
-        }
+                Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
+                lines.add( LdifCommentLine.create( "# numEntries : " + count ) ); //$NON-NLS-1$
+                lines.add( LdifSepLine.create() );
 
-        try
-        {
-            return getLogFiles( fileHandlers.get( id ) );
-        }
-        catch ( Exception e )
-        {
-            return new File[0];
-        }
+                return toFormattedString( lines );
+            }
+        }, connection );
     }
 
 
     /**
-     * Gets the log files.
-     * 
-     * @param fileHandler the file handler
-     * 
-     * @return the log files
-     * 
-     * @throws Exception the exception
+     * Formats the given lines.
+     *
+     * @param lines the lines
+     * @return the formatted lines
      */
-    private static File[] getLogFiles( FileHandler fileHandler ) throws Exception
+    private static String toFormattedString( Collection<LdifLineBase> lines )
     {
-        Field field = getFieldFromClass( "java.util.logging.FileHandler", "files" ); //$NON-NLS-1$ //$NON-NLS-2$
-        field.setAccessible( true );
-        File[] files = ( File[] ) field.get( fileHandler );
-        return files;
+        StringBuilder sb = new StringBuilder();
+        for ( LdifLineBase line : lines )
+        {
+            sb.append( line.toFormattedString( LdifFormatParameters.DEFAULT ) );
+        }
+        return sb.toString();
     }
 
 
     /**
-     * Gets the field from class.
-     * 
-     * @param className the class name
-     * @param fieldName the field name
+     * Gets the files.
      * 
-     * @return the field from class
+     * @param connection the connection
      * 
-     * @throws Exception the exception
+     * @return the files
      */
-    private static Field getFieldFromClass( String className, String fieldName ) throws Exception
+    public File[] getFiles( Connection connection )
     {
-        Class<?> clazz = Class.forName( className );
-        Field[] fields = clazz.getDeclaredFields();
-
-        for ( int i = 0; i < fields.length; i++ )
-        {
-            if ( fields[i].getName().equals( fieldName ) )
-                return fields[i];
-        }
-        return null;
+        LdifLogWriter writer = getWriter( connection );
+        return writer != null ? writer.getFiles() : new File[0];
     }
 
 
@@ -512,6 +426,32 @@ public class LdifSearchLogger implements ILdapLogger
     }
 
 
+    /**
+     * Gets the maximum number of queued log records.
+     * 
+     * @return the maximum number of queued log records
+     */
+    private int getBufferSize()
+    {
+        return ConnectionCorePlugin.getDefault().getPluginPreferences().getInt(
+            ConnectionCoreConstants.PREFERENCE_LOGS_BUFFER_SIZE );
+    }
+
+
+    /**
+     * Gets the policy if the log buffer is full.
+     * 
+     * @return the overflow policy
+     */
+    private LdifLogWriter.OverflowPolicy getOverflowPolicy()
+    {
+        String policy = ConnectionCorePlugin.getDefault().getPluginPreferences().getString(
+            ConnectionCoreConstants.PREFERENCE_LOGS_OVERFLOW_POLICY );
+        return LdifLogWriter.OverflowPolicy.DROP.name().equals( policy ) ? LdifLogWriter.OverflowPolicy.DROP
+            : LdifLogWriter.OverflowPolicy.BLOCK;
+    }
+
+
     public String getId()
     {
         return id;
@@ -57,7 +57,7 @@ import org.apache.directory.studio.connection.core.io.ConnectionWrapperUtils;
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-public class StudioSearchResultEnumeration
+public class StudioSearchResultEnumeration implements AutoCloseable
 {
     private Connection connection;
 
@@ -77,6 +77,8 @@ public class StudioSearchResultEnumeration
     private List<String> currentReferralUrlsList;
     private StudioSearchResultEnumeration referralEnumeration;
     private SearchResultDone searchResultDone;
+    private Runnable releaseHandler;
+    private boolean closed;
 
 
     /**
@@ -122,16 +124,83 @@ public class StudioSearchResultEnumeration
     }
 
 
+    /**
+     * Sets the handler that is called once the underlying connection is not
+     * needed anymore, i.e. when the enumeration is closed or all results were read.
+     *
+     * @param releaseHandler the release handler
+     */
+    void setReleaseHandler( Runnable releaseHandler )
+    {
+        this.releaseHandler = releaseHandler;
+    }
+
+
+    private void release()
+    {
+        Runnable handler = releaseHandler;
+        releaseHandler = null;
+
+        if ( handler != null )
+        {
+            handler.run();
+        }
+    }
+
+
+    /**
+     * Closes the enumeration and releases the underlying connection. Callers that
+     * stop reading before all results were read must close the enumeration, otherwise
+     * the connection is not released. Closing an enumeration twice has no effect.
+     *
+     * @throws LdapException if the cursor can't be closed
+     */
     public void close() throws LdapException
     {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+
         try
         {
+            if ( referralEnumeration != null )
+            {
+                referralEnumeration.close();
+            }
+
             cursor.close();
         }
         catch ( Exception e )
         {
             throw new LdapException( e.getMessage() );
         }
+        finally
+        {
+            release();
+        }
+    }
+
+
+    /**
+     * Closes the given enumeration, ignoring any error. Intended for finally blocks.
+     *
+     * @param enumeration the enumeration to close, may be null
+     */
+    public static void closeQuietly( StudioSearchResultEnumeration enumeration )
+    {
+        if ( enumeration != null )
+        {
+            try
+            {
+                enumeration.close();
+            }
+            catch ( LdapException e )
+            {
+                // ignore, the connection is released anyway
+            }
+        }
     }
 
 
@@ -167,6 +236,9 @@ public class StudioSearchResultEnumeration
                 }
             }
 
+            // All responses were read, the connection is not needed anymore
+            release();
+
             // Storing the search result done (if needed)
             if ( searchResultDone == null )
             {
@@ -255,6 +327,7 @@ public class StudioSearchResultEnumeration
         }
         catch ( CursorException e )
         {
+            release();
             throw new LdapException( e.getMessage(), e );
         }
     }
@@ -0,0 +1,317 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Base64;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link LdifLogFileIndex}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifLogFileIndexTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = new File( folder.getRoot(), "search-0.log" ); //$NON-NLS-1$
+    }
+
+
+    private static String request( int number, String baseDn )
+    {
+        return "#!SEARCH REQUEST (" + number + ") OK\n" //$NON-NLS-1$ //$NON-NLS-2$
+            + "#!CONNECTION ldap://localhost:10389\n" //$NON-NLS-1$
+            + "#!DATE 2026-10-18T10:00:00.000\n" //$NON-NLS-1$
+            + "# baseObject   : " + baseDn + "\n" //$NON-NLS-1$ //$NON-NLS-2$
+            + "# filter       : (objectClass=*)\n" //$NON-NLS-1$
+            + "\n"; //$NON-NLS-1$
+    }
+
+
+    private static String entry( int number, String dn )
+    {
+        return "#!SEARCH RESULT ENTRY (" + number + ") OK\n" //$NON-NLS-1$ //$NON-NLS-2$
+            + "#!CONNECTION ldap://localhost:10389\n" //$NON-NLS-1$
+            + "#!DATE 2026-10-18T10:00:00.001\n" //$NON-NLS-1$
+            + "dn: " + dn + "\n" //$NON-NLS-1$ //$NON-NLS-2$
+            + "objectClass: top\n" //$NON-NLS-1$
+            + "\n"; //$NON-NLS-1$
+    }
+
+
+    private void append( String text ) throws IOException
+    {
+        OutputStream out = new FileOutputStream( file, true );
+        try
+        {
+            out.write( text.getBytes( Charset.defaultCharset() ) );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+
+    private void write( File target, String text ) throws IOException
+    {
+        OutputStream out = new FileOutputStream( target );
+        try
+        {
+            out.write( text.getBytes( Charset.defaultCharset() ) );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+
+    @Test
+    public void testMissingFile() throws IOException
+    {
+        LdifLogFileIndex index = new LdifLogFileIndex( file, 10 );
+
+        assertFalse( index.update() );
+        assertEquals( 0, index.getRecordCount() );
+        assertEquals( "", index.readLastPage() ); //$NON-NLS-1$
+        assertFalse( index.hasPreviousPage() );
+    }
+
+
+    @Test
+    public void testIndexRecords() throws IOException
+    {
+        String folded = "#!SEARCH RESULT ENTRY (2) OK\n" //$NON-NLS-1$
+            + "dn: cn=a very long name,\n" //$NON-NLS-1$
+            + " ou=users,dc=example,dc=com\n" //$NON-NLS-1$
+            + "\n"; //$NON-NLS-1$
+        String encoded = "#!SEARCH RESULT ENTRY (3) OK\n" //$NON-NLS-1$
+            + "dn:: " //$NON-NLS-1$
+            + Base64.getEncoder().encodeToString( "cn=M\u00fcller,dc=example,dc=com".getBytes( "UTF-8" ) ) + "\n" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            + "\n"; //$NON-NLS-1$
+        append( "# leading comment\n" + request( 1, "DC=Example,DC=com" ) + folded + encoded //$NON-NLS-1$ //$NON-NLS-2$
+            + "#!SEARCH RESULT DONE OK\n\n" ); //$NON-NLS-1$
+
+        LdifLogFileIndex index = new LdifLogFileIndex( file, 10 );
+        assertFalse( index.update() );
+
+        // the leading comment is a record of its own, #!CONNECTION and #!DATE don't start a record
+        assertEquals( 5, index.getRecordCount() );
+        assertEquals( -1, index.getRequestNumber( 0 ) );
+        assertNull( index.getDn( 0 ) );
+        assertEquals( 1, index.getRequestNumber( 1 ) );
+        assertEquals( "dc=example,dc=com", index.getDn( 1 ) ); //$NON-NLS-1$
+        assertEquals( 2, index.getRequestNumber( 2 ) );
+        assertEquals( "cn=a very long name,ou=users,dc=example,dc=com", index.getDn( 2 ) ); //$NON-NLS-1$
+        assertEquals( 3, index.getRequestNumber( 3 ) );
+        assertEquals( "cn=m\u00fcller,dc=example,dc=com", index.getDn( 3 ) ); //$NON-NLS-1$
+        assertEquals( -1, index.getRequestNumber( 4 ) );
+        assertNull( index.getDn( 4 ) );
+    }
+
+
+    @Test
+    public void testAppend() throws IOException
+    {
+        append( request( 1, "dc=example,dc=com" ) ); //$NON-NLS-1$
+
+        LdifLogFileIndex index = new LdifLogFileIndex( file, 10 );
+        assertEquals( request( 1, "dc=example,dc=com" ), index.readLastPage() ); //$NON-NLS-1$
+        assertEquals( "", index.readAppended() ); //$NON-NLS-1$
+
+        // only complete lines are indexed
+        append( entry( 1, "cn=a,dc=example,dc=com" ) + "#!SEARCH RESULT DO" ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( entry( 1, "cn=a,dc=example,dc=com" ), index.readAppended() ); //$NON-NLS-1$
+        assertEquals( 2, index.getRecordCount() );
+
+        append( "NE (1) OK\n\n" ); //$NON-NLS-1$
+        assertFalse( index.update() );
+        assertEquals( 3, index.getRecordCount() );
+        assertEquals( 1, index.getRequestNumber( 2 ) );
+        assertEquals( "#!SEARCH RESULT DONE (1) OK\n\n", index.readAppended() ); //$NON-NLS-1$
+        assertEquals( 3, index.getReadCount() );
+    }
+
+
+    @Test
+    public void testTruncation() throws IOException
+    {
+        append( request( 1, "dc=example,dc=com" ) + entry( 1, "cn=a,dc=example,dc=com" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        LdifLogFileIndex index = new LdifLogFileIndex( file, 10 );
+        index.readLastPage();
+        assertEquals( 2, index.getRecordCount() );
+
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" ); //$NON-NLS-1$
+        try
+        {
+            raf.setLength( 0 );
+        }
+        finally
+        {
+            raf.close();
+        }
+        append( request( 2, "ou=users" ) ); //$NON-NLS-1$
+
+        // the log file is shorter than the indexed length
+        assertNull( index.readAppended() );
+        assertEquals( 1, index.getRecordCount() );
+        assertEquals( 2, index.getRequestNumber( 0 ) );
+        assertEquals( request( 2, "ou=users" ), index.readLastPage() ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testRotation() throws IOException
+    {
+        append( request( 1, "dc=example,dc=com" ) ); //$NON-NLS-1$
+
+        LdifLogFileIndex index = new LdifLogFileIndex( file, 10 );
+        index.readLastPage();
+
+        // the rotated log file is longer than the indexed length
+        File rotated = new File( folder.getRoot(), "search-0.log.tmp" ); //$NON-NLS-1$
+        write( rotated, request( 2, "ou=users" ) + request( 3, "ou=groups" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue( file.renameTo( new File( folder.getRoot(), "search-1.log" ) ) ); //$NON-NLS-1$
+        assertTrue( rotated.renameTo( file ) );
+
+        assertNull( index.readAppended() );
+        assertEquals( 2, index.getRecordCount() );
+        assertEquals( 2, index.getRequestNumber( 0 ) );
+        assertEquals( 3, index.getRequestNumber( 1 ) );
+        assertEquals( request( 2, "ou=users" ) + request( 3, "ou=groups" ), index.readLastPage() ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    @Test
+    public void testFilter() throws IOException
+    {
+        append( request( 1, "dc=example,dc=com" ) + entry( 1, "cn=Alice,ou=users,dc=example,dc=com" ) //$NON-NLS-1$ //$NON-NLS-2$
+            + request( 2, "ou=groups,dc=example,dc=com" ) + entry( 2, "cn=Bob,ou=users,dc=example,dc=com" ) //$NON-NLS-1$ //$NON-NLS-2$
+            + request( 12, "ou=users,dc=example,dc=com" ) ); //$NON-NLS-1$
+
+        LdifLogFileIndex index = new LdifLogFileIndex( file, 10 );
+
+        // request number
+        index.setFilter( "2" ); //$NON-NLS-1$
+        assertEquals( "2", index.getFilter() ); //$NON-NLS-1$
+        assertEquals( request( 2, "ou=groups,dc=example,dc=com" ) + entry( 2, "cn=Bob,ou=users,dc=example,dc=com" ), //$NON-NLS-1$ //$NON-NLS-2$
+            index.readLastPage() );
+
+        // DN, ignoring case; the last record may still be incomplete and is not checked yet
+        index.setFilter( " OU=Users " ); //$NON-NLS-1$
+        assertEquals( "ou=users", index.getFilter() ); //$NON-NLS-1$
+        assertEquals( entry( 1, "cn=Alice,ou=users,dc=example,dc=com" ) //$NON-NLS-1$
+            + entry( 2, "cn=Bob,ou=users,dc=example,dc=com" ), index.readLastPage() ); //$NON-NLS-1$
+
+        append( entry( 12, "cn=Carol,ou=users,dc=example,dc=com" ) + request( 13, "ou=groups,dc=example,dc=com" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( request( 12, "ou=users,dc=example,dc=com" ) //$NON-NLS-1$
+            + entry( 12, "cn=Carol,ou=users,dc=example,dc=com" ), index.readAppended() ); //$NON-NLS-1$
+
+        // no match
+        index.setFilter( "ou=nobody" ); //$NON-NLS-1$
+        assertEquals( "", index.readLastPage() ); //$NON-NLS-1$
+        assertEquals( 0, index.getReadCount() );
+
+        // an empty filter matches all records
+        index.setFilter( "  " ); //$NON-NLS-1$
+        assertNull( index.getFilter() );
+        index.readLastPage();
+        assertEquals( 7, index.getReadCount() );
+    }
+
+
+    @Test
+    public void testPages() throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 1; i <= 5; i++ )
+        {
+            sb.append( request( i, "ou=" + i ) ); //$NON-NLS-1$
+        }
+        append( sb.toString() );
+
+        LdifLogFileIndex index = new LdifLogFileIndex( file, 2 );
+        assertEquals( request( 4, "ou=4" ) + request( 5, "ou=5" ), index.readLastPage() ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue( index.hasPreviousPage() );
+        assertEquals( request( 2, "ou=2" ) + request( 3, "ou=3" ), index.readPreviousPage() ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue( index.hasPreviousPage() );
+        assertEquals( request( 1, "ou=1" ), index.readPreviousPage() ); //$NON-NLS-1$
+        assertFalse( index.hasPreviousPage() );
+        assertEquals( "", index.readPreviousPage() ); //$NON-NLS-1$
+        assertEquals( 5, index.getReadCount() );
+
+        // the next last page starts again at the newest records
+        index.readLastPage();
+        assertEquals( 2, index.getReadCount() );
+    }
+
+
+    @Test
+    public void testRecordSpanningLastPage() throws IOException
+    {
+        String entry = entry( 2, "cn=a,dc=example,dc=com" ); //$NON-NLS-1$
+        int split = entry.indexOf( "objectClass" ); //$NON-NLS-1$
+        append( request( 1, "ou=1" ) + request( 2, "ou=2" ) + entry.substring( 0, split ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        // the last record of the last page is still being written
+        LdifLogFileIndex index = new LdifLogFileIndex( file, 2 );
+        assertEquals( request( 2, "ou=2" ) + entry.substring( 0, split ), index.readLastPage() ); //$NON-NLS-1$
+
+        // only the remaining lines of the record are read, without repeating its start
+        append( entry.substring( split ) );
+        assertEquals( entry.substring( split ), index.readAppended() );
+        assertEquals( "", index.readAppended() ); //$NON-NLS-1$
+
+        // the appended record goes beyond the page size, the page is extended
+        append( request( 3, "ou=3" ) ); //$NON-NLS-1$
+        assertEquals( request( 3, "ou=3" ), index.readAppended() ); //$NON-NLS-1$
+        assertEquals( 3, index.getReadCount() );
+        assertTrue( index.hasPreviousPage() );
+        assertEquals( request( 1, "ou=1" ), index.readPreviousPage() ); //$NON-NLS-1$
+    }
+}
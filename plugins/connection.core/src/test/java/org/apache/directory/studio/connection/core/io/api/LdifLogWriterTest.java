@@ -0,0 +1,277 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.connection.core.ConnectionParameter;
+import org.apache.directory.studio.connection.core.io.api.LdifLogWriter.OverflowPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link LdifLogWriter}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifLogWriterTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Connection connection;
+
+    private String fileNamePattern;
+
+    /** Released to let a blocked record continue */
+    private CountDownLatch release = new CountDownLatch( 1 );
+
+
+    /**
+     * A record with a fixed text.
+     */
+    private class TextRecord extends LdifLogRecord
+    {
+        private String text;
+
+
+        TextRecord( String text )
+        {
+            super( "TEST", connection, null ); //$NON-NLS-1$
+            this.text = text;
+        }
+
+
+        public String format()
+        {
+            return text;
+        }
+
+
+        protected String formatBody()
+        {
+            return text;
+        }
+    }
+
+
+    @Before
+    public void setUp()
+    {
+        ConnectionParameter connectionParameter = new ConnectionParameter();
+        connectionParameter.setHost( "localhost" ); //$NON-NLS-1$
+        connectionParameter.setPort( 10389 );
+        connection = new Connection( connectionParameter );
+        fileNamePattern = new File( folder.getRoot(), "ldif-%u-%g.log" ).getPath(); //$NON-NLS-1$
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        // never leave the shared writer thread blocked
+        release.countDown();
+    }
+
+
+    private static String read( File file ) throws IOException
+    {
+        return file.exists() ? new String( Files.readAllBytes( file.toPath() ), Charset.defaultCharset() ) : null;
+    }
+
+
+    /**
+     * Logs a record that blocks the shared writer thread until {@link #release}
+     * is counted down, records logged meanwhile stay queued.
+     */
+    private void blockWriter( LdifLogWriter writer, String text ) throws InterruptedException
+    {
+        final CountDownLatch entered = new CountDownLatch( 1 );
+
+        assertTrue( writer.log( new TextRecord( text )
+        {
+            public String format()
+            {
+                entered.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.format();
+            }
+        } ) );
+
+        assertTrue( entered.await( 10, TimeUnit.SECONDS ) );
+    }
+
+
+    @Test
+    public void testRotation() throws IOException
+    {
+        LdifLogWriter writer = new LdifLogWriter( fileNamePattern, 3, 15, 100, OverflowPolicy.BLOCK );
+        File[] files = writer.getFiles();
+        assertEquals( 3, files.length );
+        assertEquals( new File( folder.getRoot(), "ldif-0-0.log" ), files[0] ); //$NON-NLS-1$
+        assertEquals( new File( folder.getRoot(), "ldif-0-2.log" ), files[2] ); //$NON-NLS-1$
+
+        // each record is 10 bytes, two records exceed the maximum file size
+        for ( int i = 1; i <= 5; i++ )
+        {
+            assertTrue( writer.log( new TextRecord( "record " + i + "\n\n" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        writer.close();
+
+        // file 0 is the newest one, records 1 and 2 were deleted with the oldest file
+        assertEquals( "record 5\n\n", read( files[0] ) ); //$NON-NLS-1$
+        assertEquals( "record 4\n\n", read( files[1] ) ); //$NON-NLS-1$
+        assertEquals( "record 3\n\n", read( files[2] ) ); //$NON-NLS-1$
+        assertEquals( 3, folder.getRoot().list().length );
+    }
+
+
+    @Test
+    public void testAppendToExistingFile() throws IOException
+    {
+        LdifLogWriter writer = new LdifLogWriter( fileNamePattern, 2, 1000, 100, OverflowPolicy.BLOCK );
+        writer.log( new TextRecord( "first\n" ) ); //$NON-NLS-1$
+        writer.close();
+
+        writer = new LdifLogWriter( fileNamePattern, 2, 1000, 100, OverflowPolicy.BLOCK );
+        writer.log( new TextRecord( "second\n" ) ); //$NON-NLS-1$
+        writer.close();
+
+        assertEquals( "first\nsecond\n", read( writer.getFiles()[0] ) ); //$NON-NLS-1$
+        assertEquals( null, read( writer.getFiles()[1] ) );
+    }
+
+
+    @Test
+    public void testDropCounterAndMarker() throws Exception
+    {
+        LdifLogWriter writer = new LdifLogWriter( fileNamePattern, 1, 10000, 2, OverflowPolicy.DROP );
+        blockWriter( writer, "r0\n" ); //$NON-NLS-1$
+
+        // the buffer holds two records, the others are dropped
+        for ( int i = 1; i <= 5; i++ )
+        {
+            assertTrue( writer.log( new TextRecord( "r" + i + "\n" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        assertEquals( 3, writer.getDroppedCount() );
+
+        release.countDown();
+        writer.close();
+
+        assertEquals( "r0\n# 3 log records dropped\nr1\nr2\n", read( writer.getFiles()[0] ) ); //$NON-NLS-1$
+        assertEquals( 3, writer.getDroppedCount() );
+    }
+
+
+    @Test
+    public void testCloseFlushesQueuedRecords() throws Exception
+    {
+        LdifLogWriter writer = new LdifLogWriter( fileNamePattern, 1, 1000000, 1000, OverflowPolicy.BLOCK );
+        blockWriter( writer, "r0\n" ); //$NON-NLS-1$
+
+        StringBuilder expected = new StringBuilder( "r0\n" ); //$NON-NLS-1$
+        for ( int i = 1; i <= 500; i++ )
+        {
+            writer.log( new TextRecord( "r" + i + "\n" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+            expected.append( "r" ).append( i ).append( "\n" ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        // the header and the body of a record are formatted by the writer
+        writer.log( new LdifLogRecord( "RESULT", connection, null ) //$NON-NLS-1$
+        {
+            protected String formatBody()
+            {
+                return "body\n"; //$NON-NLS-1$
+            }
+        } );
+
+        release.countDown();
+        writer.close();
+
+        String content = read( writer.getFiles()[0] );
+        assertTrue( content.startsWith( expected.toString() ) );
+        String last = content.substring( expected.length() );
+        assertTrue( last, last.startsWith( "#!RESULT OK\n#!CONNECTION ldap://localhost:10389\n#!DATE " ) ); //$NON-NLS-1$
+        assertTrue( last, last.endsWith( "\nbody\n" ) ); //$NON-NLS-1$
+        assertEquals( 0, writer.getDroppedCount() );
+    }
+
+
+    @Test
+    public void testLogAfterClose() throws IOException
+    {
+        LdifLogWriter writer = new LdifLogWriter( fileNamePattern, 1, 1000, 100, OverflowPolicy.BLOCK );
+        assertTrue( writer.log( new TextRecord( "before\n" ) ) ); //$NON-NLS-1$
+        writer.close();
+
+        assertFalse( writer.log( new TextRecord( "after\n" ) ) ); //$NON-NLS-1$
+        writer.close();
+
+        assertEquals( "before\n", read( writer.getFiles()[0] ) ); //$NON-NLS-1$
+        assertEquals( 0, writer.getDroppedCount() );
+    }
+
+
+    @Test
+    public void testFailingRecordKeepsBatch() throws Exception
+    {
+        LdifLogWriter writer = new LdifLogWriter( fileNamePattern, 1, 1000, 100, OverflowPolicy.BLOCK );
+        blockWriter( writer, "r0\n" ); //$NON-NLS-1$
+
+        // the queued records are written in one batch
+        writer.log( new TextRecord( "r1\n" ) ); //$NON-NLS-1$
+        writer.log( new TextRecord( "failing\n" ) //$NON-NLS-1$
+        {
+            public String format()
+            {
+                throw new IllegalStateException();
+            }
+        } );
+        writer.log( new TextRecord( "r2\n" ) ); //$NON-NLS-1$
+
+        release.countDown();
+        writer.close();
+
+        assertEquals( "r0\nr1\nr2\n", read( writer.getFiles()[0] ) ); //$NON-NLS-1$
+    }
+}
@@ -20,6 +20,13 @@
 package org.apache.directory.studio.connection.ui;
 
 
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.directory.studio.connection.core.event.CoalescingEventRunnable;
 import org.apache.directory.studio.connection.core.event.EventRunnable;
 import org.apache.directory.studio.connection.core.event.EventRunner;
 import org.eclipse.swt.widgets.Display;
@@ -28,11 +35,74 @@ import org.eclipse.swt.widgets.Display;
 /**
  * Implementation of {@link EventRunner} that executes an {@link EventRunnable}
  * withing the SWT UI thread.
+ * <p>
+ * Bursts of events, e.g. the entry modification events of an import, are
+ * batched: the runnables are queued and executed in order by an asynchronous
+ * UI runnable instead of posting one runnable per event. A single pass executes
+ * a limited number of runnables for a limited time, the remaining runnables are
+ * executed by the next pass, so the UI stays responsive. A queued
+ * {@link CoalescingEventRunnable} is dropped when an equivalent one is queued
+ * before it was executed.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
 public class UiThreadEventRunner implements EventRunner
 {
+    /** The maximum number of runnables executed by a single pass */
+    private static final int MAX_RUNNABLES_PER_PASS = 500;
+
+    /** The maximum time in milliseconds a single pass executes runnables */
+    private static final long MAX_MILLIS_PER_PASS = 50;
+
+    /** The queued runnables, shared by all instances to keep the order of the events */
+    private static final Queue<QueuedRunnable> queue = new ConcurrentLinkedQueue<QueuedRunnable>();
+
+    /** The latest queued runnable by coalescing key */
+    private static final Map<Object, QueuedRunnable> coalescing = new ConcurrentHashMap<Object, QueuedRunnable>();
+
+    /** Flag indicating that a drain of the queue is scheduled */
+    private static final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** The runnable that executes the queued runnables */
+    private static final Runnable drain = new Runnable()
+    {
+        public void run()
+        {
+            scheduled.set( false );
+
+            try
+            {
+                long end = System.currentTimeMillis() + MAX_MILLIS_PER_PASS;
+                QueuedRunnable queued;
+
+                for ( int i = 0; i < MAX_RUNNABLES_PER_PASS && ( queued = queue.poll() ) != null; i++ )
+                {
+                    if ( queued.key != null )
+                    {
+                        coalescing.remove( queued.key, queued );
+                    }
+
+                    if ( !queued.superseded )
+                    {
+                        queued.runnable.run();
+                    }
+
+                    if ( System.currentTimeMillis() > end )
+                    {
+                        break;
+                    }
+                }
+            }
+            finally
+            {
+                // the remaining events are executed by the next pass,
+                // a failing listener must not hold them back
+                schedule();
+            }
+        }
+    };
+
+
     /**
      * {@inheritDoc}
      *
@@ -41,6 +111,55 @@ public class UiThreadEventRunner implements EventRunner
      */
     public void execute( EventRunnable runnable )
     {
-        Display.getDefault().asyncExec( runnable );
+        QueuedRunnable queued = new QueuedRunnable( runnable );
+
+        if ( queued.key != null )
+        {
+            QueuedRunnable previous = coalescing.put( queued.key, queued );
+
+            if ( previous != null )
+            {
+                previous.superseded = true;
+            }
+        }
+
+        queue.add( queued );
+        schedule();
+    }
+
+
+    /**
+     * Schedules the execution of the queued runnables, if not already scheduled.
+     */
+    private static void schedule()
+    {
+        if ( !queue.isEmpty() && scheduled.compareAndSet( false, true ) )
+        {
+            Display.getDefault().asyncExec( drain );
+        }
+    }
+
+
+    /**
+     * A queued runnable.
+     */
+    private static final class QueuedRunnable
+    {
+        /** The runnable */
+        private final EventRunnable runnable;
+
+        /** The coalescing key, null if the runnable isn't coalesced */
+        private final Object key;
+
+        /** Flag indicating that an equivalent runnable was queued after this one */
+        private volatile boolean superseded;
+
+
+        private QueuedRunnable( EventRunnable runnable )
+        {
+            this.runnable = runnable;
+            this.key = runnable instanceof CoalescingEventRunnable ? ( ( CoalescingEventRunnable ) runnable )
+                .getCoalescingKey() : null;
+        }
     }
 }
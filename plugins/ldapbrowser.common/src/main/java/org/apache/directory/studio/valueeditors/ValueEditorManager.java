@@ -29,6 +29,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.api.ldap.model.schema.LdapSyntax;
@@ -39,6 +40,7 @@ import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
 import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.AttributeTypeDescriptor;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
 import org.eclipse.core.runtime.IConfigurationElement;
@@ -113,6 +115,15 @@ public class ValueEditorManager
     /** A map containing all available value editors. */
     private Map<String, IValueEditor> class2ValueEditors;
 
+    /** The current value editors of the attribute type descriptors, weak as the descriptors belong to a schema */
+    private Map<AttributeTypeDescriptor, IValueEditor> currentValueEditors = new WeakHashMap<AttributeTypeDescriptor, IValueEditor>();
+
+    /** The attribute value editor preferences the current value editors were determined with */
+    private Map<String, String> currentAttributeValueEditorMap;
+
+    /** The syntax value editor preferences the current value editors were determined with */
+    private Map<String, String> currentSyntaxValueEditorMap;
+
 
     /**
      * Creates a new instance of ValueEditorManager.
@@ -247,11 +258,49 @@ public class ValueEditorManager
             return userSelectedValueEditor;
         }
 
-        AttributeType atd = schema.getAttributeTypeDescription( attributeType );
-        // check attribute preferences
+        AttributeTypeDescriptor descriptor = SchemaUtils.getAttributeTypeDescriptor( attributeType, schema );
         Map<String, String> attributeValueEditorMap = BrowserCommonActivator.getDefault().getValueEditorsPreferences()
             .getAttributeValueEditorMap();
-        
+        Map<String, String> syntaxValueEditorMap = BrowserCommonActivator.getDefault().getValueEditorsPreferences()
+            .getSyntaxValueEditorMap();
+
+        synchronized ( currentValueEditors )
+        {
+            // the preferences create new maps when the value editor relations are changed
+            if ( attributeValueEditorMap != currentAttributeValueEditorMap
+                || syntaxValueEditorMap != currentSyntaxValueEditorMap )
+            {
+                currentValueEditors.clear();
+                currentAttributeValueEditorMap = attributeValueEditorMap;
+                currentSyntaxValueEditorMap = syntaxValueEditorMap;
+            }
+
+            IValueEditor valueEditor = currentValueEditors.get( descriptor );
+
+            if ( valueEditor == null )
+            {
+                valueEditor = getCurrentValueEditor( schema, descriptor, attributeValueEditorMap, syntaxValueEditorMap );
+
+                if ( valueEditor != null )
+                {
+                    currentValueEditors.put( descriptor, valueEditor );
+                }
+            }
+
+            return valueEditor;
+        }
+    }
+
+
+    /**
+     * Determines the value editor for the given attribute type descriptor.
+     */
+    private IValueEditor getCurrentValueEditor( Schema schema, AttributeTypeDescriptor descriptor,
+        Map<String, String> attributeValueEditorMap, Map<String, String> syntaxValueEditorMap )
+    {
+        AttributeType atd = descriptor.getAttributeType();
+
+        // check attribute preferences
         String oidStr = Strings.toLowerCase( atd.getOid() );
         
         if ( atd.getOid() != null && attributeValueEditorMap.containsKey( oidStr ) )
@@ -271,10 +320,7 @@ public class ValueEditorManager
         }
 
         // check syntax preferences
-        String syntaxNumericOid = SchemaUtils.getSyntaxNumericOidTransitive( atd, schema );
-        Map<String, String> syntaxValueEditorMap = BrowserCommonActivator.getDefault().getValueEditorsPreferences()
-            .getSyntaxValueEditorMap();
-        
+        String syntaxNumericOid = descriptor.getSyntaxNumericOid();
         String syntaxtNumericOidStr = Strings.toLowerCase( syntaxNumericOid );
         
         if ( ( syntaxNumericOid != null ) && syntaxValueEditorMap.containsKey( syntaxtNumericOidStr ) )
@@ -440,15 +486,15 @@ public class ValueEditorManager
     {
         List<IValueEditor> alternativeList = new ArrayList<IValueEditor>();
 
-        AttributeType atd = schema.getAttributeTypeDescription( attributeName );
+        AttributeTypeDescriptor descriptor = SchemaUtils.getAttributeTypeDescriptor( attributeName, schema );
 
-        if ( SchemaUtils.isBinary( atd, schema ) )
+        if ( descriptor.isBinary() )
         {
             alternativeList.add( defaultBinaryValueEditor );
             alternativeList.add( defaultStringSingleLineValueEditor );
             alternativeList.add( defaultStringMultiLineValueEditor );
         }
-        else if ( SchemaUtils.isString( atd, schema ) )
+        else
         {
             alternativeList.add( defaultStringSingleLineValueEditor );
             alternativeList.add( defaultStringMultiLineValueEditor );
@@ -41,6 +41,7 @@ public class BookmarkManager implements Serializable
 {
     private static final long serialVersionUID = 7605293576518974531L;
 
+    /** The list of bookmarks, guarded by itself as it is read by the save job. */
     private List<IBookmark> bookmarkList;
 
     private IBrowserConnection connection;
@@ -79,7 +80,7 @@ public class BookmarkManager implements Serializable
      */
     public void addBookmark( IBookmark bookmark )
     {
-        addBookmark( bookmarkList.size(), bookmark );
+        addBookmark( -1, bookmark );
     }
 
 
@@ -87,25 +88,31 @@ public class BookmarkManager implements Serializable
      * Adds a Bookmark at a specified position.
      *
      * @param index
-     *      the index at which the specified element is to be inserted.
+     *      the index at which the specified element is to be inserted, -1 to append it
      * @param bookmark
      *      the Bookmark to add
      */
     public void addBookmark( int index, IBookmark bookmark )
     {
-        if ( getBookmark( bookmark.getName() ) != null )
+        synchronized ( bookmarkList )
         {
-            String newBookmarkName = NLS.bind( BrowserCoreMessages.copy_n_of_s, "", bookmark.getName() ); //$NON-NLS-1$
-
-            for ( int i = 2; this.getBookmark( newBookmarkName ) != null; i++ )
+            if ( getBookmark( bookmark.getName() ) != null )
             {
-                newBookmarkName = NLS.bind( BrowserCoreMessages.copy_n_of_s, i + " ", bookmark.getName() ); //$NON-NLS-1$
+                String newBookmarkName = NLS.bind( BrowserCoreMessages.copy_n_of_s, "", //$NON-NLS-1$
+                    bookmark.getName() );
+
+                for ( int i = 2; this.getBookmark( newBookmarkName ) != null; i++ )
+                {
+                    newBookmarkName = NLS.bind( BrowserCoreMessages.copy_n_of_s, i + " ", //$NON-NLS-1$
+                        bookmark.getName() );
+                }
+
+                bookmark.setName( newBookmarkName );
             }
 
-            bookmark.setName( newBookmarkName );
+            bookmarkList.add( index < 0 ? bookmarkList.size() : index, bookmark );
         }
 
-        bookmarkList.add( index, bookmark );
         EventRegistry.fireBookmarkUpdated(
             new BookmarkUpdateEvent( bookmark, BookmarkUpdateEvent.Detail.BOOKMARK_ADDED ), this );
     }
@@ -121,11 +128,14 @@ public class BookmarkManager implements Serializable
      */
     public IBookmark getBookmark( String name )
     {
-        for ( IBookmark bookmark : bookmarkList )
+        synchronized ( bookmarkList )
         {
-            if ( bookmark.getName().equals( name ) )
+            for ( IBookmark bookmark : bookmarkList )
             {
-                return bookmark;
+                if ( bookmark.getName().equals( name ) )
+                {
+                    return bookmark;
+                }
             }
         }
 
@@ -143,7 +153,10 @@ public class BookmarkManager implements Serializable
      */
     public int indexOf( IBookmark bookmark )
     {
-        return bookmarkList.indexOf( bookmark );
+        synchronized ( bookmarkList )
+        {
+            return bookmarkList.indexOf( bookmark );
+        }
     }
 
 
@@ -155,7 +168,11 @@ public class BookmarkManager implements Serializable
      */
     public void removeBookmark( IBookmark bookmark )
     {
-        bookmarkList.remove( bookmark );
+        synchronized ( bookmarkList )
+        {
+            bookmarkList.remove( bookmark );
+        }
+
         EventRegistry.fireBookmarkUpdated( new BookmarkUpdateEvent( bookmark,
             BookmarkUpdateEvent.Detail.BOOKMARK_REMOVED ), this );
     }
@@ -181,7 +198,10 @@ public class BookmarkManager implements Serializable
      */
     public IBookmark[] getBookmarks()
     {
-        return bookmarkList.toArray( new IBookmark[0] );
+        synchronized ( bookmarkList )
+        {
+            return bookmarkList.toArray( new IBookmark[0] );
+        }
     }
 
 
@@ -193,6 +213,9 @@ public class BookmarkManager implements Serializable
      */
     public int getBookmarkCount()
     {
-        return bookmarkList.size();
+        synchronized ( bookmarkList )
+        {
+            return bookmarkList.size();
+        }
     }
 }
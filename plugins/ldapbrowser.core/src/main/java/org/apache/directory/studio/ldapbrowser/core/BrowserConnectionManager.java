@@ -26,6 +26,7 @@ import java.beans.Expression;
 import java.beans.PersistenceDelegate;
 import java.beans.XMLDecoder;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -33,10 +34,19 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.directory.api.util.FileUtils;
 import org.apache.directory.studio.connection.core.Connection;
@@ -62,6 +72,11 @@ import org.apache.directory.studio.ldapbrowser.core.model.impl.Bookmark;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.BrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.Search;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
 
 
 /**
@@ -73,16 +88,36 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
     SearchUpdateListener, BookmarkUpdateListener
 {
 
+    /** The delay in ms before changed browser connections are saved, bursts of changes are saved at once */
+    private static final long SAVE_DELAY = 500;
+
     /** The list of connections. */
     private Map<String, IBrowserConnection> connectionMap;
 
+    /** The schemas that are equal to their Schema Cache files, by browser connection ID */
+    private Map<String, Schema> savedSchemas = new ConcurrentHashMap<String, Schema>();
+
+    /** The IDs of the browser connections whose searches and bookmarks must be saved */
+    private Set<String> dirtyConnectionIds = new HashSet<String>();
+
+    /** The job that saves the changed browser connections */
+    private Job saveJob = new Job( "Save Browser Connections" ) //$NON-NLS-1$
+    {
+        protected IStatus run( IProgressMonitor monitor )
+        {
+            saveDirtyBrowserConnections();
+            return Status.OK_STATUS;
+        }
+    };
+
 
     /**
      * Creates a new instance of ConnectionManager.
      */
     public BrowserConnectionManager()
     {
-        this.connectionMap = new HashMap<String, IBrowserConnection>();
+        this.connectionMap = new ConcurrentHashMap<String, IBrowserConnection>();
+        saveJob.setSystem( true );
 
         // no need to fire events while loading connections
         EventRegistry.suspendEventFiringInCurrentThread();
@@ -111,6 +146,50 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
     }
 
 
+    /**
+     * Gets the Schema Snapshot filename for the corresponding browser connection.
+     * The snapshot contains the cached schema pre-parsed and is written after
+     * the Schema Cache file.
+     *
+     * @param id
+     *      the id of the browser connection
+     * @return
+     *      the Schema Snapshot filename for the corresponding browser connection
+     */
+    public static final String getSchemaSnapshotFileName( String id )
+    {
+        return BrowserCorePlugin.getDefault().getStateLocation().append(
+            "schema-" + Utils.getFilenameString( id ) + ".bin" ).toOSString(); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    /**
+     * Gets the directory that contains a file with the searches and
+     * bookmarks of each browser connection.
+     *
+     * @return
+     *      the directory of the browser connection files
+     */
+    public static final File getBrowserConnectionsDirectory()
+    {
+        return BrowserCorePlugin.getDefault().getStateLocation().append( "browserconnections" ).toFile(); //$NON-NLS-1$
+    }
+
+
+    /**
+     * Gets the file with the searches and bookmarks of the given browser connection.
+     *
+     * @param id
+     *      the id of the browser connection
+     * @return
+     *      the file of the browser connection
+     */
+    public static final File getBrowserConnectionFile( String id )
+    {
+        return new File( getBrowserConnectionsDirectory(), Utils.getFilenameString( id ) + ".xml" ); //$NON-NLS-1$
+    }
+
+
     /**
      * Gets the filename of the Connection Store.
      *
@@ -219,15 +298,21 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
         // update connection list
         connectionMap.remove( connection.getId() );
 
-        // remove schema file
+        // remove schema files
+        savedSchemas.remove( connection.getId() );
         File schemaFile = new File( getSchemaCacheFileName( connection.getId() ) );
         if ( schemaFile.exists() )
         {
             schemaFile.delete();
         }
+        File snapshotFile = new File( getSchemaSnapshotFileName( connection.getId() ) );
+        if ( snapshotFile.exists() )
+        {
+            snapshotFile.delete();
+        }
 
         // make persistent
-        saveBrowserConnections();
+        markDirty( connection.getId() );
     }
 
 
@@ -241,7 +326,7 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
         connectionMap.put( connection.getId(), browserConnection );
 
         // make persistent
-        saveBrowserConnections();
+        markDirty( connection.getId() );
     }
 
 
@@ -250,7 +335,7 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
      */
     public void connectionUpdated( Connection connection )
     {
-        saveBrowserConnections();
+        markDirty( connection.getId() );
         saveSchema( getBrowserConnection( connection ) );
     }
 
@@ -317,7 +402,7 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
             || searchUpdateEvent.getDetail() == SearchUpdateEvent.EventDetail.SEARCH_RENAMED
             || searchUpdateEvent.getDetail() == SearchUpdateEvent.EventDetail.SEARCH_PARAMETER_UPDATED )
         {
-            saveBrowserConnections();
+            markDirty( searchUpdateEvent.getSearch().getBrowserConnection() );
         }
     }
 
@@ -331,74 +416,137 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
             || bookmarkUpdateEvent.getDetail() == BookmarkUpdateEvent.Detail.BOOKMARK_REMOVED
             || bookmarkUpdateEvent.getDetail() == BookmarkUpdateEvent.Detail.BOOKMARK_UPDATED )
         {
-            saveBrowserConnections();
+            markDirty( bookmarkUpdateEvent.getBookmark().getBrowserConnection() );
         }
     }
 
 
     /**
-     * Saves the browser Connections
+     * Marks the given browser connection as changed, its searches and
+     * bookmarks are saved after a short delay.
+     *
+     * @param browserConnection
+     *      the browser connection, may be null
      */
-    private void saveBrowserConnections()
+    private void markDirty( IBrowserConnection browserConnection )
     {
-        // To avoid a corrupt file, save object to a temp file first 
-        try
+        if ( browserConnection != null && browserConnection.getConnection() != null )
         {
-            BrowserConnectionIO.save( new FileOutputStream( getBrowserConnectionStoreFileName() + "-temp" ), //$NON-NLS-1$
-                connectionMap );
+            markDirty( browserConnection.getConnection().getId() );
         }
-        catch ( IOException e )
+    }
+
+
+    /**
+     * Marks the browser connection with the given id as changed, its
+     * searches and bookmarks are saved after a short delay.
+     *
+     * @param id
+     *      the id of the browser connection
+     */
+    private void markDirty( String id )
+    {
+        synchronized ( dirtyConnectionIds )
         {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            dirtyConnectionIds.add( id );
+        }
+
+        saveJob.schedule( SAVE_DELAY );
+    }
+
+
+    /**
+     * Saves the searches and bookmarks of the changed browser connections.
+     * The file of a removed browser connection is deleted. A browser connection
+     * that couldn't be saved stays dirty and is saved again with the next change,
+     * at the latest when the plugin stops.
+     */
+    private void saveDirtyBrowserConnections()
+    {
+        Set<String> ids;
+        synchronized ( dirtyConnectionIds )
+        {
+            ids = new HashSet<String>( dirtyConnectionIds );
+            dirtyConnectionIds.clear();
         }
 
-        // move temp file to good file
-        File file = new File( getBrowserConnectionStoreFileName() );
-        File tempFile = new File( getBrowserConnectionStoreFileName() + "-temp" ); //$NON-NLS-1$
-        if ( file.exists() )
+        for ( String id : ids )
         {
-            file.delete();
+            try
+            {
+                IBrowserConnection browserConnection = connectionMap.get( id );
+                if ( browserConnection != null )
+                {
+                    saveBrowserConnection( id, browserConnection );
+                }
+                else
+                {
+                    getBrowserConnectionFile( id ).delete();
+                }
+            }
+            catch ( Exception e )
+            {
+                synchronized ( dirtyConnectionIds )
+                {
+                    dirtyConnectionIds.add( id );
+                }
+
+                BrowserCorePlugin.getDefault().getLog().log(
+                    new Status( IStatus.ERROR, BrowserCoreConstants.PLUGIN_ID, NLS.bind(
+                        BrowserCoreMessages.model__error_saving_browser_connection, id ), e ) );
+            }
+        }
+    }
+
+
+    /**
+     * Saves the searches and bookmarks of the given browser connection
+     * to its own file. To avoid a corrupt file, the browser connection is
+     * saved to a temp file first which then replaces the file.
+     *
+     * @param id
+     *      the id of the browser connection
+     * @param browserConnection
+     *      the browser connection
+     * @throws IOException
+     *      if the file couldn't be written
+     */
+    private void saveBrowserConnection( String id, IBrowserConnection browserConnection ) throws IOException
+    {
+        File file = getBrowserConnectionFile( id );
+        File tempFile = new File( file.getPath() + "-temp" ); //$NON-NLS-1$
+
+        file.getParentFile().mkdirs();
+        try ( OutputStream out = new FileOutputStream( tempFile ) )
+        {
+            BrowserConnectionIO.save( out, Collections.singletonMap( id, browserConnection ) );
         }
 
         try
         {
-            String content = FileUtils.readFileToString( tempFile, "UTF-8" ); //$NON-NLS-1$
-            FileUtils.writeStringToFile( file, content, "UTF-8" ); //$NON-NLS-1$
+            Files.move( tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE );
         }
-        catch ( IOException e )
+        catch ( AtomicMoveNotSupportedException e )
         {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            Files.move( tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
         }
+    }
+
 
-        //        Object[][] object = new Object[connectionMap.size()][3];
-        //
-        //        Iterator<IBrowserConnection> connectionIterator = connectionMap.values().iterator();
-        //        for ( int i = 0; connectionIterator.hasNext(); i++ )
-        //        {
-        //            IBrowserConnection browserConnection = connectionIterator.next();
-        //            
-        //            ISearch[] searches = browserConnection.getSearchManager().getSearches();
-        //            SearchParameter[] searchParameters = new SearchParameter[searches.length];
-        //            for ( int k = 0; k < searches.length; k++ )
-        //            {
-        //                searchParameters[k] = searches[k].getSearchParameter();
-        //            }
-        //            
-        //            IBookmark[] bookmarks = browserConnection.getBookmarkManager().getBookmarks();
-        //            BookmarkParameter[] bookmarkParameters = new BookmarkParameter[bookmarks.length];
-        //            for ( int k = 0; k < bookmarks.length; k++ )
-        //            {
-        //                bookmarkParameters[k] = bookmarks[k].getBookmarkParameter();
-        //            }
-        //
-        //            object[i][0] = browserConnection.getConnection().getId();
-        //            object[i][1] = searchParameters;
-        //            object[i][2] = bookmarkParameters;
-        //        }
-        //
-        //        save( object, getBrowserConnectionStoreFileName() );
+    /**
+     * Saves the searches and bookmarks of the changed browser connections
+     * immediately and stops listening for changes.
+     */
+    public void dispose()
+    {
+        ConnectionEventRegistry.removeConnectionUpdateListener( this );
+        EventRegistry.removeSearchUpdateListener( this );
+        EventRegistry.removeBookmarkUpdateListener( this );
+        EventRegistry.removeBrowserConnectionUpdateListener( this );
+
+        saveJob.cancel();
+        saveDirtyBrowserConnections();
     }
 
 
@@ -415,12 +563,27 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
             return;
         }
 
+        // a schema that wasn't loaded yet or was already saved is unchanged
+        String id = browserConnection.getConnection().getId();
+        if ( ( browserConnection instanceof BrowserConnection )
+            && !( ( BrowserConnection ) browserConnection ).isSchemaLoaded() )
+        {
+            return;
+        }
+        Schema schema = browserConnection.getSchema();
+        if ( savedSchemas.get( id ) == schema )
+        {
+            return;
+        }
+
         try
         {
-            String filename = getSchemaCacheFileName( browserConnection.getConnection().getId() );
+            String filename = getSchemaCacheFileName( id );
             FileWriter writer = new FileWriter( filename );
-            browserConnection.getSchema().saveToLdif( writer );
+            schema.saveToLdif( writer );
             writer.close();
+            saveSchemaSnapshot( id, schema );
+            savedSchemas.put( id, schema );
         }
         catch ( Exception e )
         {
@@ -430,7 +593,110 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
 
 
     /**
-     * Loads the Connections
+     * Saves the snapshot of the Schema of the Connection. The snapshot
+     * is deleted if it couldn't be written.
+     *
+     * @param id
+     *      the id of the Connection
+     * @param schema
+     *      the Schema
+     */
+    private void saveSchemaSnapshot( String id, Schema schema )
+    {
+        File snapshotFile = new File( getSchemaSnapshotFileName( id ) );
+
+        try
+        {
+            OutputStream out = new BufferedOutputStream( new FileOutputStream( snapshotFile ) );
+            try
+            {
+                schema.saveToSnapshot( out );
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch ( Exception e )
+        {
+            snapshotFile.delete();
+        }
+    }
+
+
+    /**
+     * Loads the cached Schema of the Connection. The snapshot is used if it
+     * isn't older than the Schema Cache file, otherwise the Schema Cache file
+     * is parsed and the snapshot is written for the next time.
+     *
+     * @param id
+     *      the id of the Connection
+     * @return
+     *      the cached Schema, null if there is no cached Schema
+     */
+    private Schema loadSchema( String id )
+    {
+        File schemaFile = new File( getSchemaCacheFileName( id ) );
+        File snapshotFile = new File( getSchemaSnapshotFileName( id ) );
+        if ( !schemaFile.exists() )
+        {
+            return null;
+        }
+
+        if ( snapshotFile.exists() && snapshotFile.lastModified() >= schemaFile.lastModified() )
+        {
+            try
+            {
+                InputStream in = new BufferedInputStream( new FileInputStream( snapshotFile ) );
+                try
+                {
+                    Schema schema = new Schema();
+                    schema.loadFromSnapshot( in, snapshotFile.length() );
+                    savedSchemas.put( id, schema );
+                    return schema;
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            catch ( Exception | OutOfMemoryError e )
+            {
+                // a corrupt snapshot is a cache miss, parse the Schema Cache file and rewrite the snapshot
+            }
+        }
+
+        try
+        {
+            FileReader reader = new FileReader( schemaFile );
+            Schema schema = new Schema();
+            try
+            {
+                schema.loadFromLdif( reader );
+            }
+            finally
+            {
+                reader.close();
+            }
+
+            if ( schema.getSchemaRecord() == null )
+            {
+                return null;
+            }
+
+            saveSchemaSnapshot( id, schema );
+            savedSchemas.put( id, schema );
+            return schema;
+        }
+        catch ( Exception e )
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Loads the Connections. The cached schemas are loaded on first use.
      */
     private void loadBrowserConnections()
     {
@@ -441,19 +707,81 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
             BrowserConnection browserConnection = new BrowserConnection( connection );
             connectionMap.put( connection.getId(), browserConnection );
 
-            try
+            final String id = connection.getId();
+            browserConnection.setSchemaLoader( new Callable<Schema>()
             {
-                String schemaFilename = getSchemaCacheFileName( connection.getId() );
-                FileReader reader = new FileReader( schemaFilename );
-                Schema schema = new Schema();
-                schema.loadFromLdif( reader );
-                browserConnection.setSchema( schema );
+                public Schema call()
+                {
+                    return loadSchema( id );
+                }
+            } );
+        }
+
+        if ( getBrowserConnectionsDirectory().exists() )
+        {
+            for ( Connection connection : connections )
+            {
+                loadBrowserConnection( getBrowserConnectionFile( connection.getId() ) );
             }
-            catch ( Exception e )
+        }
+        else if ( loadLegacyBrowserConnections() )
+        {
+            // convert to one file per browser connection
+            for ( Connection connection : connections )
+            {
+                markDirty( connection.getId() );
+            }
+        }
+    }
+
+
+    /**
+     * Loads the searches and bookmarks of a browser connection from its file.
+     * If loading failed, the temp file is tried.
+     *
+     * @param file
+     *      the file of the browser connection
+     */
+    private void loadBrowserConnection( File file )
+    {
+        File[] files = new File[]
+            { file, new File( file.getPath() + "-temp" ) }; //$NON-NLS-1$
+
+        for ( File f : files )
+        {
+            if ( f.exists() )
             {
+                try
+                {
+                    InputStream in = new FileInputStream( f );
+                    try
+                    {
+                        BrowserConnectionIO.load( in, connectionMap );
+                        return;
+                    }
+                    finally
+                    {
+                        in.close();
+                    }
+                }
+                catch ( Exception e )
+                {
+                    // try the temp file
+                }
             }
         }
+    }
+
 
+    /**
+     * Loads the searches and bookmarks of all browser connections from the
+     * Connection Store file used by previous versions.
+     *
+     * @return
+     *      true if the Connection Store file exists
+     */
+    private boolean loadLegacyBrowserConnections()
+    {
         // java.beans.XMLDecoder
         try
         {
@@ -481,12 +809,12 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
                         catch ( FileNotFoundException e1 )
                         {
                             // TODO Auto-generated catch block
-                            return;
+                            return false;
                         }
                         catch ( ConnectionIOException e1 )
                         {
                             // TODO Auto-generated catch block
-                            return;
+                            return false;
                         }
                     }
                 }
@@ -538,12 +866,15 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
                         }
                     }
                 }
+
+                return true;
             }
         }
         catch ( Exception e )
         {
         }
 
+        return false;
     }
 
 
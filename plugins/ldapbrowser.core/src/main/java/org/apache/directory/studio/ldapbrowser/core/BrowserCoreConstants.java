@@ -87,6 +87,21 @@ public final class BrowserCoreConstants
 
     public static final String PREFERENCE_LDIF_INCLUDE_VERSION_LINE = "ldifIncludeVersionLine"; //$NON-NLS-1$
 
+    /** The number of partitions exported in parallel, 1 to export with a single subtree search */
+    public static final String PREFERENCE_EXPORT_PARALLEL_PARTITIONS = "exportParallelPartitions"; //$NON-NLS-1$
+
+    /** The maximum number of entries per connection whose attributes and children are kept in the cache */
+    public static final String PREFERENCE_ENTRY_CACHE_SIZE = "entryCacheSize"; //$NON-NLS-1$
+
+    /** The number of connections searched in parallel when several searches are performed at once */
+    public static final String PREFERENCE_SEARCH_PARALLEL_CONNECTIONS = "searchParallelConnections"; //$NON-NLS-1$
+
+    /**
+     * The number of search result entries after which further entries are kept in a compact form,
+     * 0 (the default) to disable. Compact entries are read-only and can't be edited.
+     */
+    public static final String PREFERENCE_COMPACT_SEARCH_RESULTS_THRESHOLD = "compactSearchResultsThreshold"; //$NON-NLS-1$
+
     public static final int BINARYENCODING_IGNORE = 0;
 
     public static final int BINARYENCODING_BASE64 = 1;
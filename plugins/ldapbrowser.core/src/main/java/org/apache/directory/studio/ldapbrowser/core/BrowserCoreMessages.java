@@ -165,6 +165,8 @@ public class BrowserCoreMessages extends NLS
 
     public static String model__error_logging_modification;
 
+    public static String model__error_saving_browser_connection;
+
     public static String model__no_hash;
 
     public static String model__unsupported_hash;
@@ -305,6 +307,8 @@ public class BrowserCoreMessages extends NLS
 
     public static String jobs__export_progress;
 
+    public static String jobs__export_partition_limit_exceeded;
+
     public static String jobs__export_xls_name;
 
     public static String jobs__export_xls_task;
@@ -89,6 +89,12 @@ public class BrowserCorePlugin extends Plugin
      */
     public void stop( BundleContext context ) throws Exception
     {
+        if ( connectionManager != null )
+        {
+            // save pending changes while the state location is available
+            connectionManager.dispose();
+        }
+
         super.stop( context );
 
         if ( eventRunner != null )
@@ -65,6 +65,11 @@ public class BrowserCorePreferencesInitializer extends AbstractPreferenceInitial
         store.setDefault( BrowserCoreConstants.PREFERENCE_LDIF_SPACE_AFTER_COLON, true );
         store.setDefault( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE, true );
 
+        store.setDefault( BrowserCoreConstants.PREFERENCE_EXPORT_PARALLEL_PARTITIONS, 1 );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_SIZE, 100000 );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_SEARCH_PARALLEL_CONNECTIONS, 4 );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_COMPACT_SEARCH_RESULTS_THRESHOLD, 0 );
+
         // default binary attributes
         BinaryAttribute[] defaultBinaryAttributes = new BinaryAttribute[]
             { new BinaryAttribute( "0.9.2342.19200300.100.1.7" ), // photo //$NON-NLS-1$
@@ -43,7 +43,7 @@ public class SearchManager implements Serializable
     /** The Constant serialVersionUID. */
     private static final long serialVersionUID = 8665227628274097691L;
 
-    /** The list of searches. */
+    /** The list of searches, guarded by itself as it is read by the save job. */
     private List<ISearch> searchList;
 
     /** The connection. */
@@ -91,7 +91,7 @@ public class SearchManager implements Serializable
      */
     public void addSearch( ISearch search )
     {
-        addSearch( searchList.size(), search );
+        addSearch( -1, search );
     }
 
 
@@ -99,25 +99,30 @@ public class SearchManager implements Serializable
      * Adds a Search at a specified position.
      *
      * @param index
-     *      index at which the specified Search is to be inserted.
+     *      index at which the specified Search is to be inserted, -1 to append it
      * @param search
      *      the Search to be inserted
      */
     public void addSearch( int index, ISearch search )
     {
-        if ( getSearch( search.getName() ) != null )
+        synchronized ( searchList )
         {
-            String newSearchName = NLS.bind( BrowserCoreMessages.copy_n_of_s, "", search.getName() ); //$NON-NLS-1$
-
-            for ( int i = 2; this.getSearch( newSearchName ) != null; i++ )
+            if ( getSearch( search.getName() ) != null )
             {
-                newSearchName = NLS.bind( BrowserCoreMessages.copy_n_of_s, i + " ", search.getName() ); //$NON-NLS-1$
+                String newSearchName = NLS.bind( BrowserCoreMessages.copy_n_of_s, "", search.getName() ); //$NON-NLS-1$
+
+                for ( int i = 2; this.getSearch( newSearchName ) != null; i++ )
+                {
+                    newSearchName = NLS.bind( BrowserCoreMessages.copy_n_of_s, i + " ", //$NON-NLS-1$
+                        search.getName() );
+                }
+
+                search.setName( newSearchName );
             }
 
-            search.setName( newSearchName );
+            searchList.add( index < 0 ? searchList.size() : index, search );
         }
 
-        searchList.add( index, search );
         EventRegistry.fireSearchUpdated( new SearchUpdateEvent( search, SearchUpdateEvent.EventDetail.SEARCH_ADDED ),
             this );
     }
@@ -133,11 +138,14 @@ public class SearchManager implements Serializable
      */
     public ISearch getSearch( String name )
     {
-        for ( ISearch search : searchList )
+        synchronized ( searchList )
         {
-            if ( search.getName().equals( name ) )
+            for ( ISearch search : searchList )
             {
-                return search;
+                if ( search.getName().equals( name ) )
+                {
+                    return search;
+                }
             }
         }
 
@@ -155,7 +163,10 @@ public class SearchManager implements Serializable
      */
     public int indexOf( ISearch search )
     {
-        return searchList.indexOf( search );
+        synchronized ( searchList )
+        {
+            return searchList.indexOf( search );
+        }
     }
 
 
@@ -167,7 +178,13 @@ public class SearchManager implements Serializable
      */
     public void removeSearch( ISearch search )
     {
-        searchList.remove( search );
+        synchronized ( searchList )
+        {
+            searchList.remove( search );
+        }
+
+        // release the pinned entries of the search results
+        search.setSearchResults( null );
 
         EventRegistry.fireSearchUpdated( new SearchUpdateEvent( search, SearchUpdateEvent.EventDetail.SEARCH_REMOVED ),
             this );
@@ -195,7 +212,10 @@ public class SearchManager implements Serializable
     public List<ISearch> getSearches()
     {
         // clone the internal list
-        return new ArrayList<ISearch>( searchList );
+        synchronized ( searchList )
+        {
+            return new ArrayList<ISearch>( searchList );
+        }
     }
 
 
@@ -207,6 +227,9 @@ public class SearchManager implements Serializable
      */
     public int getSearchCount()
     {
-        return searchList.size();
+        synchronized ( searchList )
+        {
+            return searchList.size();
+        }
     }
 }
@@ -21,6 +21,9 @@
 package org.apache.directory.studio.ldapbrowser.core.events;
 
 
+import java.util.Arrays;
+
+import org.apache.directory.studio.connection.core.event.CoalescingEventRunnable;
 import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
 import org.apache.directory.studio.connection.core.event.EventRunnable;
 import org.apache.directory.studio.connection.core.event.EventRunnableFactory;
@@ -219,6 +222,11 @@ public class EventRegistry extends ConnectionEventRegistry
     /**
      * Notifies each {@link EntryUpdateListener} about the the given {@link EntryModificationEvent}.
      * Uses the {@link EventRunner}s.
+     * <p>
+     * Events that only carry the modified entry, like {@link AttributesInitializedEvent}s
+     * and {@link ChildrenInitializedEvent}s, are coalesced per entry: an {@link EventRunner}
+     * that queues the events may drop a queued event when an equal event is fired again
+     * before the listener was notified.
      *
      * @param entryUpdateEvent the entry update event
      * @param source the source
@@ -226,10 +234,29 @@ public class EventRegistry extends ConnectionEventRegistry
     public static void fireEntryUpdated( final EntryModificationEvent entryUpdateEvent, final Object source )
     {
         entryUpdateEvent.setSource( source );
+        final boolean coalescing = isCoalescing( entryUpdateEvent );
         EventRunnableFactory<EntryUpdateListener> factory = new EventRunnableFactory<EntryUpdateListener>()
         {
             public EventRunnable createEventRunnable( final EntryUpdateListener listener )
             {
+                if ( coalescing )
+                {
+                    return new CoalescingEventRunnable()
+                    {
+                        public void run()
+                        {
+                            listener.entryUpdated( entryUpdateEvent );
+                        }
+
+
+                        public Object getCoalescingKey()
+                        {
+                            return Arrays.asList( listener, entryUpdateEvent.getClass(),
+                                entryUpdateEvent.getConnection(), entryUpdateEvent.getModifiedEntry(), source );
+                        }
+                    };
+                }
+
                 return new EventRunnable()
                 {
                     public void run()
@@ -248,4 +275,20 @@ public class EventRegistry extends ConnectionEventRegistry
         entryUpdateEventManager.fire( factory );
     }
 
+
+    /**
+     * Checks if the given event may be coalesced with an equal event.
+     * This is the case if the event carries nothing but the modified entry.
+     *
+     * @param event the entry modification event
+     * @return true if the event may be coalesced
+     */
+    private static boolean isCoalescing( EntryModificationEvent event )
+    {
+        Class<?> type = event.getClass();
+
+        return type == EntryModificationEvent.class || type == AttributesInitializedEvent.class
+            || type == ChildrenInitializedEvent.class || type == BulkModificationEvent.class;
+    }
+
 }
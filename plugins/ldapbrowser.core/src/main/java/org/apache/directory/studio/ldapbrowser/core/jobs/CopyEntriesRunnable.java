@@ -263,7 +263,7 @@ public class CopyEntriesRunnable implements StudioConnectionBulkRunnableWithProg
      * recursively.
      * 
      * @param sourceBrowserConnection the source browser connection
-     * @param entries the source entries to copy
+     * @param entries the source entries to copy, closed when done
      * @param targetBrowserConnection the target browser connection
      * @param parentDn the target parent Dn
      * @param newRdn the new Rdn, if null the original Rdn of each entry is used
@@ -425,6 +425,10 @@ public class CopyEntriesRunnable implements StudioConnectionBulkRunnableWithProg
         {
             monitor.reportError( e );
         }
+        finally
+        {
+            StudioSearchResultEnumeration.closeQuietly( entries );
+        }
 
         return numberOfCopiedEntries;
     }
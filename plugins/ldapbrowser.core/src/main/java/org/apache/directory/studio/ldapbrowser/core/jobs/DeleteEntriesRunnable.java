@@ -22,11 +22,14 @@ package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.naming.directory.SearchControls;
@@ -40,6 +43,7 @@ import org.apache.directory.studio.connection.core.Controls;
 import org.apache.directory.studio.connection.core.Connection.AliasDereferencingMethod;
 import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMethod;
 import org.apache.directory.studio.connection.core.StudioControl;
+import org.apache.directory.studio.connection.core.io.OperationPipeline;
 import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunnableWithProgress;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
@@ -49,8 +53,8 @@ import org.apache.directory.studio.ldapbrowser.core.events.SearchUpdateEvent;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
-import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
+import org.eclipse.core.runtime.IStatus;
 
 
 /**
@@ -158,68 +162,119 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
         monitor.reportProgress( " " ); //$NON-NLS-1$
         monitor.worked( 1 );
 
-        int num = 0;
-        StudioProgressMonitor dummyMonitor = new StudioProgressMonitor( monitor );
-        for ( Iterator<IEntry> iterator = entriesToDelete.iterator(); !monitor.isCanceled()
-            && !monitor.errorsReported() && iterator.hasNext(); )
-        {
-            IEntry entryToDelete = iterator.next();
-            IBrowserConnection browserConnection = entryToDelete.getBrowserConnection();
-
-            // delete from directory
-            int errorStatusSize1 = monitor.getErrorStatus( "" ).getChildren().length; //$NON-NLS-1$
-            num = optimisticDeleteEntryRecursive( browserConnection, entryToDelete.getDn(), entryToDelete.isReferral(),
-                useTreeDeleteControl, num, dummyMonitor, monitor );
-            int errorStatusSize2 = monitor.getErrorStatus( "" ).getChildren().length; //$NON-NLS-1$
+        // the deletion of sibling entries is pipelined on the connection of each entry, the results
+        // are handled in the original order and the progress is reported when a result is handled
+        int[] numberOfDeletedEntries = new int[1];
+        OperationPipeline.ResultHandler<EntryDeletion> resultHandler = ( deletion, entryMonitor ) -> {
+            numberOfDeletedEntries[0] += deletion.numberOfDeletedEntries;
+            monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.model__deleted_n_entries,
+                new String[]
+                    { "" + numberOfDeletedEntries[0] } ) ); //$NON-NLS-1$
 
-            if ( !monitor.isCanceled() )
+            if ( monitor.isCanceled() )
+            {
+                deletion.entry.setChildrenInitialized( false );
+            }
+            else if ( entryMonitor.errorsReported() )
             {
-                if ( errorStatusSize1 == errorStatusSize2 )
+                for ( IStatus status : entryMonitor.getErrorStatus( "" ).getChildren() ) //$NON-NLS-1$
                 {
-                    // delete
-                    deletedEntriesSet.add( entryToDelete );
-                    //entryToDelete.setChildrenInitialized( false );
-
-                    // delete from parent entry
-                    entryToDelete.getParententry().setChildrenInitialized( false );
-                    entryToDelete.getParententry().deleteChild( entryToDelete );
-
-                    // delete from searches
-                    List<ISearch> searches = browserConnection.getSearchManager().getSearches();
-                    for ( ISearch search : searches )
+                    if ( status.getException() instanceof Exception )
                     {
-                        if ( search.getSearchResults() != null )
-                        {
-                            ISearchResult[] searchResults = search.getSearchResults();
-                            List<ISearchResult> searchResultList = new ArrayList<ISearchResult>();
-                            searchResultList.addAll( Arrays.asList( searchResults ) );
-                            for ( Iterator<ISearchResult> it = searchResultList.iterator(); it.hasNext(); )
-                            {
-                                ISearchResult result = it.next();
-                                if ( entryToDelete.equals( result.getEntry() ) )
-                                {
-                                    it.remove();
-                                    searchesToUpdateSet.add( search );
-                                }
-                            }
-                            if ( searchesToUpdateSet.contains( search ) )
-                            {
-                                search.setSearchResults( searchResultList.toArray( new ISearchResult[searchResultList
-                                    .size()] ) );
-                            }
-                        }
+                        monitor.reportError( ( Exception ) status.getException() );
+                    }
+                    else
+                    {
+                        monitor.reportError( status.getMessage() );
                     }
-
-                    // delete from cache
-                    browserConnection.uncacheEntryRecursive( entryToDelete );
                 }
             }
             else
             {
-                entryToDelete.setChildrenInitialized( false );
+                entryDeleted( deletion.entry );
             }
 
             monitor.worked( 1 );
+
+            return !monitor.errorsReported();
+        };
+        Map<IBrowserConnection, OperationPipeline<EntryDeletion>> pipelines =
+            new LinkedHashMap<IBrowserConnection, OperationPipeline<EntryDeletion>>();
+
+        try
+        {
+            for ( Iterator<IEntry> iterator = entriesToDelete.iterator(); !monitor.isCanceled()
+                && !monitor.errorsReported() && iterator.hasNext(); )
+            {
+                IEntry entryToDelete = iterator.next();
+                IBrowserConnection browserConnection = entryToDelete.getBrowserConnection();
+                OperationPipeline<EntryDeletion> pipeline = pipelines.computeIfAbsent( browserConnection,
+                    c -> new OperationPipeline<>( c.getConnection().getConnectionWrapper(),
+                        OperationPipeline.getDefaultWindowSize(), monitor, resultHandler ) );
+                EntryDeletion deletion = new EntryDeletion( entryToDelete );
+
+                // delete from directory
+                if ( !pipeline.submit( deletion, Collections.singleton( entryToDelete.getDn() ),
+                    entryMonitor -> deletion.numberOfDeletedEntries = optimisticDeleteEntryRecursive(
+                        browserConnection, entryToDelete.getDn(), entryToDelete.isReferral(), useTreeDeleteControl,
+                        0, new StudioProgressMonitor( entryMonitor ), entryMonitor, false ) ) )
+                {
+                    break;
+                }
+            }
+
+            for ( OperationPipeline<EntryDeletion> pipeline : pipelines.values() )
+            {
+                pipeline.flush();
+            }
+        }
+        catch ( Exception e )
+        {
+            monitor.reportError( e );
+        }
+
+        removeFromSearches();
+    }
+
+
+    /**
+     * Removes the deleted entry from its parent entry, the searches and the cache.
+     * 
+     * @param entryToDelete the deleted entry
+     */
+    private void entryDeleted( IEntry entryToDelete )
+    {
+        IBrowserConnection browserConnection = entryToDelete.getBrowserConnection();
+
+        // delete
+        deletedEntriesSet.add( entryToDelete );
+        //entryToDelete.setChildrenInitialized( false );
+
+        // delete from parent entry
+        entryToDelete.getParententry().setChildrenInitialized( false );
+        entryToDelete.getParententry().deleteChild( entryToDelete );
+
+        // delete from cache, the searches are updated at once when all entries are deleted
+        browserConnection.uncacheEntryRecursive( entryToDelete );
+    }
+
+
+    /**
+     * Removes the deleted entries from the searches of their browser connections.
+     */
+    private void removeFromSearches()
+    {
+        Map<IBrowserConnection, List<IEntry>> deletedEntriesByConnection =
+            new LinkedHashMap<IBrowserConnection, List<IEntry>>();
+        for ( IEntry deletedEntry : deletedEntriesSet )
+        {
+            deletedEntriesByConnection.computeIfAbsent( deletedEntry.getBrowserConnection(),
+                c -> new ArrayList<IEntry>() ).add( deletedEntry );
+        }
+
+        for ( Map.Entry<IBrowserConnection, List<IEntry>> entry : deletedEntriesByConnection.entrySet() )
+        {
+            searchesToUpdateSet.addAll( entry.getKey().removeSearchResults( entry.getValue() ) );
         }
     }
 
@@ -232,8 +287,15 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
         // don't fire an EntryDeletedEvent for each deleted entry
         // that would cause massive UI updates
         // instead we unset children information and fire a BulkModificationEvent
-        IBrowserConnection browserConnection = entriesToDelete.iterator().next().getBrowserConnection();
-        EventRegistry.fireEntryUpdated( new BulkModificationEvent( browserConnection ), this );
+        Set<IBrowserConnection> browserConnections = new LinkedHashSet<IBrowserConnection>();
+        for ( IEntry entry : entriesToDelete )
+        {
+            browserConnections.add( entry.getBrowserConnection() );
+        }
+        for ( IBrowserConnection browserConnection : browserConnections )
+        {
+            EventRegistry.fireEntryUpdated( new BulkModificationEvent( browserConnection ), this );
+        }
 
         for ( ISearch search : searchesToUpdateSet )
         {
@@ -264,6 +326,30 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
     static int optimisticDeleteEntryRecursive( IBrowserConnection browserConnection, Dn dn,
         boolean useManageDsaItControl, boolean useTreeDeleteControl, int numberOfDeletedEntries,
         StudioProgressMonitor dummyMonitor, StudioProgressMonitor monitor )
+    {
+        return optimisticDeleteEntryRecursive( browserConnection, dn, useManageDsaItControl, useTreeDeleteControl,
+            numberOfDeletedEntries, dummyMonitor, monitor, true );
+    }
+
+
+    /**
+     * Deletes the entry recursively in a optimistic way.
+     * 
+     * @param browserConnection the browser connection
+     * @param dn the Dn to delete
+     * @param useManageDsaItControl true to use the ManageDsaIT control
+     * @param useTreeDeleteControl true to use the tree delete control
+     * @param numberOfDeletedEntries the number of deleted entries
+     * @param dummyMonitor the dummy monitor
+     * @param monitor the progress monitor
+     * @param reportProgress true to report the number of deleted entries to the progress monitor,
+     *      false if the caller reports the progress, e.g. when running in a pipelined operation
+     * 
+     * @return the cumulative number of deleted entries
+     */
+    private static int optimisticDeleteEntryRecursive( IBrowserConnection browserConnection, Dn dn,
+        boolean useManageDsaItControl, boolean useTreeDeleteControl, int numberOfDeletedEntries,
+        StudioProgressMonitor dummyMonitor, StudioProgressMonitor monitor, boolean reportProgress )
     {
         // try to delete entry
         dummyMonitor.reset();
@@ -272,9 +358,12 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
         if ( !dummyMonitor.errorsReported() )
         {
             numberOfDeletedEntries++;
-            monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.model__deleted_n_entries,
-                new String[]
-                    { "" + numberOfDeletedEntries } ) ); //$NON-NLS-1$
+            if ( reportProgress )
+            {
+                monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.model__deleted_n_entries,
+                    new String[]
+                        { "" + numberOfDeletedEntries } ) ); //$NON-NLS-1$
+            }
         }
         else if ( dummyMonitor.getException() instanceof LdapContextNotEmptyException )
         {
@@ -307,7 +396,7 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
                         Dn childDn = result.next().getDn();
 
                         numberOfDeletedEntries = optimisticDeleteEntryRecursive( browserConnection, childDn, false,
-                            false, numberOfDeletedEntries, dummyMonitor, monitor );
+                            false, numberOfDeletedEntries, dummyMonitor, monitor, reportProgress );
                         numberInBatch++;
                     }
                 }
@@ -324,6 +413,10 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
                         break;
                     }
                 }
+                finally
+                {
+                    StudioSearchResultEnumeration.closeQuietly( result );
+                }
             }
             while ( numberInBatch > 0 && !monitor.isCanceled() && !dummyMonitor.errorsReported() );
 
@@ -335,9 +428,12 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
             if ( !dummyMonitor.errorsReported() )
             {
                 numberOfDeletedEntries++;
-                monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.model__deleted_n_entries,
-                    new String[]
-                        { "" + numberOfDeletedEntries } ) ); //$NON-NLS-1$
+                if ( reportProgress )
+                {
+                    monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.model__deleted_n_entries,
+                        new String[]
+                            { "" + numberOfDeletedEntries } ) ); //$NON-NLS-1$
+                }
             }
         }
         else
@@ -378,4 +474,22 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
                 .deleteEntry( dn, controls, monitor, null );
         }
     }
+
+    /**
+     * The deletion of an entry, submitted to the operation pipeline.
+     */
+    private static class EntryDeletion
+    {
+        /** The entry to delete */
+        private final IEntry entry;
+
+        /** The number of entries deleted in the subtree of the entry, set by the operation */
+        private int numberOfDeletedEntries;
+
+
+        private EntryDeletion( IEntry entry )
+        {
+            this.entry = entry;
+        }
+    }
 }
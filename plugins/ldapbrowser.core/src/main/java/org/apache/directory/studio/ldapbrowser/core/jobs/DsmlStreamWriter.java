@@ -0,0 +1,259 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.dsmlv2.DsmlDecorator;
+import org.apache.directory.api.dsmlv2.ParserUtils;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.QName;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.xml.sax.SAXException;
+
+
+/**
+ * Writes a DSML v2 batch request or batch response in a streaming way.
+ * <p>
+ * Each request or response is converted to DSML and written as soon as it is
+ * added, so the memory usage does not depend on the size of the batch. The
+ * entries of a search response are written one by one between
+ * {@link #startSearchResponse()} and {@link #endSearchResponse()}. The output
+ * is formatted like the DSML created by BatchRequestDsml and BatchResponseDsml,
+ * the start tag of a batch request always declares the namespaces of base64
+ * encoded values.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class DsmlStreamWriter implements Closeable
+{
+    private static final String BATCH_REQUEST = "batchRequest"; //$NON-NLS-1$
+
+    private static final String BATCH_RESPONSE = "batchResponse"; //$NON-NLS-1$
+
+    private static final String SEARCH_RESPONSE = "searchResponse"; //$NON-NLS-1$
+
+    /** The underlying writer */
+    private Writer writer;
+
+    /** The XML writer */
+    private XMLWriter xmlWriter;
+
+    /** The output format */
+    private OutputFormat format;
+
+    /** The root element, only its start and end tag are written */
+    private Element root;
+
+    /** The parent element the requests or responses are converted into */
+    private Element scratch;
+
+    /** The start and end tag of the current search response, null if none */
+    private Element searchResponse;
+
+    /** Flag indicating that a batch response is written */
+    private boolean response;
+
+
+    /**
+     * Creates a new instance of DsmlStreamWriter and writes the start of the batch.
+     *
+     * @param file the file to write to
+     * @param response true to write a batch response, false to write a batch request
+     * @throws IOException if an I/O error occurs
+     */
+    DsmlStreamWriter( File file, boolean response ) throws IOException
+    {
+        this.response = response;
+        this.root = createBatchElement();
+        this.scratch = createBatchElement();
+
+        // the requests and responses add the namespaces they use to the root element of the document
+        DocumentHelper.createDocument( scratch );
+
+        format = OutputFormat.createPrettyPrint();
+        format.setEncoding( "UTF-8" ); //$NON-NLS-1$
+        format.setIndentSize( 3 );
+
+        writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), StandardCharsets.UTF_8 ) );
+        xmlWriter = new XMLWriter( writer, format );
+        try
+        {
+            xmlWriter.startDocument();
+        }
+        catch ( SAXException e )
+        {
+            throw new IOException( e );
+        }
+        xmlWriter.writeOpen( root );
+        xmlWriter.setIndentLevel( 1 );
+    }
+
+
+    /**
+     * Creates the element of the batch, with the namespaces used by the requests or responses.
+     * <p>
+     * BatchRequestDsml declares the namespaces of base64 encoded values only if
+     * the batch contains such a value. The start tag of a streamed batch is written
+     * before its requests, so the namespaces are always declared.
+     *
+     * @return the element of the batch
+     */
+    private Element createBatchElement()
+    {
+        Element element;
+        if ( response )
+        {
+            element = DocumentHelper.createElement( BATCH_RESPONSE );
+            element.add( ParserUtils.DSML_NAMESPACE );
+        }
+        else
+        {
+            element = DocumentHelper.createElement( BATCH_REQUEST );
+        }
+        element.add( ParserUtils.XSD_NAMESPACE );
+        element.add( ParserUtils.XSI_NAMESPACE );
+
+        return element;
+    }
+
+
+    /**
+     * Writes a request or response.
+     *
+     * @param message the request or response
+     * @throws IOException if an I/O error occurs
+     */
+    void write( DsmlDecorator<?> message ) throws IOException
+    {
+        message.toDsml( scratch );
+
+        List<Element> elements = new ArrayList<Element>( scratch.elements() );
+        for ( Element element : elements )
+        {
+            scratch.remove( element );
+
+            // the elements of a batch response belong to the namespace of the batch
+            if ( response )
+            {
+                setDsmlNamespace( element );
+            }
+            xmlWriter.write( element );
+        }
+    }
+
+
+    /**
+     * Writes the start tag of a search response, the search result entries,
+     * references and the search result done are written afterwards.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void startSearchResponse() throws IOException
+    {
+        searchResponse = DocumentHelper.createElement( QName.get( SEARCH_RESPONSE, ParserUtils.DSML_NAMESPACE ) );
+        writeLineBreak( 1 );
+        xmlWriter.writeOpen( searchResponse );
+        xmlWriter.setIndentLevel( 2 );
+    }
+
+
+    /**
+     * Writes the end tag of the current search response.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void endSearchResponse() throws IOException
+    {
+        xmlWriter.setIndentLevel( 1 );
+        writeLineBreak( 1 );
+        xmlWriter.writeClose( searchResponse );
+        searchResponse = null;
+    }
+
+
+    /**
+     * Writes the end of the batch and closes the file.
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            if ( searchResponse != null )
+            {
+                endSearchResponse();
+            }
+
+            writeLineBreak( 0 );
+            xmlWriter.writeClose( root );
+            xmlWriter.flush();
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+
+    /**
+     * Writes a line break and the indentation of the given level.
+     *
+     * @param level the indentation level
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeLineBreak( int level ) throws IOException
+    {
+        xmlWriter.flush();
+        writer.write( format.getLineSeparator() );
+        for ( int i = 0; i < level; i++ )
+        {
+            writer.write( format.getIndent() );
+        }
+    }
+
+
+    /**
+     * Moves the given element and its descendants to the DSML namespace.
+     *
+     * @param element the element
+     */
+    private static void setDsmlNamespace( Element element )
+    {
+        element.setQName( QName.get( element.getName(), ParserUtils.DSML_NAMESPACE ) );
+
+        for ( Element child : element.elements() )
+        {
+            setDsmlNamespace( child );
+        }
+    }
+}
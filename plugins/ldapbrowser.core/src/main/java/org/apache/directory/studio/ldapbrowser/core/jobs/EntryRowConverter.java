@@ -0,0 +1,185 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldifparser.LdifUtils;
+
+
+/**
+ * Converts the entries of a search result to the rows of a CSV, XLS or ODF export.
+ * <p>
+ * The values of multi-valued attributes are joined using the value delimiter, values
+ * that could not be represented in the target encoding are exported using the
+ * configured binary encoding. The map and buffers are reused for each entry, an
+ * instance must not be shared between threads.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class EntryRowConverter
+{
+    /** The browser connection, used to convert attribute names to OIDs, may be null */
+    private IBrowserConnection browserConnection;
+
+    /** The value delimiter */
+    private String valueDelimiter;
+
+    /** The encoder of the target encoding */
+    private CharsetEncoder encoder;
+
+    /** The binary encoding */
+    private int binaryEncoding;
+
+    /** The OID strings of the already seen attribute descriptions */
+    private Map<String, String> oidStrings = new HashMap<>();
+
+    /** The attribute map, reused for each entry */
+    private Map<String, String> attributeMap = new LinkedHashMap<>();
+
+    /** The value buffer, reused for each attribute */
+    private StringBuilder buffer = new StringBuilder();
+
+
+    /**
+     * Creates a new instance of EntryRowConverter.
+     *
+     * @param browserConnection the browser connection, null to keep the attribute descriptions
+     * @param valueDelimiter the value delimiter
+     * @param encoding the target encoding
+     * @param binaryEncoding the binary encoding
+     */
+    EntryRowConverter( IBrowserConnection browserConnection, String valueDelimiter, String encoding,
+        int binaryEncoding )
+    {
+        this.browserConnection = browserConnection;
+        this.valueDelimiter = valueDelimiter;
+        this.encoder = Charset.forName( encoding ).newEncoder();
+        this.binaryEncoding = binaryEncoding;
+    }
+
+
+    /**
+     * Gets the key of the given attribute description, the OID string if a browser
+     * connection is available, the attribute description otherwise.
+     *
+     * @param attributeDescription the attribute description
+     * @return the key of the attribute description
+     */
+    String getKey( String attributeDescription )
+    {
+        if ( browserConnection == null )
+        {
+            return attributeDescription;
+        }
+
+        String oidString = oidStrings.get( attributeDescription );
+
+        if ( oidString == null )
+        {
+            oidString = new AttributeDescription( attributeDescription ).toOidString( browserConnection.getSchema() );
+            oidStrings.put( attributeDescription, oidString );
+        }
+
+        return oidString;
+    }
+
+
+    /**
+     * Groups the values of the given entry by attribute. The returned map is
+     * reused by the next invocation.
+     *
+     * @param entry the entry
+     * @return the map of attribute keys to the joined values, in the order of the entry
+     */
+    Map<String, String> getAttributeMap( Entry entry )
+    {
+        attributeMap.clear();
+
+        for ( Attribute attribute : entry )
+        {
+            buffer.setLength( 0 );
+
+            for ( Value value : attribute )
+            {
+                if ( buffer.length() > 0 )
+                {
+                    buffer.append( valueDelimiter );
+                }
+
+                appendValue( value );
+            }
+
+            String key = getKey( attribute.getUpId() );
+            String oldValue = attributeMap.get( key );
+
+            if ( oldValue != null )
+            {
+                attributeMap.put( key, oldValue + valueDelimiter + buffer );
+            }
+            else
+            {
+                attributeMap.put( key, buffer.toString() );
+            }
+        }
+
+        return attributeMap;
+    }
+
+
+    private void appendValue( Value value )
+    {
+        String string = value.isHumanReadable() ? value.getString() : LdifUtils.utf8decode( value.getBytes() );
+
+        if ( encoder.canEncode( string ) )
+        {
+            buffer.append( string );
+        }
+        else
+        {
+            byte[] bytes = value.isHumanReadable() ? LdifUtils.utf8encode( string ) : value.getBytes();
+
+            if ( binaryEncoding == BrowserCoreConstants.BINARYENCODING_BASE64 )
+            {
+                buffer.append( LdifUtils.base64encode( bytes ) );
+            }
+            else if ( binaryEncoding == BrowserCoreConstants.BINARYENCODING_HEX )
+            {
+                buffer.append( LdifUtils.hexEncode( bytes ) );
+            }
+            else
+            {
+                buffer.append( BrowserCoreConstants.BINARY );
+            }
+        }
+    }
+}
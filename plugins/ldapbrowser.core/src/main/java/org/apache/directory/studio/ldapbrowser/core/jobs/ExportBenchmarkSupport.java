@@ -0,0 +1,93 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+
+
+/**
+ * Converts entries to CSV and LDIF records exactly like the export jobs do, but
+ * without a connection and without running a job. This class only exists as
+ * entry point for the export benchmarks, the conversion helpers of the export
+ * jobs stay package-private.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class ExportBenchmarkSupport
+{
+    private ExportBenchmarkSupport()
+    {
+    }
+
+
+    /**
+     * Writes the entries as CSV records, as done by the CSV export.
+     *
+     * @param entries the entries
+     * @param writer the writer
+     * @param attributes the exported attributes
+     * @param attributeDelimiter the attribute delimiter
+     * @param valueDelimiter the delimiter of the values of a multi-valued attribute
+     * @param quoteCharacter the quote character
+     * @param lineSeparator the line separator
+     * @param encoding the target encoding
+     * @param binaryEncoding the binary encoding
+     * @param exportDn true to export the Dn
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeCsv( Iterable<Entry> entries, Writer writer, String[] attributes,
+        String attributeDelimiter, String valueDelimiter, String quoteCharacter, String lineSeparator,
+        String encoding, int binaryEncoding, boolean exportDn ) throws IOException
+    {
+        EntryRowConverter converter = new EntryRowConverter( null, valueDelimiter, encoding, binaryEncoding );
+
+        for ( Entry entry : entries )
+        {
+            ExportCsvRunnable.entryToCsv( converter, entry, writer, attributes, attributeDelimiter, quoteCharacter,
+                lineSeparator, exportDn );
+        }
+    }
+
+
+    /**
+     * Writes the entries as LDIF content records, as done by the LDIF export.
+     *
+     * @param entries the entries
+     * @param writer the writer
+     * @param formatParameters the LDIF format parameters
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeLdif( Iterable<Entry> entries, Writer writer, LdifFormatParameters formatParameters )
+        throws IOException
+    {
+        for ( Entry entry : entries )
+        {
+            writer.write( ExportLdifRunnable.entryToLdifContentRecord( entry ).toFormattedString( formatParameters ) );
+        }
+    }
+}
@@ -25,11 +25,11 @@ import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
-import java.util.HashMap;
+import java.io.Writer;
 import java.util.Map;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
@@ -37,15 +37,10 @@ import org.apache.directory.studio.connection.core.jobs.StudioConnectionRunnable
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
-import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.jobs.ExportLdifRunnable.DefaultEntryEnumeration;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
-import org.apache.directory.studio.ldifparser.LdifUtils;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
-import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
-import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
-import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
 import org.eclipse.core.runtime.Preferences;
 
 
@@ -210,17 +205,33 @@ public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
     {
         try
         {
-            LdifEnumeration enumeration = ExportLdifRunnable.search( browserConnection, searchParameter, monitor );
-            while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
+            // the keys of the exported columns are computed only once
+            EntryRowConverter converter = new EntryRowConverter( browserConnection, valueDelimiter, encoding,
+                binaryEncoding );
+            String[] attributeKeys = new String[attributes.length];
+            for ( int i = 0; i < attributes.length; i++ )
             {
-                LdifContainer container = enumeration.next();
+                attributeKeys[i] = converter.getKey( attributes[i] );
+            }
 
-                if ( container instanceof LdifContentRecord )
-                {
+            int parallelism = PartitionedExport.getParallelism();
+            if ( PartitionedExport.isApplicable( searchParameter, parallelism ) )
+            {
+                ThreadLocal<EntryRowConverter> converters = ThreadLocal.withInitial( () -> new EntryRowConverter(
+                    browserConnection, valueDelimiter, encoding, binaryEncoding ) );
+                PartitionedExport.export( browserConnection, searchParameter, parallelism, bufferedWriter,
+                    ( entry, writer ) -> entryToCsv( converters.get(), entry, writer, attributeKeys,
+                        attributeDelimiter, quoteCharacter, lineSeparator, exportDn ), monitor );
+                return;
+            }
 
-                    LdifContentRecord record = ( LdifContentRecord ) container;
-                    bufferedWriter.write( recordToCsv( browserConnection, record, attributes, attributeDelimiter,
-                        valueDelimiter, quoteCharacter, lineSeparator, encoding, binaryEncoding, exportDn ) );
+            try ( DefaultEntryEnumeration enumeration = ExportLdifRunnable.searchEntries( browserConnection,
+                searchParameter, monitor ) )
+            {
+                while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
+                {
+                    entryToCsv( converter, enumeration.next(), bufferedWriter, attributeKeys, attributeDelimiter,
+                        quoteCharacter, lineSeparator, exportDn );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -245,69 +256,56 @@ public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
 
 
     /**
-     * Transforms an LDIF rRecord to CSV.
+     * Writes an entry as CSV line.
      * 
-     * @param browserConnection the browser connection
-     * @param record the record
-     * @param attributes the attributes
+     * @param converter the entry row converter
+     * @param entry the entry
+     * @param writer the writer
+     * @param attributeKeys the keys of the exported attributes
      * @param attributeDelimiter the attribute delimiter
-     * @param valueDelimiter the value delimiter
      * @param quoteCharacter the quote character
      * @param lineSeparator the line separator
-     * @param encoding the encoding
-     * @param binaryEncoding the binary encoding
      * @param exportDn the export dn
      * 
-     * @return the string
+     * @throws IOException Signals that an I/O exception has occurred.
      */
-    private static String recordToCsv( IBrowserConnection browserConnection, LdifContentRecord record,
-        String[] attributes, String attributeDelimiter, String valueDelimiter, String quoteCharacter,
-        String lineSeparator, String encoding, int binaryEncoding, boolean exportDn )
+    static void entryToCsv( EntryRowConverter converter, Entry entry, Writer writer, String[] attributeKeys,
+        String attributeDelimiter, String quoteCharacter, String lineSeparator, boolean exportDn ) throws IOException
     {
-
         // group multi-valued attributes
-        Map<String, String> attributeMap = getAttributeMap( browserConnection, record, valueDelimiter, encoding,
-            binaryEncoding );
+        Map<String, String> attributeMap = converter.getAttributeMap( entry );
 
         // print attributes
-        StringBuffer sb = new StringBuffer();
         if ( exportDn )
         {
-            String value = record.getDnLine().getValueAsString();
-            appendValue( quoteCharacter, sb, value );
+            appendValue( quoteCharacter, writer, entry.getDn().getName() );
 
-            if ( attributes == null || attributes.length > 0 )
-                sb.append( attributeDelimiter );
+            if ( attributeKeys.length > 0 )
+                writer.write( attributeDelimiter );
         }
-        for ( int i = 0; i < attributes.length; i++ )
+        for ( int i = 0; i < attributeKeys.length; i++ )
         {
-
-            String attributeName = attributes[i];
-            AttributeDescription ad = new AttributeDescription( attributeName );
-            String oidString = ad.toOidString( browserConnection.getSchema() );
-            if ( attributeMap.containsKey( oidString ) )
+            String value = attributeMap.get( attributeKeys[i] );
+            if ( value != null )
             {
-                String value = attributeMap.get( oidString );
-                appendValue( quoteCharacter, sb, value );
+                appendValue( quoteCharacter, writer, value );
             }
 
             // delimiter
-            if ( i + 1 < attributes.length )
+            if ( i + 1 < attributeKeys.length )
             {
-                sb.append( attributeDelimiter );
+                writer.write( attributeDelimiter );
             }
 
         }
-        sb.append( lineSeparator );
-
-        return sb.toString();
+        writer.write( lineSeparator );
     }
 
 
-    private static void appendValue( String quoteCharacter, StringBuffer sb, String value )
+    private static void appendValue( String quoteCharacter, Writer writer, String value ) throws IOException
     {
         // escape quote character
-        value = value.replaceAll( quoteCharacter, quoteCharacter + quoteCharacter );
+        value = value.replace( quoteCharacter, quoteCharacter + quoteCharacter );
 
         // prefix values starting with '=' with a single quote to avoid interpretation as formula
         if ( value.startsWith( "=" ) )
@@ -316,76 +314,8 @@ public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
         }
 
         // always quote
-        sb.append( quoteCharacter );
-        sb.append( value );
-        sb.append( quoteCharacter );
-    }
-
-
-    /**
-     * Gets the attribute map.
-     * 
-     * @param browserConnection the browser connection
-     * @param record the record
-     * @param valueDelimiter the value delimiter
-     * @param encoding the encoding
-     * @param binaryEncoding the binary encoding
-     * 
-     * @return the attribute map
-     */
-    static Map<String, String> getAttributeMap( IBrowserConnection browserConnection, LdifContentRecord record,
-        String valueDelimiter, String encoding, int binaryEncoding )
-    {
-        Map<String, String> attributeMap = new HashMap<String, String>();
-        LdifAttrValLine[] lines = record.getAttrVals();
-        for ( int i = 0; i < lines.length; i++ )
-        {
-            String attributeName = lines[i].getUnfoldedAttributeDescription();
-            if ( browserConnection != null )
-            {
-                // convert attributeName to oid
-                AttributeDescription ad = new AttributeDescription( attributeName );
-                attributeName = ad.toOidString( browserConnection.getSchema() );
-            }
-            String value = lines[i].getValueAsString();
-            if ( !Charset.forName( encoding ).newEncoder().canEncode( value ) )
-            {
-                if ( binaryEncoding == BrowserCoreConstants.BINARYENCODING_BASE64 )
-                {
-                    value = LdifUtils.base64encode( lines[i].getValueAsBinary() );
-                }
-                else if ( binaryEncoding == BrowserCoreConstants.BINARYENCODING_HEX )
-                {
-                    value = LdifUtils.hexEncode( lines[i].getValueAsBinary() );
-                }
-                else
-                {
-                    value = BrowserCoreConstants.BINARY;
-                }
-
-                if ( attributeMap.containsKey( attributeName ) )
-                {
-                    String oldValue = ( String ) attributeMap.get( attributeName );
-                    attributeMap.put( attributeName, oldValue + valueDelimiter + value );
-                }
-                else
-                {
-                    attributeMap.put( attributeName, value );
-                }
-            }
-            else
-            {
-                if ( attributeMap.containsKey( attributeName ) )
-                {
-                    String oldValue = ( String ) attributeMap.get( attributeName );
-                    attributeMap.put( attributeName, oldValue + valueDelimiter + value );
-                }
-                else
-                {
-                    attributeMap.put( attributeName, value );
-                }
-            }
-        }
-        return attributeMap;
+        writer.write( quoteCharacter );
+        writer.write( value );
+        writer.write( quoteCharacter );
     }
 }
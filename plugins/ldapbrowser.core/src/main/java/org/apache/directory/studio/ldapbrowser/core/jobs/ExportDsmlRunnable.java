@@ -21,9 +21,8 @@
 package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -31,9 +30,6 @@ import java.util.List;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.directory.api.dsmlv2.DsmlDecorator;
 import org.apache.directory.api.dsmlv2.request.AddRequestDsml;
-import org.apache.directory.api.dsmlv2.request.BatchRequestDsml;
-import org.apache.directory.api.dsmlv2.response.BatchResponseDsml;
-import org.apache.directory.api.dsmlv2.response.SearchResponseDsml;
 import org.apache.directory.api.dsmlv2.response.SearchResultDoneDsml;
 import org.apache.directory.api.dsmlv2.response.SearchResultEntryDsml;
 import org.apache.directory.api.dsmlv2.response.SearchResultReferenceDsml;
@@ -190,41 +186,27 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
             // went wrong when executing the request
             StudioProgressMonitor dummyMonitor = new StudioProgressMonitor( monitor );
 
-            // Searching for the requested entries
-            StudioSearchResultEnumeration ne = SearchRunnable.search( browserConnection, searchParameter, dummyMonitor );
-            monitor.worked( 1 );
-
-            // Getting the DSML string associated to the search
-            // and the type of answer the user is expecting
-            String dsmlExportString = null;
-            
-            switch ( type )
+            // Searching for the requested entries, and streaming the DSML associated to the search
+            // to the final destination file, depending on the type of answer the user is expecting
+            try ( StudioSearchResultEnumeration ne = SearchRunnable.search( browserConnection, searchParameter,
+                dummyMonitor );
+                DsmlStreamWriter writer = new DsmlStreamWriter( new File( exportDsmlFilename ),
+                    type == ExportDsmlJobType.RESPONSE ) )
             {
-                case RESPONSE:
-                    dsmlExportString = processAsDsmlResponse( ne, dummyMonitor );
-                    break;
-                case REQUEST:
-                    dsmlExportString = processAsDsmlRequest( ne, dummyMonitor );
-                    break;
-            }
-            
-            monitor.worked( 1 );
+                monitor.worked( 1 );
 
-            // Writing the DSML string to the final destination file.
-            if ( dsmlExportString != null )
-            {
-                try ( FileOutputStream fos = new FileOutputStream( exportDsmlFilename ) )
+                switch ( type )
                 {
-                    try ( OutputStreamWriter osw = new OutputStreamWriter( fos, "UTF-8" ) ) //$NON-NLS-1$
-                    {
-                        try ( BufferedWriter bufferedWriter = new BufferedWriter( osw ) )
-                        {
-                            bufferedWriter.write( dsmlExportString );
-                        }
-                    }
+                    case RESPONSE:
+                        processAsDsmlResponse( ne, writer, dummyMonitor, searchParameter );
+                        break;
+                    case REQUEST:
+                        processAsDsmlRequest( ne, writer, dummyMonitor );
+                        break;
                 }
             }
-            monitor.worked( 1 );
+
+            monitor.worked( 2 );
         }
         catch ( Exception e )
         {
@@ -235,42 +217,25 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
 
     /**
      * Processes the {@link StudioSearchResultEnumeration} as a DSML response.
-     *
-     * @param sre the search result enumeration
-     * @param monitor the monitor
-     * @return the associated DSML
-     * @throws LdapException
-     */
-    private String processAsDsmlResponse( StudioSearchResultEnumeration sre, StudioProgressMonitor monitor ) throws LdapException
-    {
-        // Creating the batch reponse
-        BatchResponseDsml batchResponse = new BatchResponseDsml();
-
-        processAsDsmlResponse( sre, batchResponse, monitor, searchParameter );
-
-        // Returning the associated DSML
-        return batchResponse.toDsml();
-    }
-
-
-    /**
-     * Processes the {@link StudioSearchResultEnumeration} as a DSML response.
+     * The search result entries are written one by one to the given writer.
      *
      * @param sre
      *      the search result enumeration
+     * @param writer
+     *      the writer of the batch response
      * @param monitor 
      *      the monitor
      * @param searchParameter 
      *      the search parameter
      * @throws LdapURLEncodingException 
      * @throws org.apache.directory.api.ldap.model.exception.LdapException
+     * @throws IOException
      */
-    public static void processAsDsmlResponse( StudioSearchResultEnumeration sre, BatchResponseDsml batchResponse,
-        StudioProgressMonitor monitor, SearchParameter searchParameter ) throws LdapException
+    static void processAsDsmlResponse( StudioSearchResultEnumeration sre, DsmlStreamWriter writer,
+        StudioProgressMonitor monitor, SearchParameter searchParameter ) throws LdapException, IOException
     {
-        // Creating and adding the search response
-        SearchResponseDsml sr = new SearchResponseDsml( codec );
-        batchResponse.addResponse( sr );
+        // Starting the search response
+        writer.startSearchResponse();
 
         try
         {
@@ -282,7 +247,7 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 while ( sre.hasMore() )
                 {
                     Entry entry = sre.next().getEntry();
-                    sr.addResponse( convertSearchResultToDsml( entry ) );
+                    writer.write( convertSearchResultToDsml( entry ) );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -325,7 +290,8 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 ldapResult.setDiagnosticMessage( t.getMessage() );
             }
         }
-        sr.addResponse( new SearchResultDoneDsml( codec, srd ) );
+        writer.write( new SearchResultDoneDsml( codec, srd ) );
+        writer.endSearchResponse();
     }
 
 
@@ -408,21 +374,20 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
 
     /**
      * Processes the {@link StudioSearchResultEnumeration} as a DSML request.
+     * The add requests are written one by one to the given writer.
      *
      * @param sre
      *      the search result enumeration
+     * @param writer
+     *      the writer of the batch request
      * @param monitor 
      *      the monitor
-     * @return
-     *      the associated DSML
      * @throws LdapException
+     * @throws IOException
      */
-    private String processAsDsmlRequest( StudioSearchResultEnumeration sre, StudioProgressMonitor monitor )
-        throws LdapException
+    private void processAsDsmlRequest( StudioSearchResultEnumeration sre, DsmlStreamWriter writer,
+        StudioProgressMonitor monitor ) throws LdapException, IOException
     {
-        // Creating the batch request
-        BatchRequestDsml batchRequest = new BatchRequestDsml();
-
         try
         {
             int count = 0;
@@ -434,7 +399,7 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 {
                     Entry entry = sre.next().getEntry();
                     AddRequestDsml arDsml = convertToAddRequestDsml( entry );
-                    batchRequest.addRequest( arDsml );
+                    writer.write( arDsml );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -455,9 +420,6 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 monitor.reportError( e );
             }
         }
-
-        // Returning the associated DSML
-        return batchRequest.toDsml();
     }
 
 
@@ -32,6 +32,7 @@ import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.entry.Value;
 import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.message.Control;
 import org.apache.directory.api.ldap.model.message.controls.PagedResults;
 import org.apache.directory.api.ldap.model.name.Dn;
@@ -168,7 +169,6 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
     {
         try
         {
-            LdifEnumeration enumeration = search( browserConnection, searchParameter, monitor );
             LdifFormatParameters ldifFormatParameters = Utils.getLdifFormatParameters();
 
             // add version spec
@@ -184,34 +184,34 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
             }
 
             // add the records
-            while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
+            int parallelism = PartitionedExport.getParallelism();
+            if ( PartitionedExport.isApplicable( searchParameter, parallelism ) )
             {
-                LdifContainer container = enumeration.next();
+                PartitionedExport.export( browserConnection, searchParameter, parallelism, bufferedWriter,
+                    ( entry, writer ) -> writer.write( recordToLdif( browserConnection,
+                        entryToLdifContentRecord( entry ), ldifFormatParameters ) ), monitor );
+                return;
+            }
 
-                if ( container instanceof LdifContentRecord )
+            try ( DefaultLdifEnumeration enumeration = search( browserConnection, searchParameter, monitor ) )
+            {
+                while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
                 {
-                    LdifContentRecord record = ( LdifContentRecord ) container;
-                    LdifDnLine dnLine = record.getDnLine();
-                    LdifSepLine sepLine = record.getSepLine();
-
-                    // sort and format
-                    DummyEntry entry = ModelConverter.ldifContentRecordToEntry( record, browserConnection );
-                    List<IValue> sortedValues = AttributeComparator.toSortedValues( entry );
-                    LdifContentRecord newRecord = new LdifContentRecord( dnLine );
-                    for ( IValue value : sortedValues )
+                    LdifContainer container = enumeration.next();
+
+                    if ( container instanceof LdifContentRecord )
                     {
-                        newRecord.addAttrVal( ModelConverter.valueToLdifAttrValLine( value ) );
-                    }
-                    newRecord.finish( sepLine );
-                    String s = newRecord.toFormattedString( ldifFormatParameters );
+                        LdifContentRecord record = ( LdifContentRecord ) container;
+                        String s = recordToLdif( browserConnection, record, ldifFormatParameters );
 
-                    // String s = record.toFormattedString();
-                    bufferedWriter.write( s );
+                        // String s = record.toFormattedString();
+                        bufferedWriter.write( s );
 
-                    count++;
-                    monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
-                        new String[]
-                            { Integer.toString( count ) } ) );
+                        count++;
+                        monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
+                            new String[]
+                                { Integer.toString( count ) } ) );
+                    }
                 }
             }
         }
@@ -230,14 +230,97 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
     }
 
 
-    static LdifEnumeration search( IBrowserConnection browserConnection, SearchParameter parameter,
+    /**
+     * Sorts and formats the given record.
+     * 
+     * @param browserConnection the browser connection
+     * @param record the record
+     * @param ldifFormatParameters the LDIF format parameters
+     * 
+     * @return the formatted record
+     * @throws LdapInvalidDnException if the Dn of the record is invalid
+     */
+    private static String recordToLdif( IBrowserConnection browserConnection, LdifContentRecord record,
+        LdifFormatParameters ldifFormatParameters ) throws LdapInvalidDnException
+    {
+        LdifDnLine dnLine = record.getDnLine();
+        LdifSepLine sepLine = record.getSepLine();
+
+        // sort and format
+        DummyEntry entry = ModelConverter.ldifContentRecordToEntry( record, browserConnection );
+        List<IValue> sortedValues = AttributeComparator.toSortedValues( entry );
+        LdifContentRecord newRecord = new LdifContentRecord( dnLine );
+        for ( IValue value : sortedValues )
+        {
+            newRecord.addAttrVal( ModelConverter.valueToLdifAttrValLine( value ) );
+        }
+        newRecord.finish( sepLine );
+
+        return newRecord.toFormattedString( ldifFormatParameters );
+    }
+
+
+    static DefaultLdifEnumeration search( IBrowserConnection browserConnection, SearchParameter parameter,
+        StudioProgressMonitor monitor )
+    {
+        return new DefaultLdifEnumeration( searchEntries( browserConnection, parameter, monitor ) );
+    }
+
+
+    /**
+     * Searches the directory and returns the plain entries, without building LDIF records.
+     * 
+     * @param browserConnection the browser connection
+     * @param parameter the search parameter
+     * @param monitor the progress monitor
+     * 
+     * @return the entry enumeration
+     */
+    static DefaultEntryEnumeration searchEntries( IBrowserConnection browserConnection, SearchParameter parameter,
         StudioProgressMonitor monitor )
     {
         StudioSearchResultEnumeration result = SearchRunnable.search( browserConnection, parameter, monitor );
-        return new DefaultLdifEnumeration( result, browserConnection, parameter, monitor );
+        return new DefaultEntryEnumeration( result, browserConnection, parameter, monitor );
+    }
+
+
+    /**
+     * Converts the given entry to an LDIF content record.
+     * 
+     * @param entry the entry
+     * 
+     * @return the LDIF content record
+     */
+    static LdifContentRecord entryToLdifContentRecord( Entry entry )
+    {
+        Dn dn = entry.getDn();
+        LdifContentRecord record = LdifContentRecord.create( dn.getName() );
+
+        for ( Attribute attribute : entry )
+        {
+            String attributeName = attribute.getUpId();
+            for ( Value value : attribute )
+            {
+                if ( value.isHumanReadable() )
+                {
+                    record.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                }
+                else
+                {
+                    record.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                }
+            }
+        }
+
+        record.finish( LdifSepLine.create() );
+
+        return record;
     }
 
-    static class DefaultLdifEnumeration implements LdifEnumeration
+    /**
+     * Enumerates the entries of a search, follows the paged results cookie.
+     */
+    static class DefaultEntryEnumeration implements AutoCloseable
     {
 
         private StudioSearchResultEnumeration enumeration;
@@ -249,7 +332,7 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
         private StudioProgressMonitor monitor;
 
 
-        public DefaultLdifEnumeration( StudioSearchResultEnumeration enumeration, IBrowserConnection browserConnection,
+        public DefaultEntryEnumeration( StudioSearchResultEnumeration enumeration, IBrowserConnection browserConnection,
             SearchParameter parameter, StudioProgressMonitor monitor )
         {
             this.enumeration = enumeration;
@@ -284,6 +367,7 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
                                     ( ( PagedResults ) requestControl ).setCookie( cookie );
                                 }
                             }
+                            enumeration.close();
                             enumeration = SearchRunnable.search( browserConnection, parameter, monitor );
                             return enumeration != null && enumeration.hasMore();
                         }
@@ -295,31 +379,49 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
         }
 
 
-        public LdifContainer next() throws LdapException
+        public Entry next() throws LdapException
         {
-            Entry entry = enumeration.next().getEntry();
-            Dn dn = entry.getDn();
-            LdifContentRecord record = LdifContentRecord.create( dn.getName() );
+            return enumeration.next().getEntry();
+        }
 
-            for ( Attribute attribute : entry )
-            {
-                String attributeName = attribute.getUpId();
-                for ( Value value : attribute )
-                {
-                    if ( value.isHumanReadable() )
-                    {
-                        record.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
-                    }
-                    else
-                    {
-                        record.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
-                    }
-                }
-            }
 
-            record.finish( LdifSepLine.create() );
+        /**
+         * Closes the current search and releases its connection.
+         */
+        public void close()
+        {
+            StudioSearchResultEnumeration.closeQuietly( enumeration );
+        }
+
+    }
 
-            return record;
+    static class DefaultLdifEnumeration implements LdifEnumeration, AutoCloseable
+    {
+
+        private DefaultEntryEnumeration enumeration;
+
+
+        public DefaultLdifEnumeration( DefaultEntryEnumeration enumeration )
+        {
+            this.enumeration = enumeration;
+        }
+
+
+        public boolean hasNext() throws LdapException
+        {
+            return enumeration.hasNext();
+        }
+
+
+        public LdifContainer next() throws LdapException
+        {
+            return entryToLdifContentRecord( enumeration.next() );
+        }
+
+
+        public void close()
+        {
+            enumeration.close();
         }
 
     }
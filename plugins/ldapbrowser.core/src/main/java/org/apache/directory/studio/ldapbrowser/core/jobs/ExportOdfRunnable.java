@@ -22,10 +22,13 @@ package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
@@ -33,18 +36,11 @@ import org.apache.directory.studio.connection.core.jobs.StudioConnectionRunnable
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
+import org.apache.directory.studio.ldapbrowser.core.jobs.ExportLdifRunnable.DefaultEntryEnumeration;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
-import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
-import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 import org.eclipse.core.runtime.Preferences;
-import org.odftoolkit.odfdom.type.ValueType;
-import org.odftoolkit.simple.SpreadsheetDocument;
-import org.odftoolkit.simple.table.Cell;
-import org.odftoolkit.simple.table.Row;
-import org.odftoolkit.simple.table.Table;
 
 
 /**
@@ -54,7 +50,12 @@ import org.odftoolkit.simple.table.Table;
  */
 public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
 {
-    /** The maximum count limit */
+    /**
+     * The maximum count limit.
+     * 
+     * @deprecated the ODF export is streamed and no longer limited
+     */
+    @Deprecated
     public static final int MAX_COUNT_LIMIT = 65000;
 
     /** The filename of the ODF file. */
@@ -140,42 +141,20 @@ public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
         int binaryEncoding = coreStore.getInt( BrowserCoreConstants.PREFERENCE_FORMAT_ODF_BINARYENCODING );
 
         // export
-        try
+        try ( OdsStreamWriter writer = new OdsStreamWriter( "Export" ) ) //$NON-NLS-1$
         {
-            SpreadsheetDocument doc = SpreadsheetDocument.newSpreadsheetDocument();
-
-            // Remove the default table added in construction
-            doc.removeSheet( 0 );
-
-            // create the table
-            Table table = doc.appendSheet( "Export" ); //$NON-NLS-1$
-
             // header
-            Row headerRow = table.appendRow();
-            LinkedHashMap<String, Short> attributeNameMap = new LinkedHashMap<String, Short>();
+            LinkedHashMap<String, Integer> attributeNameMap = new LinkedHashMap<String, Integer>();
             if ( this.exportDn )
             {
-                short cellNum = ( short ) 0;
-                attributeNameMap.put( "dn", new Short( cellNum ) ); //$NON-NLS-1$
-                Cell cell = headerRow.getCellByIndex( cellNum );
-                cell.setValueType( ValueType.STRING.name() );
-                cell.setStringValue( "dn" ); //$NON-NLS-1$
-            }
-
-            // max export
-            if ( searchParameter.getCountLimit() < 1 || searchParameter.getCountLimit() > MAX_COUNT_LIMIT )
-            {
-                searchParameter.setCountLimit( MAX_COUNT_LIMIT );
+                attributeNameMap.put( "dn", 0 ); //$NON-NLS-1$
             }
 
             int count = 0;
-            exportToOdf( browserConnection, searchParameter, table, headerRow, count, monitor,
-                attributeNameMap, valueDelimiter, binaryEncoding, this.exportDn );
+            exportToOdf( browserConnection, searchParameter, writer, count, monitor, attributeNameMap,
+                valueDelimiter, binaryEncoding, this.exportDn );
 
-            // remove default rows
-            table.removeRowsByIndex( 0, 2 );
-
-            doc.save( exportOdfFilename );
+            writer.finish( exportOdfFilename, new ArrayList<String>( attributeNameMap.keySet() ) );
         }
         catch ( Exception e )
         {
@@ -189,8 +168,7 @@ public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
      * 
      * @param browserConnection the browser connection
      * @param searchParameter the search parameter
-     * @param table the table
-     * @param headerRow the header row
+     * @param writer the spreadsheet writer
      * @param count the count
      * @param monitor the monitor
      * @param attributeNameMap the attribute name map
@@ -201,22 +179,21 @@ public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
      * @throws IOException Signals that an I/O exception has occurred.
      */
     private static void exportToOdf( IBrowserConnection browserConnection, SearchParameter searchParameter,
-        Table table, Row headerRow, int count, StudioProgressMonitor monitor,
-        LinkedHashMap<String, Short> attributeNameMap, String valueDelimiter, int binaryEncoding, boolean exportDn )
+        OdsStreamWriter writer, int count, StudioProgressMonitor monitor,
+        LinkedHashMap<String, Integer> attributeNameMap, String valueDelimiter, int binaryEncoding, boolean exportDn )
         throws IOException
     {
         try
         {
-            LdifEnumeration enumeration = ExportLdifRunnable.search( browserConnection, searchParameter, monitor );
-            while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
+            EntryRowConverter converter = new EntryRowConverter( null, valueDelimiter, "UTF-16", binaryEncoding ); //$NON-NLS-1$
+            String[] rowBuffer = new String[16];
+            try ( DefaultEntryEnumeration enumeration = ExportLdifRunnable.searchEntries( browserConnection,
+                searchParameter, monitor ) )
             {
-                LdifContainer container = enumeration.next();
-
-                if ( container instanceof LdifContentRecord )
+                while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
                 {
-                    LdifContentRecord record = ( LdifContentRecord ) container;
-                    recordToOdfRow( browserConnection, record, table, headerRow, attributeNameMap,
-                        valueDelimiter, binaryEncoding, exportDn );
+                    rowBuffer = entryToOdfRow( converter, enumeration.next(), writer, rowBuffer, attributeNameMap,
+                        exportDn );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -242,57 +219,52 @@ public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
 
 
     /**
-     * Transforms an LDIF record to an OdfTableRow.
+     * Transforms an entry to an ODF table row.
      * 
-     * @param browserConnection the browser connection
-     * @param record the record
-     * @param table the table
-     * @param headerRow the header row
+     * @param converter the entry row converter
+     * @param entry the entry
+     * @param writer the spreadsheet writer
+     * @param rowBuffer the reused row buffer
      * @param headerRowAttributeNameMap the header row attribute name map
-     * @param valueDelimiter the value delimiter
-     * @param binaryEncoding the binary encoding
      * @param exportDn the export dn
+     * 
+     * @return the row buffer, enlarged if new columns were added
+     * @throws IOException Signals that an I/O exception has occurred.
      */
-    private static void recordToOdfRow( IBrowserConnection browserConnection, LdifContentRecord record,
-        Table table, Row headerRow, Map<String, Short> headerRowAttributeNameMap,
-        String valueDelimiter, int binaryEncoding, boolean exportDn )
+    private static String[] entryToOdfRow( EntryRowConverter converter, Entry entry, OdsStreamWriter writer,
+        String[] rowBuffer, Map<String, Integer> headerRowAttributeNameMap, boolean exportDn ) throws IOException
     {
         // group multi-valued attributes
-        Map<String, String> attributeMap = ExportCsvRunnable.getAttributeMap( null, record, valueDelimiter, "UTF-16", //$NON-NLS-1$
-            binaryEncoding );
-
-        // output attributes
-        Row row = table.appendRow();
+        Map<String, String> attributeMap = converter.getAttributeMap( entry );
 
-        if ( exportDn )
-        {
-            Cell cell = row.getCellByIndex( 0 );
-            cell.setValueType( ValueType.STRING.name() );
-            cell.setStringValue( record.getDnLine().getValueAsString() );
-        }
         for ( String attributeName : attributeMap.keySet() )
         {
-            String value = attributeMap.get( attributeName );
-            if ( value == null )
-            {
-                value = ""; //$NON-NLS-1$
-            }
             if ( !headerRowAttributeNameMap.containsKey( attributeName ) )
             {
-                short cellNum = ( short ) headerRowAttributeNameMap.size();
-                headerRowAttributeNameMap.put( attributeName, new Short( cellNum ) );
-                Cell cell = headerRow.getCellByIndex( cellNum );
-                cell.setValueType( ValueType.STRING.name() );
-                cell.setStringValue( attributeName );
-            }
-            if ( headerRowAttributeNameMap.containsKey( attributeName ) )
-            {
-                short cellNum = headerRowAttributeNameMap.get( attributeName ).shortValue();
-                Cell cell = row.getCellByIndex( cellNum );
-                cell.setValueType( ValueType.STRING.name() );
-                cell.setStringValue( value );
+                headerRowAttributeNameMap.put( attributeName, headerRowAttributeNameMap.size() );
             }
         }
+
+        int length = headerRowAttributeNameMap.size();
+        if ( rowBuffer.length < length )
+        {
+            rowBuffer = new String[Math.max( length, rowBuffer.length * 2 )];
+        }
+        Arrays.fill( rowBuffer, 0, length, null );
+
+        // output attributes
+        if ( exportDn )
+        {
+            rowBuffer[0] = entry.getDn().getName();
+        }
+        for ( Map.Entry<String, String> attribute : attributeMap.entrySet() )
+        {
+            rowBuffer[headerRowAttributeNameMap.get( attribute.getKey() )] = attribute.getValue();
+        }
+
+        writer.writeRow( rowBuffer, length );
+
+        return rowBuffer;
     }
 
 }
@@ -27,6 +27,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
@@ -34,12 +35,10 @@ import org.apache.directory.studio.connection.core.jobs.StudioConnectionRunnable
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
+import org.apache.directory.studio.ldapbrowser.core.jobs.ExportLdifRunnable.DefaultEntryEnumeration;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
-import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
-import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 import org.apache.poi.hssf.usermodel.HSSFCell;
 import org.apache.poi.hssf.usermodel.HSSFRow;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
@@ -226,16 +225,13 @@ public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
     {
         try
         {
-            LdifEnumeration enumeration = ExportLdifRunnable.search( browserConnection, searchParameter, monitor );
-            while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
+            EntryRowConverter converter = new EntryRowConverter( null, valueDelimiter, "UTF-16", binaryEncoding ); //$NON-NLS-1$
+            try ( DefaultEntryEnumeration enumeration = ExportLdifRunnable.searchEntries( browserConnection,
+                searchParameter, monitor ) )
             {
-                LdifContainer container = enumeration.next();
-
-                if ( container instanceof LdifContentRecord )
+                while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
                 {
-                    LdifContentRecord record = ( LdifContentRecord ) container;
-                    recordToHSSFRow( browserConnection, record, sheet, headerRow, attributeNameMap, valueDelimiter,
-                        binaryEncoding, exportDn );
+                    entryToHSSFRow( converter, enumeration.next(), sheet, headerRow, attributeNameMap, exportDn );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -261,35 +257,32 @@ public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
 
 
     /**
-     * Transforms an LDIF record to an HSSF row.
+     * Transforms an entry to an HSSF row.
      * 
-     * @param browserConnection the browser connection
-     * @param record the record
+     * @param converter the entry row converter
+     * @param entry the entry
      * @param sheet the sheet
      * @param headerRow the header row
      * @param headerRowAttributeNameMap the header row attribute name map
-     * @param valueDelimiter the value delimiter
-     * @param binaryEncoding the binary encoding
      * @param exportDn the export dn
      */
-    private static void recordToHSSFRow( IBrowserConnection browserConnection, LdifContentRecord record,
-        HSSFSheet sheet, HSSFRow headerRow, Map<String, Integer> headerRowAttributeNameMap, String valueDelimiter,
-        int binaryEncoding, boolean exportDn )
+    private static void entryToHSSFRow( EntryRowConverter converter, Entry entry, HSSFSheet sheet,
+        HSSFRow headerRow, Map<String, Integer> headerRowAttributeNameMap, boolean exportDn )
     {
         // group multi-valued attributes
-        Map<String, String> attributeMap = ExportCsvRunnable.getAttributeMap( null, record, valueDelimiter, "UTF-16", //$NON-NLS-1$
-            binaryEncoding );
+        Map<String, String> attributeMap = converter.getAttributeMap( entry );
 
         // output attributes
         HSSFRow row = sheet.createRow( sheet.getLastRowNum() + 1 );
         if ( exportDn )
         {
             HSSFCell cell = createStringCell(row, 0 );
-            cell.setCellValue( record.getDnLine().getValueAsString() );
+            cell.setCellValue( entry.getDn().getName() );
         }
-        for ( String attributeName : attributeMap.keySet() )
+        for ( Map.Entry<String, String> attribute : attributeMap.entrySet() )
         {
-            String value = attributeMap.get( attributeName );
+            String attributeName = attribute.getKey();
+            String value = attribute.getValue();
 
             if ( !headerRowAttributeNameMap.containsKey( attributeName ) )
             {
@@ -33,6 +33,7 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -52,6 +53,7 @@ import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
 import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.connection.core.io.OperationPipeline;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunnableWithProgress;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.events.BulkModificationEvent;
@@ -254,138 +256,262 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
             return;
         }
 
-        StudioProgressMonitor dummyMonitor = new StudioProgressMonitor( monitor );
-        int importedCount = 0;
-        int errorCount = 0;
+        ImportResultHandler resultHandler = new ImportResultHandler( browserConnection, logWriter, continueOnError,
+            monitor );
+        OperationPipeline<LdifContainer> pipeline = new OperationPipeline<>(
+            browserConnection.getConnection().getConnectionWrapper(), OperationPipeline.getDefaultWindowSize(),
+            monitor, resultHandler );
+
         try
         {
             while ( !monitor.isCanceled() && enumeration.hasNext() )
             {
                 LdifContainer container = enumeration.next();
+                boolean submitted;
 
                 if ( container instanceof LdifRecord )
                 {
                     LdifRecord record = ( LdifRecord ) container;
-                    try
+                    submitted = pipeline.submit( record, getAffectedDns( record ), recordMonitor -> importLdifRecord(
+                        browserConnection, record, updateIfEntryExists, recordMonitor ) );
+                }
+                else
+                {
+                    submitted = pipeline.submit( container, Collections.emptyList(), null );
+                }
+
+                if ( !submitted )
+                {
+                    break;
+                }
+            }
+
+            // wait for the outstanding operations
+            pipeline.flush();
+
+            if ( resultHandler.abortException != null )
+            {
+                monitor.reportError( resultHandler.abortException );
+            }
+            else if ( resultHandler.errorCount > 0 )
+            {
+                monitor.reportError( BrowserCoreMessages.bind( BrowserCoreMessages.ldif__n_errors_see_logfile,
+                    new String[]
+                        { "" + resultHandler.errorCount } ) ); //$NON-NLS-1$
+            }
+        }
+        catch ( Exception e )
+        {
+            monitor.reportError( e );
+        }
+    }
+
+
+    /**
+     * Gets the Dns affected by the given LDIF record, used to order the outstanding operations.
+     * 
+     * @param record the LDIF record
+     * 
+     * @return the affected Dns
+     */
+    private static List<Dn> getAffectedDns( LdifRecord record )
+    {
+        List<Dn> dns = new ArrayList<>( 2 );
+
+        try
+        {
+            Dn dn = new Dn( record.getDnLine().getValueAsString() );
+            dns.add( dn );
+
+            if ( record instanceof LdifChangeModDnRecord )
+            {
+                LdifChangeModDnRecord modDnRecord = ( LdifChangeModDnRecord ) record;
+
+                if ( modDnRecord.getNewsuperiorLine() != null )
+                {
+                    // the new Dn is below the new superior
+                    dns.add( new Dn( modDnRecord.getNewsuperiorLine().getValueAsString() ) );
+                }
+                else if ( modDnRecord.getNewrdnLine() != null )
+                {
+                    // the new Dn is a sibling of the old Dn
+                    dns.add( new Dn( modDnRecord.getNewrdnLine().getValueAsString(), dn.getParent().getName() ) );
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            // invalid Dn, the root Dn conflicts with all other operations
+            dns.add( Dn.EMPTY_DN );
+        }
+
+        return dns;
+    }
+
+
+    /**
+     * Handles the results of the imported LDIF records in their original order: 
+     * logs them and updates the cache.
+     */
+    private static class ImportResultHandler implements OperationPipeline.ResultHandler<LdifContainer>
+    {
+        private IBrowserConnection browserConnection;
+        private Writer logWriter;
+        private boolean continueOnError;
+        private StudioProgressMonitor monitor;
+
+        private int importedCount = 0;
+        private int errorCount = 0;
+        private Exception abortException;
+
+
+        private ImportResultHandler( IBrowserConnection browserConnection, Writer logWriter,
+            boolean continueOnError, StudioProgressMonitor monitor )
+        {
+            this.browserConnection = browserConnection;
+            this.logWriter = logWriter;
+            this.continueOnError = continueOnError;
+            this.monitor = monitor;
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean handle( LdifContainer container, StudioProgressMonitor recordMonitor ) throws Exception
+        {
+            if ( !( container instanceof LdifRecord ) )
+            {
+                logWriter.write( container.toRawString() );
+                return true;
+            }
+
+            LdifRecord record = ( LdifRecord ) container;
+
+            try
+            {
+                if ( recordMonitor.errorsReported() )
+                {
+                    errorCount++;
+                    logModificationError( browserConnection, logWriter, record, recordMonitor.getException(),
+                        monitor );
+
+                    if ( !continueOnError )
                     {
-                        dummyMonitor.reset();
-                        importLdifRecord( browserConnection, record, updateIfEntryExists, dummyMonitor );
-                        if ( dummyMonitor.errorsReported() )
-                        {
-                            errorCount++;
-                            logModificationError( browserConnection, logWriter, record, dummyMonitor.getException(),
-                                monitor );
-
-                            if ( !continueOnError )
-                            {
-                                monitor.reportError( dummyMonitor.getException() );
-                                return;
-                            }
-                        }
-                        else
+                        if ( abortException == null )
                         {
-                            importedCount++;
-                            logModification( browserConnection, logWriter, record, monitor );
-
-                            // update cache and adjust attribute/children initialization flags
-                            Dn dn = new Dn( record.getDnLine().getValueAsString() );
-                            IEntry entry = browserConnection.getEntryFromCache( dn );
-                            Dn parentDn = dn.getParent();
-                            IEntry parentEntry = null;
-                            while ( parentEntry == null && parentDn != null )
-                            {
-                                parentEntry = browserConnection.getEntryFromCache( parentDn );
-                                parentDn = parentDn.getParent();
-                            }
-
-                            if ( record instanceof LdifChangeDeleteRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                    browserConnection.uncacheEntryRecursive( entry );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                }
-                            }
-                            else if ( record instanceof LdifChangeModDnRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                    browserConnection.uncacheEntryRecursive( entry );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                }
-                                LdifChangeModDnRecord modDnRecord = ( LdifChangeModDnRecord ) record;
-                                if ( modDnRecord.getNewsuperiorLine() != null )
-                                {
-                                    Dn newSuperiorDn = new Dn( modDnRecord.getNewsuperiorLine()
-                                        .getValueAsString() );
-                                    IEntry newSuperiorEntry = browserConnection.getEntryFromCache( newSuperiorDn );
-                                    if ( newSuperiorEntry != null )
-                                    {
-                                        newSuperiorEntry.setChildrenInitialized( false );
-                                    }
-                                }
-                            }
-                            else if ( record instanceof LdifChangeAddRecord || record instanceof LdifContentRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                    parentEntry.setHasChildrenHint( true );
-                                }
-                            }
-                            else
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                }
-                            }
+                            abortException = recordMonitor.getException();
                         }
-                    }
-                    catch ( Exception e )
-                    {
-                        logModificationError( browserConnection, logWriter, record, e, monitor );
-                        errorCount++;
 
-                        if ( !continueOnError )
-                        {
-                            monitor.reportError( e );
-                            return;
-                        }
+                        return false;
                     }
-
-                    monitor.reportProgress( BrowserCoreMessages.bind(
-                        BrowserCoreMessages.ldif__imported_n_entries_m_errors, new String[]
-                            { "" + importedCount, "" + errorCount } ) ); //$NON-NLS-1$ //$NON-NLS-2$
                 }
                 else
                 {
-                    logWriter.write( container.toRawString() );
+                    importedCount++;
+                    logModification( browserConnection, logWriter, record, monitor );
+                    updateCache( browserConnection, record );
                 }
             }
+            catch ( Exception e )
+            {
+                logModificationError( browserConnection, logWriter, record, e, monitor );
+                errorCount++;
+
+                if ( !continueOnError )
+                {
+                    if ( abortException == null )
+                    {
+                        abortException = e;
+                    }
+
+                    return false;
+                }
+            }
+
+            monitor.reportProgress( BrowserCoreMessages.bind(
+                BrowserCoreMessages.ldif__imported_n_entries_m_errors, new String[]
+                    { "" + importedCount, "" + errorCount } ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+            return true;
+        }
+    }
+
+
+    /**
+     * Updates the cache and adjusts attribute/children initialization flags
+     * after the given record was imported successfully.
+     * 
+     * @param browserConnection the browser connection
+     * @param record the imported LDIF record
+     * @throws LdapInvalidDnException if the Dn of the record is invalid
+     */
+    private static void updateCache( IBrowserConnection browserConnection, LdifRecord record )
+        throws LdapInvalidDnException
+    {
+        Dn dn = new Dn( record.getDnLine().getValueAsString() );
+        IEntry entry = browserConnection.getEntryFromCache( dn );
+        Dn parentDn = dn.getParent();
+        IEntry parentEntry = null;
+        while ( parentEntry == null && parentDn != null )
+        {
+            parentEntry = browserConnection.getEntryFromCache( parentDn );
+            parentDn = parentDn.getParent();
+        }
 
-            if ( errorCount > 0 )
+        if ( record instanceof LdifChangeDeleteRecord )
+        {
+            if ( entry != null )
             {
-                monitor.reportError( BrowserCoreMessages.bind( BrowserCoreMessages.ldif__n_errors_see_logfile,
-                    new String[]
-                        { "" + errorCount } ) ); //$NON-NLS-1$
+                entry.setAttributesInitialized( false );
+                browserConnection.uncacheEntryRecursive( entry );
+            }
+            if ( parentEntry != null )
+            {
+                parentEntry.setChildrenInitialized( false );
             }
         }
-        catch ( Exception e )
+        else if ( record instanceof LdifChangeModDnRecord )
         {
-            monitor.reportError( e );
+            if ( entry != null )
+            {
+                entry.setAttributesInitialized( false );
+                browserConnection.uncacheEntryRecursive( entry );
+            }
+            if ( parentEntry != null )
+            {
+                parentEntry.setChildrenInitialized( false );
+            }
+            LdifChangeModDnRecord modDnRecord = ( LdifChangeModDnRecord ) record;
+            if ( modDnRecord.getNewsuperiorLine() != null )
+            {
+                Dn newSuperiorDn = new Dn( modDnRecord.getNewsuperiorLine()
+                    .getValueAsString() );
+                IEntry newSuperiorEntry = browserConnection.getEntryFromCache( newSuperiorDn );
+                if ( newSuperiorEntry != null )
+                {
+                    newSuperiorEntry.setChildrenInitialized( false );
+                }
+            }
+        }
+        else if ( record instanceof LdifChangeAddRecord || record instanceof LdifContentRecord )
+        {
+            if ( entry != null )
+            {
+                entry.setAttributesInitialized( false );
+            }
+            if ( parentEntry != null )
+            {
+                parentEntry.setChildrenInitialized( false );
+                parentEntry.setHasChildrenHint( true );
+            }
+        }
+        else
+        {
+            if ( entry != null )
+            {
+                entry.setAttributesInitialized( false );
+            }
         }
     }
 
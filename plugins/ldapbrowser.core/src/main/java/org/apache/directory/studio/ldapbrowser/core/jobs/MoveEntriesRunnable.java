@@ -44,7 +44,6 @@ import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
-import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 
 
 /**
@@ -246,22 +245,10 @@ public class MoveEntriesRunnable implements StudioConnectionBulkRunnableWithProg
                 newParent.setHasMoreChildren( hasMoreChildren );
 
                 // reset searches, if the moved entry is a result of a search
-                List<ISearch> searches = browserConnection.getSearchManager().getSearches();
-                for ( ISearch search : searches )
+                for ( ISearch search : browserConnection.getSearchesWithResult( oldEntry ) )
                 {
-                    if ( search.getSearchResults() != null )
-                    {
-                        ISearchResult[] searchResults = search.getSearchResults();
-                        for ( ISearchResult result : searchResults )
-                        {
-                            if ( oldEntry.equals( result.getEntry() ) )
-                            {
-                                search.setSearchResults( null );
-                                searchesToUpdateSet.add( search );
-                                break;
-                            }
-                        }
-                    }
+                    search.setSearchResults( null );
+                    searchesToUpdateSet.add( search );
                 }
             }
         }
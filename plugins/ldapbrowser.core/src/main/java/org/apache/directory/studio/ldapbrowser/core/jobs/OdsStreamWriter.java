@@ -0,0 +1,301 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Writes a single-sheet OpenDocument spreadsheet (.ods) in a streaming way.
+ * <p>
+ * The rows are spooled as XML fragments to a temporary file, so the memory usage
+ * does not depend on the number of rows. As the columns are only known at the end
+ * of the export the header row is written when the document is finished: the
+ * content.xml is assembled from the header row and the spooled rows.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class OdsStreamWriter implements Closeable
+{
+    private static final String MIMETYPE = "application/vnd.oasis.opendocument.spreadsheet"; //$NON-NLS-1$
+
+    private static final String MANIFEST = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" //$NON-NLS-1$
+        + "<manifest:manifest xmlns:manifest=\"urn:oasis:names:tc:opendocument:xmlns:manifest:1.0\"" //$NON-NLS-1$
+        + " manifest:version=\"1.2\">" //$NON-NLS-1$
+        + "<manifest:file-entry manifest:full-path=\"/\" manifest:version=\"1.2\" manifest:media-type=\"" //$NON-NLS-1$
+        + MIMETYPE + "\"/>" //$NON-NLS-1$
+        + "<manifest:file-entry manifest:full-path=\"content.xml\" manifest:media-type=\"text/xml\"/>" //$NON-NLS-1$
+        + "</manifest:manifest>"; //$NON-NLS-1$
+
+    private static final String CONTENT_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" //$NON-NLS-1$
+        + "<office:document-content" //$NON-NLS-1$
+        + " xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\"" //$NON-NLS-1$
+        + " xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\"" //$NON-NLS-1$
+        + " xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\"" //$NON-NLS-1$
+        + " office:version=\"1.2\">" //$NON-NLS-1$
+        + "<office:body><office:spreadsheet>"; //$NON-NLS-1$
+
+    private static final String CONTENT_END = "</table:table></office:spreadsheet></office:body>" //$NON-NLS-1$
+        + "</office:document-content>"; //$NON-NLS-1$
+
+    /** The character written instead of a character not allowed in XML */
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    /** The name of the sheet */
+    private String sheetName;
+
+    /** The temporary file containing the spooled rows */
+    private File spoolFile;
+
+    /** The writer of the spooled rows */
+    private Writer spoolWriter;
+
+
+    /**
+     * Creates a new instance of OdsStreamWriter.
+     *
+     * @param sheetName the name of the sheet
+     * @throws IOException if the temporary file could not be created
+     */
+    OdsStreamWriter( String sheetName ) throws IOException
+    {
+        this.sheetName = sheetName;
+        this.spoolFile = File.createTempFile( "studio-export-", ".ods.part" ); //$NON-NLS-1$ //$NON-NLS-2$
+        this.spoolFile.deleteOnExit();
+        this.spoolWriter = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( spoolFile ),
+            StandardCharsets.UTF_8 ) );
+    }
+
+
+    /**
+     * Appends a row.
+     *
+     * @param values the cell values by column index, null for empty cells
+     * @param length the number of used elements of the values array
+     * @throws IOException if an I/O error occurs
+     */
+    void writeRow( String[] values, int length ) throws IOException
+    {
+        writeRow( spoolWriter, values, length );
+    }
+
+
+    /**
+     * Writes the spreadsheet document.
+     *
+     * @param filename the name of the .ods file
+     * @param headers the header row
+     * @throws IOException if an I/O error occurs
+     */
+    void finish( String filename, List<String> headers ) throws IOException
+    {
+        spoolWriter.close();
+
+        try ( ZipOutputStream zip = new ZipOutputStream( new FileOutputStream( filename ) ) )
+        {
+            // the mimetype must be the first entry and must not be compressed
+            byte[] mimetype = MIMETYPE.getBytes( StandardCharsets.US_ASCII );
+            CRC32 crc = new CRC32();
+            crc.update( mimetype );
+            ZipEntry mimetypeEntry = new ZipEntry( "mimetype" ); //$NON-NLS-1$
+            mimetypeEntry.setMethod( ZipEntry.STORED );
+            mimetypeEntry.setSize( mimetype.length );
+            mimetypeEntry.setCompressedSize( mimetype.length );
+            mimetypeEntry.setCrc( crc.getValue() );
+            zip.putNextEntry( mimetypeEntry );
+            zip.write( mimetype );
+            zip.closeEntry();
+
+            zip.putNextEntry( new ZipEntry( "META-INF/manifest.xml" ) ); //$NON-NLS-1$
+            zip.write( MANIFEST.getBytes( StandardCharsets.UTF_8 ) );
+            zip.closeEntry();
+
+            zip.putNextEntry( new ZipEntry( "content.xml" ) ); //$NON-NLS-1$
+            Writer content = new BufferedWriter( new OutputStreamWriter( zip, StandardCharsets.UTF_8 ) );
+            content.write( CONTENT_START );
+            content.write( "<table:table table:name=\"" ); //$NON-NLS-1$
+            appendEscaped( content, sheetName );
+            content.write( "\"><table:table-column table:number-columns-repeated=\"" ); //$NON-NLS-1$
+            content.write( Integer.toString( Math.max( 1, headers.size() ) ) );
+            content.write( "\"/>" ); //$NON-NLS-1$
+            writeRow( content, headers.toArray( new String[headers.size()] ), headers.size() );
+
+            try ( Reader reader = new BufferedReader( new InputStreamReader( new FileInputStream( spoolFile ),
+                StandardCharsets.UTF_8 ) ) )
+            {
+                char[] buffer = new char[8192];
+                int length;
+
+                while ( ( length = reader.read( buffer ) ) != -1 )
+                {
+                    content.write( buffer, 0, length );
+                }
+            }
+
+            content.write( CONTENT_END );
+            content.flush();
+            zip.closeEntry();
+        }
+    }
+
+
+    /**
+     * Closes the spool writer and deletes the temporary file.
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            spoolWriter.close();
+        }
+        finally
+        {
+            spoolFile.delete();
+        }
+    }
+
+
+    private static void writeRow( Writer writer, String[] values, int length ) throws IOException
+    {
+        writer.write( "<table:table-row>" ); //$NON-NLS-1$
+        int emptyCells = 0;
+
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( values[i] == null )
+            {
+                emptyCells++;
+                continue;
+            }
+
+            if ( emptyCells > 0 )
+            {
+                writeEmptyCells( writer, emptyCells );
+                emptyCells = 0;
+            }
+
+            writer.write( "<table:table-cell office:value-type=\"string\"><text:p>" ); //$NON-NLS-1$
+            appendEscaped( writer, values[i] );
+            writer.write( "</text:p></table:table-cell>" ); //$NON-NLS-1$
+        }
+
+        if ( length == 0 )
+        {
+            writeEmptyCells( writer, 1 );
+        }
+
+        writer.write( "</table:table-row>" ); //$NON-NLS-1$
+    }
+
+
+    private static void writeEmptyCells( Writer writer, int count ) throws IOException
+    {
+        if ( count == 1 )
+        {
+            writer.write( "<table:table-cell/>" ); //$NON-NLS-1$
+        }
+        else
+        {
+            writer.write( "<table:table-cell table:number-columns-repeated=\"" ); //$NON-NLS-1$
+            writer.write( Integer.toString( count ) );
+            writer.write( "\"/>" ); //$NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Writes the XML escaped value. Characters not allowed in XML 1.0, i.e. control
+     * characters, unpaired surrogates, U+FFFE and U+FFFF, are replaced by U+FFFD.
+     */
+    private static void appendEscaped( Writer writer, String value ) throws IOException
+    {
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+
+            switch ( c )
+            {
+                case '<':
+                    writer.write( "&lt;" ); //$NON-NLS-1$
+                    break;
+
+                case '>':
+                    writer.write( "&gt;" ); //$NON-NLS-1$
+                    break;
+
+                case '&':
+                    writer.write( "&amp;" ); //$NON-NLS-1$
+                    break;
+
+                case '"':
+                    writer.write( "&quot;" ); //$NON-NLS-1$
+                    break;
+
+                case '\r':
+                    // a literal carriage return would be normalized to a line feed by XML parsers
+                    writer.write( "&#13;" ); //$NON-NLS-1$
+                    break;
+
+                default:
+                    if ( Character.isHighSurrogate( c ) && i + 1 < value.length()
+                        && Character.isLowSurrogate( value.charAt( i + 1 ) ) )
+                    {
+                        // a supplementary character
+                        writer.write( c );
+                        writer.write( value.charAt( ++i ) );
+                    }
+                    else if ( isXmlChar( c ) )
+                    {
+                        writer.write( c );
+                    }
+                    else
+                    {
+                        writer.write( REPLACEMENT_CHARACTER );
+                    }
+            }
+        }
+    }
+
+
+    /**
+     * Checks if the given character of the basic multilingual plane is allowed in XML 1.0.
+     */
+    private static boolean isXmlChar( char c )
+    {
+        return c == '\t' || c == '\n' || c == '\r' || ( c >= 0x20 && c <= 0xD7FF ) || ( c >= 0xE000 && c <= 0xFFFD );
+    }
+}
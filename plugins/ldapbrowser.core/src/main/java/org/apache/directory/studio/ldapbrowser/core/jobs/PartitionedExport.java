@@ -0,0 +1,453 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
+import org.apache.directory.studio.ldapbrowser.core.jobs.ExportLdifRunnable.DefaultEntryEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
+import org.eclipse.core.runtime.IStatus;
+
+
+/**
+ * Exports the result of a subtree search in partitions that are searched in parallel.
+ * <p>
+ * The one-level children of the search base are enumerated first. The search base itself
+ * and the subtrees of the children, ordered by their Dn, are then split into a bounded
+ * number of partitions of consecutive subtrees. The partitions are searched concurrently,
+ * each partition is spooled to a temporary file. The partitions are merged into the output
+ * in a deterministic order: the search base first, followed by the subtrees of the children
+ * ordered by their Dn. The searches run over the pooled connections of the connection
+ * wrapper.
+ * <p>
+ * If the server limits the enumeration of the children or the search of a partition,
+ * e.g. by a size limit, the export fails rather than writing an incomplete result.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class PartitionedExport
+{
+    /** The number of partitions per thread, more partitions balance subtrees of different sizes */
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    /**
+     * Writes an exported record.
+     */
+    @FunctionalInterface
+    interface RecordWriter
+    {
+        /**
+         * Writes the record.
+         *
+         * @param entry the entry
+         * @param writer the writer
+         * @throws IOException if an I/O error occurs
+         * @throws LdapException if the entry could not be converted
+         */
+        void write( Entry entry, Writer writer ) throws IOException, LdapException;
+    }
+
+    private PartitionedExport()
+    {
+    }
+
+
+    /**
+     * Gets the number of partitions to export in parallel, as configured in the preferences.
+     *
+     * @return the number of partitions to export in parallel
+     */
+    static int getParallelism()
+    {
+        return Math.max( 1, BrowserCorePlugin.getDefault().getPluginPreferences()
+            .getInt( BrowserCoreConstants.PREFERENCE_EXPORT_PARALLEL_PARTITIONS ) );
+    }
+
+
+    /**
+     * Checks if the search could be exported in parallel partitions. Only unlimited subtree
+     * searches are partitioned, the count limit could not be applied across partitions.
+     *
+     * @param searchParameter the search parameter
+     * @param parallelism the number of partitions to export in parallel
+     *
+     * @return true if the search should be exported in parallel partitions
+     */
+    static boolean isApplicable( SearchParameter searchParameter, int parallelism )
+    {
+        return parallelism > 1 && searchParameter.getScope() == SearchScope.SUBTREE
+            && searchParameter.getCountLimit() == 0 && !searchParameter.isPagedSearchScrollMode();
+    }
+
+
+    /**
+     * Exports the result of the search.
+     *
+     * @param browserConnection the browser connection
+     * @param searchParameter the search parameter, with subtree scope
+     * @param parallelism the number of partitions to export in parallel
+     * @param writer the writer of the output
+     * @param recordWriter the record writer, called concurrently for different partitions
+     * @param monitor the progress monitor
+     *
+     * @return the number of exported records
+     * @throws IOException if an I/O error occurs
+     */
+    static int export( IBrowserConnection browserConnection, SearchParameter searchParameter, int parallelism,
+        Writer writer, RecordWriter recordWriter, StudioProgressMonitor monitor ) throws IOException
+    {
+        List<List<SearchParameter>> partitions = getPartitions( browserConnection, searchParameter,
+            parallelism * PARTITIONS_PER_THREAD, monitor );
+        AtomicInteger count = new AtomicInteger();
+
+        if ( monitor.isCanceled() || monitor.errorsReported() )
+        {
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( parallelism, runnable -> {
+            Thread thread = new Thread( runnable, "Directory Studio Export - " //$NON-NLS-1$
+                + browserConnection.getConnection().getName() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        List<Future<Partition>> futures = new ArrayList<>( partitions.size() );
+
+        try
+        {
+            for ( List<SearchParameter> partitionParameters : partitions )
+            {
+                StudioProgressMonitor partitionMonitor = new StudioProgressMonitor( monitor );
+                futures.add( executor.submit( () -> exportPartition( browserConnection, partitionParameters,
+                    recordWriter, count, partitionMonitor ) ) );
+            }
+
+            // merge in order, while the following partitions are still searched
+            for ( Future<Partition> future : futures )
+            {
+                Partition partition = waitFor( future, count, monitor );
+
+                if ( partition == null || monitor.isCanceled() || monitor.errorsReported() )
+                {
+                    break;
+                }
+
+                if ( partition.monitor.errorsReported() )
+                {
+                    for ( IStatus status : partition.monitor.getErrorStatus( "" ).getChildren() ) //$NON-NLS-1$
+                    {
+                        if ( status.getException() instanceof Exception )
+                        {
+                            monitor.reportError( status.getMessage(), ( Exception ) status.getException() );
+                        }
+                        else
+                        {
+                            monitor.reportError( status.getMessage() );
+                        }
+                    }
+
+                    break;
+                }
+
+                append( partition.file, writer );
+                partition.file.delete();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+
+            // remove the spooled partitions that were not merged
+            for ( Future<Partition> future : futures )
+            {
+                if ( !future.isDone() )
+                {
+                    // the temporary file is deleted on exit
+                    future.cancel( true );
+                    continue;
+                }
+
+                try
+                {
+                    future.get().file.delete();
+                }
+                catch ( Exception e )
+                {
+                    // nothing to clean up
+                }
+            }
+        }
+
+        return count.get();
+    }
+
+
+    /**
+     * Enumerates the children of the search base and creates at most the given number of
+     * partitions, each partition consists of the search parameters of consecutive subtrees.
+     */
+    private static List<List<SearchParameter>> getPartitions( IBrowserConnection browserConnection,
+        SearchParameter searchParameter, int maxPartitions, StudioProgressMonitor monitor )
+    {
+        List<SearchParameter> subtrees = new ArrayList<>();
+        subtrees.add( createPartition( searchParameter, searchParameter.getSearchBase(), SearchScope.OBJECT ) );
+
+        // all children are needed, the filter may match entries below a non-matching child
+        SearchParameter childrenParameter = createPartition( searchParameter, searchParameter.getSearchBase(),
+            SearchScope.ONELEVEL );
+        childrenParameter.setFilter( ISearch.FILTER_TRUE );
+        childrenParameter.setReturningAttributes( new String[]
+            { SchemaConstants.NO_ATTRIBUTE } );
+
+        TreeMap<String, Dn> children = new TreeMap<>();
+
+        try ( DefaultEntryEnumeration enumeration = ExportLdifRunnable.searchEntries( browserConnection,
+            childrenParameter, monitor ) )
+        {
+            while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
+            {
+                Dn dn = enumeration.next().getDn();
+                children.put( dn.getNormName().toLowerCase( Locale.ROOT ), dn );
+            }
+        }
+        catch ( LdapException e )
+        {
+            // a missing child would silently be missing in the export
+            reportError( e, searchParameter.getSearchBase(), monitor );
+        }
+
+        for ( Dn child : children.values() )
+        {
+            subtrees.add( createPartition( searchParameter, child, SearchScope.SUBTREE ) );
+        }
+
+        List<List<SearchParameter>> partitions = new ArrayList<>();
+        int partitionSize = ( subtrees.size() + maxPartitions - 1 ) / maxPartitions;
+        for ( int i = 0; i < subtrees.size(); i += partitionSize )
+        {
+            partitions.add( subtrees.subList( i, Math.min( i + partitionSize, subtrees.size() ) ) );
+        }
+
+        return partitions;
+    }
+
+
+    /**
+     * Reports the given exception. If the server limited the search, e.g. by a size limit,
+     * an error explaining that the partitioned export would be incomplete is reported.
+     */
+    private static void reportError( LdapException e, Dn searchBase, StudioProgressMonitor monitor )
+    {
+        int ldapStatusCode = JNDIUtils.getLdapStatusCode( e );
+        if ( ldapStatusCode == 3 || ldapStatusCode == 4 || ldapStatusCode == 11 )
+        {
+            monitor.reportError( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_partition_limit_exceeded,
+                new String[]
+                    { searchBase.getName() } ), e );
+        }
+        else
+        {
+            monitor.reportError( e );
+        }
+    }
+
+
+    /**
+     * Creates the search parameter of a partition. Each partition gets its own paged
+     * results control as the cookie is updated while searching.
+     */
+    private static SearchParameter createPartition( SearchParameter searchParameter, Dn searchBase,
+        SearchScope scope )
+    {
+        SearchParameter partition = ( SearchParameter ) searchParameter.clone();
+        partition.setSearchBase( searchBase );
+        partition.setScope( scope );
+        partition.getResponseControls().clear();
+
+        List<Control> controls = partition.getControls();
+        for ( int i = 0; i < controls.size(); i++ )
+        {
+            if ( controls.get( i ) instanceof PagedResults )
+            {
+                PagedResults pagedResults = ( PagedResults ) controls.get( i );
+                controls.set( i, Controls.newPagedResultsControl( pagedResults.getSize() ) );
+            }
+        }
+
+        return partition;
+    }
+
+
+    /**
+     * Searches the subtrees of a partition one after the other and spools the records
+     * to a temporary file.
+     */
+    private static Partition exportPartition( IBrowserConnection browserConnection,
+        List<SearchParameter> partitionParameters, RecordWriter recordWriter, AtomicInteger count,
+        StudioProgressMonitor partitionMonitor ) throws IOException
+    {
+        File file = File.createTempFile( "studio-export-", ".part" ); //$NON-NLS-1$ //$NON-NLS-2$
+        file.deleteOnExit();
+
+        try ( Writer partitionWriter = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ),
+            StandardCharsets.UTF_8 ) ) )
+        {
+            for ( SearchParameter partitionParameter : partitionParameters )
+            {
+                if ( partitionMonitor.isCanceled() || partitionMonitor.errorsReported() )
+                {
+                    break;
+                }
+
+                try ( DefaultEntryEnumeration enumeration = ExportLdifRunnable.searchEntries( browserConnection,
+                    partitionParameter, partitionMonitor ) )
+                {
+                    while ( !partitionMonitor.isCanceled() && !partitionMonitor.errorsReported()
+                        && enumeration.hasNext() )
+                    {
+                        recordWriter.write( enumeration.next(), partitionWriter );
+                        count.incrementAndGet();
+                    }
+                }
+                catch ( LdapException e )
+                {
+                    reportError( e, partitionParameter.getSearchBase(), partitionMonitor );
+                }
+            }
+        }
+
+        return new Partition( file, partitionMonitor );
+    }
+
+
+    /**
+     * Waits for the given partition, reports the progress meanwhile.
+     */
+    private static Partition waitFor( Future<Partition> future, AtomicInteger count, StudioProgressMonitor monitor )
+        throws IOException
+    {
+        while ( true )
+        {
+            monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
+                new String[]
+                    { Integer.toString( count.get() ) } ) );
+
+            if ( monitor.isCanceled() )
+            {
+                return null;
+            }
+
+            try
+            {
+                return future.get( 500, TimeUnit.MILLISECONDS );
+            }
+            catch ( TimeoutException e )
+            {
+                // report progress and check cancellation
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                monitor.reportError( e );
+                return null;
+            }
+            catch ( ExecutionException e )
+            {
+                if ( e.getCause() instanceof IOException )
+                {
+                    throw ( IOException ) e.getCause();
+                }
+
+                monitor.reportError( e.getCause() instanceof Exception ? ( Exception ) e.getCause() : e );
+                return null;
+            }
+        }
+    }
+
+
+    private static void append( File file, Writer writer ) throws IOException
+    {
+        try ( Reader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ),
+            StandardCharsets.UTF_8 ) ) )
+        {
+            char[] buffer = new char[8192];
+            int length;
+
+            while ( ( length = reader.read( buffer ) ) != -1 )
+            {
+                writer.write( buffer, 0, length );
+            }
+        }
+    }
+
+    /**
+     * A searched partition.
+     */
+    private static class Partition
+    {
+        private final File file;
+        private final StudioProgressMonitor monitor;
+
+
+        Partition( File file, StudioProgressMonitor monitor )
+        {
+            this.file = file;
+            this.monitor = monitor;
+        }
+    }
+}
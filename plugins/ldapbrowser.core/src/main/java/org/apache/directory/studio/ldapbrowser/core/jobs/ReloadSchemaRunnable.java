@@ -32,10 +32,10 @@ import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunn
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.events.BrowserConnectionUpdateEvent;
 import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.jobs.ExportLdifRunnable.DefaultLdifEnumeration;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 
 
@@ -168,17 +168,19 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
                         SchemaConstants.MATCHING_RULE_USE_AT, SchemaConstants.CREATE_TIMESTAMP_AT,
                         SchemaConstants.MODIFY_TIMESTAMP_AT } );
 
-                LdifEnumeration le = ExportLdifRunnable.search( browserConnection, sp, monitor );
-                if ( le.hasNext() )
+                try ( DefaultLdifEnumeration le = ExportLdifRunnable.search( browserConnection, sp, monitor ) )
                 {
-                    LdifContentRecord schemaRecord = ( LdifContentRecord ) le.next();
-                    schema = new Schema();
-                    schema.loadFromRecord( schemaRecord );
-                    browserConnection.setSchema( schema );
-                }
-                else
-                {
-                    monitor.reportError( BrowserCoreMessages.model__no_schema_information );
+                    if ( le.hasNext() )
+                    {
+                        LdifContentRecord schemaRecord = ( LdifContentRecord ) le.next();
+                        schema = new Schema();
+                        schema.loadFromRecord( schemaRecord );
+                        browserConnection.setSchema( schema );
+                    }
+                    else
+                    {
+                        monitor.reportError( BrowserCoreMessages.model__no_schema_information );
+                    }
                 }
             }
             catch ( Exception e )
@@ -209,29 +211,31 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
             sp.setScope( SearchScope.OBJECT );
             sp.setReturningAttributes( new String[]
                 { SchemaConstants.CREATE_TIMESTAMP_AT, SchemaConstants.MODIFY_TIMESTAMP_AT } );
-            StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, sp, monitor );
-            while ( enumeration != null && enumeration.hasMore() )
+            try ( StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, sp, monitor ) )
             {
-                String createTimestamp = null;
-                String modifyTimestamp = null;
-
-                Entry entry = enumeration.next().getEntry();
-                if ( entry.hasObjectClass( SchemaConstants.MODIFY_TIMESTAMP_AT ) )
-                {
-                    modifyTimestamp = entry.get( SchemaConstants.MODIFY_TIMESTAMP_AT ).getString();
-                }
-                if ( entry.hasObjectClass( SchemaConstants.CREATE_TIMESTAMP_AT ) )
+                while ( enumeration != null && enumeration.hasMore() )
                 {
-                    createTimestamp = entry.get( SchemaConstants.CREATE_TIMESTAMP_AT ).getString();
-                }
+                    String createTimestamp = null;
+                    String modifyTimestamp = null;
 
-                String schemaTimestamp = modifyTimestamp != null ? modifyTimestamp : createTimestamp;
-                String cacheTimestamp = schema.getModifyTimestamp() != null ? schema.getModifyTimestamp() : schema
-                    .getCreateTimestamp();
-                if ( cacheTimestamp != null && schemaTimestamp != null
-                    && schemaTimestamp.compareTo( cacheTimestamp ) > 0 )
-                {
-                    return true;
+                    Entry entry = enumeration.next().getEntry();
+                    if ( entry.hasObjectClass( SchemaConstants.MODIFY_TIMESTAMP_AT ) )
+                    {
+                        modifyTimestamp = entry.get( SchemaConstants.MODIFY_TIMESTAMP_AT ).getString();
+                    }
+                    if ( entry.hasObjectClass( SchemaConstants.CREATE_TIMESTAMP_AT ) )
+                    {
+                        createTimestamp = entry.get( SchemaConstants.CREATE_TIMESTAMP_AT ).getString();
+                    }
+
+                    String schemaTimestamp = modifyTimestamp != null ? modifyTimestamp : createTimestamp;
+                    String cacheTimestamp = schema.getModifyTimestamp() != null ? schema.getModifyTimestamp() : schema
+                        .getCreateTimestamp();
+                    if ( cacheTimestamp != null && schemaTimestamp != null
+                        && schemaTimestamp.compareTo( cacheTimestamp ) > 0 )
+                    {
+                        return true;
+                    }
                 }
             }
         }
@@ -254,17 +258,19 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
             sp.setScope( SearchScope.OBJECT );
             sp.setReturningAttributes( new String[]
                 { SchemaConstants.SUBSCHEMA_SUBENTRY_AT } );
-            StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, sp, monitor );
-            while ( enumeration != null && enumeration.hasMore() )
+            try ( StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, sp, monitor ) )
             {
-                Entry entry = enumeration.next().getEntry();
-                if ( entry.containsAttribute( SchemaConstants.SUBSCHEMA_SUBENTRY_AT ) )
+                while ( enumeration != null && enumeration.hasMore() )
                 {
-                    String value = entry.get( SchemaConstants.SUBSCHEMA_SUBENTRY_AT ).getString();
-                    if ( Dn.isValid( value ) )
+                    Entry entry = enumeration.next().getEntry();
+                    if ( entry.containsAttribute( SchemaConstants.SUBSCHEMA_SUBENTRY_AT ) )
                     {
-                        Dn dn = new Dn( value );
-                        return dn;
+                        String value = entry.get( SchemaConstants.SUBSCHEMA_SUBENTRY_AT ).getString();
+                        if ( Dn.isValid( value ) )
+                        {
+                            Dn dn = new Dn( value );
+                            return dn;
+                        }
                     }
                 }
             }
@@ -23,11 +23,23 @@ package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.naming.directory.SearchControls;
 
@@ -48,9 +60,11 @@ import org.apache.directory.studio.connection.core.Connection.AliasDereferencing
 import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMethod;
 import org.apache.directory.studio.connection.core.StudioControl;
 import org.apache.directory.studio.connection.core.StudioPagedResultsControl;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
 import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
 import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunnableWithProgress;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
 import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
@@ -63,12 +77,14 @@ import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.BaseDNEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.CompactSearchResultTable;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.ContinuedSearchResultEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.Entry;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.SearchContinuation;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.Value;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
 import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
+import org.eclipse.core.runtime.IStatus;
 
 
 /**
@@ -84,6 +100,9 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
     /** The searches to perform. */
     protected ISearch[] searchesToPerform;
 
+    /** The searches whose search update event was already fired while running. */
+    private Set<ISearch> notifiedSearches = ConcurrentHashMap.newKeySet();
+
 
     /**
      * Creates a new instance of SearchRunnable.
@@ -163,113 +182,303 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
     {
         monitor.beginTask( " ", searches.length + 1 ); //$NON-NLS-1$
         monitor.reportProgress( " " ); //$NON-NLS-1$
+        notifiedSearches.clear();
+
+        Collection<List<Integer>> connectionGroups = getConnectionGroups();
+        int parallelism = Math.min( getParallelism(), connectionGroups.size() );
+
+        if ( parallelism > 1 )
+        {
+            runParallel( connectionGroups, parallelism, monitor );
+        }
+        else
+        {
+            for ( int pi = 0; pi < searches.length; pi++ )
+            {
+                monitor.setTaskName( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__search_task, new String[]
+                    { searches[pi].getName() } ) );
+                monitor.worked( 1 );
+
+                performSearch( searches[pi], searchesToPerform[pi], monitor );
+            }
+        }
+    }
+
+
+    /**
+     * Gets the number of connections to search in parallel, as configured in the preferences.
+     *
+     * @return the number of connections to search in parallel
+     */
+    private static int getParallelism()
+    {
+        if ( BrowserCorePlugin.getDefault() == null )
+        {
+            return 1;
+        }
+
+        return Math.max( 1, BrowserCorePlugin.getDefault().getPluginPreferences()
+            .getInt( BrowserCoreConstants.PREFERENCE_SEARCH_PARALLEL_CONNECTIONS ) );
+    }
+
+
+    /**
+     * Gets the number of search result entries after which further entries are kept in a
+     * {@link CompactSearchResultTable}, as configured in the preferences.
+     *
+     * @return the number of search result entries, 0 to disable compact search results
+     */
+    private static int getCompactSearchResultsThreshold()
+    {
+        if ( BrowserCorePlugin.getDefault() == null )
+        {
+            return 0;
+        }
+
+        return Math.max( 0, BrowserCorePlugin.getDefault().getPluginPreferences()
+            .getInt( BrowserCoreConstants.PREFERENCE_COMPACT_SEARCH_RESULTS_THRESHOLD ) );
+    }
+
+
+    /**
+     * Groups the indices of the searches by their browser connection, keeping the order
+     * of the searches.
+     *
+     * @return the groups of search indices
+     */
+    private Collection<List<Integer>> getConnectionGroups()
+    {
+        Map<IBrowserConnection, List<Integer>> groups = new LinkedHashMap<IBrowserConnection, List<Integer>>();
 
         for ( int pi = 0; pi < searches.length; pi++ )
         {
-            ISearch search = searches[pi];
-            ISearch searchToPerform = searchesToPerform[pi];
+            groups.computeIfAbsent( searches[pi].getBrowserConnection(), k -> new ArrayList<Integer>() ).add( pi );
+        }
+
+        return groups.values();
+    }
 
-            monitor.setTaskName( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__search_task, new String[]
-                { search.getName() } ) );
-            monitor.worked( 1 );
 
-            if ( search.getBrowserConnection() != null )
+    /**
+     * Performs the searches of different connections in parallel. The searches of the same
+     * connection are performed one after another as they update the same entries. The
+     * searches run with suspended event firing, the search update event is fired as soon
+     * as the searches of a connection are finished.
+     *
+     * @param connectionGroups the groups of search indices
+     * @param parallelism the number of connections to search in parallel
+     * @param monitor the progress monitor
+     */
+    private void runParallel( Collection<List<Integer>> connectionGroups, int parallelism,
+        StudioProgressMonitor monitor )
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( parallelism, runnable -> {
+            Thread thread = new Thread( runnable, "Directory Studio Search" ); //$NON-NLS-1$
+            thread.setDaemon( true );
+            return thread;
+        } );
+        CompletionService<List<Integer>> completionService = new ExecutorCompletionService<List<Integer>>( executor );
+        Map<List<Integer>, StudioProgressMonitor> groupMonitors = new HashMap<List<Integer>, StudioProgressMonitor>();
+
+        try
+        {
+            for ( List<Integer> group : connectionGroups )
             {
-                // reset search results
-                search.setSearchResults( new ISearchResult[0] );
-                search.getResponseControls().clear();
-                search.setNextPageSearchRunnable( null );
-                search.setTopPageSearchRunnable( null );
-                searchToPerform.setSearchResults( new ISearchResult[0] );
-                searchToPerform.setNextPageSearchRunnable( null );
-                searchToPerform.setTopPageSearchRunnable( null );
-                searchToPerform.getResponseControls().clear();
-
-                do
+                StudioProgressMonitor groupMonitor = new StudioProgressMonitor( monitor );
+                groupMonitors.put( group, groupMonitor );
+                completionService.submit( () -> performSearches( group, groupMonitor ), group );
+            }
+
+            int pending = connectionGroups.size();
+
+            while ( pending > 0 && !monitor.isCanceled() )
+            {
+                Future<List<Integer>> future = completionService.poll( 500, TimeUnit.MILLISECONDS );
+
+                if ( future == null )
                 {
-                    // perform search
-                    searchAndUpdateModel( searchToPerform.getBrowserConnection(), searchToPerform, monitor );
+                    continue;
+                }
 
-                    if ( search != searchToPerform )
-                    {
-                        // merge search results
-                        ISearchResult[] sr1 = search.getSearchResults();
-                        ISearchResult[] sr2 = searchToPerform.getSearchResults();
-                        ISearchResult[] sr = new ISearchResult[sr1.length + sr2.length];
-                        System.arraycopy( sr1, 0, sr, 0, sr1.length );
-                        System.arraycopy( sr2, 0, sr, sr1.length, sr2.length );
-                        search.setSearchResults( sr );
-                    }
-                    else
-                    {
-                        // set search results
-                        search.setSearchResults( searchToPerform.getSearchResults() );
-                    }
+                pending--;
+                List<Integer> group = future.get();
+                monitor.worked( group.size() );
 
-                    // check response controls
-                    ISearch clonedSearch = ( ISearch ) searchToPerform.clone();
-                    clonedSearch.getResponseControls().clear();
-                    PagedResults prResponseControl = null;
-                    PagedResults prRequestControl = null;
-                    for ( org.apache.directory.api.ldap.model.message.Control responseControl : searchToPerform
-                        .getResponseControls() )
+                if ( groupMonitors.get( group ).errorsReported() )
+                {
+                    for ( IStatus status : groupMonitors.get( group ).getErrorStatus( "" ).getChildren() ) //$NON-NLS-1$
                     {
-                        if ( responseControl instanceof PagedResults )
+                        if ( status.getException() instanceof Exception )
                         {
-                            prResponseControl = ( PagedResults ) responseControl;
+                            monitor.reportError( ( Exception ) status.getException() );
                         }
-                    }
-                    for ( Iterator<Control> it = clonedSearch.getControls().iterator(); it.hasNext(); )
-                    {
-                        Control requestControl = it.next();
-                        if ( requestControl instanceof PagedResults )
+                        else
                         {
-                            prRequestControl = ( PagedResults ) requestControl;
-                            it.remove();
+                            monitor.reportError( status.getMessage() );
                         }
                     }
-                    searchToPerform = null;
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            monitor.reportError( e );
+        }
+        catch ( ExecutionException e )
+        {
+            monitor.reportError( e.getCause() instanceof Exception ? ( Exception ) e.getCause() : e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Performs the searches of one connection and fires the search update events.
+     *
+     * @param group the search indices
+     * @param monitor the progress monitor of the connection
+     */
+    private void performSearches( List<Integer> group, StudioProgressMonitor monitor )
+    {
+        ConnectionEventRegistry.suspendEventFiringInCurrentThread();
 
-                    // paged search
-                    if ( prResponseControl != null && prRequestControl != null )
+        try
+        {
+            for ( int pi : group )
+            {
+                if ( monitor.isCanceled() )
+                {
+                    return;
+                }
+
+                performSearch( searches[pi], searchesToPerform[pi], monitor );
+            }
+        }
+        finally
+        {
+            ConnectionEventRegistry.resumeEventFiringInCurrentThread();
+        }
+
+        for ( int pi : group )
+        {
+            notifiedSearches.add( searches[pi] );
+            EventRegistry.fireSearchUpdated( new SearchUpdateEvent( searches[pi],
+                SearchUpdateEvent.EventDetail.SEARCH_PERFORMED ), this );
+        }
+    }
+
+
+    /**
+     * Performs the search, follows the paged results till the count limit is reached.
+     *
+     * @param search the search
+     * @param searchToPerform the search to perform
+     * @param monitor the progress monitor
+     */
+    private void performSearch( ISearch search, ISearch searchToPerform, StudioProgressMonitor monitor )
+    {
+        if ( search.getBrowserConnection() == null )
+        {
+            return;
+        }
+
+        // reset search results
+        search.setSearchResults( new ISearchResult[0] );
+        search.getResponseControls().clear();
+        search.setNextPageSearchRunnable( null );
+        search.setTopPageSearchRunnable( null );
+        searchToPerform.setSearchResults( new ISearchResult[0] );
+        searchToPerform.setNextPageSearchRunnable( null );
+        searchToPerform.setTopPageSearchRunnable( null );
+        searchToPerform.getResponseControls().clear();
+
+        do
+        {
+            // perform search
+            searchAndUpdateModel( searchToPerform.getBrowserConnection(), searchToPerform, monitor );
+
+            if ( search != searchToPerform )
+            {
+                // merge search results
+                ISearchResult[] sr1 = search.getSearchResults();
+                ISearchResult[] sr2 = searchToPerform.getSearchResults();
+                ISearchResult[] sr = new ISearchResult[sr1.length + sr2.length];
+                System.arraycopy( sr1, 0, sr, 0, sr1.length );
+                System.arraycopy( sr2, 0, sr, sr1.length, sr2.length );
+                search.setSearchResults( sr );
+            }
+            else
+            {
+                // set search results
+                search.setSearchResults( searchToPerform.getSearchResults() );
+            }
+
+            // check response controls
+            ISearch clonedSearch = ( ISearch ) searchToPerform.clone();
+            clonedSearch.getResponseControls().clear();
+            PagedResults prResponseControl = null;
+            PagedResults prRequestControl = null;
+            for ( org.apache.directory.api.ldap.model.message.Control responseControl : searchToPerform
+                .getResponseControls() )
+            {
+                if ( responseControl instanceof PagedResults )
+                {
+                    prResponseControl = ( PagedResults ) responseControl;
+                }
+            }
+            for ( Iterator<Control> it = clonedSearch.getControls().iterator(); it.hasNext(); )
+            {
+                Control requestControl = it.next();
+                if ( requestControl instanceof PagedResults )
+                {
+                    prRequestControl = ( PagedResults ) requestControl;
+                    it.remove();
+                }
+            }
+            searchToPerform = null;
+
+            // paged search
+            if ( prResponseControl != null && prRequestControl != null )
+            {
+                PagedResults nextPrc = Controls.newPagedResultsControl( prRequestControl.getSize(),
+                    prResponseControl.getCookie() );
+                ISearch nextPageSearch = ( ISearch ) clonedSearch.clone();
+                nextPageSearch.getResponseControls().clear();
+                nextPageSearch.getControls().add( nextPrc );
+                if ( search.isPagedSearchScrollMode() )
+                {
+                    if ( prRequestControl.getCookieValue() > 0 )
                     {
-                        PagedResults nextPrc = Controls.newPagedResultsControl( prRequestControl.getSize(),
-                            prResponseControl.getCookie() );
-                        ISearch nextPageSearch = ( ISearch ) clonedSearch.clone();
-                        nextPageSearch.getResponseControls().clear();
-                        nextPageSearch.getControls().add( nextPrc );
-                        if ( search.isPagedSearchScrollMode() )
-                        {
-                            if ( prRequestControl.getCookieValue() > 0 )
-                            {
-                                // create top page search runnable, same as original search
-                                ISearch topPageSearch = ( ISearch ) search.clone();
-                                topPageSearch.getResponseControls().clear();
-                                SearchRunnable topPageSearchRunnable = new SearchRunnable( search, topPageSearch );
-                                search.setTopPageSearchRunnable( topPageSearchRunnable );
-                            }
-                            if ( prResponseControl.getCookieValue() > 0 )
-                            {
-                                // create next page search runnable
-                                SearchRunnable nextPageSearchRunnable = new SearchRunnable( search, nextPageSearch );
-                                search.setNextPageSearchRunnable( nextPageSearchRunnable );
-                            }
-                        }
-                        else
-                        {
-                            // transparently continue search, till count limit is reached
-                            if ( prResponseControl.getCookieValue() > 0
-                                && ( search.getCountLimit() == 0 || search.getSearchResults().length < search
-                                    .getCountLimit() ) )
-                            {
-                                searchToPerform = nextPageSearch;
-                            }
-                        }
+                        // create top page search runnable, same as original search
+                        ISearch topPageSearch = ( ISearch ) search.clone();
+                        topPageSearch.getResponseControls().clear();
+                        SearchRunnable topPageSearchRunnable = new SearchRunnable( search, topPageSearch );
+                        search.setTopPageSearchRunnable( topPageSearchRunnable );
+                    }
+                    if ( prResponseControl.getCookieValue() > 0 )
+                    {
+                        // create next page search runnable
+                        SearchRunnable nextPageSearchRunnable = new SearchRunnable( search, nextPageSearch );
+                        search.setNextPageSearchRunnable( nextPageSearchRunnable );
+                    }
+                }
+                else
+                {
+                    // transparently continue search, till count limit is reached
+                    if ( prResponseControl.getCookieValue() > 0
+                        && ( search.getCountLimit() == 0 || search.getSearchResults().length < search
+                            .getCountLimit() ) )
+                    {
+                        searchToPerform = nextPageSearch;
                     }
                 }
-                while ( searchToPerform != null );
             }
         }
+        while ( searchToPerform != null );
     }
 
 
@@ -280,8 +489,11 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
     {
         for ( int pi = 0; pi < searches.length; pi++ )
         {
-            EventRegistry.fireSearchUpdated( new SearchUpdateEvent( searches[pi],
-                SearchUpdateEvent.EventDetail.SEARCH_PERFORMED ), this );
+            if ( !notifiedSearches.contains( searches[pi] ) )
+            {
+                EventRegistry.fireSearchUpdated( new SearchUpdateEvent( searches[pi],
+                    SearchUpdateEvent.EventDetail.SEARCH_PERFORMED ), this );
+            }
         }
     }
 
@@ -309,6 +521,8 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                 SearchParameter searchParameter = getSearchParameter( search );
                 ArrayList<ISearchResult> searchResultList = new ArrayList<ISearchResult>();
                 ArrayList<SearchContinuation> searchContinuationList = new ArrayList<SearchContinuation>();
+                int compactThreshold = getCompactSearchResultsThreshold();
+                CompactSearchResultTable compactTable = null;
 
                 StudioSearchResultEnumeration enumeration = null;
                 // search
@@ -336,6 +550,22 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                                 resultBrowserConnection = browserConnection;
                             }
 
+                            // keep the entries of large search results in a compact form, without updating the model
+                            if ( compactThreshold > 0 && searchResultList.size() >= compactThreshold
+                                && !isContinuedSearchResult && resultBrowserConnection == browserConnection )
+                            {
+                                if ( compactTable == null )
+                                {
+                                    compactTable = new CompactSearchResultTable( browserConnection );
+                                }
+
+                                searchResultList.add( compactTable.add( dn, sr.getEntry(), search ) );
+                                monitor.reportProgress( BrowserCoreMessages.bind(
+                                    BrowserCoreMessages.model__retrieved_n_entries, new String[]
+                                    { Integer.toString( searchResultList.size() ) } ) );
+                                continue;
+                            }
+
                             // get entry from cache or create it
                             entry = resultBrowserConnection.getEntryFromCache( dn );
                             if ( entry == null )
@@ -394,6 +624,10 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                         monitor.reportError( e );
                     }
                 }
+                finally
+                {
+                    StudioSearchResultEnumeration.closeQuietly( enumeration );
+                }
 
                 // check for response controls
                 try
@@ -416,6 +650,11 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                     monitor.reportError( e );
                 }
 
+                if ( compactTable != null )
+                {
+                    compactTable.trimToSize();
+                }
+
                 monitor.reportProgress( searchResultList.size() == 1 ? BrowserCoreMessages.model__retrieved_1_entry
                     : BrowserCoreMessages.bind( BrowserCoreMessages.model__retrieved_n_entries, new String[]
                     { Integer.toString( searchResultList.size() ) } ) );
@@ -649,12 +888,15 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                         entry = new BaseDNEntry( aDn, browserConnection );
                         browserConnection.getRootDSE().addChild( entry );
                         browserConnection.cacheEntry( entry );
-                        enumeration.close();
                     }
                 }
                 catch ( LdapException e )
                 {
                 }
+                finally
+                {
+                    StudioSearchResultEnumeration.closeQuietly( enumeration );
+                }
             }
         }
 
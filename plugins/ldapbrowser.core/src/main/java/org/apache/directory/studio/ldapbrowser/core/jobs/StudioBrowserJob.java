@@ -20,9 +20,17 @@
 package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionJob;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionRunnableWithProgress;
 import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 
 
 /**
@@ -61,4 +69,73 @@ public class StudioBrowserJob extends StudioConnectionJob
         EventRegistry.resumeEventFiringInCurrentThread();
         super.resumeEventFiringInCurrentThread();
     }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * The lock path of an entry is the connection followed by the RDNs from
+     * the root to the entry, so a lock on an entry covers its subtree. Searches
+     * and browser connections are locked below their connection.
+     */
+    protected Object[] getLockPath( Object object )
+    {
+        if ( object instanceof IEntry )
+        {
+            IEntry entry = ( IEntry ) object;
+            Object connectionIdentifier = getConnectionLockIdentifier( entry.getBrowserConnection() );
+            Dn dn = entry.getDn();
+
+            if ( connectionIdentifier != null && dn != null )
+            {
+                List<Rdn> rdns = dn.getRdns();
+                Object[] path = new Object[rdns.size() + 1];
+                path[0] = connectionIdentifier;
+
+                // the RDNs of a Dn are ordered from the entry to the root
+                for ( int i = 0; i < rdns.size(); i++ )
+                {
+                    path[rdns.size() - i] = rdns.get( i ).getNormName();
+                }
+
+                return path;
+            }
+        }
+        else if ( object instanceof ISearch )
+        {
+            Object connectionIdentifier = getConnectionLockIdentifier( ( ( ISearch ) object ).getBrowserConnection() );
+
+            if ( connectionIdentifier != null )
+            {
+                return new Object[]
+                    { connectionIdentifier, super.getLockPath( object )[0] };
+            }
+        }
+        else if ( object instanceof IBrowserConnection )
+        {
+            Object connectionIdentifier = getConnectionLockIdentifier( ( IBrowserConnection ) object );
+
+            if ( connectionIdentifier != null )
+            {
+                return new Object[]
+                    { connectionIdentifier };
+            }
+        }
+
+        return super.getLockPath( object );
+    }
+
+
+    /**
+     * Gets the lock identifier of the connection of the given browser connection.
+     *
+     * @param browserConnection the browser connection, may be null
+     * @return the lock identifier of the connection, null if there is no connection
+     */
+    private Object getConnectionLockIdentifier( IBrowserConnection browserConnection )
+    {
+        Connection connection = browserConnection != null ? browserConnection.getConnection() : null;
+
+        return connection != null ? super.getLockPath( connection )[0] : null;
+    }
 }
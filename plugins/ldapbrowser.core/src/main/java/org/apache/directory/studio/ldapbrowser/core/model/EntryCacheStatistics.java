@@ -0,0 +1,155 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model;
+
+
+/**
+ * A snapshot of the statistics of the entry cache of an {@link IBrowserConnection}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EntryCacheStatistics
+{
+    /** Statistics of a connection without entry cache. */
+    public static final EntryCacheStatistics EMPTY = new EntryCacheStatistics( 0, 0, 0, 0, 0, 0, 0 );
+
+    /** The number of cached entries. */
+    private final long entryCount;
+
+    /** The number of entries with cached attributes. */
+    private final long attributeInfoCount;
+
+    /** The number of entries with cached children. */
+    private final long childrenInfoCount;
+
+    /** The maximum number of entries with cached attributes or children. */
+    private final long maximumSize;
+
+    /** The number of entry lookups that found the entry in the cache. */
+    private final long hitCount;
+
+    /** The number of entry lookups that didn't find the entry in the cache. */
+    private final long missCount;
+
+    /** The number of evicted attributes and children. */
+    private final long evictionCount;
+
+
+    /**
+     * Creates a new instance of EntryCacheStatistics.
+     *
+     * @param entryCount the number of cached entries
+     * @param attributeInfoCount the number of entries with cached attributes
+     * @param childrenInfoCount the number of entries with cached children
+     * @param maximumSize the maximum number of entries with cached attributes or children
+     * @param hitCount the number of entry lookups that found the entry in the cache
+     * @param missCount the number of entry lookups that didn't find the entry in the cache
+     * @param evictionCount the number of evicted attributes and children
+     */
+    public EntryCacheStatistics( long entryCount, long attributeInfoCount, long childrenInfoCount,
+        long maximumSize, long hitCount, long missCount, long evictionCount )
+    {
+        this.entryCount = entryCount;
+        this.attributeInfoCount = attributeInfoCount;
+        this.childrenInfoCount = childrenInfoCount;
+        this.maximumSize = maximumSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+
+    /**
+     * Gets the number of cached entries.
+     *
+     * @return the number of cached entries
+     */
+    public long getEntryCount()
+    {
+        return entryCount;
+    }
+
+
+    /**
+     * Gets the number of entries with cached attributes.
+     *
+     * @return the number of entries with cached attributes
+     */
+    public long getAttributeInfoCount()
+    {
+        return attributeInfoCount;
+    }
+
+
+    /**
+     * Gets the number of entries with cached children.
+     *
+     * @return the number of entries with cached children
+     */
+    public long getChildrenInfoCount()
+    {
+        return childrenInfoCount;
+    }
+
+
+    /**
+     * Gets the maximum number of entries with cached attributes or children.
+     *
+     * @return the maximum number of entries with cached attributes or children
+     */
+    public long getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+
+    /**
+     * Gets the number of entry lookups that found the entry in the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+
+    /**
+     * Gets the number of entry lookups that didn't find the entry in the cache.
+     *
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+
+    /**
+     * Gets the number of evicted attributes and children.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount;
+    }
+}
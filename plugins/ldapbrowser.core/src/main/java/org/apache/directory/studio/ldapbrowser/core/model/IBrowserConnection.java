@@ -22,6 +22,7 @@ package org.apache.directory.studio.ldapbrowser.core.model;
 
 
 import java.io.Serializable;
+import java.util.Collection;
 
 import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.api.ldap.model.url.LdapUrl;
@@ -529,8 +530,51 @@ public interface IBrowserConnection extends Serializable, IAdaptable, Connection
     void uncacheEntryRecursive( IEntry entry );
 
 
+    /**
+     * Gets the searches of this connection that have a search result of the given entry.
+     * 
+     * @param entry the entry
+     * @return the searches that have a search result of the entry
+     */
+    Collection<ISearch> getSearchesWithResult( IEntry entry );
+
+
+    /**
+     * Removes the search results of the given entries from the searches of this connection.
+     * 
+     * @param entries the entries
+     * @return the searches whose search results were changed
+     */
+    Collection<ISearch> removeSearchResults( Collection<IEntry> entries );
+
+
+    /**
+     * Pins the given entry, its attributes and children are not evicted from the caches
+     * until it is unpinned. Pins are counted, each pin must be released by an unpin.
+     *
+     * @param entry the entry to pin
+     */
+    void pinEntry( IEntry entry );
+
+
+    /**
+     * Releases a pin of the given entry.
+     *
+     * @param entry the entry to unpin
+     */
+    void unpinEntry( IEntry entry );
+
+
     /**
      * Clears all caches.
      */
     void clearCaches();
+
+
+    /**
+     * Gets the statistics of the entry cache.
+     * 
+     * @return the statistics of the entry cache
+     */
+    EntryCacheStatistics getEntryCacheStatistics();
 }
\ No newline at end of file
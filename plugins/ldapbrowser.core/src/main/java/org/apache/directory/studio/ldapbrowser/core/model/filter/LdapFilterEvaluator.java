@@ -0,0 +1,776 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.filter;
+
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.name.Ava;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.parser.LdapFilterParser;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.parser.LdapFilterToken;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
+
+
+/**
+ * The LdapFilterEvaluator evaluates an LDAP filter against entries that are
+ * already available on the client side, e.g. the results of a search or cached
+ * entries, without a request to the directory server.
+ * <p>
+ * The filter is compiled once into a tree of nodes. The attribute types and
+ * matching rules are resolved and the assertion values are normalized at compile
+ * time, so evaluating an entry only needs to normalize its values. The matching
+ * rules are taken from the given schema, see {@link LdapFilterMatchingRule} for
+ * the supported ones. Attributes without or with an unsupported matching rule
+ * are compared case insensitive, approximate matches are evaluated as equality
+ * matches and ordering matches fall back to the equality matching rule if the
+ * attribute type has no ordering matching rule. The filter is evaluated with the
+ * three-valued logic of RFC 4511, an entry matches if the filter evaluates to TRUE.
+ * <p>
+ * Only the attributes that are present in the entry are considered, so an entry
+ * whose attributes are not (completely) loaded may not match.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapFilterEvaluator
+{
+
+    /** The result of the evaluation of a filter, see RFC 4511, section 4.5.1.7 */
+    private enum Result
+    {
+        TRUE, FALSE, UNDEFINED;
+    }
+
+    /** The schema */
+    private Schema schema;
+
+    /** The root node */
+    private Node root;
+
+
+    /**
+     * Creates a new instance of LdapFilterEvaluator.
+     *
+     * @param filter the valid filter
+     * @param schema the schema
+     */
+    private LdapFilterEvaluator( LdapFilter filter, Schema schema )
+    {
+        this.schema = schema;
+        this.root = compile( filter );
+    }
+
+
+    /**
+     * Compiles the given filter.
+     *
+     * @param filter the filter, e.g. <code>(&amp;(objectClass=person)(cn=a*))</code>
+     * @param schema the schema used to resolve attribute types and matching rules
+     *
+     * @return the compiled filter
+     *
+     * @throws IllegalArgumentException if the filter is not valid
+     */
+    public static LdapFilterEvaluator compile( String filter, Schema schema ) throws IllegalArgumentException
+    {
+        LdapFilterParser parser = new LdapFilterParser();
+        parser.parse( filter );
+        return compile( parser.getModel(), schema );
+    }
+
+
+    /**
+     * Compiles the given filter.
+     *
+     * @param filter the filter
+     * @param schema the schema used to resolve attribute types and matching rules
+     *
+     * @return the compiled filter
+     *
+     * @throws IllegalArgumentException if the filter is not valid
+     */
+    public static LdapFilterEvaluator compile( LdapFilter filter, Schema schema ) throws IllegalArgumentException
+    {
+        if ( filter == null || !filter.isValid() )
+        {
+            throw new IllegalArgumentException( filter != null ? filter.getInvalidCause() : null );
+        }
+
+        return new LdapFilterEvaluator( filter, schema );
+    }
+
+
+    /**
+     * Checks if the given entry matches the filter.
+     *
+     * @param entry the entry
+     *
+     * @return true, if the entry matches the filter
+     */
+    public boolean matches( IEntry entry )
+    {
+        return root.evaluate( entry ) == Result.TRUE;
+    }
+
+
+    /**
+     * Checks if the entry of the given search result matches the filter.
+     *
+     * @param searchResult the search result
+     *
+     * @return true, if the entry of the search result matches the filter
+     */
+    public boolean matches( ISearchResult searchResult )
+    {
+        return matches( searchResult.getEntry() );
+    }
+
+
+    /**
+     * Compiles a filter into a node.
+     *
+     * @param filter the filter
+     *
+     * @return the node
+     */
+    private Node compile( LdapFilter filter )
+    {
+        LdapFilterComponent component = filter.getFilterComponent();
+
+        if ( component instanceof LdapAndFilterComponent || component instanceof LdapOrFilterComponent
+            || component instanceof LdapNotFilterComponent )
+        {
+            LdapFilter[] filters = component.getFilters();
+            Node[] nodes = new Node[filters.length];
+            for ( int i = 0; i < filters.length; i++ )
+            {
+                nodes[i] = compile( filters[i] );
+            }
+
+            if ( component instanceof LdapAndFilterComponent )
+            {
+                return new AndNode( nodes );
+            }
+            else if ( component instanceof LdapOrFilterComponent )
+            {
+                return new OrNode( nodes );
+            }
+            else
+            {
+                return new NotNode( nodes[0] );
+            }
+        }
+        else if ( component instanceof LdapFilterItemComponent )
+        {
+            return compileItem( ( LdapFilterItemComponent ) component );
+        }
+        else
+        {
+            return compileExtensible( ( LdapFilterExtensibleComponent ) component );
+        }
+    }
+
+
+    /**
+     * Compiles a simple filter item.
+     *
+     * @param item the filter item
+     *
+     * @return the node
+     */
+    private Node compileItem( LdapFilterItemComponent item )
+    {
+        String attributeDescription = item.getAttributeToken().getValue();
+        AttributeType atd = getAttributeType( attributeDescription );
+        LdapFilterMatchingRule equality = getMatchingRule(
+            SchemaUtils.getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema ) );
+
+        switch ( item.getFilterToken().getType() )
+        {
+            case LdapFilterToken.PRESENT:
+                return new PresentNode( attributeDescription );
+
+            case LdapFilterToken.SUBSTRING:
+                LdapFilterMatchingRule substring = getMatchingRule(
+                    SchemaUtils.getSubstringMatchingRuleNameOrNumericOidTransitive( atd, schema ) );
+                return new SubstringNode( attributeDescription, substring, item.getValueToken().getValue() );
+
+            case LdapFilterToken.GREATER:
+            case LdapFilterToken.LESS:
+                String orderingOid = SchemaUtils.getOrderingMatchingRuleNameOrNumericOidTransitive( atd, schema );
+                LdapFilterMatchingRule ordering = orderingOid != null ? getMatchingRule( orderingOid )
+                    : equality;
+                return new AssertionNode( attributeDescription, ordering, decode( item.getValueToken().getValue() ),
+                    item.getFilterToken().getType() );
+
+            case LdapFilterToken.EQUAL:
+            case LdapFilterToken.APROX:
+            default:
+                return new AssertionNode( attributeDescription, equality, decode( item.getValueToken().getValue() ),
+                    LdapFilterToken.EQUAL );
+        }
+    }
+
+
+    /**
+     * Compiles an extensible filter item.
+     *
+     * @param item the extensible filter item
+     *
+     * @return the node
+     */
+    private Node compileExtensible( LdapFilterExtensibleComponent item )
+    {
+        String attributeDescription = item.getAttributeToken() != null ? item.getAttributeToken().getValue() : null;
+        String matchingRule = item.getMatchingRuleToken() != null ? item.getMatchingRuleToken().getValue() : null;
+
+        LdapFilterMatchingRule rule;
+        if ( matchingRule != null )
+        {
+            rule = LdapFilterMatchingRule.get( matchingRule, schema );
+        }
+        else
+        {
+            AttributeType atd = getAttributeType( attributeDescription );
+            rule = getMatchingRule( SchemaUtils.getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema ) );
+        }
+
+        return new ExtensibleNode( attributeDescription, rule, decode( item.getValueToken().getValue() ),
+            item.getDnAttrToken() != null );
+    }
+
+
+    /**
+     * Gets the attribute type of the given attribute description.
+     *
+     * @param attributeDescription the attribute description, may contain options
+     *
+     * @return the attribute type
+     */
+    private AttributeType getAttributeType( String attributeDescription )
+    {
+        return schema.getAttributeTypeDescription( new AttributeDescription( attributeDescription )
+            .getParsedAttributeType() );
+    }
+
+
+    /**
+     * Gets the matching rule of the given name or OID. If the attribute type has no
+     * or an unsupported matching rule, values are compared case insensitive.
+     *
+     * @param nameOrOid the name or OID of the matching rule, may be null
+     *
+     * @return the matching rule
+     */
+    private LdapFilterMatchingRule getMatchingRule( String nameOrOid )
+    {
+        LdapFilterMatchingRule rule = LdapFilterMatchingRule.get( nameOrOid, schema );
+        return rule != null ? rule : LdapFilterMatchingRule.CASE_IGNORE;
+    }
+
+
+    /**
+     * Decodes an assertion value, hex pairs escaped with a backslash are replaced
+     * by the corresponding octets.
+     *
+     * @param value the escaped value, see RFC 4515
+     *
+     * @return the octets of the value
+     */
+    private static byte[] decode( String value )
+    {
+        byte[] bytes = Strings.getBytesUtf8( value );
+        ByteArrayOutputStream out = new ByteArrayOutputStream( bytes.length );
+
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            if ( bytes[i] == '\\' && i + 2 < bytes.length && Character.digit( bytes[i + 1], 16 ) >= 0
+                && Character.digit( bytes[i + 2], 16 ) >= 0 )
+            {
+                out.write( ( Character.digit( bytes[i + 1], 16 ) << 4 ) | Character.digit( bytes[i + 2], 16 ) );
+                i += 2;
+            }
+            else if ( bytes[i] == '\\' && i + 1 < bytes.length )
+            {
+                // LDAPv2 style escaping of a single character
+                out.write( bytes[i + 1] );
+                i++;
+            }
+            else
+            {
+                out.write( bytes[i] );
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Normalizes the value of an attribute.
+     *
+     * @param value the value
+     * @param rule the matching rule
+     *
+     * @return the normalized value, or null if the value is invalid for the matching rule
+     */
+    private Comparable<?> normalize( IValue value, LdapFilterMatchingRule rule )
+    {
+        if ( rule.isBinary() )
+        {
+            return rule.normalize( value.getBinaryValue() );
+        }
+        else if ( value.getRawValue() instanceof String )
+        {
+            return rule.normalize( ( String ) value.getRawValue(), schema );
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Normalizes an assertion value.
+     *
+     * @param value the octets of the value
+     * @param rule the matching rule
+     *
+     * @return the normalized value, or null if the value is invalid for the matching rule
+     */
+    private Comparable<?> normalize( byte[] value, LdapFilterMatchingRule rule )
+    {
+        if ( rule.isBinary() )
+        {
+            return rule.normalize( value );
+        }
+        else
+        {
+            return rule.normalize( Strings.utf8ToString( value ), schema );
+        }
+    }
+
+
+    /**
+     * Compares two normalized values.
+     *
+     * @param value the normalized value of the attribute
+     * @param assertion the normalized assertion value
+     *
+     * @return the comparison result
+     */
+    @SuppressWarnings(
+        { "unchecked", "rawtypes" })
+    private static int compare( Comparable value, Comparable assertion )
+    {
+        return value.compareTo( assertion );
+    }
+
+
+    /**
+     * Gets the non-empty values of the given attribute and its subtypes.
+     *
+     * @param entry the entry
+     * @param attributeDescription the attribute description
+     *
+     * @return the values, an empty list if the entry has no such attribute
+     */
+    private static List<IValue> getValues( IEntry entry, String attributeDescription )
+    {
+        List<IValue> valueList = new ArrayList<IValue>();
+
+        IAttribute[] attributes;
+        if ( attributeDescription != null )
+        {
+            AttributeHierarchy ah = entry.getAttributeWithSubtypes( attributeDescription );
+            attributes = ah != null ? ah.getAttributes() : new IAttribute[0];
+        }
+        else
+        {
+            attributes = entry.getAttributes();
+        }
+
+        if ( attributes != null )
+        {
+            for ( IAttribute attribute : attributes )
+            {
+                for ( IValue value : attribute.getValues() )
+                {
+                    if ( !value.isEmpty() )
+                    {
+                        valueList.add( value );
+                    }
+                }
+            }
+        }
+
+        return valueList;
+    }
+
+    /**
+     * A node of the compiled filter.
+     */
+    private abstract class Node
+    {
+        /**
+         * Evaluates this node against the given entry.
+         *
+         * @param entry the entry
+         *
+         * @return the result
+         */
+        abstract Result evaluate( IEntry entry );
+    }
+
+    /**
+     * The node of an AND filter, FALSE if any subfilter is FALSE, otherwise
+     * UNDEFINED if any subfilter is UNDEFINED.
+     */
+    private class AndNode extends Node
+    {
+        private Node[] nodes;
+
+
+        AndNode( Node[] nodes )
+        {
+            this.nodes = nodes;
+        }
+
+
+        Result evaluate( IEntry entry )
+        {
+            Result result = Result.TRUE;
+            for ( Node node : nodes )
+            {
+                Result r = node.evaluate( entry );
+                if ( r == Result.FALSE )
+                {
+                    return Result.FALSE;
+                }
+                else if ( r == Result.UNDEFINED )
+                {
+                    result = Result.UNDEFINED;
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * The node of an OR filter, TRUE if any subfilter is TRUE, otherwise
+     * UNDEFINED if any subfilter is UNDEFINED.
+     */
+    private class OrNode extends Node
+    {
+        private Node[] nodes;
+
+
+        OrNode( Node[] nodes )
+        {
+            this.nodes = nodes;
+        }
+
+
+        Result evaluate( IEntry entry )
+        {
+            Result result = Result.FALSE;
+            for ( Node node : nodes )
+            {
+                Result r = node.evaluate( entry );
+                if ( r == Result.TRUE )
+                {
+                    return Result.TRUE;
+                }
+                else if ( r == Result.UNDEFINED )
+                {
+                    result = Result.UNDEFINED;
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * The node of a NOT filter, UNDEFINED remains UNDEFINED.
+     */
+    private class NotNode extends Node
+    {
+        private Node node;
+
+
+        NotNode( Node node )
+        {
+            this.node = node;
+        }
+
+
+        Result evaluate( IEntry entry )
+        {
+            switch ( node.evaluate( entry ) )
+            {
+                case TRUE:
+                    return Result.FALSE;
+                case FALSE:
+                    return Result.TRUE;
+                default:
+                    return Result.UNDEFINED;
+            }
+        }
+    }
+
+    /**
+     * The node of a presence filter.
+     */
+    private class PresentNode extends Node
+    {
+        private String attributeDescription;
+
+
+        PresentNode( String attributeDescription )
+        {
+            this.attributeDescription = attributeDescription;
+        }
+
+
+        Result evaluate( IEntry entry )
+        {
+            return getValues( entry, attributeDescription ).isEmpty() ? Result.FALSE : Result.TRUE;
+        }
+    }
+
+    /**
+     * The node of an equality, approximate, greater-or-equal or less-or-equal filter.
+     */
+    private class AssertionNode extends Node
+    {
+        private String attributeDescription;
+
+        private LdapFilterMatchingRule rule;
+
+        /** The normalized assertion value, null if invalid */
+        private Comparable<?> assertion;
+
+        /** The filter type, EQUAL, GREATER or LESS */
+        private int type;
+
+
+        AssertionNode( String attributeDescription, LdapFilterMatchingRule rule, byte[] assertion, int type )
+        {
+            this.attributeDescription = attributeDescription;
+            this.rule = rule;
+            this.assertion = normalize( assertion, rule );
+            this.type = type;
+        }
+
+
+        Result evaluate( IEntry entry )
+        {
+            if ( assertion == null )
+            {
+                return Result.UNDEFINED;
+            }
+
+            Result result = Result.FALSE;
+            for ( IValue value : getValues( entry, attributeDescription ) )
+            {
+                Comparable<?> normalized = normalize( value, rule );
+                if ( normalized == null || normalized.getClass() != assertion.getClass() )
+                {
+                    result = Result.UNDEFINED;
+                    continue;
+                }
+
+                int c = compare( normalized, assertion );
+                if ( ( type == LdapFilterToken.EQUAL && c == 0 ) || ( type == LdapFilterToken.GREATER && c >= 0 )
+                    || ( type == LdapFilterToken.LESS && c <= 0 ) )
+                {
+                    return Result.TRUE;
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * The node of a substring filter.
+     */
+    private class SubstringNode extends Node
+    {
+        private String attributeDescription;
+
+        private LdapFilterMatchingRule rule;
+
+        /** The normalized initial component, may be empty */
+        private String initial;
+
+        /** The normalized any components */
+        private String[] any;
+
+        /** The normalized final component, may be empty */
+        private String fin;
+
+
+        SubstringNode( String attributeDescription, LdapFilterMatchingRule rule, String value )
+        {
+            this.attributeDescription = attributeDescription;
+
+            // the matching rule of string attributes, octet strings are compared as strings too
+            this.rule = rule.isBinary() ? LdapFilterMatchingRule.CASE_EXACT : rule;
+
+            // escaped asterisks are hex pairs, so each asterisk separates two components
+            String[] components = value.split( "\\*", -1 ); //$NON-NLS-1$
+            this.initial = normalize( components[0] );
+            this.any = new String[components.length - 2];
+            for ( int i = 0; i < any.length; i++ )
+            {
+                any[i] = normalize( components[i + 1] );
+            }
+            this.fin = normalize( components[components.length - 1] );
+        }
+
+
+        private String normalize( String component )
+        {
+            return rule.normalizeSubstring( Strings.utf8ToString( decode( component ) ) );
+        }
+
+
+        Result evaluate( IEntry entry )
+        {
+            for ( IValue value : getValues( entry, attributeDescription ) )
+            {
+                if ( value.getRawValue() instanceof String
+                    && matches( rule.normalizeSubstring( ( String ) value.getRawValue() ) ) )
+                {
+                    return Result.TRUE;
+                }
+            }
+
+            return Result.FALSE;
+        }
+
+
+        private boolean matches( String value )
+        {
+            if ( !value.startsWith( initial ) )
+            {
+                return false;
+            }
+
+            int pos = initial.length();
+            for ( String component : any )
+            {
+                int index = value.indexOf( component, pos );
+                if ( index < 0 )
+                {
+                    return false;
+                }
+                pos = index + component.length();
+            }
+
+            return value.length() - fin.length() >= pos && value.endsWith( fin );
+        }
+    }
+
+    /**
+     * The node of an extensible filter. If the attribute is missing all attributes
+     * of the entry are matched, if the dnAttributes flag is set the AVAs of the
+     * entry's DN are matched too.
+     */
+    private class ExtensibleNode extends Node
+    {
+        private String attributeDescription;
+
+        private LdapFilterMatchingRule rule;
+
+        private Comparable<?> assertion;
+
+        private boolean dnAttributes;
+
+
+        ExtensibleNode( String attributeDescription, LdapFilterMatchingRule rule, byte[] assertion,
+            boolean dnAttributes )
+        {
+            this.attributeDescription = attributeDescription;
+            this.rule = rule;
+            this.assertion = rule != null ? normalize( assertion, rule ) : null;
+            this.dnAttributes = dnAttributes;
+        }
+
+
+        Result evaluate( IEntry entry )
+        {
+            if ( assertion == null )
+            {
+                return Result.UNDEFINED;
+            }
+
+            for ( IValue value : getValues( entry, attributeDescription ) )
+            {
+                if ( matches( normalize( value, rule ) ) )
+                {
+                    return Result.TRUE;
+                }
+            }
+
+            if ( dnAttributes && !rule.isBinary() )
+            {
+                String type = attributeDescription != null ? new AttributeDescription( attributeDescription )
+                    .getParsedAttributeType() : null;
+                for ( Rdn rdn : entry.getDn() )
+                {
+                    for ( Ava ava : rdn )
+                    {
+                        if ( ( type == null || type.equalsIgnoreCase( ava.getType() ) )
+                            && matches( rule.normalize( ava.getValue().getString(), schema ) ) )
+                        {
+                            return Result.TRUE;
+                        }
+                    }
+                }
+            }
+
+            return Result.FALSE;
+        }
+
+
+        private boolean matches( Comparable<?> value )
+        {
+            return value != null && value.getClass() == assertion.getClass() && compare( value, assertion ) == 0;
+        }
+    }
+
+}
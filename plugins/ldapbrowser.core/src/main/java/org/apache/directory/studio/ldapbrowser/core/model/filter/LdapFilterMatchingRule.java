@@ -0,0 +1,387 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.filter;
+
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Ava;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.ldap.model.schema.MatchingRule;
+import org.apache.directory.api.util.GeneralizedTime;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+
+
+/**
+ * The matching rules supported by the {@link LdapFilterEvaluator}. Each of them
+ * normalizes values to a comparable form, so that values can be checked for
+ * equality and ordered.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+enum LdapFilterMatchingRule
+{
+    /** Case insensitive string matching, e.g. caseIgnoreMatch */
+    CASE_IGNORE,
+
+    /** Case sensitive string matching, e.g. caseExactMatch */
+    CASE_EXACT,
+
+    /** Numeric string matching, spaces are insignificant */
+    NUMERIC_STRING,
+
+    /** Telephone number matching, spaces and hyphens are insignificant */
+    TELEPHONE_NUMBER,
+
+    /** Integer matching */
+    INTEGER,
+
+    /** Distinguished name matching */
+    DISTINGUISHED_NAME,
+
+    /** Generalized time matching */
+    GENERALIZED_TIME,
+
+    /** Octet string matching of the binary values */
+    OCTET_STRING,
+
+    /** Object identifier matching, names are resolved to their numeric OID */
+    OBJECT_IDENTIFIER;
+
+    /** The matching rules by their lower-cased names and numeric OIDs */
+    private static final Map<String, LdapFilterMatchingRule> RULES = new HashMap<String, LdapFilterMatchingRule>();
+
+    static
+    {
+        put( CASE_IGNORE, SchemaConstants.CASE_IGNORE_MATCH_MR, SchemaConstants.CASE_IGNORE_MATCH_MR_OID );
+        put( CASE_IGNORE, SchemaConstants.CASE_IGNORE_ORDERING_MATCH_MR,
+            SchemaConstants.CASE_IGNORE_ORDERING_MATCH_MR_OID );
+        put( CASE_IGNORE, SchemaConstants.CASE_IGNORE_SUBSTRING_MATCH_MR,
+            SchemaConstants.CASE_IGNORE_SUBSTRING_MATCH_MR_OID );
+        put( CASE_IGNORE, SchemaConstants.CASE_IGNORE_IA5_MATCH_MR, SchemaConstants.CASE_IGNORE_IA5_MATCH_MR_OID );
+        put( CASE_IGNORE, SchemaConstants.CASE_IGNORE_IA5_SUBSTRINGS_MATCH_MR,
+            SchemaConstants.CASE_IGNORE_IA5_SUBSTRINGS_MATCH_MR_OID );
+        put( CASE_IGNORE, SchemaConstants.CASE_IGNORE_LIST_MATCH_MR, SchemaConstants.CASE_IGNORE_LIST_MATCH_MR_OID );
+        put( CASE_IGNORE, SchemaConstants.CASE_IGNORE_LIST_SUBSTRINGS_MATCH_MR,
+            SchemaConstants.CASE_IGNORE_LIST_SUBSTRINGS_MATCH_MR_OID );
+        put( CASE_IGNORE, SchemaConstants.BOOLEAN_MATCH_MR, SchemaConstants.BOOLEAN_MATCH_MR_OID );
+        put( CASE_EXACT, SchemaConstants.CASE_EXACT_MATCH_MR, SchemaConstants.CASE_EXACT_MATCH_MR_OID );
+        put( CASE_EXACT, SchemaConstants.CASE_EXACT_ORDERING_MATCH_MR,
+            SchemaConstants.CASE_EXACT_ORDERING_MATCH_MR_OID );
+        put( CASE_EXACT, SchemaConstants.CASE_EXACT_SUBSTRING_MATCH_MR,
+            SchemaConstants.CASE_EXACT_SUBSTRING_MATCH_MR_OID );
+        put( CASE_EXACT, SchemaConstants.CASE_EXACT_IA5_MATCH_MR, SchemaConstants.CASE_EXACT_IA5_MATCH_MR_OID );
+        put( NUMERIC_STRING, SchemaConstants.NUMERIC_STRING_MATCH_MR, SchemaConstants.NUMERIC_STRING_MATCH_MR_OID );
+        put( NUMERIC_STRING, SchemaConstants.NUMERIC_STRING_ORDERING_MATCH_MR,
+            SchemaConstants.NUMERIC_STRING_ORDERING_MATCH_MR_OID );
+        put( NUMERIC_STRING, SchemaConstants.NUMERIC_STRING_SUBSTRINGS_MATCH_MR,
+            SchemaConstants.NUMERIC_STRING_SUBSTRINGS_MATCH_MR_OID );
+        put( TELEPHONE_NUMBER, SchemaConstants.TELEPHONE_NUMBER_MATCH_MR,
+            SchemaConstants.TELEPHONE_NUMBER_MATCH_MR_OID );
+        put( TELEPHONE_NUMBER, SchemaConstants.TELEPHONE_NUMBER_SUBSTRINGS_MATCH_MR,
+            SchemaConstants.TELEPHONE_NUMBER_SUBSTRINGS_MATCH_MR_OID );
+        put( INTEGER, SchemaConstants.INTEGER_MATCH_MR, SchemaConstants.INTEGER_MATCH_MR_OID );
+        put( INTEGER, SchemaConstants.INTEGER_ORDERING_MATCH_MR, SchemaConstants.INTEGER_ORDERING_MATCH_MR_OID );
+        put( DISTINGUISHED_NAME, SchemaConstants.DISTINGUISHED_NAME_MATCH_MR,
+            SchemaConstants.DISTINGUISHED_NAME_MATCH_MR_OID );
+        put( GENERALIZED_TIME, SchemaConstants.GENERALIZED_TIME_MATCH_MR,
+            SchemaConstants.GENERALIZED_TIME_MATCH_MR_OID );
+        put( GENERALIZED_TIME, SchemaConstants.GENERALIZED_TIME_ORDERING_MATCH_MR,
+            SchemaConstants.GENERALIZED_TIME_ORDERING_MATCH_MR_OID );
+        put( OCTET_STRING, SchemaConstants.OCTET_STRING_MATCH_MR, SchemaConstants.OCTET_STRING_MATCH_MR_OID );
+        put( OCTET_STRING, SchemaConstants.OCTET_STRING_ORDERING_MATCH_MR,
+            SchemaConstants.OCTET_STRING_ORDERING_MATCH_MR_OID );
+        put( OCTET_STRING, SchemaConstants.OCTET_STRING_SUBSTRINGS_MATCH_MR,
+            SchemaConstants.OCTET_STRING_SUBSTRINGS_MATCH_MR_OID );
+        put( OBJECT_IDENTIFIER, SchemaConstants.OBJECT_IDENTIFIER_MATCH_MR, "2.5.13.0" ); //$NON-NLS-1$
+    }
+
+
+    /**
+     * Registers a matching rule.
+     *
+     * @param rule the matching rule
+     * @param name the name of the matching rule
+     * @param oid the numeric OID of the matching rule
+     */
+    private static void put( LdapFilterMatchingRule rule, String name, String oid )
+    {
+        RULES.put( name.toLowerCase( Locale.ROOT ), rule );
+        RULES.put( oid, rule );
+    }
+
+
+    /**
+     * Gets the matching rule of the given name or OID.
+     *
+     * @param nameOrOid the name or numeric OID of the matching rule
+     * @param schema the schema
+     *
+     * @return the matching rule, or null if the matching rule is not supported
+     */
+    static LdapFilterMatchingRule get( String nameOrOid, Schema schema )
+    {
+        if ( nameOrOid == null )
+        {
+            return null;
+        }
+
+        LdapFilterMatchingRule rule = RULES.get( nameOrOid.toLowerCase( Locale.ROOT ) );
+        if ( rule != null )
+        {
+            return rule;
+        }
+
+        // the schema may define other names for a known matching rule
+        MatchingRule mrd = schema.getMatchingRuleDescription( nameOrOid );
+        rule = RULES.get( mrd.getOid() );
+        if ( rule == null && mrd.getNames() != null )
+        {
+            for ( String name : mrd.getNames() )
+            {
+                rule = RULES.get( name.toLowerCase( Locale.ROOT ) );
+                if ( rule != null )
+                {
+                    break;
+                }
+            }
+        }
+
+        return rule;
+    }
+
+
+    /**
+     * Checks if this matching rule compares the binary values.
+     *
+     * @return true, if this matching rule compares the binary values
+     */
+    boolean isBinary()
+    {
+        return this == OCTET_STRING;
+    }
+
+
+    /**
+     * Normalizes a string value.
+     *
+     * @param value the value
+     * @param schema the schema used to resolve object identifiers
+     *
+     * @return the normalized value, or null if the value is invalid for this matching rule
+     */
+    Comparable<?> normalize( String value, Schema schema )
+    {
+        switch ( this )
+        {
+            case CASE_EXACT:
+                return collapseSpaces( value ).trim();
+
+            case NUMERIC_STRING:
+            case TELEPHONE_NUMBER:
+                return normalizeSubstring( value );
+
+            case INTEGER:
+                try
+                {
+                    return new BigInteger( value.trim() );
+                }
+                catch ( NumberFormatException e )
+                {
+                    return null;
+                }
+
+            case DISTINGUISHED_NAME:
+                return normalizeDn( value );
+
+            case GENERALIZED_TIME:
+                try
+                {
+                    return new GeneralizedTime( value.trim() ).getTime();
+                }
+                catch ( ParseException e )
+                {
+                    return null;
+                }
+
+            case OCTET_STRING:
+                return normalize( value.getBytes( StandardCharsets.UTF_8 ) );
+
+            case OBJECT_IDENTIFIER:
+                String oid = value.trim();
+                if ( schema.hasObjectClassDescription( oid ) )
+                {
+                    return schema.getObjectClassDescription( oid ).getOid();
+                }
+                else if ( schema.hasAttributeTypeDescription( oid ) )
+                {
+                    return schema.getAttributeTypeDescription( oid ).getOid();
+                }
+                else
+                {
+                    return oid.toLowerCase( Locale.ROOT );
+                }
+
+            case CASE_IGNORE:
+            default:
+                return collapseSpaces( value ).trim().toLowerCase( Locale.ROOT );
+        }
+    }
+
+
+    /**
+     * Normalizes a binary value, only used by the octet string matching rule.
+     *
+     * @param value the value
+     *
+     * @return the normalized value, a hex string that orders like the unsigned bytes
+     */
+    Comparable<?> normalize( byte[] value )
+    {
+        char[] hex = new char[value.length * 2];
+        for ( int i = 0; i < value.length; i++ )
+        {
+            hex[i * 2] = Character.forDigit( ( value[i] >> 4 ) & 0x0F, 16 );
+            hex[i * 2 + 1] = Character.forDigit( value[i] & 0x0F, 16 );
+        }
+
+        return new String( hex );
+    }
+
+
+    /**
+     * Normalizes a component of a substring assertion or a value that is matched
+     * against a substring assertion. Other than {@link #normalize(String, Schema)}
+     * leading and trailing spaces are kept, as they are significant within a
+     * substring.
+     *
+     * @param value the value
+     *
+     * @return the normalized value
+     */
+    String normalizeSubstring( String value )
+    {
+        switch ( this )
+        {
+            case CASE_EXACT:
+                return collapseSpaces( value );
+
+            case NUMERIC_STRING:
+                return value.replace( " ", "" ); //$NON-NLS-1$ //$NON-NLS-2$
+
+            case TELEPHONE_NUMBER:
+                return value.replace( " ", "" ).replace( "-", "" ).toLowerCase( Locale.ROOT ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+            default:
+                return collapseSpaces( value ).toLowerCase( Locale.ROOT );
+        }
+    }
+
+
+    /**
+     * Replaces each sequence of white spaces by a single space.
+     *
+     * @param value the value
+     *
+     * @return the value with collapsed white spaces
+     */
+    private static String collapseSpaces( String value )
+    {
+        StringBuilder sb = new StringBuilder( value.length() );
+        boolean space = false;
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( Character.isWhitespace( c ) )
+            {
+                if ( !space )
+                {
+                    sb.append( ' ' );
+                }
+                space = true;
+            }
+            else
+            {
+                sb.append( c );
+                space = false;
+            }
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Normalizes a distinguished name. Attribute types and values are compared
+     * case insensitive, the order of the AVAs of a multi-valued RDN is not significant.
+     *
+     * @param value the DN
+     *
+     * @return the normalized DN, or null if the value is not a valid DN
+     */
+    private static String normalizeDn( String value )
+    {
+        try
+        {
+            StringBuilder sb = new StringBuilder();
+            for ( Rdn rdn : new Dn( value ) )
+            {
+                List<String> avas = new ArrayList<String>();
+                for ( Ava ava : rdn )
+                {
+                    avas.add( ava.getType().toLowerCase( Locale.ROOT ) + '='
+                        + CASE_IGNORE.normalize( ava.getValue().getString(), null ) );
+                }
+                Collections.sort( avas );
+
+                if ( sb.length() > 0 )
+                {
+                    sb.append( ',' );
+                }
+                for ( int i = 0; i < avas.size(); i++ )
+                {
+                    if ( i > 0 )
+                    {
+                        sb.append( '+' );
+                    }
+                    sb.append( avas.get( i ) );
+                }
+            }
+
+            return sb.toString();
+        }
+        catch ( LdapInvalidDnException e )
+        {
+            return null;
+        }
+    }
+}
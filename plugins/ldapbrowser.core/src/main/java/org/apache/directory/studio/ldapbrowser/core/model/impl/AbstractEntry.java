@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.name.Rdn;
@@ -411,16 +412,17 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
         if ( ai == null && b )
         {
             ai = new AttributeInfo();
-            getBrowserConnectionImpl().setAttributeInfo( this, ai );
         }
 
-        if ( ai != null )
+        if ( ai != null && b )
         {
-            ai.attributesInitialized = b;
+            // put the info again, it is complete now and may be evicted
+            ai.attributesInitialized = true;
+            getBrowserConnectionImpl().setAttributeInfo( this, ai );
         }
-
-        if ( ai != null && !b )
+        else if ( ai != null )
         {
+            ai.attributesInitialized = false;
             ai.attributeMap.clear();
             getBrowserConnectionImpl().setAttributeInfo( this, null );
         }
@@ -623,16 +625,17 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
         if ( ci == null && b )
         {
             ci = new ChildrenInfo();
-            getBrowserConnectionImpl().setChildrenInfo( this, ci );
         }
 
-        if ( ci != null )
+        if ( ci != null && b )
         {
-            ci.childrenInitialized = b;
+            // put the info again, it is complete now and may be evicted
+            ci.childrenInitialized = true;
+            getBrowserConnectionImpl().setChildrenInfo( this, ci );
         }
-
-        if ( ci != null && !b )
+        else if ( ci != null )
         {
+            ci.childrenInitialized = false;
             if ( ci.childrenSet != null )
             {
                 ci.childrenSet.clear();
@@ -659,30 +662,24 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
      */
     public IEntry[] getChildren()
     {
-        int count = getChildrenCount();
-        if ( count < 0 )
+        if ( isSubentry() )
         {
-            return null;
+            return new IEntry[0];
         }
-        else if ( count == 0 )
+
+        // the children info may be evicted at any time, use the same instance throughout
+        ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
+        if ( ci == null )
         {
-            return new IEntry[0];
+            return null;
         }
-        else
+
+        Set<IEntry> childrenSet = ci.childrenSet;
+        if ( childrenSet == null )
         {
-            IEntry[] children = new IEntry[count];
-            ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
-            int i = 0;
-            if ( ci.childrenSet != null )
-            {
-                for ( IEntry child : ci.childrenSet )
-                {
-                    children[i] = child;
-                    i++;
-                }
-            }
-            return children;
+            return new IEntry[0];
         }
+        return childrenSet.toArray( new IEntry[0] );
     }
 
 
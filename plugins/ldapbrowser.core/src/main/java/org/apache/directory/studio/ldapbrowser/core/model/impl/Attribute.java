@@ -43,6 +43,7 @@ import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.AttributeTypeDescriptor;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
 import org.eclipse.search.ui.ISearchPageScoreComputer;
 
@@ -178,7 +179,18 @@ public class Attribute implements IAttribute
      */
     public boolean isBinary()
     {
-        return SchemaUtils.isBinary( getAttributeTypeDescription(), getEntry().getBrowserConnection().getSchema() );
+        return getAttributeTypeDescriptor().isBinary();
+    }
+
+
+    /**
+     * Gets the shared descriptor of the attribute type of this attribute.
+     *
+     * @return the attribute type descriptor
+     */
+    private AttributeTypeDescriptor getAttributeTypeDescriptor()
+    {
+        return SchemaUtils.getAttributeTypeDescriptor( getType(), getEntry().getBrowserConnection().getSchema() );
     }
 
 
@@ -22,8 +22,12 @@ package org.apache.directory.studio.ldapbrowser.core.model.impl;
 
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.name.Dn;
@@ -33,8 +37,11 @@ import org.apache.directory.studio.connection.core.Connection.AliasDereferencing
 import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMethod;
 import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.BookmarkManager;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
 import org.apache.directory.studio.ldapbrowser.core.SearchManager;
 import org.apache.directory.studio.ldapbrowser.core.internal.search.LdapSearchPageScoreComputer;
+import org.apache.directory.studio.ldapbrowser.core.model.EntryCacheStatistics;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.IRootDSE;
@@ -43,9 +50,27 @@ import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
 import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
 import org.eclipse.search.ui.ISearchPageScoreComputer;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 
 /**
  * The default implementation of {@link IBrowserConnection}.
+ * <p>
+ * The entries are cached by their normalized Dn using weak references, an entry
+ * stays cached as long as it is referenced by its parent, a search result or a view.
+ * The attributes and children of the entries are cached in bounded caches, if the
+ * configured maximum size is exceeded the least recently and frequently used
+ * attributes and children are evicted and must be fetched again.
+ * <p>
+ * Only complete snapshots are evicted: attribute and children infos that are not
+ * initialized yet are still filled and are kept. The infos of the root DSE and of
+ * pinned entries, e.g. entries in open editors or search results, are never evicted.
+ * When the children of an entry are evicted the infos of its unpinned descendants
+ * are removed as well, they are not reachable anymore.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -61,7 +86,10 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     private IRootDSE rootDSE;
 
     /** The schema. */
-    private Schema schema;
+    private volatile Schema schema;
+
+    /** The loader of the cached schema, null if the schema was already loaded. */
+    private transient volatile Callable<Schema> schemaLoader;
 
     /** The search manager. */
     private SearchManager searchManager;
@@ -69,17 +97,32 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     /** The bookmark manager. */
     private BookmarkManager bookmarkManager;
 
+    /** The default maximum number of entries with cached attributes or children. */
+    private static final int DEFAULT_ENTRY_CACHE_SIZE = 100000;
+
+    /** The maximum number of entries with cached attributes or children. */
+    private transient long entryCacheSize;
+
     /** The dn to entry cache. */
-    private volatile Map<String, IEntry> dnToEntryCache;
+    private transient volatile Cache<DnKey, IEntry> dnToEntryCache;
+
+    /** The factory of the keys of the dn to entry cache. */
+    private transient volatile DnKeyFactory dnKeyFactory;
+
+    /** The index of the entries in the search results. */
+    private transient volatile SearchResultIndex searchResultIndex;
 
     /** The entry to children filter map. */
-    private volatile Map<IEntry, String> entryToChildrenFilterMap;
+    private transient volatile Map<IEntry, String> entryToChildrenFilterMap;
+
+    /** The pinned entries and their pin counts. */
+    private transient volatile Map<IEntry, Integer> pinnedEntries;
 
-    /** The entry to attribute info map. */
-    private volatile Map<IEntry, AttributeInfo> entryToAttributeInfoMap;
+    /** The entry to attribute info cache. */
+    private transient volatile Cache<IEntry, AttributeInfo> entryToAttributeInfoMap;
 
-    /** The entry to children info map. */
-    private volatile Map<IEntry, ChildrenInfo> entryToChildrenInfoMap;
+    /** The entry to children info cache. */
+    private transient volatile Cache<IEntry, ChildrenInfo> entryToChildrenInfoMap;
 
 
     /**
@@ -120,10 +163,15 @@ public class BrowserConnection implements IBrowserConnection, Serializable
         this.searchManager = new SearchManager( this );
         this.bookmarkManager = new BookmarkManager( this );
 
-        this.entryToChildrenFilterMap = new HashMap<IEntry, String>();
-        this.dnToEntryCache = new HashMap<String, IEntry>();
-        this.entryToAttributeInfoMap = new HashMap<IEntry, AttributeInfo>();
-        this.entryToChildrenInfoMap = new HashMap<IEntry, ChildrenInfo>();
+        this.entryCacheSize = getEntryCacheSizePreference();
+        this.entryToChildrenFilterMap = new ConcurrentHashMap<IEntry, String>();
+        this.dnKeyFactory = new DnKeyFactory();
+        this.searchResultIndex = new SearchResultIndex( this );
+        this.dnToEntryCache = Caffeine.newBuilder().weakValues().recordStats().build();
+        this.pinnedEntries = new ConcurrentHashMap<IEntry, Integer>();
+        this.entryToAttributeInfoMap = createInfoCache( entryCacheSize, ai -> ai.attributesInitialized, null );
+        this.entryToChildrenInfoMap = createInfoCache( entryCacheSize, ci -> ci.childrenInitialized,
+            this::childrenInfoRemoved );
 
         this.schema = Schema.DEFAULT_SCHEMA;
         this.rootDSE = new RootDSE( this );
@@ -131,6 +179,106 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     }
 
 
+    /**
+     * Creates a cache for attribute or children infos. Infos that are not complete
+     * and the infos of entries that are not evictable don't count against the maximum
+     * size, hence they are never evicted. The weight of an info is computed when it is
+     * put into the cache, it must be put again when it becomes complete.
+     *
+     * @param maximumSize the maximum number of entries
+     * @param complete the predicate that tests if an info is complete
+     * @param removalListener the removal listener, may be null
+     * @return the cache
+     */
+    private <V> Cache<IEntry, V> createInfoCache( long maximumSize, Predicate<V> complete,
+        RemovalListener<IEntry, V> removalListener )
+    {
+        Caffeine<IEntry, V> builder = Caffeine.newBuilder().maximumWeight( maximumSize )
+            .weigher( ( IEntry entry, V info ) -> isEvictable( entry ) && complete.test( info ) ? 1 : 0 );
+        if ( removalListener != null )
+        {
+            builder = builder.removalListener( removalListener );
+        }
+        return builder.executor( Runnable::run ).recordStats().build();
+    }
+
+
+    /**
+     * Checks if the infos of the given entry may be evicted.
+     *
+     * @param entry the entry
+     * @return true if the infos of the entry may be evicted
+     */
+    private boolean isEvictable( IEntry entry )
+    {
+        return !( entry instanceof IRootDSE ) && !pinnedEntries.containsKey( entry );
+    }
+
+
+    /**
+     * Called when a children info was removed from the cache.
+     *
+     * @param entry the entry
+     * @param ci the removed children info
+     * @param cause the cause of the removal
+     */
+    private void childrenInfoRemoved( IEntry entry, ChildrenInfo ci, RemovalCause cause )
+    {
+        if ( cause.wasEvicted() && ci != null )
+        {
+            uncacheDescendantInfos( ci );
+        }
+    }
+
+
+    /**
+     * Removes the infos of the unpinned descendants of an entry whose children
+     * info was evicted.
+     *
+     * @param ci the evicted children info
+     */
+    private void uncacheDescendantInfos( ChildrenInfo ci )
+    {
+        Set<IEntry> childrenSet = ci.childrenSet;
+        if ( childrenSet == null )
+        {
+            return;
+        }
+
+        for ( IEntry child : childrenSet.toArray( new IEntry[0] ) )
+        {
+            if ( isEvictable( child ) )
+            {
+                entryToAttributeInfoMap.invalidate( child );
+                ChildrenInfo childCi = entryToChildrenInfoMap.asMap().remove( child );
+                if ( childCi != null )
+                {
+                    uncacheDescendantInfos( childCi );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Gets the maximum number of entries with cached attributes or children
+     * from the preferences.
+     *
+     * @return the maximum number of entries with cached attributes or children
+     */
+    private static int getEntryCacheSizePreference()
+    {
+        if ( BrowserCorePlugin.getDefault() == null )
+        {
+            return DEFAULT_ENTRY_CACHE_SIZE;
+        }
+
+        int size = BrowserCorePlugin.getDefault().getPluginPreferences().getInt(
+            BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_SIZE );
+        return size > 0 ? size : DEFAULT_ENTRY_CACHE_SIZE;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -150,9 +298,9 @@ public class BrowserConnection implements IBrowserConnection, Serializable
             search.setSearchResults( null );
         }
 
-        dnToEntryCache.clear();
-        entryToAttributeInfoMap.clear();
-        entryToChildrenInfoMap.clear();
+        dnToEntryCache.invalidateAll();
+        entryToAttributeInfoMap.invalidateAll();
+        entryToChildrenInfoMap.invalidateAll();
         entryToChildrenFilterMap.clear();
         //        searchManager.setQuickSearch( null ); TODO
 
@@ -171,10 +319,10 @@ public class BrowserConnection implements IBrowserConnection, Serializable
             return null;
         }
 
-        String oidDn = Utils.getNormalizedOidString( dn, getSchema() );
-        if ( dnToEntryCache != null && dnToEntryCache.containsKey( oidDn ) )
+        IEntry entry = dnToEntryCache == null ? null : dnToEntryCache.getIfPresent( getDnKey( dn ) );
+        if ( entry != null )
         {
-            return dnToEntryCache.get( oidDn );
+            return entry;
         }
         if ( getRootDSE().getDn().equals( dn ) )
         {
@@ -509,6 +657,11 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     public Schema getSchema()
     {
+        if ( schemaLoader != null )
+        {
+            loadSchema();
+        }
+
         return schema;
     }
 
@@ -516,12 +669,65 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     /**
      * {@inheritDoc}
      */
-    public void setSchema( Schema schema )
+    public synchronized void setSchema( Schema schema )
     {
+        this.schemaLoader = null;
         this.schema = schema;
     }
 
 
+    /**
+     * Sets the loader of the cached schema. The schema is loaded on the first
+     * invocation of {@link #getSchema()}, until then the default schema is used.
+     *
+     * @param schemaLoader the schema loader, returns null if no schema is cached
+     */
+    public synchronized void setSchemaLoader( Callable<Schema> schemaLoader )
+    {
+        this.schemaLoader = schemaLoader;
+    }
+
+
+    /**
+     * Checks if the schema is loaded.
+     *
+     * @return true if the schema is loaded, false if the cached schema wasn't loaded yet
+     */
+    public boolean isSchemaLoaded()
+    {
+        return schemaLoader == null;
+    }
+
+
+    /**
+     * Loads the cached schema, if not already loaded. Concurrent invocations
+     * wait until the schema is loaded.
+     */
+    public synchronized void loadSchema()
+    {
+        Callable<Schema> loader = schemaLoader;
+
+        if ( loader != null )
+        {
+            try
+            {
+                Schema cachedSchema = loader.call();
+
+                if ( cachedSchema != null )
+                {
+                    schema = cachedSchema;
+                }
+            }
+            catch ( Exception e )
+            {
+                // the default schema is used
+            }
+
+            schemaLoader = null;
+        }
+    }
+
+
     /**
      * This implementation returns the connection name
      */
@@ -572,9 +778,9 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     /**
      * {@inheritDoc}
      */
-    public synchronized void cacheEntry( IEntry entry )
+    public void cacheEntry( IEntry entry )
     {
-        dnToEntryCache.put( Utils.getNormalizedOidString( entry.getDn(), getSchema() ), entry );
+        dnToEntryCache.put( getDnKey( entry.getDn() ), entry );
     }
 
 
@@ -583,26 +789,36 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      * 
      * @param entry the entry to remove from cache
      */
-    protected synchronized void uncacheEntry( IEntry entry )
+    protected void uncacheEntry( IEntry entry )
     {
-        dnToEntryCache.remove( Utils.getNormalizedOidString( entry.getDn(), getSchema() ) );
+        dnToEntryCache.invalidate( getDnKey( entry.getDn() ) );
     }
 
 
     /**
      * {@inheritDoc}
      */
-    public synchronized void uncacheEntryRecursive( IEntry entry )
+    public void uncacheEntryRecursive( IEntry entry )
+    {
+        uncacheEntryRecursive( getDnKey( entry.getDn() ) );
+    }
+
+
+    /**
+     * Removes the entry with the given key and the cached entries below it from
+     * the cache. The descendants are found by walking down the key tree, so the
+     * cached descendants are removed even if the children info of an entry was
+     * evicted in between.
+     *
+     * @param key the key of the entry to remove from cache
+     */
+    private void uncacheEntryRecursive( DnKey key )
     {
-        IEntry[] children = entry.getChildren();
-        if ( entry.getChildren() != null )
+        for ( DnKey child : key.getChildren() )
         {
-            for ( int i = 0; i < children.length; i++ )
-            {
-                uncacheEntryRecursive( children[i] );
-            }
+            uncacheEntryRecursive( child );
         }
-        uncacheEntry( entry );
+        dnToEntryCache.invalidate( key );
     }
 
 
@@ -611,9 +827,21 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      * 
      * @param dn the Dn of the entry to remove from cache
      */
-    protected synchronized void uncacheEntry( Dn dn )
+    protected void uncacheEntry( Dn dn )
     {
-        dnToEntryCache.remove( Utils.getNormalizedOidString( dn, getSchema() ) );
+        dnToEntryCache.invalidate( getDnKey( dn ) );
+    }
+
+
+    /**
+     * Gets the key of the given Dn in the dn to entry cache.
+     *
+     * @param dn the Dn
+     * @return the canonical key of the Dn
+     */
+    DnKey getDnKey( Dn dn )
+    {
+        return dnKeyFactory.getKey( dn, getSchema() );
     }
 
 
@@ -658,7 +886,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     protected AttributeInfo getAttributeInfo( IEntry entry )
     {
-        return entryToAttributeInfoMap == null ? null : entryToAttributeInfoMap.get( entry );
+        return entryToAttributeInfoMap == null ? null : entryToAttributeInfoMap.getIfPresent( entry );
     }
 
 
@@ -672,7 +900,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     {
         if ( ai == null )
         {
-            entryToAttributeInfoMap.remove( entry );
+            entryToAttributeInfoMap.invalidate( entry );
         }
         else
         {
@@ -690,7 +918,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     protected ChildrenInfo getChildrenInfo( IEntry entry )
     {
-        return entryToChildrenInfoMap == null ? null : entryToChildrenInfoMap.get( entry );
+        return entryToChildrenInfoMap == null ? null : entryToChildrenInfoMap.getIfPresent( entry );
     }
 
 
@@ -704,7 +932,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     {
         if ( ci == null )
         {
-            entryToChildrenInfoMap.remove( entry );
+            entryToChildrenInfoMap.invalidate( entry );
         }
         else
         {
@@ -713,6 +941,80 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ISearch> getSearchesWithResult( IEntry entry )
+    {
+        return searchResultIndex.getSearches( entry );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ISearch> removeSearchResults( Collection<IEntry> entries )
+    {
+        return searchResultIndex.removeSearchResults( entries );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void pinEntry( IEntry entry )
+    {
+        if ( pinnedEntries.merge( entry, 1, Integer::sum ) == 1 )
+        {
+            updateInfoWeights( entry );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void unpinEntry( IEntry entry )
+    {
+        if ( pinnedEntries.computeIfPresent( entry, ( e, count ) -> count > 1 ? count - 1 : null ) == null )
+        {
+            updateInfoWeights( entry );
+        }
+    }
+
+
+    /**
+     * Puts the infos of the given entry again, so their weights are computed again.
+     *
+     * @param entry the entry
+     */
+    private void updateInfoWeights( IEntry entry )
+    {
+        entryToAttributeInfoMap.asMap().computeIfPresent( entry, ( e, ai ) -> ai );
+        entryToChildrenInfoMap.asMap().computeIfPresent( entry, ( e, ci ) -> ci );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public EntryCacheStatistics getEntryCacheStatistics()
+    {
+        if ( dnToEntryCache == null )
+        {
+            return EntryCacheStatistics.EMPTY;
+        }
+
+        CacheStats entryStats = dnToEntryCache.stats();
+        long evictionCount = entryToAttributeInfoMap.stats().evictionCount()
+            + entryToChildrenInfoMap.stats().evictionCount();
+
+        return new EntryCacheStatistics( dnToEntryCache.estimatedSize(), entryToAttributeInfoMap.estimatedSize(),
+            entryToChildrenInfoMap.estimatedSize(), entryCacheSize, entryStats.hitCount(), entryStats.missCount(),
+            evictionCount );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,406 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.util.Collection;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.ldapbrowser.core.internal.search.LdapSearchPageScoreComputer;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.AttributeTypeDescriptor;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
+import org.eclipse.search.ui.ISearchPageScoreComputer;
+
+
+/**
+ * Read-only implementation of IAttribute, backed by a range of values of
+ * a {@link CompactSearchResultTable}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class CompactAttribute implements IAttribute
+{
+
+    private static final long serialVersionUID = 5018591519342346624L;
+
+    /** The entry this attribute belongs to */
+    private IEntry entry;
+
+    /** The table */
+    private CompactSearchResultTable table;
+
+    /** The attribute index */
+    private int attributeIndex;
+
+    /** The index of the first value */
+    private int start;
+
+    /** The index after the last value */
+    private int end;
+
+
+    /**
+     * Creates a new instance of CompactAttribute.
+     *
+     * @param entry the entry of this attribute
+     * @param table the table
+     * @param attributeIndex the attribute index
+     * @param start the index of the first value
+     * @param end the index after the last value
+     */
+    CompactAttribute( IEntry entry, CompactSearchResultTable table, int attributeIndex, int start, int end )
+    {
+        this.entry = entry;
+        this.table = table;
+        this.attributeIndex = attributeIndex;
+        this.start = start;
+        this.end = end;
+    }
+
+
+    /**
+     * Gets the table.
+     *
+     * @return the table
+     */
+    CompactSearchResultTable getTable()
+    {
+        return table;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IEntry getEntry()
+    {
+        return entry;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isConsistent()
+    {
+        return end > start;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isMustAttribute()
+    {
+        if ( isObjectClassAttribute() )
+        {
+            return true;
+        }
+        else
+        {
+            Collection<AttributeType> mustAtds = SchemaUtils.getMustAttributeTypeDescriptions( entry );
+            return mustAtds.contains( getAttributeTypeDescription() );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isMayAttribute()
+    {
+        return !isObjectClassAttribute() && !isMustAttribute() && !isOperationalAttribute();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isOperationalAttribute()
+    {
+        return getAttributeTypeDescription() == null || SchemaUtils.isOperational( getAttributeTypeDescription() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isObjectClassAttribute()
+    {
+        return SchemaConstants.OBJECT_CLASS_AT.equalsIgnoreCase( getDescription() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isString()
+    {
+        return !isBinary();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isBinary()
+    {
+        return getAttributeTypeDescriptor().isBinary();
+    }
+
+
+    private AttributeTypeDescriptor getAttributeTypeDescriptor()
+    {
+        return SchemaUtils.getAttributeTypeDescriptor( getType(), entry.getBrowserConnection().getSchema() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The attribute is read-only.
+     */
+    public void addEmptyValue()
+    {
+        throw new IllegalArgumentException( Messages.CompactSearchResult_ReadOnly );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The attribute is read-only.
+     */
+    public void deleteEmptyValue()
+    {
+        throw new IllegalArgumentException( Messages.CompactSearchResult_ReadOnly );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The attribute is read-only.
+     */
+    public void addValue( IValue valueToAdd ) throws IllegalArgumentException
+    {
+        throw new IllegalArgumentException( Messages.CompactSearchResult_ReadOnly );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The attribute is read-only.
+     */
+    public void deleteValue( IValue valueToDelete ) throws IllegalArgumentException
+    {
+        throw new IllegalArgumentException( Messages.CompactSearchResult_ReadOnly );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The attribute is read-only.
+     */
+    public void modifyValue( IValue oldValue, IValue newValue ) throws IllegalArgumentException
+    {
+        throw new IllegalArgumentException( Messages.CompactSearchResult_ReadOnly );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IValue[] getValues()
+    {
+        IValue[] values = new IValue[end - start];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[i] = new CompactValue( this, start + i );
+        }
+        return values;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getValueSize()
+    {
+        return end - start;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDescription()
+    {
+        return getAttributeDescription().getDescription();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getType()
+    {
+        return getAttributeDescription().getParsedAttributeType();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        return getDescription();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean equals( Object o )
+    {
+        // check argument
+        if ( !( o instanceof IAttribute ) )
+        {
+            return false;
+        }
+        IAttribute a = ( IAttribute ) o;
+
+        // compare entries
+        if ( !getEntry().equals( a.getEntry() ) )
+        {
+            return false;
+        }
+
+        // compare attribute description
+        return getDescription().equals( a.getDescription() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int hashCode()
+    {
+        return getDescription().hashCode();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public byte[][] getBinaryValues()
+    {
+        byte[][] binaryValues = new byte[end - start][];
+        for ( int i = 0; i < binaryValues.length; i++ )
+        {
+            binaryValues[i] = table.getBinaryValue( start + i );
+        }
+        return binaryValues;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getStringValue()
+    {
+        return end > start ? table.getStringValue( start ) : null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String[] getStringValues()
+    {
+        String[] stringValues = new String[end - start];
+        for ( int i = 0; i < stringValues.length; i++ )
+        {
+            stringValues[i] = table.getStringValue( start + i );
+        }
+        return stringValues;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public AttributeType getAttributeTypeDescription()
+    {
+        return entry.getBrowserConnection().getSchema().getAttributeTypeDescription( getType() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public Object getAdapter( Class adapter )
+    {
+        Class<?> clazz = ( Class<?> ) adapter;
+        if ( clazz.isAssignableFrom( ISearchPageScoreComputer.class ) )
+        {
+            return new LdapSearchPageScoreComputer();
+        }
+        if ( clazz.isAssignableFrom( Connection.class ) )
+        {
+            return entry.getBrowserConnection().getConnection();
+        }
+        if ( clazz.isAssignableFrom( IBrowserConnection.class ) )
+        {
+            return entry.getBrowserConnection();
+        }
+        if ( clazz.isAssignableFrom( IEntry.class ) )
+        {
+            return entry;
+        }
+        if ( clazz.isAssignableFrom( IAttribute.class ) )
+        {
+            return this;
+        }
+
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public AttributeDescription getAttributeDescription()
+    {
+        return table.getAttributeDescription( attributeIndex );
+    }
+
+}
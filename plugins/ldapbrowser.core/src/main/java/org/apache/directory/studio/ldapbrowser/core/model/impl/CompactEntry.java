@@ -0,0 +1,298 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.ICompareableEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+
+
+/**
+ * The read-only entry of a {@link CompactSearchResult}. The attributes are read
+ * from the row of the {@link CompactSearchResultTable}, the tree related properties
+ * are delegated to the entry in the cache, if any.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class CompactEntry extends DelegateEntry implements ICompareableEntry
+{
+
+    private static final long serialVersionUID = -1867317606434525417L;
+
+    /** The table. */
+    private CompactSearchResultTable table;
+
+    /** The row. */
+    private int row;
+
+
+    /**
+     * Creates a new instance of CompactEntry.
+     * 
+     * @param table the table
+     * @param row the row of the entry
+     */
+    CompactEntry( CompactSearchResultTable table, int row )
+    {
+        super( table.getBrowserConnection(), table.getDn( row ) );
+        this.table = table;
+        this.row = row;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IBrowserConnection getBrowserConnection()
+    {
+        return table.getBrowserConnection();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public Dn getDn()
+    {
+        return dn;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isAttributesInitialized()
+    {
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IAttribute[] getAttributes()
+    {
+        List<IAttribute> attributes = new ArrayList<IAttribute>();
+
+        int end = table.getRowEnd( row );
+        int start = table.getRowStart( row );
+        while ( start < end )
+        {
+            int attributeIndex = table.getAttributeIndex( start );
+            int next = start + 1;
+            while ( next < end && table.getAttributeIndex( next ) == attributeIndex )
+            {
+                next++;
+            }
+
+            attributes.add( new CompactAttribute( this, table, attributeIndex, start, next ) );
+            start = next;
+        }
+
+        return attributes.toArray( new IAttribute[attributes.size()] );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IAttribute getAttribute( String attributeDescription )
+    {
+        Schema schema = getBrowserConnection().getSchema();
+        String oidString = Strings.toLowerCase( new AttributeDescription( attributeDescription )
+            .toOidString( schema ) );
+
+        int end = table.getRowEnd( row );
+        for ( int start = table.getRowStart( row ); start < end; )
+        {
+            int attributeIndex = table.getAttributeIndex( start );
+            int next = start + 1;
+            while ( next < end && table.getAttributeIndex( next ) == attributeIndex )
+            {
+                next++;
+            }
+
+            if ( table.getOidString( attributeIndex, schema ).equals( oidString ) )
+            {
+                return new CompactAttribute( this, table, attributeIndex, start, next );
+            }
+            start = next;
+        }
+
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public AttributeHierarchy getAttributeWithSubtypes( String attributeDescription )
+    {
+        List<IAttribute> attributeList = new ArrayList<IAttribute>();
+
+        IAttribute myAttribute = getAttribute( attributeDescription );
+        if ( myAttribute != null )
+        {
+            attributeList.add( myAttribute );
+        }
+
+        AttributeDescription ad = new AttributeDescription( attributeDescription );
+        for ( IAttribute attribute : getAttributes() )
+        {
+            if ( attribute.getAttributeDescription().isSubtypeOf( ad, getBrowserConnection().getSchema() ) )
+            {
+                attributeList.add( attribute );
+            }
+        }
+
+        if ( attributeList.isEmpty() )
+        {
+            return null;
+        }
+
+        IAttribute[] attributes = attributeList.toArray( new IAttribute[attributeList.size()] );
+        return new AttributeHierarchy( this, attributeDescription, attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The entry is read-only.
+     */
+    public void addAttribute( IAttribute attributeToAdd )
+    {
+        throw new IllegalArgumentException( Messages.CompactSearchResult_ReadOnly );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The entry is read-only.
+     */
+    public void deleteAttribute( IAttribute attributeToDelete )
+    {
+        throw new IllegalArgumentException( Messages.CompactSearchResult_ReadOnly );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isAlias()
+    {
+        return super.isAlias() || hasObjectClass( SchemaConstants.ALIAS_OC );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isReferral()
+    {
+        return super.isReferral() || hasObjectClass( SchemaConstants.REFERRAL_OC );
+    }
+
+
+    private boolean hasObjectClass( String objectClass )
+    {
+        IAttribute ocAttribute = getAttribute( SchemaConstants.OBJECT_CLASS_AT );
+        if ( ocAttribute != null )
+        {
+            for ( String value : ocAttribute.getStringValues() )
+            {
+                if ( objectClass.equalsIgnoreCase( value ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ObjectClass> getObjectClassDescriptions()
+    {
+        Collection<ObjectClass> ocds = new ArrayList<ObjectClass>();
+        IAttribute ocAttribute = getAttribute( SchemaConstants.OBJECT_CLASS_AT );
+        if ( ocAttribute != null )
+        {
+            Schema schema = getBrowserConnection().getSchema();
+            for ( String ocName : ocAttribute.getStringValues() )
+            {
+                ocds.add( schema.getObjectClassDescription( ocName ) );
+            }
+        }
+        return ocds;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        return dn.getName();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int hashCode()
+    {
+        return dn.hashCode();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean equals( Object o )
+    {
+        // check argument
+        if ( !( o instanceof ICompareableEntry ) )
+        {
+            return false;
+        }
+        ICompareableEntry e = ( ICompareableEntry ) o;
+
+        // compare dn and connection
+        return dn.equals( e.getDn() ) && getBrowserConnection().equals( e.getBrowserConnection() );
+    }
+
+}
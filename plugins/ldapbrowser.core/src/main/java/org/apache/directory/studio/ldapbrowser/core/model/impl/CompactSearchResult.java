@@ -0,0 +1,216 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.util.ArrayList;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.ldapbrowser.core.internal.search.LdapSearchPageScoreComputer;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
+import org.eclipse.search.ui.ISearchPageScoreComputer;
+
+
+/**
+ * Read-only implementation of ISearchResult, backed by a row of a {@link CompactSearchResultTable}.
+ * The entry is created when requested and is not added to the entry cache.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompactSearchResult implements ISearchResult
+{
+
+    private static final long serialVersionUID = 6052733216451226208L;
+
+    /** The table. */
+    private CompactSearchResultTable table;
+
+    /** The row. */
+    private int row;
+
+    /** The search. */
+    private ISearch search;
+
+
+    /**
+     * Creates a new instance of CompactSearchResult.
+     * 
+     * @param table the table
+     * @param row the row of the entry
+     * @param search the search
+     */
+    CompactSearchResult( CompactSearchResultTable table, int row, ISearch search )
+    {
+        this.table = table;
+        this.row = row;
+        this.search = search;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public Dn getDn()
+    {
+        return table.getDn( row );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IAttribute[] getAttributes()
+    {
+        IEntry entry = getEntry();
+        ArrayList<IAttribute> attributeList = new ArrayList<IAttribute>();
+        for ( String returningAttribute : search.getReturningAttributes() )
+        {
+            IAttribute attribute = entry.getAttribute( returningAttribute );
+            if ( attribute != null )
+            {
+                attributeList.add( attribute );
+            }
+        }
+        return attributeList.toArray( new IAttribute[attributeList.size()] );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IAttribute getAttribute( String attributeDescription )
+    {
+        return getEntry().getAttribute( attributeDescription );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public AttributeHierarchy getAttributeWithSubtypes( String attributeDescription )
+    {
+        return getEntry().getAttributeWithSubtypes( attributeDescription );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IEntry getEntry()
+    {
+        return new CompactEntry( table, row );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public Object getAdapter( Class adapter )
+    {
+        Class<?> clazz = ( Class<?> ) adapter;
+        if ( clazz.isAssignableFrom( ISearchPageScoreComputer.class ) )
+        {
+            return new LdapSearchPageScoreComputer();
+        }
+        if ( clazz.isAssignableFrom( Connection.class ) )
+        {
+            return search.getBrowserConnection().getConnection();
+        }
+        if ( clazz.isAssignableFrom( IBrowserConnection.class ) )
+        {
+            return search.getBrowserConnection();
+        }
+        if ( clazz.isAssignableFrom( IEntry.class ) )
+        {
+            return getEntry();
+        }
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public ISearch getSearch()
+    {
+        return search;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setSearch( ISearch search )
+    {
+        this.search = search;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int hashCode()
+    {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + getDn().hashCode();
+        result = prime * result + ( ( search == null ) ? 0 : search.hashCode() );
+        return result;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * A compact search result is equal to other search results, e.g. the working copy
+     * of the search result editor, of the same entry and search.
+     */
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+
+        if ( !( obj instanceof ISearchResult ) )
+        {
+            return false;
+        }
+        ISearchResult other = ( ISearchResult ) obj;
+        if ( other.getEntry() == null || !getEntry().equals( other.getEntry() ) )
+        {
+            return false;
+        }
+        if ( search == null )
+        {
+            return other.getSearch() == null;
+        }
+        return search.equals( other.getSearch() );
+    }
+
+}
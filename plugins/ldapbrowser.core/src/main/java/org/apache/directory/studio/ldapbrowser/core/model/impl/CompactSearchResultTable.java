@@ -0,0 +1,426 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldifparser.LdifUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+
+/**
+ * A memory-compact, read-only store of the entries of a large search result.
+ * <p>
+ * The entries are not added to the entry cache of the browser connection. Instead
+ * the table stores them in columns shared by all rows of the search:
+ * <ul>
+ * <li>the Dns as UTF-8 bytes, parsed on demand</li>
+ * <li>a dictionary of the attribute descriptions, each value only references the index
+ * of its attribute description</li>
+ * <li>the values as UTF-8 or binary byte arrays, decoded on demand</li>
+ * <li>frequent values, like the object classes, are interned and shared by all rows</li>
+ * </ul>
+ * The {@link CompactSearchResult}s and their entries, attributes and values are lightweight
+ * views to a row of the table, created when requested.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompactSearchResultTable implements Serializable
+{
+
+    private static final long serialVersionUID = 2370264935612887013L;
+
+    /** The maximum number of distinct values interned per attribute */
+    private static final int MAX_INTERNED_VALUES = 256;
+
+    /** The maximum length of interned values */
+    private static final int MAX_INTERNED_VALUE_LENGTH = 64;
+
+    /** The maximum number of parsed Dns kept in memory */
+    private static final int DN_CACHE_SIZE = 1000;
+
+    /** The browser connection */
+    private IBrowserConnection browserConnection;
+
+    /** The attribute descriptions, by attribute index */
+    private List<AttributeDescription> attributeDescriptions = new ArrayList<AttributeDescription>();
+
+    /** The attribute indexes, by lower cased attribute description */
+    private Map<String, Integer> attributeIndexes = new HashMap<String, Integer>();
+
+    /** The interned values, by attribute index */
+    private List<Map<String, String>> internedValues = new ArrayList<Map<String, String>>();
+
+    /** The number of rows */
+    private int rowCount;
+
+    /** The UTF-8 encoded Dns, by row */
+    private byte[][] dns = new byte[16][];
+
+    /** The index of the first value, by row; the last element is the number of values */
+    private int[] rowOffsets = new int[17];
+
+    /** The number of values */
+    private int valueCount;
+
+    /** The attribute index, by value */
+    private int[] valueAttributes = new int[64];
+
+    /** The values, by value: an interned String, or the UTF-8 or binary bytes */
+    private Object[] values = new Object[64];
+
+    /** The flags of the values that were received as strings */
+    private BitSet stringValues = new BitSet();
+
+    /** The schema used to compute the OID strings */
+    private transient Schema oidStringSchema;
+
+    /** The OID strings of the attribute descriptions, by attribute index */
+    private transient String[] oidStrings;
+
+    /** The recently parsed Dns */
+    private transient Cache<Integer, Dn> dnCache;
+
+
+    /**
+     * Creates a new instance of CompactSearchResultTable.
+     *
+     * @param browserConnection the browser connection of the search results
+     */
+    public CompactSearchResultTable( IBrowserConnection browserConnection )
+    {
+        this.browserConnection = browserConnection;
+    }
+
+
+    /**
+     * Adds an entry to the table.
+     *
+     * @param dn the Dn of the entry
+     * @param entry the entry, as received from the directory
+     * @param search the search
+     * @return the search result of the added entry
+     */
+    public synchronized CompactSearchResult add( Dn dn, Entry entry, ISearch search )
+    {
+        if ( rowCount + 1 == dns.length )
+        {
+            dns = Arrays.copyOf( dns, dns.length * 2 );
+            rowOffsets = Arrays.copyOf( rowOffsets, rowOffsets.length * 2 );
+        }
+
+        dns[rowCount] = LdifUtils.utf8encode( dn.getName() );
+
+        for ( Attribute attribute : entry )
+        {
+            int attributeIndex = getAttributeIndex( attribute.getUpId() );
+
+            for ( org.apache.directory.api.ldap.model.entry.Value value : attribute )
+            {
+                if ( value.isHumanReadable() )
+                {
+                    addValue( attributeIndex, intern( attributeIndex, value.getString() ), true );
+                }
+                else
+                {
+                    addValue( attributeIndex, value.getBytes(), false );
+                }
+            }
+        }
+
+        rowCount++;
+        rowOffsets[rowCount] = valueCount;
+
+        return new CompactSearchResult( this, rowCount - 1, search );
+    }
+
+
+    /**
+     * Releases the unused capacity, to be called when all entries are added.
+     */
+    public synchronized void trimToSize()
+    {
+        dns = Arrays.copyOf( dns, rowCount + 1 );
+        rowOffsets = Arrays.copyOf( rowOffsets, rowCount + 1 );
+        valueAttributes = Arrays.copyOf( valueAttributes, valueCount );
+        values = Arrays.copyOf( values, valueCount );
+
+        // the interned values are still referenced by the values
+        for ( int i = 0; i < internedValues.size(); i++ )
+        {
+            internedValues.set( i, new HashMap<String, String>() );
+        }
+    }
+
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return the number of rows
+     */
+    public synchronized int size()
+    {
+        return rowCount;
+    }
+
+
+    private int getAttributeIndex( String description )
+    {
+        String key = Strings.toLowerCase( description );
+        Integer index = attributeIndexes.get( key );
+
+        if ( index == null )
+        {
+            index = attributeDescriptions.size();
+            attributeDescriptions.add( new AttributeDescription( description ) );
+            attributeIndexes.put( key, index );
+            internedValues.add( new HashMap<String, String>() );
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Interns short values of attributes with few distinct values, the object
+     * class values are always interned.
+     *
+     * @return the interned String, or the UTF-8 bytes of the value
+     */
+    private Object intern( int attributeIndex, String value )
+    {
+        Map<String, String> interned = internedValues.get( attributeIndex );
+        String internedValue = interned.get( value );
+
+        if ( internedValue != null )
+        {
+            return internedValue;
+        }
+
+        boolean isObjectClass = SchemaConstants.OBJECT_CLASS_AT.equalsIgnoreCase( attributeDescriptions.get(
+            attributeIndex ).getDescription() );
+
+        if ( isObjectClass
+            || ( interned.size() < MAX_INTERNED_VALUES && value.length() <= MAX_INTERNED_VALUE_LENGTH ) )
+        {
+            interned.put( value, value );
+            return value;
+        }
+
+        return LdifUtils.utf8encode( value );
+    }
+
+
+    private void addValue( int attributeIndex, Object value, boolean isString )
+    {
+        if ( valueCount == values.length )
+        {
+            values = Arrays.copyOf( values, values.length * 2 );
+            valueAttributes = Arrays.copyOf( valueAttributes, valueAttributes.length * 2 );
+        }
+
+        values[valueCount] = value;
+        valueAttributes[valueCount] = attributeIndex;
+        stringValues.set( valueCount, isString );
+        valueCount++;
+    }
+
+
+    /**
+     * Gets the browser connection.
+     *
+     * @return the browser connection
+     */
+    IBrowserConnection getBrowserConnection()
+    {
+        return browserConnection;
+    }
+
+
+    /**
+     * Gets the Dn of the given row.
+     *
+     * @param row the row
+     * @return the Dn
+     */
+    synchronized Dn getDn( int row )
+    {
+        if ( dnCache == null )
+        {
+            dnCache = Caffeine.newBuilder().maximumSize( DN_CACHE_SIZE ).build();
+        }
+
+        byte[] name = dns[row];
+
+        return dnCache.get( row, r -> {
+            try
+            {
+                return new Dn( LdifUtils.utf8decode( name ) );
+            }
+            catch ( LdapInvalidDnException e )
+            {
+                // the name was created from a valid Dn
+                throw new IllegalStateException( e );
+            }
+        } );
+    }
+
+
+    /**
+     * Gets the index of the first value of the given row.
+     *
+     * @param row the row
+     * @return the index of the first value
+     */
+    synchronized int getRowStart( int row )
+    {
+        return rowOffsets[row];
+    }
+
+
+    /**
+     * Gets the index after the last value of the given row.
+     *
+     * @param row the row
+     * @return the index after the last value
+     */
+    synchronized int getRowEnd( int row )
+    {
+        return rowOffsets[row + 1];
+    }
+
+
+    /**
+     * Gets the attribute index of the given value.
+     *
+     * @param valueIndex the value index
+     * @return the attribute index
+     */
+    synchronized int getAttributeIndex( int valueIndex )
+    {
+        return valueAttributes[valueIndex];
+    }
+
+
+    /**
+     * Gets the attribute description of the given attribute index.
+     *
+     * @param attributeIndex the attribute index
+     * @return the attribute description
+     */
+    synchronized AttributeDescription getAttributeDescription( int attributeIndex )
+    {
+        return attributeDescriptions.get( attributeIndex );
+    }
+
+
+    /**
+     * Gets the lower cased OID string of the given attribute index.
+     *
+     * @param attributeIndex the attribute index
+     * @param schema the schema
+     * @return the lower cased OID string
+     */
+    synchronized String getOidString( int attributeIndex, Schema schema )
+    {
+        if ( schema != oidStringSchema || oidStrings == null || oidStrings.length < attributeDescriptions.size() )
+        {
+            oidStringSchema = schema;
+            oidStrings = new String[attributeDescriptions.size()];
+        }
+
+        String oidString = oidStrings[attributeIndex];
+
+        if ( oidString == null )
+        {
+            oidString = Strings.toLowerCase( attributeDescriptions.get( attributeIndex ).toOidString( schema ) );
+            oidStrings[attributeIndex] = oidString;
+        }
+
+        return oidString;
+    }
+
+
+    /**
+     * Gets the raw value, either a String or a byte[].
+     *
+     * @param valueIndex the value index
+     * @return the raw value
+     */
+    synchronized Object getRawValue( int valueIndex )
+    {
+        Object value = values[valueIndex];
+
+        if ( stringValues.get( valueIndex ) && value instanceof byte[] )
+        {
+            return LdifUtils.utf8decode( ( byte[] ) value );
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Gets the value as String, binary values are decoded as UTF-8.
+     *
+     * @param valueIndex the value index
+     * @return the String value
+     */
+    synchronized String getStringValue( int valueIndex )
+    {
+        Object value = values[valueIndex];
+
+        return value instanceof String ? ( String ) value : LdifUtils.utf8decode( ( byte[] ) value );
+    }
+
+
+    /**
+     * Gets the value as byte[], string values are encoded as UTF-8.
+     *
+     * @param valueIndex the value index
+     * @return the binary value
+     */
+    synchronized byte[] getBinaryValue( int valueIndex )
+    {
+        Object value = values[valueIndex];
+
+        return value instanceof String ? LdifUtils.utf8encode( ( String ) value ) : ( byte[] ) value;
+    }
+}
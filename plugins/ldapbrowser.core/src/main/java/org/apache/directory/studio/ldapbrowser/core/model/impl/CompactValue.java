@@ -0,0 +1,242 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.directory.api.ldap.model.name.Ava;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.ldapbrowser.core.internal.search.LdapSearchPageScoreComputer;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
+import org.eclipse.search.ui.ISearchPageScoreComputer;
+
+
+/**
+ * Read-only implementation of IValue, backed by a value of a {@link CompactSearchResultTable}.
+ * The value is decoded when requested.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class CompactValue implements IValue
+{
+
+    private static final long serialVersionUID = -3254716290372106653L;
+
+    /** The attribute this value belongs to */
+    private CompactAttribute attribute;
+
+    /** The value index */
+    private int valueIndex;
+
+
+    /**
+     * Creates a new instance of CompactValue.
+     *
+     * @param attribute the attribute this value belongs to
+     * @param valueIndex the value index
+     */
+    CompactValue( CompactAttribute attribute, int valueIndex )
+    {
+        this.attribute = attribute;
+        this.valueIndex = valueIndex;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IAttribute getAttribute()
+    {
+        return attribute;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object getRawValue()
+    {
+        return attribute.getTable().getRawValue( valueIndex );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getStringValue()
+    {
+        return attribute.getTable().getStringValue( valueIndex );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public byte[] getBinaryValue()
+    {
+        return attribute.getTable().getBinaryValue( valueIndex );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isString()
+    {
+        return attribute.isString();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isBinary()
+    {
+        return attribute.isBinary();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty()
+    {
+        return false;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean equals( Object o )
+    {
+        // check argument
+        if ( !( o instanceof IValue ) )
+        {
+            return false;
+        }
+        IValue vc = ( IValue ) o;
+
+        // compare attributes
+        if ( !vc.getAttribute().equals( this.getAttribute() ) )
+        {
+            return false;
+        }
+
+        // compare values
+        if ( vc.isEmpty() )
+        {
+            return false;
+        }
+        else if ( this.isBinary() && vc.isBinary() )
+        {
+            return Utils.equals( this.getBinaryValue(), vc.getBinaryValue() );
+        }
+        else if ( this.isString() && vc.isString() )
+        {
+            return ( this.getStringValue().equals( vc.getStringValue() ) );
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int hashCode()
+    {
+        Object rawValue = getRawValue();
+        return rawValue instanceof byte[] ? Arrays.hashCode( ( byte[] ) rawValue ) : rawValue.hashCode();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        return attribute + ":" + ( isString() ? getStringValue() : "BINARY" ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public Object getAdapter( Class adapter )
+    {
+        Class<?> clazz = ( Class<?> ) adapter;
+        if ( clazz.isAssignableFrom( ISearchPageScoreComputer.class ) )
+        {
+            return new LdapSearchPageScoreComputer();
+        }
+        if ( clazz.isAssignableFrom( Connection.class ) )
+        {
+            return getAttribute().getEntry().getBrowserConnection().getConnection();
+        }
+        if ( clazz.isAssignableFrom( IBrowserConnection.class ) )
+        {
+            return getAttribute().getEntry().getBrowserConnection();
+        }
+        if ( clazz.isAssignableFrom( IEntry.class ) )
+        {
+            return getAttribute().getEntry();
+        }
+        if ( clazz.isAssignableFrom( IAttribute.class ) )
+        {
+            return getAttribute();
+        }
+        if ( clazz.isAssignableFrom( IValue.class ) )
+        {
+            return this;
+        }
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isRdnPart()
+    {
+        Iterator<Ava> atavIterator = getAttribute().getEntry().getRdn().iterator();
+        while ( atavIterator.hasNext() )
+        {
+            Ava ava = atavIterator.next();
+            if ( getAttribute().getDescription().equals( ava.getNormType() )
+                && getStringValue().equals( ava.getValue().getNormalized() ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
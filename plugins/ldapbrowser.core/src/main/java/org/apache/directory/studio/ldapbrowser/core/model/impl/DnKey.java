@@ -0,0 +1,255 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * A canonical, hierarchical key of a Dn, used by the entry cache of the
+ * {@link BrowserConnection}. A key consists of the key of the parent Dn and
+ * the normalized Rdn, keys are interned by the {@link DnKeyFactory}: two keys
+ * are equal if they have the same parent instance and the same normalized Rdn.
+ * <p>
+ * Each key references its parent and weakly references its children, so the
+ * keys form a tree that is navigated by following pointers. A child key keeps
+ * its parent alive, a parent doesn't keep its children alive.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class DnKey
+{
+    /** The key of the parent Dn, null for the root */
+    private final DnKey parent;
+
+    /** The normalized Rdn, empty for the root */
+    private final String rdn;
+
+    /** The hash code */
+    private final int hashCode;
+
+    /** The weakly referenced child keys by normalized Rdn, created with the first child */
+    private volatile ConcurrentMap<String, ChildReference> children;
+
+
+    /**
+     * Creates a new instance of DnKey.
+     *
+     * @param parent the canonical key of the parent Dn, null for the root
+     * @param rdn the normalized Rdn
+     */
+    DnKey( DnKey parent, String rdn )
+    {
+        this.parent = parent;
+        this.rdn = rdn;
+        this.hashCode = 31 * System.identityHashCode( parent ) + rdn.hashCode();
+    }
+
+
+    /**
+     * Gets the key of the parent Dn.
+     *
+     * @return the key of the parent Dn, null for the root
+     */
+    DnKey getParent()
+    {
+        return parent;
+    }
+
+
+    /**
+     * Gets the normalized Rdn.
+     *
+     * @return the normalized Rdn, empty for the root
+     */
+    String getRdn()
+    {
+        return rdn;
+    }
+
+
+    /**
+     * Gets the canonical key of the child with the given normalized Rdn,
+     * the key is created if it doesn't exist.
+     *
+     * @param childRdn the normalized Rdn of the child
+     * @param queue the queue the references of discarded child keys are enqueued to
+     * @return the canonical key of the child
+     */
+    DnKey getChild( String childRdn, ReferenceQueue<DnKey> queue )
+    {
+        ConcurrentMap<String, ChildReference> map = children;
+
+        if ( map == null )
+        {
+            synchronized ( this )
+            {
+                map = children;
+
+                if ( map == null )
+                {
+                    map = new ConcurrentHashMap<String, ChildReference>( 4 );
+                    children = map;
+                }
+            }
+        }
+
+        while ( true )
+        {
+            ChildReference reference = map.get( childRdn );
+            DnKey child = reference != null ? reference.get() : null;
+
+            if ( child != null )
+            {
+                return child;
+            }
+
+            child = new DnKey( this, childRdn );
+            ChildReference newReference = new ChildReference( child, queue );
+
+            if ( reference == null ? map.putIfAbsent( childRdn, newReference ) == null : map.replace( childRdn,
+                reference, newReference ) )
+            {
+                return child;
+            }
+        }
+    }
+
+
+    /**
+     * Gets the child keys that are still in use.
+     *
+     * @return the child keys, may be empty
+     */
+    List<DnKey> getChildren()
+    {
+        ConcurrentMap<String, ChildReference> map = children;
+
+        if ( map == null )
+        {
+            return Collections.emptyList();
+        }
+
+        List<DnKey> list = new ArrayList<DnKey>( map.size() );
+
+        for ( ChildReference reference : map.values() )
+        {
+            DnKey child = reference.get();
+
+            if ( child != null )
+            {
+                list.add( child );
+            }
+        }
+
+        return list;
+    }
+
+
+    /**
+     * Removes the given reference of a discarded child key, if it wasn't replaced yet.
+     *
+     * @param reference the reference of the discarded child key
+     */
+    void removeChild( ChildReference reference )
+    {
+        ConcurrentMap<String, ChildReference> map = children;
+
+        if ( map != null )
+        {
+            map.remove( reference.rdn, reference );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+
+        if ( !( obj instanceof DnKey ) )
+        {
+            return false;
+        }
+
+        DnKey other = ( DnKey ) obj;
+
+        // the parents are canonical instances
+        return parent == other.parent && hashCode == other.hashCode && rdn.equals( other.rdn );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        if ( parent == null )
+        {
+            return rdn;
+        }
+
+        return parent.parent == null ? rdn : rdn + ',' + parent;
+    }
+
+
+    /**
+     * A weak reference to a child key. It remembers the parent and the Rdn
+     * of the child to remove it from the parent once the child was discarded.
+     */
+    static final class ChildReference extends WeakReference<DnKey>
+    {
+        /** The parent key */
+        final DnKey parent;
+
+        /** The normalized Rdn of the child */
+        final String rdn;
+
+
+        private ChildReference( DnKey child, ReferenceQueue<DnKey> queue )
+        {
+            super( child, queue );
+            this.parent = child.parent;
+            this.rdn = child.rdn;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.name.Ava;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+
+
+/**
+ * Creates the canonical {@link DnKey}s of a {@link BrowserConnection}.
+ * <p>
+ * A Dn is normalized like {@link org.apache.directory.studio.ldapbrowser.core.utils.Utils#getNormalizedOidString(Dn, Schema)}:
+ * the attribute types are replaced by their OIDs and the values are trimmed and lowercased.
+ * But only the Rdns are normalized: the key of a Dn is the interned key of its parent
+ * plus the normalized Rdn, so keys of entries below the same parent share the parent
+ * instance and the full normalized Dn string is never built. The canonical keys are
+ * interned in the key tree, each parent key weakly references its children: a key is
+ * found by walking down from the root key and keys are discarded when no cache uses
+ * them anymore. The factory is thread-safe without a global lock.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class DnKeyFactory
+{
+    /** The key of the empty Dn */
+    private final DnKey root = new DnKey( null, "" ); //$NON-NLS-1$
+
+    /** The queue of the references of discarded keys */
+    private final ReferenceQueue<DnKey> queue = new ReferenceQueue<DnKey>();
+
+    /** The lower cased OIDs by attribute type, resolved using the schema */
+    private volatile Oids oids = new Oids( null );
+
+
+    /**
+     * Gets the canonical key of the given Dn.
+     *
+     * @param dn the Dn
+     * @param schema the schema used to resolve the attribute types, may be null
+     * @return the canonical key
+     */
+    DnKey getKey( Dn dn, Schema schema )
+    {
+        expungeDiscardedKeys();
+
+        Oids currentOids = oids;
+        if ( currentOids.schema != schema )
+        {
+            currentOids = new Oids( schema );
+            oids = currentOids;
+        }
+
+        DnKey key = root;
+        List<Rdn> rdns = dn.getRdns();
+
+        // the Rdns of a Dn are ordered from the entry to the root
+        for ( int i = rdns.size() - 1; i >= 0; i-- )
+        {
+            key = key.getChild( normalize( rdns.get( i ), currentOids ), queue );
+        }
+
+        return key;
+    }
+
+
+    /**
+     * Removes the references of discarded keys from their parents.
+     */
+    private void expungeDiscardedKeys()
+    {
+        Reference<? extends DnKey> reference;
+
+        while ( ( reference = queue.poll() ) != null )
+        {
+            DnKey.ChildReference childReference = ( DnKey.ChildReference ) reference;
+            childReference.parent.removeChild( childReference );
+        }
+    }
+
+
+    private String normalize( Rdn rdn, Oids oids )
+    {
+        if ( rdn.size() == 1 )
+        {
+            return normalize( rdn.getAva(), oids );
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        for ( Ava ava : rdn )
+        {
+            if ( sb.length() > 0 )
+            {
+                sb.append( '+' );
+            }
+
+            sb.append( normalize( ava, oids ) );
+        }
+
+        return sb.toString();
+    }
+
+
+    private String normalize( Ava ava, Oids oids )
+    {
+        Value value = ava.getValue();
+        String string = value != null ? value.getString() : ""; //$NON-NLS-1$
+
+        return oids.getOid( ava.getNormType() ) + '=' + Strings.trim( string ).toLowerCase();
+    }
+
+
+    /**
+     * The lower cased OIDs by attribute type, resolved using a schema. The OIDs are
+     * replaced as a whole when the schema changes.
+     */
+    private static final class Oids
+    {
+        /** The schema, may be null */
+        private final Schema schema;
+
+        /** The lower cased OIDs by attribute type */
+        private final Map<String, String> map = new ConcurrentHashMap<String, String>();
+
+
+        private Oids( Schema schema )
+        {
+            this.schema = schema;
+        }
+
+
+        private String getOid( String type )
+        {
+            String oid = map.get( type );
+
+            if ( oid == null )
+            {
+                oid = schema != null ? schema.getAttributeTypeDescription( type ).getOid() : type;
+                oid = Strings.toLowerCaseAscii( Strings.trim( oid ) );
+                map.put( type, oid );
+            }
+
+            return oid;
+        }
+    }
+}
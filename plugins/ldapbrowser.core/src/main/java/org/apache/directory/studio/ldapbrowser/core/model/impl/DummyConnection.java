@@ -21,14 +21,19 @@
 package org.apache.directory.studio.ldapbrowser.core.model.impl;
 
 
+import java.util.Collection;
+import java.util.Collections;
+
 import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.api.ldap.model.url.LdapUrl;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.ldapbrowser.core.BookmarkManager;
 import org.apache.directory.studio.ldapbrowser.core.SearchManager;
+import org.apache.directory.studio.ldapbrowser.core.model.EntryCacheStatistics;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.IRootDSE;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
 
 
@@ -420,6 +425,40 @@ public class DummyConnection implements IBrowserConnection
     }
 
 
+    /** 
+     * {@inheritDoc}
+     */
+    public Collection<ISearch> getSearchesWithResult( IEntry entry )
+    {
+        return Collections.emptyList();
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public Collection<ISearch> removeSearchResults( Collection<IEntry> entries )
+    {
+        return Collections.emptyList();
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public void pinEntry( IEntry entry )
+    {
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public void unpinEntry( IEntry entry )
+    {
+    }
+
+
     /** 
      * {@inheritDoc}
      */
@@ -427,4 +466,13 @@ public class DummyConnection implements IBrowserConnection
     {
     }
 
+
+    /** 
+     * {@inheritDoc}
+     */
+    public EntryCacheStatistics getEntryCacheStatistics()
+    {
+        return EntryCacheStatistics.EMPTY;
+    }
+
 }
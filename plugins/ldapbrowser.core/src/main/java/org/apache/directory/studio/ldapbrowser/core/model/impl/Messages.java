@@ -32,6 +32,7 @@ public class Messages extends NLS
 {
     private static final String BUNDLE_NAME = "org.apache.directory.studio.ldapbrowser.core.model.impl.messages"; //$NON-NLS-1$
     public static String Value_Unknown;
+    public static String CompactSearchResult_ReadOnly;
     static
     {
         // initialize resource bundle
@@ -37,6 +37,7 @@ import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.events.SearchUpdateEvent;
 import org.apache.directory.studio.ldapbrowser.core.internal.search.LdapSearchPageScoreComputer;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
@@ -61,6 +62,9 @@ public class Search implements ISearch
     /** The search results. */
     protected ISearchResult[] searchResults;
 
+    /** The search results whose entries are pinned, null if none. */
+    private transient ISearchResult[] pinnedSearchResults;
+
     /** The search parameter. */
     protected SearchParameter searchParameter;
 
@@ -416,6 +420,7 @@ public class Search implements ISearch
     public void setSearchResults( ISearchResult[] searchResults )
     {
         this.searchResults = searchResults;
+        updatePinnedSearchResults();
         if ( searchResults != null && getName() != null )
         {
             fireSearchUpdated( SearchUpdateEvent.EventDetail.SEARCH_PERFORMED );
@@ -423,6 +428,66 @@ public class Search implements ISearch
     }
 
 
+    /**
+     * Pins the entries of the search results while the search is managed by the
+     * search manager of its connection, and unpins the entries of the previous
+     * search results. Temporary copies of the search don't pin entries.
+     */
+    private void updatePinnedSearchResults()
+    {
+        IBrowserConnection browserConnection = getBrowserConnection();
+        ISearchResult[] toPin = null;
+        if ( searchResults != null && browserConnection != null && browserConnection.getSearchManager() != null )
+        {
+            for ( ISearch search : browserConnection.getSearchManager().getSearches() )
+            {
+                if ( search == this )
+                {
+                    toPin = searchResults;
+                    break;
+                }
+            }
+        }
+
+        ISearchResult[] toUnpin = pinnedSearchResults;
+        pinnedSearchResults = toPin;
+        pinEntries( toPin, true );
+        pinEntries( toUnpin, false );
+    }
+
+
+    /**
+     * Pins or unpins the entries of the given search results. Compact search results
+     * are skipped, their entries are not cached.
+     *
+     * @param searchResults the search results, may be null
+     * @param pin true to pin, false to unpin
+     */
+    private static void pinEntries( ISearchResult[] searchResults, boolean pin )
+    {
+        if ( searchResults == null )
+        {
+            return;
+        }
+
+        for ( ISearchResult searchResult : searchResults )
+        {
+            if ( searchResult != null && !( searchResult instanceof CompactSearchResult ) )
+            {
+                IEntry entry = searchResult.getEntry();
+                if ( pin )
+                {
+                    entry.getBrowserConnection().pinEntry( entry );
+                }
+                else
+                {
+                    entry.getBrowserConnection().unpinEntry( entry );
+                }
+            }
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
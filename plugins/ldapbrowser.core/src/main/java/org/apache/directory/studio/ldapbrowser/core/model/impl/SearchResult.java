@@ -187,30 +187,30 @@ public class SearchResult implements ISearchResult
             return true;
         }
 
-        if ( !( obj instanceof SearchResult ) )
+        if ( !( obj instanceof ISearchResult ) )
         {
             return false;
         }
-        SearchResult other = ( SearchResult ) obj;
+        ISearchResult other = ( ISearchResult ) obj;
         if ( entry == null )
         {
-            if ( other.entry != null )
+            if ( other.getEntry() != null )
             {
                 return false;
             }
         }
-        else if ( !entry.equals( other.entry ) )
+        else if ( !entry.equals( other.getEntry() ) )
         {
             return false;
         }
         if ( search == null )
         {
-            if ( other.search != null )
+            if ( other.getSearch() != null )
             {
                 return false;
             }
         }
-        else if ( !search.equals( other.search ) )
+        else if ( !search.equals( other.getSearch() ) )
         {
             return false;
         }
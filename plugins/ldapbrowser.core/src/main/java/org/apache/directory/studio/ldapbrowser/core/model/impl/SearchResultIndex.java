@@ -0,0 +1,264 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.studio.ldapbrowser.core.model.ICompareableEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
+
+
+/**
+ * An index of the positions of the entries in the search results of the searches
+ * of a {@link BrowserConnection}, used to update the searches after entries were
+ * deleted, moved or renamed without scanning all search results for each entry.
+ * <p>
+ * The index of a search is built when it is first used after the search was performed,
+ * i.e. when the search results array was replaced, and is kept as long as the search
+ * results are unchanged.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class SearchResultIndex
+{
+    /** The browser connection */
+    private final BrowserConnection browserConnection;
+
+    /** The positions, by search */
+    private final Map<ISearch, Positions> positionsMap = new IdentityHashMap<ISearch, Positions>();
+
+
+    /**
+     * Creates a new instance of SearchResultIndex.
+     *
+     * @param browserConnection the browser connection
+     */
+    SearchResultIndex( BrowserConnection browserConnection )
+    {
+        this.browserConnection = browserConnection;
+    }
+
+
+    /**
+     * Gets the searches that have a search result of the given entry.
+     *
+     * @param entry the entry
+     * @return the searches, in the order of the search manager
+     */
+    synchronized Collection<ISearch> getSearches( IEntry entry )
+    {
+        DnKey key = browserConnection.getDnKey( entry.getDn() );
+        Collection<ISearch> searches = new ArrayList<ISearch>();
+
+        for ( ISearch search : getIndexedSearches() )
+        {
+            Positions positions = getPositions( search );
+            if ( positions != null && positions.first.containsKey( key ) )
+            {
+                searches.add( search );
+            }
+        }
+
+        return searches;
+    }
+
+
+    /**
+     * Removes the search results of the given entries from the searches.
+     *
+     * @param entries the entries
+     * @return the searches whose search results were changed, in the order of the search manager
+     */
+    synchronized Collection<ISearch> removeSearchResults( Collection<IEntry> entries )
+    {
+        Set<DnKey> keys = new HashSet<DnKey>();
+        for ( IEntry entry : entries )
+        {
+            keys.add( browserConnection.getDnKey( entry.getDn() ) );
+        }
+
+        Collection<ISearch> searches = new LinkedHashSet<ISearch>();
+
+        for ( ISearch search : getIndexedSearches() )
+        {
+            Positions positions = getPositions( search );
+            if ( positions == null )
+            {
+                continue;
+            }
+
+            boolean[] removed = null;
+            int removedCount = 0;
+            for ( DnKey key : keys )
+            {
+                Integer first = positions.first.get( key );
+                for ( int i = first != null ? first : -1; i >= 0; i = positions.next[i] )
+                {
+                    if ( removed == null )
+                    {
+                        removed = new boolean[positions.searchResults.length];
+                    }
+                    removed[i] = true;
+                    removedCount++;
+                }
+            }
+
+            if ( removedCount > 0 )
+            {
+                ISearchResult[] searchResults = new ISearchResult[positions.searchResults.length - removedCount];
+                int j = 0;
+                for ( int i = 0; i < positions.searchResults.length; i++ )
+                {
+                    if ( !removed[i] )
+                    {
+                        searchResults[j++] = positions.searchResults[i];
+                    }
+                }
+
+                // the positions are rebuilt when needed
+                positionsMap.remove( search );
+                search.setSearchResults( searchResults );
+                searches.add( search );
+            }
+        }
+
+        return searches;
+    }
+
+
+    /**
+     * Gets the searches of the browser connection and discards the positions
+     * of the searches that were removed.
+     */
+    private List<ISearch> getIndexedSearches()
+    {
+        List<ISearch> searches = browserConnection.getSearchManager().getSearches();
+
+        if ( positionsMap.size() > searches.size() )
+        {
+            Map<ISearch, Positions> retained = new IdentityHashMap<ISearch, Positions>();
+            for ( ISearch search : searches )
+            {
+                if ( positionsMap.containsKey( search ) )
+                {
+                    retained.put( search, positionsMap.get( search ) );
+                }
+            }
+            positionsMap.clear();
+            positionsMap.putAll( retained );
+        }
+
+        return searches;
+    }
+
+
+    /**
+     * Gets the positions of the search results of the given search, builds them if the
+     * search results were changed.
+     *
+     * @return the positions, null if the search has no search results
+     */
+    private Positions getPositions( ISearch search )
+    {
+        ISearchResult[] searchResults = search.getSearchResults();
+
+        if ( searchResults == null )
+        {
+            positionsMap.remove( search );
+            return null;
+        }
+
+        Positions positions = positionsMap.get( search );
+        if ( positions == null || positions.searchResults != searchResults )
+        {
+            positions = new Positions( searchResults );
+            positionsMap.put( search, positions );
+        }
+
+        return positions;
+    }
+
+
+    /**
+     * The positions of the entries in a search results array.
+     */
+    private class Positions
+    {
+        /** The indexed search results */
+        private final ISearchResult[] searchResults;
+
+        /** The first position, by entry key */
+        private final Map<DnKey, Integer> first;
+
+        /** The next position of the same entry, by position, -1 if none */
+        private final int[] next;
+
+
+        private Positions( ISearchResult[] searchResults )
+        {
+            this.searchResults = searchResults;
+            this.first = new HashMap<DnKey, Integer>( searchResults.length * 4 / 3 + 1 );
+            this.next = new int[searchResults.length];
+            Arrays.fill( next, -1 );
+
+            // iterate backwards to chain the positions in ascending order
+            for ( int i = searchResults.length - 1; i >= 0; i-- )
+            {
+                if ( isEntryOfConnection( searchResults[i] ) )
+                {
+                    Integer previous = first.put( browserConnection.getDnKey( searchResults[i].getDn() ), i );
+                    if ( previous != null )
+                    {
+                        next[i] = previous;
+                    }
+                }
+            }
+        }
+
+
+        /**
+         * Checks if the entry of the search result may be equal to an entry of the browser
+         * connection: entries of continued searches and of other connections never are.
+         */
+        private boolean isEntryOfConnection( ISearchResult searchResult )
+        {
+            if ( searchResult instanceof CompactSearchResult )
+            {
+                return true;
+            }
+
+            IEntry entry = searchResult.getEntry();
+            return entry instanceof ICompareableEntry && browserConnection.equals( entry.getBrowserConnection() );
+        }
+    }
+}
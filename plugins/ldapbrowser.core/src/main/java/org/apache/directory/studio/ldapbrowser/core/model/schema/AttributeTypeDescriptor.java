@@ -0,0 +1,190 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+
+
+/**
+ * The resolved schema information of an attribute type, as needed to display
+ * and edit attribute values: the syntax and matching rules, inherited from the
+ * superior attribute types, and the binary, operational and modifiable flags.
+ * <p>
+ * Descriptors are immutable, they are created once per attribute description by
+ * {@link Schema#getAttributeTypeDescriptor(String, Set, Set)} and recreated when the schema
+ * is reloaded or the binary attribute or syntax preferences are changed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class AttributeTypeDescriptor
+{
+    /** The attribute type */
+    private final AttributeType attributeType;
+
+    /** The numeric OID of the syntax, may be null */
+    private final String syntaxNumericOid;
+
+    /** The equality matching rule name or OID, may be null */
+    private final String equalityMatchingRule;
+
+    /** The substring matching rule name or OID, may be null */
+    private final String substringMatchingRule;
+
+    /** The ordering matching rule name or OID, may be null */
+    private final String orderingMatchingRule;
+
+    /** The binary flag */
+    private final boolean binary;
+
+    /** The operational flag */
+    private final boolean operational;
+
+    /** The modifiable flag */
+    private final boolean modifiable;
+
+
+    /**
+     * Creates the descriptor of the given attribute type.
+     *
+     * @param attributeType the attribute type
+     * @param schema the schema
+     * @param binaryAttributes the upper-cased OIDs and names of the user-defined binary attributes
+     * @param binarySyntaxes the upper-cased OIDs of the user-defined binary syntaxes
+     */
+    AttributeTypeDescriptor( AttributeType attributeType, Schema schema, Set<String> binaryAttributes,
+        Set<String> binarySyntaxes )
+    {
+        this.attributeType = attributeType;
+        this.syntaxNumericOid = SchemaUtils.getSyntaxNumericOidTransitive( attributeType, schema );
+        this.equalityMatchingRule = SchemaUtils.getEqualityMatchingRuleNameOrNumericOidTransitive( attributeType,
+            schema );
+        this.substringMatchingRule = SchemaUtils.getSubstringMatchingRuleNameOrNumericOidTransitive( attributeType,
+            schema );
+        this.orderingMatchingRule = SchemaUtils.getOrderingMatchingRuleNameOrNumericOidTransitive( attributeType,
+            schema );
+        this.binary = SchemaUtils.isBinary( attributeType, schema, binaryAttributes, binarySyntaxes );
+        this.operational = SchemaUtils.isOperational( attributeType );
+        this.modifiable = SchemaUtils.isModifiable( attributeType );
+    }
+
+
+    /**
+     * Gets the attribute type.
+     *
+     * @return the attribute type
+     */
+    public AttributeType getAttributeType()
+    {
+        return attributeType;
+    }
+
+
+    /**
+     * Gets the numeric OID of the syntax of the attribute type or its superiors.
+     *
+     * @return the numeric OID of the syntax, may be null
+     */
+    public String getSyntaxNumericOid()
+    {
+        return syntaxNumericOid;
+    }
+
+
+    /**
+     * Gets the equality matching rule of the attribute type or its superiors.
+     *
+     * @return the equality matching rule name or OID, may be null
+     */
+    public String getEqualityMatchingRule()
+    {
+        return equalityMatchingRule;
+    }
+
+
+    /**
+     * Gets the substring matching rule of the attribute type or its superiors.
+     *
+     * @return the substring matching rule name or OID, may be null
+     */
+    public String getSubstringMatchingRule()
+    {
+        return substringMatchingRule;
+    }
+
+
+    /**
+     * Gets the ordering matching rule of the attribute type or its superiors.
+     *
+     * @return the ordering matching rule name or OID, may be null
+     */
+    public String getOrderingMatchingRule()
+    {
+        return orderingMatchingRule;
+    }
+
+
+    /**
+     * Checks if the attribute type is binary, according to the binary
+     * attribute and syntax sets the descriptor was created with.
+     *
+     * @return true if the attribute type is binary
+     */
+    public boolean isBinary()
+    {
+        return binary;
+    }
+
+
+    /**
+     * Checks if the attribute type is a string attribute type.
+     *
+     * @return true if the attribute type is not binary
+     */
+    public boolean isString()
+    {
+        return !binary;
+    }
+
+
+    /**
+     * Checks if the attribute type is operational.
+     *
+     * @return true if the attribute type is operational
+     */
+    public boolean isOperational()
+    {
+        return operational;
+    }
+
+
+    /**
+     * Checks if the attribute type is modifiable.
+     *
+     * @return true if the attribute type is modifiable
+     */
+    public boolean isModifiable()
+    {
+        return modifiable;
+    }
+}
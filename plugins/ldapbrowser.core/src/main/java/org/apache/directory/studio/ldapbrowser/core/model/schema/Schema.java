@@ -21,8 +21,12 @@
 package org.apache.directory.studio.ldapbrowser.core.model.schema;
 
 
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.URL;
@@ -33,9 +37,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.api.ldap.model.schema.LdapSyntax;
@@ -56,6 +62,7 @@ import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifSepLine;
 import org.apache.directory.studio.ldifparser.parser.LdifParser;
 
 
@@ -137,6 +144,12 @@ public class Schema
 
     private Map<String, MatchingRuleUse> mrudMapByNameOrNumericOid;
 
+    /** The reverse indexes, built on first use after the schema was loaded */
+    private volatile SchemaIndex index;
+
+    /** The attribute type descriptors, filled on demand after the schema was loaded */
+    private volatile DescriptorTable descriptorTable;
+
 
     /**
      * Creates a new instance of Schema.
@@ -223,6 +236,153 @@ public class Schema
     }
 
 
+    /**
+     * Loads all schema elements from the given snapshot, written by
+     * {@link #saveToSnapshot(OutputStream)}. The schema elements are stored
+     * pre-parsed, only schema values which couldn't be stored pre-parsed are
+     * parsed again.
+     * 
+     * @param in the input stream
+     * @param length the length of the snapshot in bytes, the lengths stored
+     *        in the snapshot are checked against it
+     * 
+     * @throws IOException if the snapshot couldn't be read, is corrupt or was
+     *         written with another version of the snapshot format
+     */
+    public void loadFromSnapshot( InputStream in, long length ) throws IOException
+    {
+        SchemaSnapshot snapshot = new SchemaSnapshot( in, length );
+        DataInput input = snapshot.getInput();
+        if ( input.readInt() != SchemaSnapshot.MAGIC || input.readInt() != SchemaSnapshot.VERSION )
+        {
+            throw new IOException( "Unsupported schema snapshot" ); //$NON-NLS-1$
+        }
+
+        String dnString = snapshot.readValue();
+        LdifContentRecord schemaRecord = LdifContentRecord.create( dnString );
+        DescriptionParsers parsers = new DescriptionParsers();
+
+        // each value consists of the kind, the attribute name and the value
+        int count = snapshot.readLength( 9 );
+        for ( int i = 0; i < count; i++ )
+        {
+            byte kind = input.readByte();
+            String attributeName = snapshot.readString();
+            String value = snapshot.readValue();
+            schemaRecord.addAttrVal( LdifAttrValLine.create( attributeName, value ) );
+
+            switch ( kind )
+            {
+                case SchemaSnapshot.OBJECT_CLASS:
+                    addObjectClass( snapshot.readObjectClass( value ) );
+                    break;
+                case SchemaSnapshot.ATTRIBUTE_TYPE:
+                    addAttributeType( snapshot.readAttributeType( value ) );
+                    break;
+                case SchemaSnapshot.LDAP_SYNTAX:
+                    addLdapSyntax( snapshot.readLdapSyntax( value ) );
+                    break;
+                case SchemaSnapshot.MATCHING_RULE:
+                    addMatchingRule( snapshot.readMatchingRule( value ) );
+                    break;
+                case SchemaSnapshot.MATCHING_RULE_USE:
+                    addMatchingRuleUse( snapshot.readMatchingRuleUse( value ) );
+                    break;
+                default:
+                    parseSchemaValue( parsers, attributeName, value );
+                    break;
+            }
+        }
+
+        // a truncated snapshot is rejected
+        if ( input.readInt() != SchemaSnapshot.MAGIC )
+        {
+            throw new IOException( "Incomplete schema snapshot" ); //$NON-NLS-1$
+        }
+
+        schemaRecord.finish( LdifSepLine.create() );
+        setSchemaRecord( schemaRecord );
+        try
+        {
+            setDn( new Dn( dnString ) );
+        }
+        catch ( LdapInvalidDnException e )
+        {
+            throw new IOException( e );
+        }
+
+        completeSchema();
+    }
+
+
+    /**
+     * Saves the schema as snapshot to the given output stream. The snapshot
+     * contains the values of the schema record and the schema elements
+     * pre-parsed, so it could be loaded without parsing the schema again.
+     * 
+     * @param out the output stream
+     * 
+     * @throws IOException if the snapshot couldn't be written
+     */
+    public void saveToSnapshot( OutputStream out ) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream( out );
+        output.writeInt( SchemaSnapshot.MAGIC );
+        output.writeInt( SchemaSnapshot.VERSION );
+
+        SchemaSnapshot snapshot = new SchemaSnapshot( output );
+        snapshot.writeValue( getSchemaRecord().getDnLine().getValueAsString() );
+
+        LdifAttrValLine[] lines = getSchemaRecord().getAttrVals();
+        output.writeInt( lines.length );
+        for ( LdifAttrValLine line : lines )
+        {
+            String attributeName = line.getUnfoldedAttributeDescription();
+            String value = line.getValueAsString();
+            String oid = SchemaSnapshot.getOid( value );
+
+            // only elements parsed from this very value are stored pre-parsed
+            if ( attributeName.equalsIgnoreCase( SchemaConstants.OBJECT_CLASSES_AT )
+                && SchemaSnapshot.isParsedFrom( ocdMapByNameOrNumericOid.get( oid ), value ) )
+            {
+                snapshot.writeRecordValue( SchemaSnapshot.OBJECT_CLASS, attributeName, value );
+                snapshot.writeObjectClass( ocdMapByNameOrNumericOid.get( oid ), value );
+            }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.ATTRIBUTE_TYPES_AT )
+                && SchemaSnapshot.isParsedFrom( atdMapByNameOrNumericOid.get( oid ), value ) )
+            {
+                snapshot.writeRecordValue( SchemaSnapshot.ATTRIBUTE_TYPE, attributeName, value );
+                snapshot.writeAttributeType( atdMapByNameOrNumericOid.get( oid ), value );
+            }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.LDAP_SYNTAXES_AT )
+                && SchemaSnapshot.isParsedFrom( lsdMapByNumericOid.get( oid ), value ) )
+            {
+                snapshot.writeRecordValue( SchemaSnapshot.LDAP_SYNTAX, attributeName, value );
+                snapshot.writeLdapSyntax( lsdMapByNumericOid.get( oid ), value );
+            }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.MATCHING_RULES_AT )
+                && SchemaSnapshot.isParsedFrom( mrdMapByNameOrNumericOid.get( oid ), value ) )
+            {
+                snapshot.writeRecordValue( SchemaSnapshot.MATCHING_RULE, attributeName, value );
+                snapshot.writeMatchingRule( mrdMapByNameOrNumericOid.get( oid ), value );
+            }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.MATCHING_RULE_USE_AT )
+                && SchemaSnapshot.isParsedFrom( mrudMapByNameOrNumericOid.get( oid ), value ) )
+            {
+                snapshot.writeRecordValue( SchemaSnapshot.MATCHING_RULE_USE, attributeName, value );
+                snapshot.writeMatchingRuleUse( mrudMapByNameOrNumericOid.get( oid ), value );
+            }
+            else
+            {
+                snapshot.writeRecordValue( SchemaSnapshot.PLAIN, attributeName, value );
+            }
+        }
+
+        output.writeInt( SchemaSnapshot.MAGIC );
+        output.flush();
+    }
+
+
     /**
      * Parses the schema record.
      * 
@@ -235,80 +395,91 @@ public class Schema
         setSchemaRecord( schemaRecord );
         setDn( new Dn( schemaRecord.getDnLine().getValueAsString() ) );
 
-        ObjectClassDescriptionSchemaParser ocdPparser = new ObjectClassDescriptionSchemaParser();
-        ocdPparser.setQuirksMode( true );
-        AttributeTypeDescriptionSchemaParser atdParser = new AttributeTypeDescriptionSchemaParser();
-        atdParser.setQuirksMode( true );
-        LdapSyntaxDescriptionSchemaParser lsdParser = new LdapSyntaxDescriptionSchemaParser();
-        lsdParser.setQuirksMode( true );
-        MatchingRuleDescriptionSchemaParser mrdParser = new MatchingRuleDescriptionSchemaParser();
-        mrdParser.setQuirksMode( true );
-        MatchingRuleUseDescriptionSchemaParser mrudParser = new MatchingRuleUseDescriptionSchemaParser();
-        mrudParser.setQuirksMode( true );
+        DescriptionParsers parsers = new DescriptionParsers();
 
         LdifAttrValLine[] lines = schemaRecord.getAttrVals();
         for ( int i = 0; i < lines.length; i++ )
         {
             LdifAttrValLine line = lines[i];
-            String attributeName = line.getUnfoldedAttributeDescription();
-            String value = line.getValueAsString();
-            List<String> ldifValues = new ArrayList<String>( 1 );
-            ldifValues.add( value );
+            parseSchemaValue( parsers, line.getUnfoldedAttributeDescription(), line.getValueAsString() );
+        }
+
+        completeSchema();
+    }
 
-            try
+
+    /**
+     * Parses a value of the schema record.
+     * 
+     * @param parsers the schema description parsers
+     * @param attributeName the attribute description
+     * @param value the value
+     */
+    private void parseSchemaValue( DescriptionParsers parsers, String attributeName, String value )
+    {
+        List<String> ldifValues = new ArrayList<String>( 1 );
+        ldifValues.add( value );
+
+        try
+        {
+            if ( attributeName.equalsIgnoreCase( SchemaConstants.OBJECT_CLASSES_AT ) )
             {
-                if ( attributeName.equalsIgnoreCase( SchemaConstants.OBJECT_CLASSES_AT ) )
-                {
-                    ObjectClass ocd = ocdPparser.parse( value );
-                    ocd.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
-                    addObjectClass( ocd );
-                }
-                else if ( attributeName.equalsIgnoreCase( SchemaConstants.ATTRIBUTE_TYPES_AT ) )
-                {
-                    AttributeType atd = atdParser.parse( value );
-                    atd.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
-                    addAttributeType( atd );
-                }
-                else if ( attributeName.equalsIgnoreCase( SchemaConstants.LDAP_SYNTAXES_AT ) )
-                {
-                    LdapSyntax lsd = lsdParser.parse( value );
-                    if ( StringUtils.isEmpty( lsd.getDescription() )
-                        && Utils.getOidDescription( lsd.getOid() ) != null )
-                    {
-                        lsd.setDescription( Utils.getOidDescription( lsd.getOid() ) );
-                    }
-                    lsd.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
-                    addLdapSyntax( lsd );
-                }
-                else if ( attributeName.equalsIgnoreCase( SchemaConstants.MATCHING_RULES_AT ) )
-                {
-                    MatchingRule mrd = mrdParser.parse( value );
-                    mrd.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
-                    addMatchingRule( mrd );
-                }
-                else if ( attributeName.equalsIgnoreCase( SchemaConstants.MATCHING_RULE_USE_AT ) )
-                {
-                    MatchingRuleUse mrud = mrudParser.parse( value );
-                    mrud.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
-                    addMatchingRuleUse( mrud );
-                }
-                else if ( attributeName.equalsIgnoreCase( SchemaConstants.CREATE_TIMESTAMP_AT ) )
-                {
-                    setCreateTimestamp( value );
-                }
-                else if ( attributeName.equalsIgnoreCase( SchemaConstants.MODIFY_TIMESTAMP_AT ) )
+                ObjectClass ocd = parsers.ocdPparser.parse( value );
+                ocd.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
+                addObjectClass( ocd );
+            }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.ATTRIBUTE_TYPES_AT ) )
+            {
+                AttributeType atd = parsers.atdParser.parse( value );
+                atd.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
+                addAttributeType( atd );
+            }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.LDAP_SYNTAXES_AT ) )
+            {
+                LdapSyntax lsd = parsers.lsdParser.parse( value );
+                if ( StringUtils.isEmpty( lsd.getDescription() )
+                    && Utils.getOidDescription( lsd.getOid() ) != null )
                 {
-                    setModifyTimestamp( value );
+                    lsd.setDescription( Utils.getOidDescription( lsd.getOid() ) );
                 }
+                lsd.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
+                addLdapSyntax( lsd );
             }
-            catch ( Exception e )
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.MATCHING_RULES_AT ) )
             {
-                // TODO: exception handling
-                System.out.println( "Error reading schema: " + attributeName + " = " + value ); //$NON-NLS-1$ //$NON-NLS-2$
-                System.out.println( e.getMessage() );
+                MatchingRule mrd = parsers.mrdParser.parse( value );
+                mrd.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
+                addMatchingRule( mrd );
             }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.MATCHING_RULE_USE_AT ) )
+            {
+                MatchingRuleUse mrud = parsers.mrudParser.parse( value );
+                mrud.addExtension( RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
+                addMatchingRuleUse( mrud );
+            }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.CREATE_TIMESTAMP_AT ) )
+            {
+                setCreateTimestamp( value );
+            }
+            else if ( attributeName.equalsIgnoreCase( SchemaConstants.MODIFY_TIMESTAMP_AT ) )
+            {
+                setModifyTimestamp( value );
+            }
+        }
+        catch ( Exception e )
+        {
+            // TODO: exception handling
+            System.out.println( "Error reading schema: " + attributeName + " = " + value ); //$NON-NLS-1$ //$NON-NLS-2$
+            System.out.println( e.getMessage() );
         }
+    }
+
 
+    /**
+     * Completes the schema after all schema elements were added.
+     */
+    private void completeSchema()
+    {
         for ( AttributeType atd : getAttributeTypeDescriptions() )
         {
             // assume all received syntaxes in attributes are valid -> create pseudo syntaxes if missing
@@ -333,6 +504,44 @@ public class Schema
         Collection<String> atdNames = SchemaUtils.getNames( userAtds );
         List<String> atdNames2 = new ArrayList<String>( atdNames );
         extensibleObjectOcd.setMayAttributeTypeOids( atdNames2 );
+
+        // the indexes are rebuilt on the next query, including those of the default
+        // schema if its extensibleObject object class was modified
+        index = null;
+        descriptorTable = null;
+        if ( !isDefault() && DEFAULT_SCHEMA != null
+            && !hasObjectClassDescription( SchemaConstants.EXTENSIBLE_OBJECT_OC ) )
+        {
+            DEFAULT_SCHEMA.index = null;
+        }
+    }
+
+
+    /**
+     * Gets the reverse indexes of this schema, they are built on the first
+     * invocation after the schema was loaded.
+     * 
+     * @return the reverse indexes
+     */
+    SchemaIndex getIndex()
+    {
+        SchemaIndex schemaIndex = index;
+
+        if ( schemaIndex == null )
+        {
+            synchronized ( this )
+            {
+                schemaIndex = index;
+
+                if ( schemaIndex == null )
+                {
+                    schemaIndex = new SchemaIndex( this );
+                    index = schemaIndex;
+                }
+            }
+        }
+
+        return schemaIndex;
     }
 
 
@@ -439,6 +648,94 @@ public class Schema
     }
 
 
+    /**
+     * Gets the descriptor of the given attribute description. The descriptors are
+     * computed once and shared, they are recomputed when the schema is reloaded or
+     * other binary attribute or syntax sets are given.
+     * 
+     * @param attributeDescription the attribute description
+     * @param binaryAttributes the upper-cased OIDs and names of the user-defined binary attributes
+     * @param binarySyntaxes the upper-cased OIDs of the user-defined binary syntaxes
+     * 
+     * @return the attribute type descriptor
+     * @see SchemaUtils#getAttributeTypeDescriptor(String, Schema)
+     */
+    public AttributeTypeDescriptor getAttributeTypeDescriptor( String attributeDescription,
+        Set<String> binaryAttributes, Set<String> binarySyntaxes )
+    {
+        if ( attributeDescription == null )
+        {
+            return new AttributeTypeDescriptor( getAttributeTypeDescription( attributeDescription ), this,
+                binaryAttributes, binarySyntaxes );
+        }
+
+        DescriptorTable table = descriptorTable;
+
+        // the preferences create new sets when the binary attributes or syntaxes are changed
+        if ( table == null || table.binaryAttributes != binaryAttributes || table.binarySyntaxes != binarySyntaxes )
+        {
+            table = new DescriptorTable( binaryAttributes, binarySyntaxes );
+            descriptorTable = table;
+        }
+
+        AttributeTypeDescriptor descriptor = table.descriptors.get( attributeDescription );
+
+        if ( descriptor == null )
+        {
+            descriptor = new AttributeTypeDescriptor( getAttributeTypeDescription( attributeDescription ), this,
+                binaryAttributes, binarySyntaxes );
+            table.descriptors.put( attributeDescription, descriptor );
+        }
+
+        return descriptor;
+    }
+
+    /**
+     * The attribute type descriptors and the binary preferences they were computed with.
+     */
+    private static final class DescriptorTable
+    {
+        private final Set<String> binaryAttributes;
+
+        private final Set<String> binarySyntaxes;
+
+        private final Map<String, AttributeTypeDescriptor> descriptors = new ConcurrentHashMap<>();
+
+
+        private DescriptorTable( Set<String> binaryAttributes, Set<String> binarySyntaxes )
+        {
+            this.binaryAttributes = binaryAttributes;
+            this.binarySyntaxes = binarySyntaxes;
+        }
+    }
+
+    /**
+     * The parsers of the schema descriptions, used for all values of a schema record.
+     */
+    private static final class DescriptionParsers
+    {
+        private final ObjectClassDescriptionSchemaParser ocdPparser = new ObjectClassDescriptionSchemaParser();
+
+        private final AttributeTypeDescriptionSchemaParser atdParser = new AttributeTypeDescriptionSchemaParser();
+
+        private final LdapSyntaxDescriptionSchemaParser lsdParser = new LdapSyntaxDescriptionSchemaParser();
+
+        private final MatchingRuleDescriptionSchemaParser mrdParser = new MatchingRuleDescriptionSchemaParser();
+
+        private final MatchingRuleUseDescriptionSchemaParser mrudParser = new MatchingRuleUseDescriptionSchemaParser();
+
+
+        private DescriptionParsers()
+        {
+            ocdPparser.setQuirksMode( true );
+            atdParser.setQuirksMode( true );
+            lsdParser.setQuirksMode( true );
+            mrdParser.setQuirksMode( true );
+            mrudParser.setQuirksMode( true );
+        }
+    }
+
+
     ////////////////////// Object Class Description //////////////////////
 
     /**
@@ -0,0 +1,361 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.MatchingRuleUse;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * Precomputed reverse indexes of a {@link Schema}, used by {@link SchemaUtils}
+ * to look up the users of a schema element instead of scanning all attribute
+ * types and object classes. All keys are lower case names or OIDs.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class SchemaIndex
+{
+    private static final int SYNTAX = 0;
+    private static final int EQUALITY = 1;
+    private static final int SUBSTRING = 2;
+    private static final int ORDERING = 3;
+
+    /** The schema */
+    private Schema schema;
+
+    /** The syntax and matching rules of each attribute type, inherited from its superiors */
+    private Map<AttributeType, String[]> resolvedAttributeTypes = new IdentityHashMap<>();
+
+    /** The transitive must attribute type names of each object class */
+    private Map<ObjectClass, Set<String>> mustNames = new IdentityHashMap<>();
+
+    /** The transitive may attribute type names of each object class */
+    private Map<ObjectClass, Set<String>> mayNames = new IdentityHashMap<>();
+
+    /** The attribute types by syntax OID */
+    private Map<String, Set<AttributeType>> attributeTypesBySyntax = new HashMap<>();
+
+    /** The attribute types by equality, substring or ordering matching rule */
+    private Map<String, Set<AttributeType>> attributeTypesByMatchingRule = new HashMap<>();
+
+    /** The attribute types by superior attribute type */
+    private Map<String, Set<AttributeType>> attributeTypesBySuperior = new HashMap<>();
+
+    /** The object classes by transitive must attribute type */
+    private Map<String, Set<ObjectClass>> objectClassesByMust = new HashMap<>();
+
+    /** The object classes by transitive may attribute type */
+    private Map<String, Set<ObjectClass>> objectClassesByMay = new HashMap<>();
+
+    /** The object classes by superior object class */
+    private Map<String, Set<ObjectClass>> objectClassesBySuperior = new HashMap<>();
+
+    /** The matching rule use names by applicable attribute type */
+    private Map<String, Set<String>> matchingRuleUseNamesByAttributeType = new HashMap<>();
+
+
+    /**
+     * Creates the indexes of the given schema.
+     *
+     * @param schema the schema
+     */
+    SchemaIndex( Schema schema )
+    {
+        this.schema = schema;
+
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            String[] resolved = resolve( atd, new HashSet<AttributeType>() );
+            add( attributeTypesBySyntax, resolved[SYNTAX], atd );
+            add( attributeTypesByMatchingRule, resolved[EQUALITY], atd );
+            add( attributeTypesByMatchingRule, resolved[SUBSTRING], atd );
+            add( attributeTypesByMatchingRule, resolved[ORDERING], atd );
+            add( attributeTypesBySuperior, atd.getSuperiorOid(), atd );
+        }
+
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            for ( String must : getMustNames( ocd, new HashSet<ObjectClass>() ) )
+            {
+                add( objectClassesByMust, must, ocd );
+            }
+
+            for ( String may : getMayNames( ocd, new HashSet<ObjectClass>() ) )
+            {
+                add( objectClassesByMay, may, ocd );
+            }
+
+            for ( String superior : ocd.getSuperiorOids() )
+            {
+                add( objectClassesBySuperior, superior, ocd );
+            }
+        }
+
+        for ( MatchingRuleUse mrud : schema.getMatchingRuleUseDescriptions() )
+        {
+            for ( String applicableAttribute : mrud.getApplicableAttributeOids() )
+            {
+                Set<String> names = matchingRuleUseNamesByAttributeType.get( Strings.toLowerCase( applicableAttribute ) );
+
+                if ( names == null )
+                {
+                    names = new HashSet<>();
+                    matchingRuleUseNamesByAttributeType.put( Strings.toLowerCase( applicableAttribute ), names );
+                }
+
+                names.addAll( mrud.getNames() );
+            }
+        }
+    }
+
+
+    /**
+     * Resolves the syntax and matching rules of the given attribute type, the
+     * values not defined by the attribute type itself are inherited from its superior.
+     */
+    private String[] resolve( AttributeType atd, Set<AttributeType> visited )
+    {
+        String[] resolved = resolvedAttributeTypes.get( atd );
+
+        if ( resolved != null )
+        {
+            return resolved;
+        }
+
+        resolved = new String[]
+            { atd.getSyntaxOid(), atd.getEqualityOid(), atd.getSubstringOid(), atd.getOrderingOid() };
+
+        // a cyclic superior chain just stops inheriting
+        if ( visited.add( atd ) && atd.getSuperiorOid() != null
+            && schema.hasAttributeTypeDescription( atd.getSuperiorOid() ) )
+        {
+            String[] superior = resolve( schema.getAttributeTypeDescription( atd.getSuperiorOid() ), visited );
+
+            for ( int i = 0; i < resolved.length; i++ )
+            {
+                if ( resolved[i] == null )
+                {
+                    resolved[i] = superior[i];
+                }
+            }
+        }
+
+        resolvedAttributeTypes.put( atd, resolved );
+
+        return resolved;
+    }
+
+
+    private Set<String> getMustNames( ObjectClass ocd, Set<ObjectClass> visited )
+    {
+        Set<String> musts = mustNames.get( ocd );
+
+        if ( musts == null )
+        {
+            musts = new HashSet<>( ocd.getMustAttributeTypeOids() );
+
+            if ( visited.add( ocd ) )
+            {
+                for ( String superior : ocd.getSuperiorOids() )
+                {
+                    if ( schema.hasObjectClassDescription( superior ) )
+                    {
+                        musts.addAll( getMustNames( schema.getObjectClassDescription( superior ), visited ) );
+                    }
+                }
+            }
+
+            mustNames.put( ocd, musts );
+        }
+
+        return musts;
+    }
+
+
+    private Set<String> getMayNames( ObjectClass ocd, Set<ObjectClass> visited )
+    {
+        Set<String> mays = mayNames.get( ocd );
+
+        if ( mays == null )
+        {
+            mays = new HashSet<>( ocd.getMayAttributeTypeOids() );
+
+            if ( visited.add( ocd ) )
+            {
+                for ( String superior : ocd.getSuperiorOids() )
+                {
+                    if ( schema.hasObjectClassDescription( superior ) )
+                    {
+                        mays.addAll( getMayNames( schema.getObjectClassDescription( superior ), visited ) );
+                    }
+                }
+            }
+
+            mayNames.put( ocd, mays );
+        }
+
+        return mays;
+    }
+
+
+    private static <T> void add( Map<String, Set<T>> index, String key, T value )
+    {
+        if ( key != null )
+        {
+            Set<T> values = index.get( Strings.toLowerCase( key ) );
+
+            if ( values == null )
+            {
+                values = new HashSet<>();
+                index.put( Strings.toLowerCase( key ), values );
+            }
+
+            values.add( value );
+        }
+    }
+
+
+    private static <T> Collection<T> get( Map<String, Set<T>> index, String key )
+    {
+        Set<T> values = key != null ? index.get( Strings.toLowerCase( key ) ) : null;
+
+        return values != null ? values : Collections.<T> emptySet();
+    }
+
+
+    /**
+     * Checks if the given attribute type is part of the indexed schema.
+     *
+     * @param atd the attribute type
+     * @return true if the attribute type is part of the indexed schema
+     */
+    boolean contains( AttributeType atd )
+    {
+        return resolvedAttributeTypes.containsKey( atd );
+    }
+
+
+    /**
+     * Checks if the given object class is part of the indexed schema.
+     *
+     * @param ocd the object class
+     * @return true if the object class is part of the indexed schema
+     */
+    boolean contains( ObjectClass ocd )
+    {
+        return mustNames.containsKey( ocd );
+    }
+
+
+    String getSyntaxTransitive( AttributeType atd )
+    {
+        return resolvedAttributeTypes.get( atd )[SYNTAX];
+    }
+
+
+    String getEqualityMatchingRuleTransitive( AttributeType atd )
+    {
+        return resolvedAttributeTypes.get( atd )[EQUALITY];
+    }
+
+
+    String getSubstringMatchingRuleTransitive( AttributeType atd )
+    {
+        return resolvedAttributeTypes.get( atd )[SUBSTRING];
+    }
+
+
+    String getOrderingMatchingRuleTransitive( AttributeType atd )
+    {
+        return resolvedAttributeTypes.get( atd )[ORDERING];
+    }
+
+
+    /**
+     * @return the transitive must attribute type names of an indexed object class, not to be modified
+     */
+    Set<String> getMustNamesTransitive( ObjectClass ocd )
+    {
+        return mustNames.get( ocd );
+    }
+
+
+    /**
+     * @return the transitive may attribute type names of an indexed object class, not to be modified
+     */
+    Set<String> getMayNamesTransitive( ObjectClass ocd )
+    {
+        return mayNames.get( ocd );
+    }
+
+
+    Collection<AttributeType> getAttributeTypesBySyntax( String syntaxOid )
+    {
+        return get( attributeTypesBySyntax, syntaxOid );
+    }
+
+
+    Collection<AttributeType> getAttributeTypesByMatchingRule( String nameOrOid )
+    {
+        return get( attributeTypesByMatchingRule, nameOrOid );
+    }
+
+
+    Collection<AttributeType> getAttributeTypesBySuperior( String nameOrOid )
+    {
+        return get( attributeTypesBySuperior, nameOrOid );
+    }
+
+
+    Collection<ObjectClass> getObjectClassesByMust( String nameOrOid )
+    {
+        return get( objectClassesByMust, nameOrOid );
+    }
+
+
+    Collection<ObjectClass> getObjectClassesByMay( String nameOrOid )
+    {
+        return get( objectClassesByMay, nameOrOid );
+    }
+
+
+    Collection<ObjectClass> getObjectClassesBySuperior( String nameOrOid )
+    {
+        return get( objectClassesBySuperior, nameOrOid );
+    }
+
+
+    Collection<String> getMatchingRuleUseNames( String nameOrOid )
+    {
+        return get( matchingRuleUseNamesByAttributeType, nameOrOid );
+    }
+}
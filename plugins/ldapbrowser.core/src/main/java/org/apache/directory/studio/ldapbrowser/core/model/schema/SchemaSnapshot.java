@@ -0,0 +1,541 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.api.ldap.model.schema.AbstractSchemaObject;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.LdapSyntax;
+import org.apache.directory.api.ldap.model.schema.MatchingRule;
+import org.apache.directory.api.ldap.model.schema.MatchingRuleUse;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.ObjectClassTypeEnum;
+import org.apache.directory.api.ldap.model.schema.UsageEnum;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * The binary format of the schema snapshots written by {@link Schema#saveToSnapshot(java.io.OutputStream)}.
+ * A snapshot starts with a magic number and the format version, followed by the Dn and the
+ * values of the schema record. Each value is tagged with the kind of the schema element
+ * which follows it pre-parsed, values without schema element are parsed again on load.
+ * The snapshot ends with the magic number.
+ * <p>
+ * Except the values of the schema record all strings are written only once, later
+ * occurrences refer to the first one. This keeps the snapshot small and the loaded
+ * schema elements share the many repeated OIDs and names.
+ * <p>
+ * When reading, each length and list size is checked against the remaining bytes
+ * of the snapshot, so a corrupt snapshot is rejected instead of causing a huge
+ * allocation.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class SchemaSnapshot
+{
+    /** The magic number at the start and the end of a snapshot */
+    static final int MAGIC = 0x44535353;
+
+    /** The version of the format, must be incremented when the format or the parsed fields change */
+    static final int VERSION = 1;
+
+    static final byte PLAIN = 0;
+    static final byte OBJECT_CLASS = 1;
+    static final byte ATTRIBUTE_TYPE = 2;
+    static final byte LDAP_SYNTAX = 3;
+    static final byte MATCHING_RULE = 4;
+    static final byte MATCHING_RULE_USE = 5;
+
+
+    /** The output, null if reading */
+    private DataOutput out;
+
+    /** The input, null if writing */
+    private DataInput in;
+
+    /** The stream counting the read bytes, null if writing */
+    private CountingInputStream counter;
+
+    /** The length of the read snapshot in bytes */
+    private long length;
+
+    /** The indexes of the already written strings */
+    private Map<String, Integer> writtenStrings;
+
+    /** The already read strings */
+    private List<String> readStrings;
+
+
+    /**
+     * Creates a new instance of SchemaSnapshot to write a snapshot.
+     *
+     * @param out the output
+     */
+    SchemaSnapshot( DataOutput out )
+    {
+        this.out = out;
+        this.writtenStrings = new HashMap<String, Integer>();
+    }
+
+
+    /**
+     * Creates a new instance of SchemaSnapshot to read a snapshot.
+     *
+     * @param in the input stream
+     * @param length the length of the snapshot in bytes
+     */
+    SchemaSnapshot( InputStream in, long length )
+    {
+        this.counter = new CountingInputStream( in );
+        this.in = new DataInputStream( counter );
+        this.length = length;
+        this.readStrings = new ArrayList<String>();
+    }
+
+
+    /**
+     * Gets the input of the read snapshot.
+     *
+     * @return the input
+     */
+    DataInput getInput()
+    {
+        return in;
+    }
+
+
+    /**
+     * Reads a length or the number of elements of a list and checks it against
+     * the remaining bytes of the snapshot.
+     *
+     * @param minElementSize the minimum number of bytes of an element
+     * @return the length
+     * @throws IOException if the length is negative or exceeds the remaining bytes
+     */
+    int readLength( int minElementSize ) throws IOException
+    {
+        int value = in.readInt();
+        if ( value < 0 || ( long ) value * minElementSize > length - counter.count )
+        {
+            throw new IOException( "Corrupt schema snapshot, invalid length " + value ); //$NON-NLS-1$
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Gets the lower cased OID of a schema description, it is the first token
+     * after the opening parenthesis.
+     *
+     * @param description the schema description
+     * @return the lower cased OID, null if the description doesn't start with a parenthesis
+     */
+    static String getOid( String description )
+    {
+        int start = description.indexOf( '(' );
+        if ( start < 0 )
+        {
+            return null;
+        }
+
+        start++;
+        while ( start < description.length() && Character.isWhitespace( description.charAt( start ) ) )
+        {
+            start++;
+        }
+
+        int end = start;
+        while ( end < description.length() && !Character.isWhitespace( description.charAt( end ) )
+            && description.charAt( end ) != ')' )
+        {
+            end++;
+        }
+
+        return Strings.toLowerCase( description.substring( start, end ) );
+    }
+
+
+    /**
+     * Checks if the given schema element was parsed from the given value.
+     *
+     * @param schemaObject the schema element, may be null
+     * @param value the value of the schema record
+     * @return true if the schema element was parsed from the value
+     */
+    static boolean isParsedFrom( AbstractSchemaObject schemaObject, String value )
+    {
+        if ( schemaObject == null || schemaObject.getExtensions() == null )
+        {
+            return false;
+        }
+
+        List<String> ldifValues = schemaObject.getExtensions().get( Schema.RAW_SCHEMA_DEFINITION_LDIF_VALUE );
+        return ldifValues != null && ldifValues.size() == 1 && value.equals( ldifValues.get( 0 ) );
+    }
+
+
+    void writeObjectClass( ObjectClass ocd, String value ) throws IOException
+    {
+        writeSchemaObject( ocd, value );
+        writeStringList( ocd.getSuperiorOids() );
+        writeString( ocd.getType() != null ? ocd.getType().name() : null );
+        writeStringList( ocd.getMustAttributeTypeOids() );
+        writeStringList( ocd.getMayAttributeTypeOids() );
+    }
+
+
+    ObjectClass readObjectClass( String value ) throws IOException
+    {
+        ObjectClass ocd = new ObjectClass( readString() );
+        readSchemaObject( ocd, value );
+        ocd.setSuperiorOids( readStringList() );
+        String type = readString();
+        if ( type != null )
+        {
+            ocd.setType( ObjectClassTypeEnum.valueOf( type ) );
+        }
+        ocd.setMustAttributeTypeOids( readStringList() );
+        ocd.setMayAttributeTypeOids( readStringList() );
+        return ocd;
+    }
+
+
+    void writeAttributeType( AttributeType atd, String value ) throws IOException
+    {
+        writeSchemaObject( atd, value );
+        writeString( atd.getSuperiorOid() );
+        writeString( atd.getSyntaxOid() );
+        out.writeLong( atd.getSyntaxLength() );
+        writeString( atd.getEqualityOid() );
+        writeString( atd.getOrderingOid() );
+        writeString( atd.getSubstringOid() );
+        writeString( atd.getUsage() != null ? atd.getUsage().name() : null );
+        out.writeBoolean( atd.isSingleValued() );
+        out.writeBoolean( atd.isCollective() );
+        out.writeBoolean( atd.isUserModifiable() );
+    }
+
+
+    AttributeType readAttributeType( String value ) throws IOException
+    {
+        AttributeType atd = new AttributeType( readString() );
+        readSchemaObject( atd, value );
+        atd.setSuperiorOid( readString() );
+        atd.setSyntaxOid( readString() );
+        atd.setSyntaxLength( in.readLong() );
+        atd.setEqualityOid( readString() );
+        atd.setOrderingOid( readString() );
+        atd.setSubstringOid( readString() );
+        String usage = readString();
+        if ( usage != null )
+        {
+            atd.setUsage( UsageEnum.valueOf( usage ) );
+        }
+        atd.setSingleValued( in.readBoolean() );
+        atd.setCollective( in.readBoolean() );
+        atd.setUserModifiable( in.readBoolean() );
+        return atd;
+    }
+
+
+    void writeLdapSyntax( LdapSyntax lsd, String value ) throws IOException
+    {
+        writeSchemaObject( lsd, value );
+    }
+
+
+    LdapSyntax readLdapSyntax( String value ) throws IOException
+    {
+        LdapSyntax lsd = new LdapSyntax( readString() );
+        readSchemaObject( lsd, value );
+        return lsd;
+    }
+
+
+    void writeMatchingRule( MatchingRule mrd, String value ) throws IOException
+    {
+        writeSchemaObject( mrd, value );
+        writeString( mrd.getSyntaxOid() );
+    }
+
+
+    MatchingRule readMatchingRule( String value ) throws IOException
+    {
+        MatchingRule mrd = new MatchingRule( readString() );
+        readSchemaObject( mrd, value );
+        mrd.setSyntaxOid( readString() );
+        return mrd;
+    }
+
+
+    void writeMatchingRuleUse( MatchingRuleUse mrud, String value ) throws IOException
+    {
+        writeSchemaObject( mrud, value );
+        writeStringList( mrud.getApplicableAttributeOids() );
+    }
+
+
+    MatchingRuleUse readMatchingRuleUse( String value ) throws IOException
+    {
+        MatchingRuleUse mrud = new MatchingRuleUse( readString() );
+        readSchemaObject( mrud, value );
+        mrud.setApplicableAttributeOids( readStringList() );
+        return mrud;
+    }
+
+
+    /**
+     * Writes the fields common to all schema elements, except the raw schema
+     * definition which is the value of the schema record.
+     */
+    private void writeSchemaObject( AbstractSchemaObject schemaObject, String value )
+        throws IOException
+    {
+        writeString( schemaObject.getOid() );
+        writeStringList( schemaObject.getNames() );
+        writeString( schemaObject.getDescription() );
+        out.writeBoolean( schemaObject.isObsolete() );
+        writeString( schemaObject.getSchemaName() );
+
+        // the specification is usually the value itself
+        String specification = schemaObject.getSpecification();
+        out.writeBoolean( value.equals( specification ) );
+        if ( !value.equals( specification ) )
+        {
+            writeString( specification );
+        }
+
+        Map<String, List<String>> extensions = schemaObject.getExtensions();
+        List<String> keys = new ArrayList<String>( extensions.keySet() );
+        keys.remove( Schema.RAW_SCHEMA_DEFINITION_LDIF_VALUE );
+        out.writeInt( keys.size() );
+        for ( String key : keys )
+        {
+            writeString( key );
+            writeStringList( extensions.get( key ) );
+        }
+    }
+
+
+    /**
+     * Reads the fields common to all schema elements, the OID was already read
+     * to create the schema element.
+     */
+    private void readSchemaObject( AbstractSchemaObject schemaObject, String value )
+        throws IOException
+    {
+        schemaObject.setNames( readStringList() );
+        schemaObject.setDescription( readString() );
+        schemaObject.setObsolete( in.readBoolean() );
+        String schemaName = readString();
+        if ( schemaName != null )
+        {
+            schemaObject.setSchemaName( schemaName );
+        }
+        schemaObject.setSpecification( in.readBoolean() ? value : readString() );
+
+        // each extension consists of a string and a list
+        int count = readLength( 8 );
+        for ( int i = 0; i < count; i++ )
+        {
+            schemaObject.addExtension( readString(), readStringList() );
+        }
+
+        List<String> ldifValues = new ArrayList<String>( 1 );
+        ldifValues.add( value );
+        schemaObject.addExtension( Schema.RAW_SCHEMA_DEFINITION_LDIF_VALUE, ldifValues );
+    }
+
+
+    /**
+     * Writes the kind of the following schema element, the attribute description
+     * and the value of a value of the schema record.
+     */
+    void writeRecordValue( byte kind, String attributeName, String value ) throws IOException
+    {
+        out.writeByte( kind );
+        writeString( attributeName );
+        writeValue( value );
+    }
+
+
+    /**
+     * Writes a value of the schema record as UTF-8, DataOutput#writeUTF() is limited to 64 KB.
+     */
+    void writeValue( String value ) throws IOException
+    {
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+
+    String readValue() throws IOException
+    {
+        byte[] bytes = new byte[readLength( 1 )];
+        in.readFully( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+
+    /**
+     * Writes a string, or the index of the string if it was already written.
+     */
+    void writeString( String s ) throws IOException
+    {
+        if ( s == null )
+        {
+            out.writeInt( -1 );
+            return;
+        }
+
+        Integer index = writtenStrings.get( s );
+        if ( index != null )
+        {
+            out.writeInt( index );
+        }
+        else
+        {
+            out.writeInt( -2 );
+            writeValue( s );
+            writtenStrings.put( s, writtenStrings.size() );
+        }
+    }
+
+
+    String readString() throws IOException
+    {
+        int index = in.readInt();
+        if ( index == -1 )
+        {
+            return null;
+        }
+        else if ( index == -2 )
+        {
+            String s = readValue();
+            readStrings.add( s );
+            return s;
+        }
+        else if ( index >= 0 && index < readStrings.size() )
+        {
+            return readStrings.get( index );
+        }
+        else
+        {
+            throw new IOException( "Corrupt schema snapshot, invalid string index " + index ); //$NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Writes a list of strings, a missing list is written as empty list.
+     */
+    private void writeStringList( List<String> strings ) throws IOException
+    {
+        if ( strings == null )
+        {
+            out.writeInt( 0 );
+        }
+        else
+        {
+            out.writeInt( strings.size() );
+            for ( String s : strings )
+            {
+                writeString( s );
+            }
+        }
+    }
+
+
+    private List<String> readStringList() throws IOException
+    {
+        // each string is at least an index
+        int size = readLength( 4 );
+        List<String> strings = new ArrayList<String>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            strings.add( readString() );
+        }
+        return strings;
+    }
+
+
+    /**
+     * An input stream counting the read bytes.
+     */
+    private static class CountingInputStream extends FilterInputStream
+    {
+        /** The number of read bytes */
+        private long count;
+
+
+        CountingInputStream( InputStream in )
+        {
+            super( in );
+        }
+
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if ( b != -1 )
+            {
+                count++;
+            }
+            return b;
+        }
+
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException
+        {
+            int n = super.read( b, off, len );
+            if ( n > 0 )
+            {
+                count += n;
+            }
+            return n;
+        }
+
+
+        @Override
+        public long skip( long n ) throws IOException
+        {
+            long skipped = super.skip( n );
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -24,7 +24,9 @@ package org.apache.directory.studio.ldapbrowser.core.model.schema;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -35,12 +37,12 @@ import org.apache.directory.api.ldap.model.schema.AbstractSchemaObject;
 import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.api.ldap.model.schema.LdapSyntax;
 import org.apache.directory.api.ldap.model.schema.MatchingRule;
-import org.apache.directory.api.ldap.model.schema.MatchingRuleUse;
 import org.apache.directory.api.ldap.model.schema.ObjectClass;
 import org.apache.directory.api.ldap.model.schema.ObjectClassTypeEnum;
 import org.apache.directory.api.ldap.model.schema.UsageEnum;
 import org.apache.directory.api.util.Strings;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCorePreferences;
 import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
 import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
@@ -367,7 +369,7 @@ public class SchemaUtils
         {
             for ( ObjectClass ocd : entry.getObjectClassDescriptions() )
             {
-                Collection<String> musts = getMustAttributeTypeDescriptionNamesTransitive( ocd, schema );
+                Collection<String> musts = getMustNamesTransitive( ocd, schema );
                 for ( String must : musts )
                 {
                     AttributeType atd = schema.getAttributeTypeDescription( must );
@@ -395,7 +397,7 @@ public class SchemaUtils
         {
             for ( ObjectClass ocd : entry.getObjectClassDescriptions() )
             {
-                Collection<String> mays = getMayAttributeTypeDescriptionNamesTransitive( ocd, schema );
+                Collection<String> mays = getMayNamesTransitive( ocd, schema );
                 for ( String may : mays )
                 {
                     AttributeType atd = schema.getAttributeTypeDescription( may );
@@ -480,10 +482,28 @@ public class SchemaUtils
      * @return true if the attribute type is defined as binary
      */
     public static boolean isBinary( AttributeType atd, Schema schema )
+    {
+        return isBinary( atd, schema, BrowserCorePlugin.getDefault().getCorePreferences()
+            .getUpperCasedBinaryAttributeOidsAndNames(), BrowserCorePlugin.getDefault().getCorePreferences()
+            .getUpperCasedBinarySyntaxOids() );
+    }
+
+
+    /**
+     * Checks the given user-defined binary attribute types and syntaxes. If this
+     * attribute type is defined as binary, true is returned.
+     * 
+     * @param atd the attribute type description
+     * @param schema the schema
+     * @param binaryAttributeOidsAndNames the upper-cased OIDs and names of the binary attribute types
+     * @param binarySyntaxOids the upper-cased OIDs of the binary syntaxes
+     * 
+     * @return true if the attribute type is defined as binary
+     */
+    public static boolean isBinary( AttributeType atd, Schema schema, Set<String> binaryAttributeOidsAndNames,
+        Set<String> binarySyntaxOids )
     {
         // check user-defined binary attribute types
-        Set<String> binaryAttributeOidsAndNames = BrowserCorePlugin.getDefault().getCorePreferences()
-            .getUpperCasedBinaryAttributeOidsAndNames();
         if ( binaryAttributeOidsAndNames.contains( atd.getOid().toUpperCase() ) )
         {
             return true;
@@ -501,13 +521,37 @@ public class SchemaUtils
         if ( syntax != null && schema.hasLdapSyntaxDescription( syntax ) )
         {
             LdapSyntax lsd = schema.getLdapSyntaxDescription( syntax );
-            return isBinary( lsd );
+            return binarySyntaxOids.contains( lsd.getOid().toUpperCase() );
         }
 
         return false;
     }
 
 
+    /**
+     * Gets the descriptor of the given attribute description, computed with the
+     * binary attribute and syntax preferences. Without a running plugin, e.g. in
+     * unit tests, no user-defined binary attributes and syntaxes are used.
+     * 
+     * @param attributeDescription the attribute description
+     * @param schema the schema
+     * 
+     * @return the attribute type descriptor
+     */
+    public static AttributeTypeDescriptor getAttributeTypeDescriptor( String attributeDescription, Schema schema )
+    {
+        if ( BrowserCorePlugin.getDefault() == null )
+        {
+            return schema.getAttributeTypeDescriptor( attributeDescription, Collections.<String> emptySet(),
+                Collections.<String> emptySet() );
+        }
+
+        BrowserCorePreferences preferences = BrowserCorePlugin.getDefault().getCorePreferences();
+        return schema.getAttributeTypeDescriptor( attributeDescription,
+            preferences.getUpperCasedBinaryAttributeOidsAndNames(), preferences.getUpperCasedBinarySyntaxOids() );
+    }
+
+
     /**
      * Gets all attribute type descriptions using the given syntax description.
      * 
@@ -520,15 +564,7 @@ public class SchemaUtils
         Schema schema )
     {
         Set<AttributeType> usedFroms = new TreeSet<AttributeType>( schemaElementNameComparator );
-        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
-        {
-            String syntax = getSyntaxNumericOidTransitive( atd, schema );
-            if ( syntax != null && lsd.getOid() != null
-                && Strings.toLowerCase( syntax ).equals( Strings.toLowerCase( lsd.getOid() ) ) )
-            {
-                usedFroms.add( atd );
-            }
-        }
+        usedFroms.addAll( schema.getIndex().getAttributeTypesBySyntax( lsd.getOid() ) );
         return usedFroms;
     }
 
@@ -546,24 +582,10 @@ public class SchemaUtils
         MatchingRule mrd, Schema schema )
     {
         Set<AttributeType> usedFromSet = new TreeSet<AttributeType>( schemaElementNameComparator );
-        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        SchemaIndex index = schema.getIndex();
+        for ( String identifier : getLowerCaseIdentifiers( mrd ) )
         {
-            Collection<String> lowerCaseIdentifiers = getLowerCaseIdentifiers( mrd );
-            String emr = getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema );
-            String smr = getSubstringMatchingRuleNameOrNumericOidTransitive( atd, schema );
-            String omr = getOrderingMatchingRuleNameOrNumericOidTransitive( atd, schema );
-            if ( emr != null && lowerCaseIdentifiers.contains( Strings.toLowerCase( emr ) ) )
-            {
-                usedFromSet.add( atd );
-            }
-            if ( smr != null && lowerCaseIdentifiers.contains( Strings.toLowerCase( smr ) ) )
-            {
-                usedFromSet.add( atd );
-            }
-            if ( omr != null && lowerCaseIdentifiers.contains( Strings.toLowerCase( omr ) ) )
-            {
-                usedFromSet.add( atd );
-            }
+            usedFromSet.addAll( index.getAttributeTypesByMatchingRule( identifier ) );
         }
         return usedFromSet;
     }
@@ -586,6 +608,12 @@ public class SchemaUtils
             return atd.getEqualityOid();
         }
 
+        SchemaIndex index = schema.getIndex();
+        if ( index.contains( atd ) )
+        {
+            return index.getEqualityMatchingRuleTransitive( atd );
+        }
+
         if ( atd.getSuperiorOid() != null && schema.hasAttributeTypeDescription( atd.getSuperiorOid() ) )
         {
             AttributeType superior = schema.getAttributeTypeDescription( atd.getSuperiorOid() );
@@ -613,9 +641,15 @@ public class SchemaUtils
             return atd.getSubstringOid();
         }
 
-        if ( atd.getSuperiorOid() != null && schema.hasAttributeTypeDescription( atd.getSubstringOid() ) )
+        SchemaIndex index = schema.getIndex();
+        if ( index.contains( atd ) )
         {
-            AttributeType superior = schema.getAttributeTypeDescription( atd.getSubstringOid() );
+            return index.getSubstringMatchingRuleTransitive( atd );
+        }
+
+        if ( atd.getSuperiorOid() != null && schema.hasAttributeTypeDescription( atd.getSuperiorOid() ) )
+        {
+            AttributeType superior = schema.getAttributeTypeDescription( atd.getSuperiorOid() );
             return getSubstringMatchingRuleNameOrNumericOidTransitive( superior, schema );
         }
 
@@ -640,6 +674,12 @@ public class SchemaUtils
             return atd.getOrderingOid();
         }
 
+        SchemaIndex index = schema.getIndex();
+        if ( index.contains( atd ) )
+        {
+            return index.getOrderingMatchingRuleTransitive( atd );
+        }
+
         if ( atd.getSuperiorOid() != null && schema.hasAttributeTypeDescription( atd.getSuperiorOid() ) )
         {
             AttributeType superior = schema.getAttributeTypeDescription( atd.getSuperiorOid() );
@@ -667,6 +707,12 @@ public class SchemaUtils
             return atd.getSyntaxOid();
         }
 
+        SchemaIndex index = schema.getIndex();
+        if ( index.contains( atd ) )
+        {
+            return index.getSyntaxTransitive( atd );
+        }
+
         if ( atd.getSuperiorOid() != null && schema.hasAttributeTypeDescription( atd.getSuperiorOid() ) )
         {
             AttributeType superior = schema.getAttributeTypeDescription( atd.getSuperiorOid() );
@@ -719,13 +765,10 @@ public class SchemaUtils
     public static Collection<String> getOtherMatchingRuleDescriptionNames( AttributeType atd, Schema schema )
     {
         Set<String> otherMatchingRules = new TreeSet<String>( nameAndOidComparator );
-        for ( MatchingRuleUse mrud : schema.getMatchingRuleUseDescriptions() )
+        SchemaIndex index = schema.getIndex();
+        for ( String identifier : getLowerCaseIdentifiers( atd ) )
         {
-            Collection<String> atdSet = toLowerCaseSet( mrud.getApplicableAttributeOids() );
-            if ( atdSet.removeAll( getLowerCaseIdentifiers( atd ) ) )
-            {
-                otherMatchingRules.addAll( mrud.getNames() );
-            }
+            otherMatchingRules.addAll( index.getMatchingRuleUseNames( identifier ) );
         }
         return otherMatchingRules;
     }
@@ -745,13 +788,10 @@ public class SchemaUtils
         AttributeType atd, Schema schema )
     {
         Set<AttributeType> derivedAtds = new TreeSet<AttributeType>( schemaElementNameComparator );
-        for ( AttributeType derivedAtd : schema.getAttributeTypeDescriptions() )
+        SchemaIndex index = schema.getIndex();
+        for ( String identifier : getLowerCaseIdentifiers( atd ) )
         {
-            String superType = derivedAtd.getSuperiorOid();
-            if ( superType != null && getLowerCaseIdentifiers( atd ).contains( Strings.toLowerCase( superType ) ) )
-            {
-                derivedAtds.add( derivedAtd );
-            }
+            derivedAtds.addAll( index.getAttributeTypesBySuperior( identifier ) );
         }
         return derivedAtds;
     }
@@ -769,15 +809,11 @@ public class SchemaUtils
      */
     public static Collection<ObjectClass> getUsedAsMust( AttributeType atd, Schema schema )
     {
-        Collection<String> lowerCaseIdentifiers = getLowerCaseIdentifiers( atd );
         Set<ObjectClass> ocds = new TreeSet<ObjectClass>( schemaElementNameComparator );
-        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        SchemaIndex index = schema.getIndex();
+        for ( String identifier : getLowerCaseIdentifiers( atd ) )
         {
-            Collection<String> mustSet = toLowerCaseSet( getMustAttributeTypeDescriptionNamesTransitive( ocd, schema ) );
-            if ( mustSet.removeAll( lowerCaseIdentifiers ) )
-            {
-                ocds.add( ocd );
-            }
+            ocds.addAll( index.getObjectClassesByMust( identifier ) );
         }
         return ocds;
     }
@@ -795,15 +831,11 @@ public class SchemaUtils
      */
     public static Collection<ObjectClass> getUsedAsMay( AttributeType atd, Schema schema )
     {
-        Collection<String> lowerCaseIdentifiers = getLowerCaseIdentifiers( atd );
         Set<ObjectClass> ocds = new TreeSet<ObjectClass>( schemaElementNameComparator );
-        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        SchemaIndex index = schema.getIndex();
+        for ( String identifier : getLowerCaseIdentifiers( atd ) )
         {
-            Collection<String> mustSet = toLowerCaseSet( getMayAttributeTypeDescriptionNamesTransitive( ocd, schema ) );
-            if ( mustSet.removeAll( lowerCaseIdentifiers ) )
-            {
-                ocds.add( ocd );
-            }
+            ocds.addAll( index.getObjectClassesByMay( identifier ) );
         }
         return ocds;
     }
@@ -854,16 +886,13 @@ public class SchemaUtils
      */
     public static List<ObjectClass> getSubObjectClassDescriptions( ObjectClass ocd, Schema schema )
     {
-        List<ObjectClass> subOcds = new ArrayList<ObjectClass>();
-        for ( ObjectClass testOcd : schema.getObjectClassDescriptions() )
+        Set<ObjectClass> subOcds = new LinkedHashSet<ObjectClass>();
+        SchemaIndex index = schema.getIndex();
+        for ( String identifier : getLowerCaseIdentifiers( ocd ) )
         {
-            Collection<String> superiorNames = toLowerCaseSet( testOcd.getSuperiorOids() );
-            if ( superiorNames.removeAll( getLowerCaseIdentifiers( ocd ) ) )
-            {
-                subOcds.add( testOcd );
-            }
+            subOcds.addAll( index.getObjectClassesBySuperior( identifier ) );
         }
-        return subOcds;
+        return new ArrayList<ObjectClass>( subOcds );
     }
 
 
@@ -881,6 +910,13 @@ public class SchemaUtils
         Schema schema )
     {
         Set<String> musts = new TreeSet<String>( nameAndOidComparator );
+        SchemaIndex index = schema.getIndex();
+        if ( index.contains( ocd ) )
+        {
+            musts.addAll( index.getMustNamesTransitive( ocd ) );
+            return musts;
+        }
+
         musts.addAll( ocd.getMustAttributeTypeOids() );
         Collection<ObjectClass> superiors = getExistingSuperiorObjectClassDescription( ocd, schema );
         for ( ObjectClass superior : superiors )
@@ -905,6 +941,13 @@ public class SchemaUtils
         Schema schema )
     {
         Set<String> mays = new TreeSet<String>( nameAndOidComparator );
+        SchemaIndex index = schema.getIndex();
+        if ( index.contains( ocd ) )
+        {
+            mays.addAll( index.getMayNamesTransitive( ocd ) );
+            return mays;
+        }
+
         mays.addAll( ocd.getMayAttributeTypeOids() );
         Collection<ObjectClass> superiors = getExistingSuperiorObjectClassDescription( ocd, schema );
         for ( ObjectClass superior : superiors )
@@ -915,6 +958,30 @@ public class SchemaUtils
     }
 
 
+    /**
+     * Gets the must attribute type names of the given object class, transitively,
+     * without copying the indexed names.
+     */
+    private static Collection<String> getMustNamesTransitive( ObjectClass ocd, Schema schema )
+    {
+        SchemaIndex index = schema.getIndex();
+        return index.contains( ocd ) ? index.getMustNamesTransitive( ocd )
+            : getMustAttributeTypeDescriptionNamesTransitive( ocd, schema );
+    }
+
+
+    /**
+     * Gets the may attribute type names of the given object class, transitively,
+     * without copying the indexed names.
+     */
+    private static Collection<String> getMayNamesTransitive( ObjectClass ocd, Schema schema )
+    {
+        SchemaIndex index = schema.getIndex();
+        return index.contains( ocd ) ? index.getMayNamesTransitive( ocd )
+            : getMayAttributeTypeDescriptionNamesTransitive( ocd, schema );
+    }
+
+
     /**
      * Gets the LDIF line of the given schema element, may be null.
      *
@@ -929,20 +996,6 @@ public class SchemaUtils
     }
 
 
-    private static Collection<String> toLowerCaseSet( Collection<String> names )
-    {
-        Set<String> set = new HashSet<String>();
-        if ( names != null )
-        {
-            for ( String name : names )
-            {
-                set.add( Strings.toLowerCase( name ) );
-            }
-        }
-        return set;
-    }
-
-
     /**
      * Gets the string representation of the given schema element.
      * 
@@ -0,0 +1,236 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.directory.api.dsmlv2.DsmlDecorator;
+import org.apache.directory.api.dsmlv2.Dsmlv2Parser;
+import org.apache.directory.api.dsmlv2.Dsmlv2ResponseParser;
+import org.apache.directory.api.dsmlv2.request.AddRequestDsml;
+import org.apache.directory.api.dsmlv2.request.BatchRequestDsml;
+import org.apache.directory.api.dsmlv2.request.DelRequestDsml;
+import org.apache.directory.api.dsmlv2.response.AddResponseDsml;
+import org.apache.directory.api.dsmlv2.response.BatchResponseDsml;
+import org.apache.directory.api.dsmlv2.response.SearchResponse;
+import org.apache.directory.api.dsmlv2.response.SearchResponseDsml;
+import org.apache.directory.api.dsmlv2.response.SearchResultDoneDsml;
+import org.apache.directory.api.dsmlv2.response.SearchResultEntryDsml;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.AddResponseImpl;
+import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.Request;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link DsmlStreamWriter}: the streamed batch requests and batch responses
+ * must be identical to the DSML created by {@link BatchRequestDsml#toDsml()} and
+ * {@link BatchResponseDsml#toDsml()}, and must be parsed back to the written messages.
+ * The entries contain a value that is base64 encoded, so the batch requests created by
+ * {@link BatchRequestDsml#toDsml()} declare the same namespaces as the streamed ones.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DsmlStreamWriterTest
+{
+    private LdapApiService codec = LdapApiServiceFactory.getSingleton();
+
+    private File file;
+
+
+    @Before
+    public void createFile() throws Exception
+    {
+        file = File.createTempFile( "DsmlStreamWriterTest", ".xml" ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    @After
+    public void deleteFile()
+    {
+        file.delete();
+    }
+
+
+    private Entry createEntry( String cn ) throws Exception
+    {
+        return new DefaultEntry( "cn=" + cn + ",ou=users,dc=example,dc=com", //$NON-NLS-1$ //$NON-NLS-2$
+            "objectClass: top", //$NON-NLS-1$
+            "objectClass: person", //$NON-NLS-1$
+            "cn: " + cn, //$NON-NLS-1$
+            "sn: Doe", //$NON-NLS-1$
+            "description: <special> & \"characters\"" ); //$NON-NLS-1$
+    }
+
+
+    private AddRequestDsml createAddRequest( String cn ) throws Exception
+    {
+        AddRequest request = new AddRequestImpl();
+        request.setEntry( createEntry( cn ) );
+
+        return new AddRequestDsml( codec, request );
+    }
+
+
+    private DelRequestDsml createDelRequest( String cn ) throws Exception
+    {
+        DeleteRequest request = new DeleteRequestImpl();
+        request.setName( new Dn( "cn=" + cn + ",ou=users,dc=example,dc=com" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        return new DelRequestDsml( codec, request );
+    }
+
+
+    private String read() throws Exception
+    {
+        return new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 );
+    }
+
+
+    @Test
+    public void testBatchRequest() throws Exception
+    {
+        BatchRequestDsml batchRequest = new BatchRequestDsml();
+        try ( DsmlStreamWriter writer = new DsmlStreamWriter( file, false ) )
+        {
+            for ( String cn : new String[]
+                { "John", "Jane" } ) //$NON-NLS-1$ //$NON-NLS-2$
+            {
+                writer.write( createAddRequest( cn ) );
+                batchRequest.addRequest( createAddRequest( cn ) );
+            }
+            writer.write( createDelRequest( "John" ) ); //$NON-NLS-1$
+            batchRequest.addRequest( createDelRequest( "John" ) ); //$NON-NLS-1$
+        }
+
+        String dsml = read();
+        assertEquals( batchRequest.toDsml(), dsml );
+
+        Dsmlv2Parser parser = new Dsmlv2Parser();
+        parser.setInput( dsml );
+        parser.parse();
+        List<DsmlDecorator<? extends Request>> requests = parser.getBatchRequest().getRequests();
+
+        assertEquals( 3, requests.size() );
+        Entry john = ( ( AddRequest ) requests.get( 0 ) ).getEntry();
+        assertEquals( createEntry( "John" ).getDn(), john.getDn() ); //$NON-NLS-1$
+        assertEquals( createEntry( "John" ).get( "cn" ), john.get( "cn" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        // the base64 encoded value is parsed as binary value
+        assertArrayEquals( "<special> & \"characters\"".getBytes( StandardCharsets.UTF_8 ), john.get( //$NON-NLS-1$
+            "description" ).getBytes() ); //$NON-NLS-1$
+        assertEquals( new Dn( "cn=Jane,ou=users,dc=example,dc=com" ), //$NON-NLS-1$
+            ( ( AddRequest ) requests.get( 1 ) ).getEntryDn() );
+        assertEquals( new Dn( "cn=John,ou=users,dc=example,dc=com" ), //$NON-NLS-1$
+            ( ( DeleteRequest ) requests.get( 2 ) ).getName() );
+    }
+
+
+    @Test
+    public void testEmptyBatchRequest() throws Exception
+    {
+        new DsmlStreamWriter( file, false ).close();
+
+        Dsmlv2Parser parser = new Dsmlv2Parser();
+        parser.setInput( read() );
+        parser.parse();
+
+        assertTrue( parser.getBatchRequest().getRequests().isEmpty() );
+    }
+
+
+    @Test
+    public void testBatchResponse() throws Exception
+    {
+        BatchResponseDsml batchResponse = new BatchResponseDsml();
+        SearchResponseDsml searchResponse = new SearchResponseDsml( codec );
+        batchResponse.addResponse( searchResponse );
+
+        try ( DsmlStreamWriter writer = new DsmlStreamWriter( file, true ) )
+        {
+            writer.startSearchResponse();
+            for ( String cn : new String[]
+                { "John", "Jane" } ) //$NON-NLS-1$ //$NON-NLS-2$
+            {
+                SearchResultEntryDsml entry = new SearchResultEntryDsml( codec );
+                entry.setEntry( createEntry( cn ) );
+                writer.write( entry );
+
+                entry = new SearchResultEntryDsml( codec );
+                entry.setEntry( createEntry( cn ) );
+                searchResponse.addResponse( entry );
+            }
+            SearchResultDone done = new SearchResultDoneImpl();
+            done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+            writer.write( new SearchResultDoneDsml( codec, done ) );
+            searchResponse.addResponse( new SearchResultDoneDsml( codec, done ) );
+            writer.endSearchResponse();
+
+            AddResponseImpl addResponse = new AddResponseImpl();
+            addResponse.getLdapResult().setResultCode( ResultCodeEnum.ENTRY_ALREADY_EXISTS );
+            addResponse.getLdapResult().setDiagnosticMessage( "Entry already exists" ); //$NON-NLS-1$
+            writer.write( new AddResponseDsml( codec, addResponse ) );
+            batchResponse.addResponse( new AddResponseDsml( codec, addResponse ) );
+        }
+
+        String dsml = read();
+        assertEquals( batchResponse.toDsml(), dsml );
+
+        Dsmlv2ResponseParser parser = new Dsmlv2ResponseParser( codec );
+        parser.setInput( dsml );
+        parser.parse();
+        List<DsmlDecorator<? extends Response>> responses = parser.getBatchResponse().getResponses();
+
+        assertEquals( 2, responses.size() );
+        SearchResponse search = ( SearchResponse ) responses.get( 0 ).getDecorated();
+        assertEquals( 2, search.getSearchResultEntryList().size() );
+        Entry john = search.getSearchResultEntryList().get( 0 ).getEntry();
+        assertEquals( createEntry( "John" ).getDn(), john.getDn() ); //$NON-NLS-1$
+        assertEquals( createEntry( "John" ).get( "cn" ), john.get( "cn" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertEquals( createEntry( "Jane" ).getDn(), search.getSearchResultEntryList().get( 1 ).getEntry() //$NON-NLS-1$
+            .getDn() );
+        assertEquals( ResultCodeEnum.SUCCESS, search.getSearchResultDone().getLdapResult().getResultCode() );
+        assertTrue( responses.get( 1 ) instanceof AddResponseDsml );
+        assertEquals( ResultCodeEnum.ENTRY_ALREADY_EXISTS, ( ( AddResponseDsml ) responses.get( 1 ) ).getLdapResult()
+            .getResultCode() );
+    }
+}
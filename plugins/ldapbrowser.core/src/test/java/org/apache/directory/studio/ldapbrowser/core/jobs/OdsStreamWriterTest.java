@@ -0,0 +1,255 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+
+/**
+ * Tests the {@link OdsStreamWriter}: the written spreadsheet is opened as zip file and
+ * its content.xml is parsed, the cells must contain the written values. Characters not
+ * allowed in XML must not break the document.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class OdsStreamWriterTest
+{
+    private static final String TABLE_NS = "urn:oasis:names:tc:opendocument:xmlns:table:1.0"; //$NON-NLS-1$
+
+    private static final String TEXT_NS = "urn:oasis:names:tc:opendocument:xmlns:text:1.0"; //$NON-NLS-1$
+
+    private File file;
+
+
+    @Before
+    public void createFile() throws Exception
+    {
+        file = File.createTempFile( "OdsStreamWriterTest", ".ods" ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    @After
+    public void deleteFile()
+    {
+        file.delete();
+    }
+
+
+    private void write( String sheetName, List<String> headers, String[]... rows ) throws Exception
+    {
+        try ( OdsStreamWriter writer = new OdsStreamWriter( sheetName ) )
+        {
+            for ( String[] row : rows )
+            {
+                // the row buffer may be longer than the used length
+                String[] buffer = Arrays.copyOf( row, row.length + 3 );
+                buffer[row.length] = "unused"; //$NON-NLS-1$
+                writer.writeRow( buffer, row.length );
+            }
+
+            writer.finish( file.getPath(), headers );
+        }
+    }
+
+
+    /**
+     * Opens the spreadsheet and parses the content.xml.
+     */
+    private Element readTable() throws Exception
+    {
+        try ( ZipFile zip = new ZipFile( file ) )
+        {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+
+            // the mimetype must be the first and uncompressed entry
+            ZipEntry mimetype = entries.nextElement();
+            assertEquals( "mimetype", mimetype.getName() ); //$NON-NLS-1$
+            assertEquals( ZipEntry.STORED, mimetype.getMethod() );
+            try ( DataInputStream in = new DataInputStream( zip.getInputStream( mimetype ) ) )
+            {
+                byte[] bytes = new byte[( int ) mimetype.getSize()];
+                in.readFully( bytes );
+                assertEquals( "application/vnd.oasis.opendocument.spreadsheet", //$NON-NLS-1$
+                    new String( bytes, StandardCharsets.US_ASCII ) );
+            }
+
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware( true );
+
+            try ( InputStream in = zip.getInputStream( zip.getEntry( "META-INF/manifest.xml" ) ) ) //$NON-NLS-1$
+            {
+                factory.newDocumentBuilder().parse( in );
+            }
+
+            try ( InputStream in = zip.getInputStream( zip.getEntry( "content.xml" ) ) ) //$NON-NLS-1$
+            {
+                Document document = factory.newDocumentBuilder().parse( in );
+                NodeList tables = document.getElementsByTagNameNS( TABLE_NS, "table" ); //$NON-NLS-1$
+                assertEquals( 1, tables.getLength() );
+                return ( Element ) tables.item( 0 );
+            }
+        }
+    }
+
+
+    /**
+     * Gets the cell values of the rows, null for empty cells.
+     */
+    private static List<List<String>> getRows( Element table )
+    {
+        List<List<String>> rows = new ArrayList<>();
+        NodeList rowElements = table.getElementsByTagNameNS( TABLE_NS, "table-row" ); //$NON-NLS-1$
+
+        for ( int i = 0; i < rowElements.getLength(); i++ )
+        {
+            List<String> row = new ArrayList<>();
+
+            for ( Node cell = rowElements.item( i ).getFirstChild(); cell != null; cell = cell.getNextSibling() )
+            {
+                Element cellElement = ( Element ) cell;
+                NodeList paragraphs = cellElement.getElementsByTagNameNS( TEXT_NS, "p" ); //$NON-NLS-1$
+                String value = paragraphs.getLength() > 0 ? paragraphs.item( 0 ).getTextContent() : null;
+                String repeated = cellElement.getAttributeNS( TABLE_NS, "number-columns-repeated" ); //$NON-NLS-1$
+
+                for ( int j = repeated.isEmpty() ? 1 : Integer.parseInt( repeated ); j > 0; j-- )
+                {
+                    row.add( value );
+                }
+            }
+
+            rows.add( row );
+        }
+
+        return rows;
+    }
+
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        write( "Export", Arrays.asList( "dn", "cn", "description" ), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            new String[]
+                { "cn=a,dc=example,dc=com", "a", "<special> & \"characters\" 'quoted'" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            new String[]
+                { "cn=b,dc=example,dc=com", null, "M\u00fcller \uD83D\uDE00" }, //$NON-NLS-1$ //$NON-NLS-2$
+            new String[]
+                { "cn=c,dc=example,dc=com" }, //$NON-NLS-1$
+            new String[]
+                { null, null, "multi\r\nline\ttext" }, //$NON-NLS-1$
+            new String[0] );
+
+        Element table = readTable();
+        assertEquals( "Export", table.getAttributeNS( TABLE_NS, "name" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        List<List<String>> rows = getRows( table );
+        assertEquals( 6, rows.size() );
+        assertEquals( Arrays.asList( "dn", "cn", "description" ), rows.get( 0 ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertEquals( Arrays.asList( "cn=a,dc=example,dc=com", "a", "<special> & \"characters\" 'quoted'" ), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            rows.get( 1 ) );
+        assertEquals( Arrays.asList( "cn=b,dc=example,dc=com", null, "M\u00fcller \uD83D\uDE00" ), rows.get( 2 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( Arrays.asList( "cn=c,dc=example,dc=com" ), rows.get( 3 ) ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( null, null, "multi\r\nline\ttext" ), rows.get( 4 ) ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( ( String ) null ), rows.get( 5 ) );
+    }
+
+
+    @Test
+    public void testInvalidXmlCharacters() throws Exception
+    {
+        write( "Ex\u0001port & more", Arrays.asList( "description\u0000" ), //$NON-NLS-1$ //$NON-NLS-2$
+            new String[]
+                { "control\u0001\u0008\u001fcharacters" }, //$NON-NLS-1$
+            new String[]
+                { "non-characters \uFFFE\uFFFF" }, //$NON-NLS-1$
+            new String[]
+                { "unpaired \uD800 high \uDC00 low surrogate\uD83D" } ); //$NON-NLS-1$
+
+        Element table = readTable();
+        assertEquals( "Ex\uFFFDport & more", table.getAttributeNS( TABLE_NS, "name" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        List<List<String>> rows = getRows( table );
+        assertEquals( Arrays.asList( "description\uFFFD" ), rows.get( 0 ) ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "control\uFFFD\uFFFD\uFFFDcharacters" ), rows.get( 1 ) ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "non-characters \uFFFD\uFFFD" ), rows.get( 2 ) ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "unpaired \uFFFD high \uFFFD low surrogate\uFFFD" ), rows.get( 3 ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testManyRows() throws Exception
+    {
+        String[][] rows = new String[10000][];
+        for ( int i = 0; i < rows.length; i++ )
+        {
+            rows[i] = new String[]
+                { "cn=" + i + ",dc=example,dc=com", i % 2 == 0 ? null : Integer.toString( i ), "top" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        write( "Export", Arrays.asList( "dn", "cn", "objectClass" ), rows ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+        List<List<String>> read = getRows( readTable() );
+        assertEquals( rows.length + 1, read.size() );
+        for ( int i = 0; i < rows.length; i++ )
+        {
+            assertEquals( Arrays.asList( rows[i] ), read.get( i + 1 ) );
+        }
+    }
+
+
+    @Test
+    public void testCloseDeletesSpoolFile() throws Exception
+    {
+        File tmpDir = new File( System.getProperty( "java.io.tmpdir" ) ); //$NON-NLS-1$
+        List<String> before = Arrays.asList( tmpDir.list() );
+
+        OdsStreamWriter writer = new OdsStreamWriter( "Export" ); //$NON-NLS-1$
+        writer.writeRow( new String[]
+            { "value" }, 1 ); //$NON-NLS-1$
+        writer.close();
+
+        for ( String name : tmpDir.list() )
+        {
+            assertTrue( name, before.contains( name ) || !name.endsWith( ".ods.part" ) ); //$NON-NLS-1$
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+import javax.naming.directory.SearchControls;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.connection.core.ConnectionParameter;
+import org.apache.directory.studio.connection.core.io.ConnectionWrapper;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.jobs.ExportLdifRunnable.DefaultEntryEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link PartitionedExport}: the merged partitions must contain the same records
+ * in the same order as the export of a single subtree search. The directory is simulated
+ * by a connection wrapper that returns the entries of a subtree in pre-order, the children
+ * of an entry ordered by their Dn.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PartitionedExportTest
+{
+    private static final PartitionedExport.RecordWriter RECORD_WRITER = ( entry, writer ) -> writer.write(
+        ExportLdifRunnable.entryToLdifContentRecord( entry ).toFormattedString( LdifFormatParameters.DEFAULT ) );
+
+    /** The entries of the simulated directory, by their lower-cased normalized Dn */
+    private TreeMap<String, Entry> entries = new TreeMap<>();
+
+    private IBrowserConnection browserConnection;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ConnectionParameter connectionParameter = new ConnectionParameter();
+        connectionParameter.setName( "test" ); //$NON-NLS-1$
+        ConnectionWrapper connectionWrapper = ( ConnectionWrapper ) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]
+                { ConnectionWrapper.class }, ( proxy, method, args ) -> {
+                if ( "search".equals( method.getName() ) ) //$NON-NLS-1$
+                {
+                    return search( ( String ) args[0], ( SearchControls ) args[2], ( StudioProgressMonitor ) args[6] );
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            } );
+        Connection connection = new Connection( connectionParameter )
+        {
+            public ConnectionWrapper getConnectionWrapper()
+            {
+                return connectionWrapper;
+            }
+        };
+        browserConnection = ( IBrowserConnection ) Proxy.newProxyInstance( getClass().getClassLoader(), new Class[]
+            { IBrowserConnection.class }, ( proxy, method, args ) -> {
+                if ( "getConnection".equals( method.getName() ) ) //$NON-NLS-1$
+                {
+                    return connection;
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            } );
+
+        // the children are added in reverse order, mixed case and with subtrees of different sizes
+        addEntry( "dc=example,dc=com" ); //$NON-NLS-1$
+        for ( int i = 24; i >= 0; i-- )
+        {
+            String child = ( i % 3 == 0 ? "OU=Unit" : "ou=unit" ) + ( char ) ( 'a' + i ) + ",dc=example,dc=com"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            addEntry( child );
+            for ( int j = i % 4; j > 0; j-- )
+            {
+                String grandChild = "cn=person" + j + "," + child; //$NON-NLS-1$ //$NON-NLS-2$
+                addEntry( grandChild );
+                addEntry( "uid=account," + grandChild ); //$NON-NLS-1$
+            }
+        }
+    }
+
+
+    private void addEntry( String dn ) throws LdapException
+    {
+        Entry entry = new DefaultEntry( dn, "objectClass: top", "description: " + dn ); //$NON-NLS-1$ //$NON-NLS-2$
+        entries.put( getKey( entry.getDn() ), entry );
+    }
+
+
+    private static String getKey( Dn dn )
+    {
+        return dn.getNormName().toLowerCase( Locale.ROOT );
+    }
+
+
+    /**
+     * Searches the simulated directory, the filter is ignored.
+     */
+    private StudioSearchResultEnumeration search( String searchBase, SearchControls searchControls,
+        StudioProgressMonitor monitor ) throws LdapException
+    {
+        List<Entry> result = new ArrayList<>();
+        Dn base = new Dn( searchBase );
+
+        if ( searchControls.getSearchScope() != SearchControls.ONELEVEL_SCOPE )
+        {
+            result.add( entries.get( getKey( base ) ) );
+        }
+        if ( searchControls.getSearchScope() != SearchControls.OBJECT_SCOPE )
+        {
+            collect( base, searchControls.getSearchScope() == SearchControls.SUBTREE_SCOPE, result );
+        }
+
+        Iterator<Entry> iterator = result.iterator();
+
+        return new StudioSearchResultEnumeration( null, null, searchBase, null, searchControls, null, null, null, 0,
+            monitor, null )
+        {
+            public boolean hasMore()
+            {
+                return iterator.hasNext();
+            }
+
+
+            public StudioSearchResult next()
+            {
+                SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl();
+                searchResultEntry.setEntry( iterator.next() );
+                return new StudioSearchResult( searchResultEntry, null, false, null );
+            }
+
+
+            public void close()
+            {
+            }
+        };
+    }
+
+
+    /**
+     * Collects the entries below the given Dn, in pre-order if the subtree is collected.
+     */
+    private void collect( Dn parent, boolean subtree, List<Entry> result )
+    {
+        for ( Entry entry : entries.values() )
+        {
+            if ( getKey( parent ).equals( getKey( entry.getDn().getParent() ) ) )
+            {
+                result.add( entry );
+                if ( subtree )
+                {
+                    collect( entry.getDn(), true, result );
+                }
+            }
+        }
+    }
+
+
+    private SearchParameter getSearchParameter( String searchBase ) throws LdapException
+    {
+        SearchParameter searchParameter = new SearchParameter();
+        searchParameter.setSearchBase( new Dn( searchBase ) );
+        searchParameter.setScope( SearchScope.SUBTREE );
+        searchParameter.setFilter( "(objectClass=*)" ); //$NON-NLS-1$
+        searchParameter.setCountLimit( 0 );
+        searchParameter.setPagedSearchScrollMode( false );
+        return searchParameter;
+    }
+
+
+    /**
+     * Exports the search without partitions, as done by the {@link ExportLdifRunnable}.
+     */
+    private String exportSequential( SearchParameter searchParameter ) throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        StudioProgressMonitor monitor = new StudioProgressMonitor( new NullProgressMonitor() );
+
+        try ( DefaultEntryEnumeration enumeration = ExportLdifRunnable.searchEntries( browserConnection,
+            searchParameter, monitor ) )
+        {
+            while ( enumeration.hasNext() )
+            {
+                RECORD_WRITER.write( enumeration.next(), writer );
+            }
+        }
+
+        return writer.toString();
+    }
+
+
+    private String exportPartitioned( SearchParameter searchParameter, int parallelism, int expectedCount )
+        throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        StudioProgressMonitor monitor = new StudioProgressMonitor( new NullProgressMonitor() );
+
+        int count = PartitionedExport.export( browserConnection, searchParameter, parallelism, writer, RECORD_WRITER,
+            monitor );
+
+        assertFalse( monitor.errorsReported() );
+        assertEquals( expectedCount, count );
+        return writer.toString();
+    }
+
+
+    @Test
+    public void testIsApplicable() throws Exception
+    {
+        SearchParameter searchParameter = getSearchParameter( "dc=example,dc=com" ); //$NON-NLS-1$
+        assertEquals( true, PartitionedExport.isApplicable( searchParameter, 2 ) );
+        assertEquals( false, PartitionedExport.isApplicable( searchParameter, 1 ) );
+
+        searchParameter.setCountLimit( 10 );
+        assertEquals( false, PartitionedExport.isApplicable( searchParameter, 2 ) );
+
+        searchParameter.setCountLimit( 0 );
+        searchParameter.setScope( SearchScope.ONELEVEL );
+        assertEquals( false, PartitionedExport.isApplicable( searchParameter, 2 ) );
+    }
+
+
+    @Test
+    public void testExportEqualsSequentialExport() throws Exception
+    {
+        SearchParameter searchParameter = getSearchParameter( "dc=example,dc=com" ); //$NON-NLS-1$
+        String expected = exportSequential( searchParameter );
+
+        // more children than partitions, each partition contains several subtrees
+        assertEquals( expected, exportPartitioned( searchParameter, 2, entries.size() ) );
+
+        // more partitions than children, each partition contains a single subtree
+        assertEquals( expected, exportPartitioned( searchParameter, 8, entries.size() ) );
+
+        // the records of all entries are exported
+        for ( Entry entry : entries.values() )
+        {
+            assertEquals( true, expected.contains( "dn: " + entry.getDn().getName() + "\n" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+
+    @Test
+    public void testExportSubtreeAndLeaf() throws Exception
+    {
+        // a search base below the root of the simulated directory
+        SearchParameter searchParameter = getSearchParameter( "ou=unitd,dc=example,dc=com" ); //$NON-NLS-1$
+        assertEquals( exportSequential( searchParameter ), exportPartitioned( searchParameter, 4, 7 ) );
+
+        // a search base without children
+        searchParameter = getSearchParameter( "uid=account,cn=person1,ou=unitb,dc=example,dc=com" ); //$NON-NLS-1$
+        assertEquals( exportSequential( searchParameter ), exportPartitioned( searchParameter, 4, 1 ) );
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.filter;
+
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Attribute;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Value;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests the client-side evaluation of LDAP filters.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapFilterEvaluatorTest
+{
+    private IEntry entry;
+
+
+    @Before
+    public void setup() throws Exception
+    {
+        ConnectionEventRegistry.suspendEventFiringInCurrentThread();
+        IBrowserConnection connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        entry = new DummyEntry( new Dn( "cn=Foo Bar,ou=Users,dc=example,dc=com" ), connection );
+
+        addAttribute( "objectClass", "top", "person", "inetOrgPerson" );
+        addAttribute( "cn", "Foo  Bar" );
+        addAttribute( "sn", "Bar" );
+        addAttribute( "uid", "foo" );
+        addAttribute( "uidNumber", "1000" );
+        addAttribute( "telephoneNumber", "+1 234-567" );
+        addAttribute( "manager", "CN=Boss, ou=Users,dc=example,dc=com" );
+        addAttribute( "createTimestamp", "20200101120000Z" );
+    }
+
+
+    private void addAttribute( String description, String... values )
+    {
+        Attribute attribute = new Attribute( entry, description );
+        entry.addAttribute( attribute );
+        for ( String value : values )
+        {
+            attribute.addValue( new Value( attribute, value ) );
+        }
+    }
+
+
+    private boolean matches( String filter )
+    {
+        return LdapFilterEvaluator.compile( filter, Schema.DEFAULT_SCHEMA ).matches( entry );
+    }
+
+
+    @Test
+    public void testEquality()
+    {
+        assertTrue( matches( "(cn=foo bar)" ) );
+        assertTrue( matches( "(CN=FOO   BAR)" ) );
+        assertTrue( matches( "(name=bar)" ) );
+        assertTrue( matches( "(objectClass=2.5.6.6)" ) );
+        assertTrue( matches( "(telephoneNumber=+12 34567)" ) );
+        assertTrue( matches( "(manager=cn=boss,ou=users,dc=example,dc=com)" ) );
+        assertTrue( matches( "(cn=foo\\20bar)" ) );
+        assertFalse( matches( "(cn=foo)" ) );
+        assertFalse( matches( "(description=foo)" ) );
+    }
+
+
+    @Test
+    public void testSubstring()
+    {
+        assertTrue( matches( "(cn=foo*)" ) );
+        assertTrue( matches( "(cn=*BAR)" ) );
+        assertTrue( matches( "(cn=f*o*r)" ) );
+        assertFalse( matches( "(cn=*foo)" ) );
+        assertFalse( matches( "(cn=foo*bar*r)" ) );
+    }
+
+
+    @Test
+    public void testPresenceAndOrdering()
+    {
+        assertTrue( matches( "(uid=*)" ) );
+        assertFalse( matches( "(mail=*)" ) );
+        assertTrue( matches( "(uidNumber>=999)" ) );
+        assertFalse( matches( "(uidNumber<=999)" ) );
+        assertTrue( matches( "(createTimestamp>=20191231235959Z)" ) );
+        assertFalse( matches( "(createTimestamp>=20200101120001Z)" ) );
+    }
+
+
+    @Test
+    public void testBooleanOperators()
+    {
+        assertTrue( matches( "(&(objectClass=person)(|(uid=bar)(uid=foo)))" ) );
+        assertFalse( matches( "(&(objectClass=person)(!(uid=foo)))" ) );
+
+        // an invalid integer is undefined, and so is its negation
+        assertFalse( matches( "(uidNumber=abc)" ) );
+        assertFalse( matches( "(!(uidNumber=abc))" ) );
+    }
+
+
+    @Test
+    public void testExtensible()
+    {
+        assertTrue( matches( "(cn:caseExactMatch:=Foo Bar)" ) );
+        assertFalse( matches( "(cn:caseExactMatch:=foo bar)" ) );
+        assertTrue( matches( "(ou:dn:=users)" ) );
+        assertFalse( matches( "(ou=users)" ) );
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFilter()
+    {
+        LdapFilterEvaluator.compile( "(cn=foo", Schema.DEFAULT_SCHEMA );
+    }
+}
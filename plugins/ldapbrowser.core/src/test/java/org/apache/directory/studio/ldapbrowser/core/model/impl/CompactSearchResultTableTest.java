@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link CompactSearchResultTable} and its search results.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompactSearchResultTableTest
+{
+    private CompactSearchResultTable table = new CompactSearchResultTable( new DummyConnection(
+        Schema.DEFAULT_SCHEMA ) );
+
+
+    private CompactSearchResult add( String dn, Object... attributes ) throws Exception
+    {
+        Entry entry = new DefaultEntry( dn, attributes );
+        return table.add( entry.getDn(), entry, null );
+    }
+
+
+    @Test
+    public void testAttributesAndValues() throws Exception
+    {
+        byte[] photo = new byte[]
+            { 1, 2, ( byte ) 0xff };
+        CompactSearchResult first = add( "cn=first,ou=users,dc=example,dc=com", "objectClass: top",
+            "objectClass: person", "cn: first", "sn: M\u00fcller", "jpegPhoto", photo );
+        CompactSearchResult second = add( "cn=second,ou=users,dc=example,dc=com", "objectClass: top",
+            "objectClass: person", "cn: second", "description: a", "description: b" );
+        table.trimToSize();
+
+        assertEquals( 2, table.size() );
+        assertEquals( new Dn( "cn=first,ou=users,dc=example,dc=com" ), first.getDn() );
+
+        IEntry entry = first.getEntry();
+        assertEquals( 4, entry.getAttributes().length );
+        assertArrayEquals( new String[]
+            { "M\u00fcller" }, entry.getAttribute( "SN" ).getStringValues() );
+        assertArrayEquals( new String[]
+            { "M\u00fcller" }, entry.getAttribute( "2.5.4.4" ).getStringValues() );
+        assertArrayEquals( photo, entry.getAttribute( "jpegPhoto" ).getBinaryValues()[0] );
+        assertTrue( entry.getAttribute( "jpegPhoto" ).getValues()[0].getRawValue() instanceof byte[] );
+        assertEquals( "M\u00fcller", entry.getAttribute( "sn" ).getValues()[0].getRawValue() );
+        assertNull( entry.getAttribute( "description" ) );
+
+        IAttribute description = second.getAttribute( "description" );
+        assertArrayEquals( new String[]
+            { "a", "b" }, description.getStringValues() );
+        assertEquals( 2, description.getValueSize() );
+        assertEquals( 2, second.getEntry().getObjectClassDescriptions().size() );
+    }
+
+
+    @Test
+    public void testObjectClassValuesAreShared() throws Exception
+    {
+        CompactSearchResult first = add( "cn=first,dc=example,dc=com", "objectClass: inetOrgPerson", "cn: first" );
+        CompactSearchResult second = add( "cn=second,dc=example,dc=com", "objectClass: inetOrgPerson",
+            "cn: second" );
+
+        assertSame( first.getAttribute( "objectClass" ).getStringValue(), second.getAttribute( "objectClass" )
+            .getStringValue() );
+    }
+
+
+    @Test
+    public void testEquality() throws Exception
+    {
+        CompactSearchResult result = add( "cn=first,dc=example,dc=com", "objectClass: top", "cn: first" );
+        IEntry entry = result.getEntry();
+        DummyEntry copy = new DummyEntry( entry.getDn(), entry.getBrowserConnection() );
+
+        assertEquals( entry, result.getEntry() );
+        assertEquals( copy, entry );
+        assertEquals( entry, copy );
+        assertEquals( result, new SearchResult( copy, null ) );
+        assertEquals( new SearchResult( copy, null ), result );
+        assertEquals( new SearchResult( copy, null ).hashCode(), result.hashCode() );
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadOnly() throws Exception
+    {
+        CompactSearchResult result = add( "cn=first,dc=example,dc=com", "objectClass: top", "cn: first" );
+        result.getAttribute( "cn" ).deleteValue( result.getAttribute( "cn" ).getValues()[0] );
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link DnKeyFactory} and the key tree of the {@link DnKey}s.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DnKeyFactoryTest
+{
+    private DnKeyFactory factory = new DnKeyFactory();
+
+
+    private DnKey getKey( String dn ) throws Exception
+    {
+        return factory.getKey( new Dn( dn ), Schema.DEFAULT_SCHEMA );
+    }
+
+
+    @Test
+    public void testCanonicalKeys() throws Exception
+    {
+        DnKey key = getKey( "cn=John,ou=Users,dc=example,dc=com" ); //$NON-NLS-1$
+
+        assertSame( key, getKey( "CN = john , OU=users,DC=Example,dc=COM" ) ); //$NON-NLS-1$
+        assertSame( key, getKey( "2.5.4.3=john,2.5.4.11=users,dc=example,dc=com" ) ); //$NON-NLS-1$
+        assertNotSame( key, getKey( "cn=Jane,ou=Users,dc=example,dc=com" ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testParentAndChildren() throws Exception
+    {
+        DnKey john = getKey( "cn=John,ou=Users,dc=example,dc=com" ); //$NON-NLS-1$
+        DnKey jane = getKey( "cn=Jane,ou=Users,dc=example,dc=com" ); //$NON-NLS-1$
+        DnKey users = getKey( "ou=Users,dc=example,dc=com" ); //$NON-NLS-1$
+
+        assertSame( users, john.getParent() );
+        assertSame( users, jane.getParent() );
+        assertEquals( 2, users.getChildren().size() );
+        assertTrue( users.getChildren().contains( john ) );
+        assertTrue( users.getChildren().contains( jane ) );
+        assertTrue( john.getChildren().isEmpty() );
+        assertEquals( "2.5.4.3=john", john.getRdn() ); //$NON-NLS-1$
+    }
+}
@@ -20,6 +20,8 @@
 package org.apache.directory.studio.ldapbrowser.core.model.schema;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -47,4 +49,21 @@ public class SchemaPT
         System.out.println( schema.getDn() );
     }
 
+
+    @Test
+    public void testLoadSchemaFromSnapshotPerformance() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Schema.DEFAULT_SCHEMA.saveToSnapshot( out );
+        byte[] snapshot = out.toByteArray();
+
+        Schema schema = null;
+        for ( int i = 0; i < 100; i++ )
+        {
+            schema = new Schema();
+            schema.loadFromSnapshot( new ByteArrayInputStream( snapshot ), snapshot.length );
+        }
+        System.out.println( schema.getDn() );
+    }
+
 }
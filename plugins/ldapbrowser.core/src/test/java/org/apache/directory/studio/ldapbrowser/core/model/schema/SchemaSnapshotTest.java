@@ -0,0 +1,158 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.junit.Test;
+
+
+/**
+ * Tests that a schema loaded from its snapshot equals the parsed schema.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SchemaSnapshotTest
+{
+    private Schema schema = Schema.DEFAULT_SCHEMA;
+
+
+    private byte[] saveSnapshot() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        schema.saveToSnapshot( out );
+        return out.toByteArray();
+    }
+
+
+    @Test
+    public void testLoadFromSnapshot() throws Exception
+    {
+        byte[] snapshot = saveSnapshot();
+        Schema loaded = new Schema();
+        loaded.loadFromSnapshot( new ByteArrayInputStream( snapshot ), snapshot.length );
+
+        assertEquals( schema.getDn(), loaded.getDn() );
+        assertEquals( schema.getCreateTimestamp(), loaded.getCreateTimestamp() );
+        assertEquals( schema.getSchemaRecord().getAttrVals().length, loaded.getSchemaRecord().getAttrVals().length );
+
+        assertEquals( schema.getAttributeTypeDescriptions().size(), loaded.getAttributeTypeDescriptions().size() );
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            // OIDs aren't unique in the default schema, the name is used for lookup
+            AttributeType loadedAtd = loaded.getAttributeTypeDescription( atd.getName() );
+            assertNotNull( loadedAtd );
+            assertEquals( atd.getNames(), loadedAtd.getNames() );
+            assertEquals( atd.getDescription(), loadedAtd.getDescription() );
+            assertEquals( atd.getSuperiorOid(), loadedAtd.getSuperiorOid() );
+            assertEquals( atd.getSyntaxOid(), loadedAtd.getSyntaxOid() );
+            assertEquals( atd.getEqualityOid(), loadedAtd.getEqualityOid() );
+            assertEquals( atd.getUsage(), loadedAtd.getUsage() );
+            assertEquals( atd.isSingleValued(), loadedAtd.isSingleValued() );
+            assertEquals( atd.getExtensions(), loadedAtd.getExtensions() );
+        }
+
+        assertEquals( schema.getObjectClassDescriptions().size(), loaded.getObjectClassDescriptions().size() );
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            ObjectClass loadedOcd = loaded.getObjectClassDescription( ocd.getName() );
+            assertEquals( ocd.getNames(), loadedOcd.getNames() );
+            assertEquals( ocd.getType(), loadedOcd.getType() );
+            assertEquals( ocd.getSuperiorOids(), loadedOcd.getSuperiorOids() );
+            assertEquals( ocd.getMustAttributeTypeOids(), loadedOcd.getMustAttributeTypeOids() );
+            assertEquals( ocd.getMayAttributeTypeOids(), loadedOcd.getMayAttributeTypeOids() );
+        }
+
+        assertEquals( schema.getLdapSyntaxDescriptions().size(), loaded.getLdapSyntaxDescriptions().size() );
+        assertEquals( schema.getMatchingRuleDescriptions().size(), loaded.getMatchingRuleDescriptions().size() );
+        assertEquals( schema.getMatchingRuleUseDescriptions().size(), loaded.getMatchingRuleUseDescriptions()
+            .size() );
+    }
+
+
+    @Test
+    public void testTruncatedSnapshotIsRejected() throws Exception
+    {
+        byte[] snapshot = saveSnapshot();
+        byte[] truncated = Arrays.copyOf( snapshot, snapshot.length - 1 );
+
+        assertRejected( truncated, truncated.length );
+    }
+
+
+    @Test
+    public void testCorruptLengthIsRejected() throws Exception
+    {
+        byte[] snapshot = saveSnapshot();
+
+        // the length of the Dn, directly after the magic number and the version
+        assertRejected( setInt( snapshot, 8, -1 ), snapshot.length );
+        assertRejected( setInt( snapshot, 8, Integer.MAX_VALUE ), snapshot.length );
+        assertRejected( setInt( snapshot, 8, snapshot.length ), snapshot.length );
+
+        // the number of values, after the Dn
+        int countOffset = 12 + ByteBuffer.wrap( snapshot ).getInt( 8 );
+        assertRejected( setInt( snapshot, countOffset, -1 ), snapshot.length );
+        assertRejected( setInt( snapshot, countOffset, Integer.MAX_VALUE ), snapshot.length );
+        assertRejected( setInt( snapshot, countOffset, snapshot.length / 9 ), snapshot.length );
+
+        // the attribute name of the first value, after the kind of the value
+        assertRejected( setInt( snapshot, countOffset + 5, 100000 ), snapshot.length );
+        assertRejected( setInt( snapshot, countOffset + 5, -3 ), snapshot.length );
+
+        // the lengths exceed the given length of the snapshot
+        assertRejected( snapshot, snapshot.length / 2 );
+    }
+
+
+    private static byte[] setInt( byte[] snapshot, int offset, int value )
+    {
+        byte[] corrupt = snapshot.clone();
+        ByteBuffer.wrap( corrupt ).putInt( offset, value );
+        return corrupt;
+    }
+
+
+    private static void assertRejected( byte[] snapshot, long length )
+    {
+        try
+        {
+            new Schema().loadFromSnapshot( new ByteArrayInputStream( snapshot ), length );
+            fail( "IOException expected" ); //$NON-NLS-1$
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+    }
+
+}
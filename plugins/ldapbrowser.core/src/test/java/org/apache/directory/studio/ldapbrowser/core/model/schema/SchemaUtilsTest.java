@@ -0,0 +1,359 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.schema.AbstractSchemaObject;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.LdapSyntax;
+import org.apache.directory.api.ldap.model.schema.MatchingRule;
+import org.apache.directory.api.ldap.model.schema.MatchingRuleUse;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.junit.Test;
+
+
+/**
+ * Tests the indexed lookups of {@link SchemaUtils} against a brute-force scan of
+ * the default schema. The expected results are computed from the raw schema
+ * elements only, by walking the superior chains, without using {@link SchemaUtils}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SchemaUtilsTest
+{
+    private Schema schema = Schema.DEFAULT_SCHEMA;
+
+
+    private static Set<String> identifiers( AbstractSchemaObject object )
+    {
+        Set<String> identifiers = new HashSet<String>();
+        identifiers.add( object.getOid().toLowerCase() );
+        for ( String name : object.getNames() )
+        {
+            identifiers.add( name.toLowerCase() );
+        }
+        return identifiers;
+    }
+
+
+    private static boolean matches( String identifier, AbstractSchemaObject object )
+    {
+        return identifier != null && identifiers( object ).contains( identifier.toLowerCase() );
+    }
+
+
+    private AttributeType superior( AttributeType atd )
+    {
+        String superior = atd.getSuperiorOid();
+        return superior != null && schema.hasAttributeTypeDescription( superior ) ? schema
+            .getAttributeTypeDescription( superior ) : null;
+    }
+
+
+    private String syntax( AttributeType atd )
+    {
+        for ( AttributeType at = atd; at != null; at = superior( at ) )
+        {
+            if ( at.getSyntaxOid() != null )
+            {
+                return at.getSyntaxOid();
+            }
+        }
+        return null;
+    }
+
+
+    private Set<String> matchingRules( AttributeType atd )
+    {
+        String equality = null;
+        String substring = null;
+        String ordering = null;
+        for ( AttributeType at = atd; at != null; at = superior( at ) )
+        {
+            equality = equality != null ? equality : at.getEqualityOid();
+            substring = substring != null ? substring : at.getSubstringOid();
+            ordering = ordering != null ? ordering : at.getOrderingOid();
+        }
+
+        Set<String> matchingRules = new HashSet<String>();
+        for ( String matchingRule : new String[]
+            { equality, substring, ordering } )
+        {
+            if ( matchingRule != null )
+            {
+                matchingRules.add( matchingRule.toLowerCase() );
+            }
+        }
+        return matchingRules;
+    }
+
+
+    private void collectAttributes( ObjectClass ocd, boolean must, Set<String> attributes )
+    {
+        for ( String attribute : must ? ocd.getMustAttributeTypeOids() : ocd.getMayAttributeTypeOids() )
+        {
+            attributes.add( attribute.toLowerCase() );
+        }
+        for ( String superior : ocd.getSuperiorOids() )
+        {
+            if ( schema.hasObjectClassDescription( superior ) )
+            {
+                collectAttributes( schema.getObjectClassDescription( superior ), must, attributes );
+            }
+        }
+    }
+
+
+    private Map<ObjectClass, Set<String>> attributesByObjectClass( boolean must )
+    {
+        Map<ObjectClass, Set<String>> attributesByObjectClass = new HashMap<ObjectClass, Set<String>>();
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            Set<String> attributes = new HashSet<String>();
+            collectAttributes( ocd, must, attributes );
+            attributesByObjectClass.put( ocd, attributes );
+        }
+        return attributesByObjectClass;
+    }
+
+
+    @Test
+    public void testDerivedAttributeTypes()
+    {
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            Set<AttributeType> expected = new HashSet<AttributeType>();
+            for ( AttributeType derived : schema.getAttributeTypeDescriptions() )
+            {
+                if ( matches( derived.getSuperiorOid(), atd ) )
+                {
+                    expected.add( derived );
+                }
+            }
+
+            assertEquals( atd.getOid(), expected, new HashSet<AttributeType>( SchemaUtils
+                .getDerivedAttributeTypeDescriptions( atd, schema ) ) );
+        }
+
+        AttributeType name = schema.getAttributeTypeDescription( "name" ); //$NON-NLS-1$
+        assertTrue( SchemaUtils.getDerivedAttributeTypeDescriptions( name, schema ).contains(
+            schema.getAttributeTypeDescription( "cn" ) ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testInheritedSyntaxAndMatchingRules()
+    {
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            assertEquals( atd.getOid(), syntax( atd ), SchemaUtils.getSyntaxNumericOidTransitive( atd, schema ) );
+
+            Set<String> matchingRules = matchingRules( atd );
+            for ( String matchingRule : new String[]
+                { SchemaUtils.getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema ),
+                    SchemaUtils.getSubstringMatchingRuleNameOrNumericOidTransitive( atd, schema ),
+                    SchemaUtils.getOrderingMatchingRuleNameOrNumericOidTransitive( atd, schema ) } )
+            {
+                if ( matchingRule != null )
+                {
+                    assertTrue( atd.getOid(), matchingRules.remove( matchingRule.toLowerCase() ) );
+                }
+            }
+            assertTrue( atd.getOid(), matchingRules.isEmpty() );
+        }
+
+        // cn inherits its syntax and its matching rules from name
+        AttributeType cn = schema.getAttributeTypeDescription( "cn" ); //$NON-NLS-1$
+        assertEquals( null, cn.getSubstringOid() );
+        assertFalse( SchemaUtils.getSubstringMatchingRuleNameOrNumericOidTransitive( cn, schema ) == null );
+    }
+
+
+    @Test
+    public void testUsedFromSyntax()
+    {
+        for ( LdapSyntax lsd : schema.getLdapSyntaxDescriptions() )
+        {
+            Set<AttributeType> expected = new HashSet<AttributeType>();
+            for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+            {
+                if ( lsd.getOid().equalsIgnoreCase( syntax( atd ) ) )
+                {
+                    expected.add( atd );
+                }
+            }
+
+            assertEquals( lsd.getOid(), expected, new HashSet<AttributeType>( SchemaUtils
+                .getUsedFromAttributeTypeDescriptions( lsd, schema ) ) );
+        }
+    }
+
+
+    @Test
+    public void testUsedFromMatchingRule()
+    {
+        Map<AttributeType, Set<String>> matchingRulesByAttributeType = new HashMap<AttributeType, Set<String>>();
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            matchingRulesByAttributeType.put( atd, matchingRules( atd ) );
+        }
+
+        for ( MatchingRule mrd : schema.getMatchingRuleDescriptions() )
+        {
+            Set<AttributeType> expected = new HashSet<AttributeType>();
+            for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+            {
+                for ( String matchingRule : matchingRulesByAttributeType.get( atd ) )
+                {
+                    if ( matches( matchingRule, mrd ) )
+                    {
+                        expected.add( atd );
+                    }
+                }
+            }
+
+            assertEquals( mrd.getOid(), expected, new HashSet<AttributeType>( SchemaUtils
+                .getUsedFromAttributeTypeDescriptions( mrd, schema ) ) );
+        }
+    }
+
+
+    @Test
+    public void testOtherMatchingRules()
+    {
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            Set<String> expected = new HashSet<String>();
+            for ( MatchingRuleUse mrud : schema.getMatchingRuleUseDescriptions() )
+            {
+                for ( String applicable : mrud.getApplicableAttributeOids() )
+                {
+                    if ( matches( applicable, atd ) )
+                    {
+                        expected.addAll( mrud.getNames() );
+                    }
+                }
+            }
+
+            assertEquals( atd.getOid(), expected, new HashSet<String>( SchemaUtils
+                .getOtherMatchingRuleDescriptionNames( atd, schema ) ) );
+        }
+    }
+
+
+    @Test
+    public void testUsedAsMustAndMay()
+    {
+        Map<ObjectClass, Set<String>> mustsByObjectClass = attributesByObjectClass( true );
+        Map<ObjectClass, Set<String>> maysByObjectClass = attributesByObjectClass( false );
+
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            Set<ObjectClass> expectedMust = new HashSet<ObjectClass>();
+            Set<ObjectClass> expectedMay = new HashSet<ObjectClass>();
+            for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+            {
+                for ( String identifier : identifiers( atd ) )
+                {
+                    if ( mustsByObjectClass.get( ocd ).contains( identifier ) )
+                    {
+                        expectedMust.add( ocd );
+                    }
+                    if ( maysByObjectClass.get( ocd ).contains( identifier ) )
+                    {
+                        expectedMay.add( ocd );
+                    }
+                }
+            }
+
+            assertEquals( atd.getOid(), expectedMust, new HashSet<ObjectClass>( SchemaUtils.getUsedAsMust( atd,
+                schema ) ) );
+            assertEquals( atd.getOid(), expectedMay, new HashSet<ObjectClass>( SchemaUtils.getUsedAsMay( atd,
+                schema ) ) );
+        }
+
+        // organizationalPerson inherits cn as must attribute from person
+        AttributeType cn = schema.getAttributeTypeDescription( "cn" ); //$NON-NLS-1$
+        assertTrue( SchemaUtils.getUsedAsMust( cn, schema ).contains(
+            schema.getObjectClassDescription( "organizationalPerson" ) ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testTransitiveMustAndMayNames()
+    {
+        Map<ObjectClass, Set<String>> mustsByObjectClass = attributesByObjectClass( true );
+        Map<ObjectClass, Set<String>> maysByObjectClass = attributesByObjectClass( false );
+
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            Set<String> musts = new HashSet<String>();
+            for ( String must : SchemaUtils.getMustAttributeTypeDescriptionNamesTransitive( ocd, schema ) )
+            {
+                musts.add( must.toLowerCase() );
+            }
+            Set<String> mays = new HashSet<String>();
+            for ( String may : SchemaUtils.getMayAttributeTypeDescriptionNamesTransitive( ocd, schema ) )
+            {
+                mays.add( may.toLowerCase() );
+            }
+
+            assertEquals( ocd.getOid(), mustsByObjectClass.get( ocd ), musts );
+            assertEquals( ocd.getOid(), maysByObjectClass.get( ocd ), mays );
+        }
+    }
+
+
+    @Test
+    public void testSubObjectClasses()
+    {
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            Set<ObjectClass> expected = new HashSet<ObjectClass>();
+            for ( ObjectClass sub : schema.getObjectClassDescriptions() )
+            {
+                for ( String superior : sub.getSuperiorOids() )
+                {
+                    if ( matches( superior, ocd ) )
+                    {
+                        expected.add( sub );
+                    }
+                }
+            }
+
+            assertEquals( ocd.getOid(), expected, new HashSet<ObjectClass>( SchemaUtils
+                .getSubObjectClassDescriptions( ocd, schema ) ) );
+        }
+
+        ObjectClass person = schema.getObjectClassDescription( "person" ); //$NON-NLS-1$
+        assertTrue( SchemaUtils.getSubObjectClassDescriptions( person, schema ).contains(
+            schema.getObjectClassDescription( "organizationalPerson" ) ) ); //$NON-NLS-1$
+    }
+}
@@ -122,6 +122,9 @@ public class EntryEditorManager
     /** The shared working copies for auto-save editors; original entry -> working copy */
     private Map<IEntry, IEntry> autoSaveSharedWorkingCopies = new HashMap<>();
 
+    /** The original entries of the open editors, they are pinned in the cache of their connection */
+    private Set<IEntry> pinnedEntries = new HashSet<>();
+
     /** The comparator for entry editors */
     private Comparator<EntryEditorExtension> entryEditorComparator = new Comparator<EntryEditorExtension>()
     {
@@ -923,6 +926,12 @@ public class EntryEditorManager
     {
         cleanupCopies( PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage() );
 
+        // keep the attributes of the edited entry in the cache
+        if ( pinnedEntries.add( originalEntry ) )
+        {
+            originalEntry.getBrowserConnection().pinEntry( originalEntry );
+        }
+
         EntryEditorUtils.ensureAttributesInitialized( originalEntry );
         
         if ( editor.isAutoSave() )
@@ -1146,5 +1155,16 @@ public class EntryEditorManager
                 it.remove();
             }
         }
+        
+        for ( Iterator<IEntry> it = pinnedEntries.iterator(); it.hasNext(); )
+        {
+            IEntry entry = it.next();
+            
+            if ( !oscEntries.contains( entry ) && !autoSaveEntries.contains( entry ) )
+            {
+                it.remove();
+                entry.getBrowserConnection().unpinEntry( entry );
+            }
+        }
     }
 }
@@ -0,0 +1,138 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.ui.dialogs.properties;
+
+
+import java.text.NumberFormat;
+
+import org.apache.directory.studio.common.ui.widgets.BaseWidgetUtils;
+import org.apache.directory.studio.ldapbrowser.core.model.EntryCacheStatistics;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.IWorkbenchPropertyPage;
+import org.eclipse.ui.dialogs.PropertyPage;
+
+
+/**
+ * Property page to shows the statistics of the entry cache of a connection.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EntryCachePropertyPage extends PropertyPage implements IWorkbenchPropertyPage
+{
+
+    /** Text field containing the number of cached entries. */
+    private Text entriesText;
+
+    /** Text field containing the number of entries with cached attributes. */
+    private Text attributesText;
+
+    /** Text field containing the number of entries with cached children. */
+    private Text childrenText;
+
+    /** Text field containing the maximum number of entries with cached attributes or children. */
+    private Text maximumSizeText;
+
+    /** Text field containing the number of cache hits. */
+    private Text hitsText;
+
+    /** Text field containing the number of cache misses. */
+    private Text missesText;
+
+    /** Text field containing the number of evictions. */
+    private Text evictionsText;
+
+
+    /**
+     * Instantiates a new entry cache property page.
+     */
+    public EntryCachePropertyPage()
+    {
+        super();
+        super.noDefaultAndApplyButton();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Control createContents( Composite parent )
+    {
+        Composite composite = BaseWidgetUtils.createColumnContainer( parent, 1, 1 );
+
+        Group cacheGroup = BaseWidgetUtils.createGroup( BaseWidgetUtils.createColumnContainer( composite, 1, 1 ),
+            Messages.getString( "EntryCachePropertyPage.EntryCache" ), 1 ); //$NON-NLS-1$
+        Composite cacheComposite = BaseWidgetUtils.createColumnContainer( cacheGroup, 2, 1 );
+
+        BaseWidgetUtils.createLabel( cacheComposite, Messages.getString( "EntryCachePropertyPage.Entries" ), 1 ); //$NON-NLS-1$
+        entriesText = BaseWidgetUtils.createLabeledText( cacheComposite, "-", 1 ); //$NON-NLS-1$
+
+        BaseWidgetUtils.createLabel( cacheComposite, Messages.getString( "EntryCachePropertyPage.Attributes" ), 1 ); //$NON-NLS-1$
+        attributesText = BaseWidgetUtils.createLabeledText( cacheComposite, "-", 1 ); //$NON-NLS-1$
+
+        BaseWidgetUtils.createLabel( cacheComposite, Messages.getString( "EntryCachePropertyPage.Children" ), 1 ); //$NON-NLS-1$
+        childrenText = BaseWidgetUtils.createLabeledText( cacheComposite, "-", 1 ); //$NON-NLS-1$
+
+        BaseWidgetUtils.createLabel( cacheComposite, Messages.getString( "EntryCachePropertyPage.MaximumSize" ), 1 ); //$NON-NLS-1$
+        maximumSizeText = BaseWidgetUtils.createLabeledText( cacheComposite, "-", 1 ); //$NON-NLS-1$
+
+        BaseWidgetUtils.createLabel( cacheComposite, Messages.getString( "EntryCachePropertyPage.Hits" ), 1 ); //$NON-NLS-1$
+        hitsText = BaseWidgetUtils.createLabeledText( cacheComposite, "-", 1 ); //$NON-NLS-1$
+
+        BaseWidgetUtils.createLabel( cacheComposite, Messages.getString( "EntryCachePropertyPage.Misses" ), 1 ); //$NON-NLS-1$
+        missesText = BaseWidgetUtils.createLabeledText( cacheComposite, "-", 1 ); //$NON-NLS-1$
+
+        BaseWidgetUtils.createLabel( cacheComposite, Messages.getString( "EntryCachePropertyPage.Evictions" ), 1 ); //$NON-NLS-1$
+        evictionsText = BaseWidgetUtils.createLabeledText( cacheComposite, "-", 1 ); //$NON-NLS-1$
+
+        IBrowserConnection connection = RootDSEPropertyPage.getConnection( getElement() );
+        update( connection );
+
+        return composite;
+    }
+
+
+    /**
+     * Updates the text fields.
+     * 
+     * @param browserConnection the connection
+     */
+    private void update( IBrowserConnection browserConnection )
+    {
+        if ( browserConnection != null && !entriesText.isDisposed() )
+        {
+            EntryCacheStatistics statistics = browserConnection.getEntryCacheStatistics();
+            NumberFormat format = NumberFormat.getIntegerInstance();
+
+            entriesText.setText( format.format( statistics.getEntryCount() ) );
+            attributesText.setText( format.format( statistics.getAttributeInfoCount() ) );
+            childrenText.setText( format.format( statistics.getChildrenInfoCount() ) );
+            maximumSizeText.setText( format.format( statistics.getMaximumSize() ) );
+            hitsText.setText( format.format( statistics.getHitCount() ) );
+            missesText.setText( format.format( statistics.getMissCount() ) );
+            evictionsText.setText( format.format( statistics.getEvictionCount() ) );
+        }
+    }
+
+}
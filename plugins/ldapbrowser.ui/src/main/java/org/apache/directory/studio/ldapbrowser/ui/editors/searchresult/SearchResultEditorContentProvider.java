@@ -21,6 +21,7 @@
 package org.apache.directory.studio.ldapbrowser.ui.editors.searchresult;
 
 
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIConstants;
@@ -51,6 +52,9 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
     /** The elements. */
     private Object[] elements;
 
+    /** The sorted elements, null if they must be sorted again. */
+    private Object[] sortedElements;
+
     /** The filtered and sorted elements. */
     private Object[] filteredAndSortedElements;
 
@@ -80,6 +84,7 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
         mainWidget = null;
         configuration = null;
         elements = null;
+        sortedElements = null;
         filteredAndSortedElements = null;
     }
 
@@ -94,6 +99,30 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
     }
 
 
+    /**
+     * Sorts the elements again and refreshes the viewer, called
+     * when the sort column or sort order has been changed.
+     */
+    public void sortChanged()
+    {
+        sortedElements = null;
+        refresh();
+    }
+
+
+    /**
+     * Called when an entry has been modified. The elements are sorted
+     * again on the next refresh and the quick filter index is updated.
+     *
+     * @param entry the modified entry
+     */
+    public void entryUpdated( IEntry entry )
+    {
+        sortedElements = null;
+        configuration.getFilter().entryUpdated( entry );
+    }
+
+
     /**
      * Filters and sorts the viewer.
      */
@@ -116,8 +145,14 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
             else if ( elements.length > 0 && mainWidget.getViewer() != null
                 && !mainWidget.getViewer().getTable().isDisposed() )
             {
-                filteredAndSortedElements = configuration.getFilter().filter( mainWidget.getViewer(), "", elements ); //$NON-NLS-1$
-                configuration.getSorter().sort( mainWidget.getViewer(), filteredAndSortedElements );
+                // sort only once, the filter keeps the order of the sorted elements
+                if ( sortedElements == null )
+                {
+                    sortedElements = elements.clone();
+                    configuration.getSorter().sort( mainWidget.getViewer(), sortedElements );
+                }
+                filteredAndSortedElements = configuration.getFilter().filter( mainWidget.getViewer(), "", //$NON-NLS-1$
+                    sortedElements );
             }
         }
 
@@ -192,6 +227,7 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
     {
         this.input = newInput;
         this.elements = getElements( newInput );
+        this.sortedElements = null;
     }
 
 
@@ -22,18 +22,32 @@ package org.apache.directory.studio.ldapbrowser.ui.editors.searchresult;
 
 
 import java.util.ArrayList;
+import java.util.Set;
 
 import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
 import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.LdapFilterEvaluator;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.viewers.ViewerFilter;
 
 
 /**
  * The SearchResultEditorFilter implements the filter for the search result editor.
+ * If the quick filter value is a valid LDAP filter, e.g. <code>(cn=a*)</code>, it is
+ * evaluated against the entries of the search results, otherwise the displayed
+ * values are searched for the quick filter value.
+ * <p>
+ * The displayed values are indexed in the background when the search results
+ * arrive, see {@link SearchResultEditorQuickFilterIndex}. If the quick filter value
+ * is extended, only the search results that matched the previous value are checked.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -49,6 +63,49 @@ public class SearchResultEditorFilter extends ViewerFilter
     /** The show Dn flag. */
     private boolean showDn;
 
+    /** The search. */
+    private ISearch search;
+
+    /** The compiled quick filter value, null if it isn't a valid LDAP filter. */
+    private LdapFilterEvaluator filterEvaluator;
+
+    /** The index of the displayed values. */
+    private volatile SearchResultEditorQuickFilterIndex index;
+
+    /** The upper-cased quick filter value of the last index search. */
+    private String lastQuickFilterValue;
+
+    /** The matches of the last index search. */
+    private Set<ISearchResult> lastMatches;
+
+    /** The modification count of the index at the last index search. */
+    private int lastModificationCount;
+
+    /** The job that adds the search results to the index. */
+    private Job indexJob = new Job( "Index Search Results" ) //$NON-NLS-1$
+    {
+        protected IStatus run( IProgressMonitor monitor )
+        {
+            SearchResultEditorQuickFilterIndex index = SearchResultEditorFilter.this.index;
+            ISearchResult[] searchResults = index != null ? index.getSearchResults() : null;
+
+            if ( searchResults != null )
+            {
+                for ( ISearchResult searchResult : searchResults )
+                {
+                    if ( monitor.isCanceled() || index != SearchResultEditorFilter.this.index )
+                    {
+                        return Status.CANCEL_STATUS;
+                    }
+
+                    index.add( searchResult );
+                }
+            }
+
+            return Status.OK_STATUS;
+        }
+    };
+
 
     /**
      * Creates a new instance of SearchResultEditorFilter.
@@ -56,6 +113,7 @@ public class SearchResultEditorFilter extends ViewerFilter
     public SearchResultEditorFilter()
     {
         this.quickFilterValue = ""; //$NON-NLS-1$
+        indexJob.setSystem( true );
     }
 
 
@@ -79,6 +137,35 @@ public class SearchResultEditorFilter extends ViewerFilter
     public void inputChanged( ISearch newSearch, boolean showDn )
     {
         this.showDn = showDn;
+        this.search = newSearch;
+        compileQuickFilterValue();
+
+        // index the new search results in the background, a search that was performed
+        // again has a new search results array and gets a new index
+        if ( newSearch != null )
+        {
+            if ( index == null || !index.isFor( newSearch, showDn ) )
+            {
+                index = new SearchResultEditorQuickFilterIndex( newSearch, showDn );
+                lastMatches = null;
+            }
+            indexJob.schedule();
+        }
+    }
+
+
+    /**
+     * Called when an entry has been modified, updates the index.
+     *
+     * @param entry the modified entry
+     */
+    public void entryUpdated( IEntry entry )
+    {
+        SearchResultEditorQuickFilterIndex index = this.index;
+        if ( index != null )
+        {
+            index.update( entry );
+        }
     }
 
 
@@ -100,18 +187,16 @@ public class SearchResultEditorFilter extends ViewerFilter
     {
         if ( isFiltered() )
         {
-            int size = elements.length;
-            ArrayList<Object> out = new ArrayList<Object>( size );
-            for ( int i = 0; i < size; ++i )
+            SearchResultEditorQuickFilterIndex index = this.index;
+            if ( filterEvaluator != null || index == null )
             {
-                Object element = elements[i];
-                if ( select( viewer, parent, element ) )
-                {
-                    out.add( element );
-                }
+                return filter( viewer, parent, elements, null, null );
             }
 
-            return out.toArray();
+            synchronized ( index )
+            {
+                return filter( viewer, parent, elements, index, searchIndex( index ) );
+            }
         }
         else
         {
@@ -129,6 +214,11 @@ public class SearchResultEditorFilter extends ViewerFilter
         {
             ISearchResult searchResult = ( ISearchResult ) element;
 
+            if ( filterEvaluator != null )
+            {
+                return filterEvaluator.matches( searchResult );
+            }
+
             String[] returningAttributes = searchResult.getSearch().getReturningAttributes();
             for ( int r = 0; r < returningAttributes.length; r++ )
             {
@@ -166,6 +256,70 @@ public class SearchResultEditorFilter extends ViewerFilter
     }
 
 
+    /**
+     * Filters the given elements. Indexed search results are looked up in the
+     * given matches, all other elements are checked one by one.
+     *
+     * @param viewer the viewer
+     * @param parent the parent
+     * @param elements the elements to filter
+     * @param index the index, may be null
+     * @param matches the indexed search results matching the quick filter value, may be null
+     *
+     * @return the filtered elements
+     */
+    private Object[] filter( Viewer viewer, Object parent, Object[] elements, SearchResultEditorQuickFilterIndex index,
+        Set<ISearchResult> matches )
+    {
+        int size = elements.length;
+        ArrayList<Object> out = new ArrayList<Object>( size );
+        for ( int i = 0; i < size; ++i )
+        {
+            Object element = elements[i];
+            if ( index != null && element instanceof ISearchResult && index.contains( ( ISearchResult ) element ) )
+            {
+                if ( matches.contains( element ) )
+                {
+                    out.add( element );
+                }
+            }
+            else if ( select( viewer, parent, element ) )
+            {
+                out.add( element );
+            }
+        }
+
+        return out.toArray();
+    }
+
+
+    /**
+     * Searches the index for the quick filter value. If the quick filter value
+     * extends the value of the last search, only the last matches are checked.
+     *
+     * @param index the index
+     *
+     * @return the indexed search results matching the quick filter value
+     */
+    private Set<ISearchResult> searchIndex( SearchResultEditorQuickFilterIndex index )
+    {
+        String value = quickFilterValue.toUpperCase();
+        Set<ISearchResult> candidates = null;
+
+        if ( lastMatches != null && lastModificationCount == index.getModificationCount()
+            && value.contains( lastQuickFilterValue ) )
+        {
+            candidates = lastMatches;
+        }
+
+        lastMatches = index.search( quickFilterValue, candidates );
+        lastQuickFilterValue = value;
+        lastModificationCount = index.getModificationCount();
+
+        return lastMatches;
+    }
+
+
     /**
      * Checks if the value goes through quick filter.
      * 
@@ -188,12 +342,39 @@ public class SearchResultEditorFilter extends ViewerFilter
     }
 
 
+    /**
+     * Compiles the quick filter value if it is a valid LDAP filter.
+     */
+    private void compileQuickFilterValue()
+    {
+        filterEvaluator = null;
+
+        if ( search != null && quickFilterValue.trim().startsWith( "(" ) ) //$NON-NLS-1$
+        {
+            try
+            {
+                filterEvaluator = LdapFilterEvaluator.compile( quickFilterValue.trim(), search.getBrowserConnection()
+                    .getSchema() );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // not a valid LDAP filter (yet), the values are searched for the text
+            }
+        }
+    }
+
+
     /**
      * Disposes this filter.
      */
     public void dispose()
     {
+        indexJob.cancel();
         contentProvider = null;
+        search = null;
+        filterEvaluator = null;
+        index = null;
+        lastMatches = null;
     }
 
 
@@ -218,6 +399,7 @@ public class SearchResultEditorFilter extends ViewerFilter
         if ( !this.quickFilterValue.equals( quickFilterValue ) )
         {
             this.quickFilterValue = quickFilterValue;
+            compileQuickFilterValue();
             if ( contentProvider != null )
             {
                 contentProvider.refresh();
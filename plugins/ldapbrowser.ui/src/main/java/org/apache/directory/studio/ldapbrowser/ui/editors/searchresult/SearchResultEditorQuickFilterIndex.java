@@ -0,0 +1,491 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.ui.editors.searchresult;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.CompactSearchResult;
+
+
+/**
+ * The SearchResultEditorQuickFilterIndex indexes the displayed values of the
+ * search results, so the quick filter does not need to check each value of each
+ * search result for each keystroke.
+ * <p>
+ * The upper-cased values of a search result are joined into one text. Each
+ * trigram of the texts is mapped to the search results containing it. A quick
+ * filter value of at least three characters only needs to check the search
+ * results containing its rarest trigram, shorter values check the texts of all
+ * search results. Search results can be added while the index is used, so the
+ * index can be built in the background while the search results arrive.
+ * <p>
+ * An index is built for one search results array of the search. When the search
+ * is performed again, the array is replaced and a new index must be created.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SearchResultEditorQuickFilterIndex
+{
+
+    /** The separator of the values within a text, quick filter values never contain it. */
+    private static final char SEPARATOR = '\u0000';
+
+    /** The search. */
+    private ISearch search;
+
+    /** The show Dn flag. */
+    private boolean showDn;
+
+    /** The search results array of the search this index is built for. */
+    private ISearchResult[] searchResultsArray;
+
+    /** The indexed search results. */
+    private List<ISearchResult> searchResults = new ArrayList<ISearchResult>();
+
+    /** The upper-cased texts of the search results, with the same index. */
+    private List<String> texts = new ArrayList<String>();
+
+    /** The index of each search result. */
+    private Map<ISearchResult, Integer> ids = new IdentityHashMap<ISearchResult, Integer>();
+
+    /** The first index of the search results of an entry. */
+    private Map<IEntry, Integer> firstIdByEntry = new IdentityHashMap<IEntry, Integer>();
+
+    /** The next index of a search result of the same entry, by index, -1 if none. */
+    private int[] nextIdOfEntry = new int[16];
+
+    /** The indices of the search results by trigram. */
+    private Map<Long, Postings> postings = new HashMap<Long, Postings>();
+
+    /** The modification count, incremented when search results are added or updated. */
+    private int modificationCount;
+
+
+    /**
+     * Creates a new instance of SearchResultEditorQuickFilterIndex.
+     *
+     * @param search the search
+     * @param showDn the show Dn flag
+     */
+    public SearchResultEditorQuickFilterIndex( ISearch search, boolean showDn )
+    {
+        this.search = search;
+        this.showDn = showDn;
+        this.searchResultsArray = search.getSearchResults();
+    }
+
+
+    /**
+     * Checks if this index is for the given search, its current search results
+     * and the show Dn flag.
+     *
+     * @param search the search
+     * @param showDn the show Dn flag
+     *
+     * @return true, if this index is for the given search, its search results and show Dn flag
+     */
+    public boolean isFor( ISearch search, boolean showDn )
+    {
+        return this.search == search && this.showDn == showDn && searchResultsArray == search.getSearchResults();
+    }
+
+
+    /**
+     * Gets the search.
+     *
+     * @return the search
+     */
+    public ISearch getSearch()
+    {
+        return search;
+    }
+
+
+    /**
+     * Gets the search results array this index is built for.
+     *
+     * @return the search results, may be null
+     */
+    public ISearchResult[] getSearchResults()
+    {
+        return searchResultsArray;
+    }
+
+
+    /**
+     * Checks if the given search result is indexed.
+     *
+     * @param searchResult the search result
+     *
+     * @return true, if the search result is indexed
+     */
+    public synchronized boolean contains( ISearchResult searchResult )
+    {
+        return ids.containsKey( searchResult );
+    }
+
+
+    /**
+     * Gets the modification count, it is incremented each time a search result
+     * is added or updated.
+     *
+     * @return the modification count
+     */
+    public synchronized int getModificationCount()
+    {
+        return modificationCount;
+    }
+
+
+    /**
+     * Adds the given search result to the index, if not already indexed.
+     *
+     * @param searchResult the search result
+     */
+    public synchronized void add( ISearchResult searchResult )
+    {
+        if ( !ids.containsKey( searchResult ) )
+        {
+            int id = searchResults.size();
+            searchResults.add( searchResult );
+            texts.add( null );
+            ids.put( searchResult, id );
+
+            // compact search results are read-only, their entries are never updated
+            if ( id == nextIdOfEntry.length )
+            {
+                nextIdOfEntry = Arrays.copyOf( nextIdOfEntry, id * 2 );
+            }
+            Integer next = searchResult instanceof CompactSearchResult ? null : firstIdByEntry.put(
+                searchResult.getEntry(), id );
+            nextIdOfEntry[id] = next != null ? next : -1;
+
+            index( id );
+        }
+    }
+
+
+    /**
+     * Updates the search results of the given entry, e.g. after a value has been modified.
+     *
+     * @param entry the entry
+     */
+    public synchronized void update( IEntry entry )
+    {
+        Integer first = firstIdByEntry.get( entry );
+        for ( int id = first != null ? first : -1; id >= 0; id = nextIdOfEntry[id] )
+        {
+            reindex( id );
+        }
+    }
+
+
+    /**
+     * Indexes the text of the newly added search result with the given index.
+     *
+     * @param id the index of the search result
+     */
+    private void index( int id )
+    {
+        String text = getText( searchResults.get( id ) );
+        texts.set( id, text );
+
+        for ( int i = 0; i + 3 <= text.length(); i++ )
+        {
+            Long trigram = getTrigram( text, i );
+            if ( trigram != null )
+            {
+                getPostings( trigram ).add( id );
+            }
+        }
+
+        modificationCount++;
+    }
+
+
+    /**
+     * Indexes the text of the search result with the given index again. The search
+     * result is removed from the postings of the trigrams its text no longer contains.
+     *
+     * @param id the index of the search result
+     */
+    private void reindex( int id )
+    {
+        Set<Long> oldTrigrams = getTrigrams( texts.get( id ) );
+        String text = getText( searchResults.get( id ) );
+        texts.set( id, text );
+        Set<Long> newTrigrams = getTrigrams( text );
+
+        for ( Long trigram : oldTrigrams )
+        {
+            if ( !newTrigrams.contains( trigram ) )
+            {
+                Postings p = postings.get( trigram );
+                if ( p != null && p.remove( id ) && p.size == 0 )
+                {
+                    postings.remove( trigram );
+                }
+            }
+        }
+
+        for ( Long trigram : newTrigrams )
+        {
+            if ( !oldTrigrams.contains( trigram ) )
+            {
+                getPostings( trigram ).add( id );
+            }
+        }
+
+        modificationCount++;
+    }
+
+
+    /**
+     * Gets the postings of the given trigram, creates them if needed.
+     *
+     * @param trigram the trigram
+     *
+     * @return the postings
+     */
+    private Postings getPostings( Long trigram )
+    {
+        Postings p = postings.get( trigram );
+        if ( p == null )
+        {
+            p = new Postings();
+            postings.put( trigram, p );
+        }
+
+        return p;
+    }
+
+
+    /**
+     * Gets the distinct trigrams of the given text.
+     *
+     * @param text the text
+     *
+     * @return the trigrams
+     */
+    private static Set<Long> getTrigrams( String text )
+    {
+        Set<Long> trigrams = new HashSet<Long>();
+        for ( int i = 0; i + 3 <= text.length(); i++ )
+        {
+            Long trigram = getTrigram( text, i );
+            if ( trigram != null )
+            {
+                trigrams.add( trigram );
+            }
+        }
+
+        return trigrams;
+    }
+
+
+    /**
+     * Searches the indexed search results whose displayed values contain the
+     * given quick filter value, ignoring the case.
+     *
+     * @param quickFilterValue the quick filter value
+     * @param candidates the search results to check, or null to check all indexed search results
+     *
+     * @return the matching search results
+     */
+    public synchronized Set<ISearchResult> search( String quickFilterValue, Set<ISearchResult> candidates )
+    {
+        String value = quickFilterValue.toUpperCase();
+        Set<ISearchResult> matches = Collections.newSetFromMap( new IdentityHashMap<ISearchResult, Boolean>() );
+
+        // the search results containing the rarest trigram of the value
+        Postings rarest = null;
+        for ( int i = 0; i + 3 <= value.length(); i++ )
+        {
+            Long trigram = getTrigram( value, i );
+            Postings p = trigram != null ? postings.get( trigram ) : null;
+            if ( p == null )
+            {
+                return matches;
+            }
+            if ( rarest == null || p.size < rarest.size )
+            {
+                rarest = p;
+            }
+        }
+
+        if ( candidates != null && ( rarest == null || candidates.size() < rarest.size ) )
+        {
+            for ( ISearchResult searchResult : candidates )
+            {
+                Integer id = ids.get( searchResult );
+                if ( id != null && texts.get( id ).indexOf( value ) > -1 )
+                {
+                    matches.add( searchResult );
+                }
+            }
+        }
+        else if ( rarest != null )
+        {
+            for ( int i = 0; i < rarest.size; i++ )
+            {
+                ISearchResult searchResult = searchResults.get( rarest.ids[i] );
+                if ( ( candidates == null || candidates.contains( searchResult ) )
+                    && texts.get( rarest.ids[i] ).indexOf( value ) > -1 )
+                {
+                    matches.add( searchResult );
+                }
+            }
+        }
+        else
+        {
+            for ( int id = 0; id < texts.size(); id++ )
+            {
+                if ( texts.get( id ).indexOf( value ) > -1 )
+                {
+                    matches.add( searchResults.get( id ) );
+                }
+            }
+        }
+
+        return matches;
+    }
+
+
+    /**
+     * Gets the upper-cased text of the displayed values of the given search result.
+     *
+     * @param searchResult the search result
+     *
+     * @return the text
+     */
+    private String getText( ISearchResult searchResult )
+    {
+        StringBuilder sb = new StringBuilder();
+
+        for ( String ra : search.getReturningAttributes() )
+        {
+            AttributeHierarchy ah = searchResult.getAttributeWithSubtypes( ra );
+            if ( ah != null )
+            {
+                for ( IAttribute attribute : ah.getAttributes() )
+                {
+                    for ( IValue value : attribute.getValues() )
+                    {
+                        if ( value.isString() )
+                        {
+                            sb.append( value.getStringValue().toUpperCase() ).append( SEPARATOR );
+                        }
+                    }
+                }
+            }
+        }
+
+        if ( showDn )
+        {
+            sb.append( searchResult.getDn().getName().toUpperCase() ).append( SEPARATOR );
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Gets the trigram starting at the given position.
+     *
+     * @param text the text
+     * @param pos the position
+     *
+     * @return the trigram, or null if it spans two values
+     */
+    private static Long getTrigram( String text, int pos )
+    {
+        char c1 = text.charAt( pos );
+        char c2 = text.charAt( pos + 1 );
+        char c3 = text.charAt( pos + 2 );
+
+        if ( c1 == SEPARATOR || c2 == SEPARATOR || c3 == SEPARATOR )
+        {
+            return null;
+        }
+
+        return ( ( long ) c1 << 32 ) | ( ( long ) c2 << 16 ) | c3;
+    }
+
+    /**
+     * The indices of the search results containing a trigram.
+     */
+    private static class Postings
+    {
+        private int[] ids = new int[2];
+
+        private int size;
+
+
+        private void add( int id )
+        {
+            // the trigrams of a text are added one after the other
+            if ( size > 0 && ids[size - 1] == id )
+            {
+                return;
+            }
+
+            if ( size == ids.length )
+            {
+                int[] newIds = new int[size * 2];
+                System.arraycopy( ids, 0, newIds, 0, size );
+                ids = newIds;
+            }
+            ids[size++] = id;
+        }
+
+
+        private boolean remove( int id )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                if ( ids[i] == id )
+                {
+                    System.arraycopy( ids, i + 1, ids, i, size - i - 1 );
+                    size--;
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+}
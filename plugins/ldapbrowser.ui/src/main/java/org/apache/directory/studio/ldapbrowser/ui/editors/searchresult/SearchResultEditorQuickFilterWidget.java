@@ -38,7 +38,8 @@ import org.eclipse.swt.widgets.Text;
 
 /**
  * The SearchResultEditorQuickFilterWidget implements an instant search 
- * for the search result edtior. It contains one fields for all displayed values.
+ * for the search result edtior. It contains one fields for all displayed values,
+ * or an LDAP filter to filter within the search results.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -112,6 +113,8 @@ public class SearchResultEditorQuickFilterWidget
 
         quickFilterValueText = new Text( innerComposite, SWT.BORDER );
         quickFilterValueText.setLayoutData( new GridData( GridData.FILL_HORIZONTAL ) );
+        quickFilterValueText.setToolTipText( Messages
+            .getString( "SearchResultEditorQuickFilterWidget.QuickFilterToolTip" ) ); //$NON-NLS-1$
         quickFilterValueText.addModifyListener( new ModifyListener()
         {
             public void modifyText( ModifyEvent e )
@@ -219,7 +219,7 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
             ( columns[index] ).setImage( null );
         }
 
-        contentProvider.refresh();
+        contentProvider.sortChanged();
     }
 
 
@@ -555,6 +555,8 @@ public class SearchResultEditorUniversalListener implements SearchUpdateListener
         }
         else
         {
+            editor.getConfiguration().getContentProvider( editor.getMainWidget() ).entryUpdated(
+                event.getModifiedEntry() );
             viewer.refresh( true );
             cursor.notifyListeners( SWT.Selection, new Event() );
         }
@@ -0,0 +1,327 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldapbrowser.ui.views.logs;
+
+
+import java.io.File;
+import java.io.FileWriter;
+
+import org.apache.directory.studio.connection.core.io.api.LdifLogFileIndex;
+import org.apache.directory.studio.ldifeditor.widgets.LdifEditorWidget;
+import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IViewportListener;
+
+
+/**
+ * The LdifLogFileViewer displays a log file of the search logs or modification logs
+ * view in an {@link LdifEditorWidget}. The log file is read using a {@link LdifLogFileIndex}:
+ * the newest log records are displayed first, the log records appended to the log file
+ * are appended to the document and the previous log records are prepended when the
+ * viewer is scrolled to the top.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifLogFileViewer
+{
+
+    /** The number of log records that are read at once */
+    private static final int PAGE_SIZE = 500;
+
+    /** The widget that displays the log records */
+    private LdifEditorWidget widget;
+
+    /** The index of the displayed log file */
+    private LdifLogFileIndex logFileIndex;
+
+    /** The filter of the displayed log records, null if all log records are displayed */
+    private String filter;
+
+    /** Flag indicating that the document is currently updated */
+    private boolean updating;
+
+    /** Listener that reads the previous log records when scrolled to the top */
+    private IViewportListener viewportListener = new IViewportListener()
+    {
+        /**
+         * {@inheritDoc}
+         *
+         * This implementation reads the previous page of log records.
+         */
+        public void viewportChanged( int verticalOffset )
+        {
+            if ( verticalOffset == 0 && !updating && logFileIndex != null && logFileIndex.hasPreviousPage() )
+            {
+                readPreviousPage();
+            }
+        }
+    };
+
+
+    /**
+     * Creates a new instance of LdifLogFileViewer.
+     *
+     * @param widget the widget that displays the log records
+     */
+    public LdifLogFileViewer( LdifEditorWidget widget )
+    {
+        this.widget = widget;
+
+        widget.getSourceViewer().addViewportListener( viewportListener );
+    }
+
+
+    /**
+     * Disposes this viewer.
+     */
+    public void dispose()
+    {
+        if ( widget != null )
+        {
+            widget.getSourceViewer().removeViewportListener( viewportListener );
+            widget = null;
+        }
+    }
+
+
+    /**
+     * Checks if the given log file is displayed.
+     *
+     * @param file the log file, may be null
+     * @return true if the given log file is displayed
+     */
+    public boolean isDisplayed( File file )
+    {
+        return logFileIndex != null && logFileIndex.getFile().equals( file );
+    }
+
+
+    /**
+     * Displays the newest log records of the given log file.
+     *
+     * @param file the log file, null to display nothing
+     */
+    public void setFile( File file )
+    {
+        if ( file != null )
+        {
+            logFileIndex = new LdifLogFileIndex( file, PAGE_SIZE );
+            logFileIndex.setFilter( filter );
+            readLastPage();
+        }
+        else
+        {
+            logFileIndex = null;
+            setText( "" ); //$NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Appends the log records appended to the displayed log file to the document.
+     */
+    public void refresh()
+    {
+        if ( logFileIndex == null )
+        {
+            return;
+        }
+
+        try
+        {
+            String text = logFileIndex.readAppended();
+            if ( text == null || logFileIndex.getReadCount() > 2 * PAGE_SIZE )
+            {
+                // the log file was rotated or the document grew too large
+                readLastPage();
+            }
+            else if ( text.length() > 0 )
+            {
+                IDocument document = widget.getSourceViewer().getDocument();
+                updating = true;
+                document.replace( document.getLength(), 0, text );
+            }
+        }
+        catch ( Exception e )
+        {
+        }
+        finally
+        {
+            updating = false;
+        }
+    }
+
+
+    /**
+     * Deletes the given log files, a log file that can't be deleted is truncated.
+     * The errors are displayed.
+     *
+     * @param files the log files
+     */
+    public void clear( File[] files )
+    {
+        StringBuffer sb = new StringBuffer( "" ); //$NON-NLS-1$
+        for ( int i = 0; i < files.length; i++ )
+        {
+            try
+            {
+                if ( files[i] != null && files[i].exists() && !files[i].delete() )
+                {
+                    try ( FileWriter fw = new FileWriter( files[i] ) )
+                    {
+                        fw.write( "" ); //$NON-NLS-1$
+                    }
+                }
+            }
+            catch ( Exception e )
+            {
+                sb.append( e.getMessage() );
+            }
+        }
+        logFileIndex = null;
+        widget.getSourceViewer().setTopIndex( 0 );
+        setText( sb.toString() );
+    }
+
+
+    /**
+     * Reads the newest page of log records of the displayed log file.
+     */
+    private void readLastPage()
+    {
+        String text;
+        try
+        {
+            text = logFileIndex.readLastPage();
+        }
+        catch ( Exception e )
+        {
+            text = e.getMessage();
+        }
+
+        setText( text );
+    }
+
+
+    /**
+     * Prepends the previous page of log records to the document
+     * and keeps the displayed log records in place.
+     */
+    private void readPreviousPage()
+    {
+        try
+        {
+            String text = logFileIndex.readPreviousPage();
+            IDocument document = widget.getSourceViewer().getDocument();
+            int lines = document.getNumberOfLines();
+            updating = true;
+            document.replace( 0, 0, text );
+            widget.getSourceViewer().setTopIndex( document.getNumberOfLines() - lines );
+        }
+        catch ( Exception e )
+        {
+        }
+        finally
+        {
+            updating = false;
+        }
+    }
+
+
+    /**
+     * Sets the text of the document.
+     *
+     * @param text the text
+     */
+    private void setText( String text )
+    {
+        try
+        {
+            updating = true;
+            widget.getSourceViewer().getDocument().set( text );
+        }
+        finally
+        {
+            updating = false;
+        }
+    }
+
+
+    /**
+     * Gets the filter of the displayed log records.
+     *
+     * @return the filter, null if all log records are displayed
+     */
+    public String getFilter()
+    {
+        return filter;
+    }
+
+
+    /**
+     * Sets the filter of the displayed log records. Only the log records with
+     * the given request number or with a DN containing the given text are displayed.
+     * Modification logs have no request numbers, their log records are filtered by DN only.
+     *
+     * @param filter the filter, null or empty to display all log records
+     */
+    public void setFilter( String filter )
+    {
+        this.filter = ( filter == null || filter.trim().length() == 0 ) ? null : filter.trim();
+
+        if ( logFileIndex != null )
+        {
+            logFileIndex.setFilter( this.filter );
+            readLastPage();
+            scrollToNewest();
+        }
+    }
+
+
+    /**
+     * Scroll to oldest log entry.
+     */
+    public void scrollToOldest()
+    {
+        widget.getSourceViewer().setTopIndex( 0 );
+    }
+
+
+    /**
+     * Scroll to newest log entry.
+     */
+    public void scrollToNewest()
+    {
+        try
+        {
+            LdifContainer record = widget.getLdifModel().getLastContainer();
+            int offset = record.getOffset();
+            int line = widget.getSourceViewer().getDocument().getLineOfOffset( offset );
+            if ( line > 3 )
+                line -= 3;
+            widget.getSourceViewer().setTopIndex( line );
+        }
+        catch ( Exception e )
+        {
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ package org.apache.directory.studio.ldapbrowser.ui.views.modificationlogs;
 
 
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIConstants;
+import org.apache.directory.studio.ldapbrowser.ui.views.logs.LdifLogFileViewer;
 import org.apache.directory.studio.ldifeditor.widgets.LdifEditorWidget;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
@@ -46,6 +47,9 @@ public class ModificationLogsView extends ViewPart
     /** The main widget. */
     private LdifEditorWidget mainWidget;
 
+    /** The log file viewer. */
+    private LdifLogFileViewer logFileViewer;
+
     /** The universal listener. */
     private ModificationLogsViewUniversalListener universalListener;
 
@@ -90,6 +94,8 @@ public class ModificationLogsView extends ViewPart
             actionGroup = null;
             universalListener.dispose();
             universalListener = null;
+            logFileViewer.dispose();
+            logFileViewer = null;
             mainWidget.dispose();
             mainWidget = null;
         }
@@ -113,6 +119,7 @@ public class ModificationLogsView extends ViewPart
         mainWidget = new LdifEditorWidget( null, "", false ); //$NON-NLS-1$
         mainWidget.createWidget( composite );
         mainWidget.getSourceViewer().setEditable( false );
+        logFileViewer = new LdifLogFileViewer( mainWidget );
 
         // create actions and context menu (and register global actions)
         actionGroup = new ModificationLogsViewActionGroup( this );
@@ -139,6 +146,17 @@ public class ModificationLogsView extends ViewPart
     }
 
 
+    /**
+     * Gets the log file viewer.
+     * 
+     * @return the log file viewer
+     */
+    public LdifLogFileViewer getLogFileViewer()
+    {
+        return logFileViewer;
+    }
+
+
     /**
      * Gets the universal listener.
      * 
@@ -28,6 +28,7 @@ import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
 import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
 import org.apache.directory.studio.ldapbrowser.common.actions.proxy.ActionHandlerManager;
 import org.apache.directory.studio.ldapbrowser.ui.actions.proxy.ModificationLogsViewActionProxy;
+import org.apache.directory.studio.ldapbrowser.ui.views.logs.FilterAction;
 import org.eclipse.jface.action.IMenuListener;
 import org.eclipse.jface.action.IMenuManager;
 import org.eclipse.jface.action.Separator;
@@ -61,6 +62,9 @@ public class ModificationLogsViewActionGroup implements ActionHandlerManager, IM
     /** The Constant exportAction. */
     private static final String exportAction = "exportAction"; //$NON-NLS-1$
 
+    /** The Constant filterAction. */
+    private static final String filterAction = "filterAction"; //$NON-NLS-1$
+
     /** The enable modification logs action. */
     private EnableModificationLogsAction enableModificationLogsAction;
 
@@ -92,6 +96,9 @@ public class ModificationLogsViewActionGroup implements ActionHandlerManager, IM
             view ) ) );
         modificationLogsViewActionMap.put( exportAction, new ModificationLogsViewActionProxy( viewer,
             new ExportAction() ) );
+        modificationLogsViewActionMap.put( filterAction, new ModificationLogsViewActionProxy( viewer,
+            new FilterAction( view.getLogFileViewer(),
+                Messages.getString( "FilterAction.FilterMessage" ) ) ) ); //$NON-NLS-1$
         enableModificationLogsAction = new EnableModificationLogsAction();
         openModificationLogsPreferencePageAction = new OpenModificationLogsPreferencePageAction();
     }
@@ -134,6 +141,8 @@ public class ModificationLogsViewActionGroup implements ActionHandlerManager, IM
         actionBars.getToolBarManager().add( modificationLogsViewActionMap.get( olderAction ) );
         actionBars.getToolBarManager().add( modificationLogsViewActionMap.get( newerAction ) );
         actionBars.getToolBarManager().add( new Separator() );
+        actionBars.getToolBarManager().add( modificationLogsViewActionMap.get( filterAction ) );
+        actionBars.getToolBarManager().add( new Separator() );
         actionBars.getToolBarManager().add( modificationLogsViewActionMap.get( exportAction ) );
 
         // Menu Bar
@@ -22,8 +22,6 @@ package org.apache.directory.studio.ldapbrowser.ui.views.modificationlogs;
 
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
@@ -38,7 +36,6 @@ import org.apache.directory.studio.ldapbrowser.core.events.EntryUpdateListener;
 import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.ui.views.connection.ConnectionView;
-import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.ui.INullSelectionListener;
 import org.eclipse.ui.IWorkbenchPart;
@@ -120,13 +117,22 @@ public class ModificationLogsViewUniversalListener implements EntryUpdateListene
 
 
     /**
-     * Refreshes the input.
+     * Refreshes the input. Only the log records appended to the displayed
+     * log file are read, the log file is read again if another log file
+     * must be displayed.
      */
     void refreshInput()
     {
-        ModificationLogsViewInput newInput = input;
-        input = null;
-        setInput( newInput );
+        if ( view.getLogFileViewer().isDisplayed( getLogFile( input ) ) )
+        {
+            view.getLogFileViewer().refresh();
+        }
+        else
+        {
+            ModificationLogsViewInput newInput = input;
+            input = null;
+            setInput( newInput );
+        }
     }
 
 
@@ -142,37 +148,36 @@ public class ModificationLogsViewUniversalListener implements EntryUpdateListene
         {
             this.input = input;
 
-            LdifModificationLogger modificationLogger = ConnectionCorePlugin.getDefault().getLdifModificationLogger();
+            // read the newest log records of file %u %g
+            view.getLogFileViewer().setFile( getLogFile( input ) );
 
-            if ( ( input != null ) && ( input.getBrowserConnection() != null )
-                && ( input.getBrowserConnection().getConnection() != null ) && ( modificationLogger != null ) )
-            {
-                // load file %u %g
-                StringBuffer sb = new StringBuffer();
-                File[] files = modificationLogger.getFiles( input.getBrowserConnection().getConnection() );
-                int i = input.getIndex();
-                if ( 0 <= i && i < files.length && files[i] != null && files[i].exists() && files[i].canRead() )
-                {
-                    try
-                    {
-                        FileReader fr = new FileReader( files[i] );
-                        char[] cbuf = new char[4096];
-                        for ( int length = fr.read( cbuf ); length > 0; length = fr.read( cbuf ) )
-                        {
-                            sb.append( cbuf, 0, length );
-                        }
-                    }
-                    catch ( Exception e )
-                    {
-                        sb.append( e.getMessage() );
-                    }
-                }
+            view.getActionGroup().setInput( input );
+        }
+    }
+
+
+    /**
+     * Gets the displayed log file of the given input.
+     *
+     * @param input the input
+     * @return the log file, null if the log file doesn't exist
+     */
+    private File getLogFile( ModificationLogsViewInput input )
+    {
+        LdifModificationLogger modificationLogger = ConnectionCorePlugin.getDefault().getLdifModificationLogger();
 
-                // change input
-                view.getMainWidget().getSourceViewer().getDocument().set( sb.toString() );
-                view.getActionGroup().setInput( input );
+        if ( ( input != null ) && ( input.getBrowserConnection() != null )
+            && ( input.getBrowserConnection().getConnection() != null ) && ( modificationLogger != null ) )
+        {
+            File[] files = modificationLogger.getFiles( input.getBrowserConnection().getConnection() );
+            int i = input.getIndex();
+            if ( 0 <= i && i < files.length && files[i] != null && files[i].exists() && files[i].canRead() )
+            {
+                return files[i];
             }
         }
+
+        return null;
     }
 
 
@@ -196,7 +201,7 @@ public class ModificationLogsViewUniversalListener implements EntryUpdateListene
      */
     public void scrollToOldest()
     {
-        view.getMainWidget().getSourceViewer().setTopIndex( 0 );
+        view.getLogFileViewer().scrollToOldest();
     }
 
 
@@ -205,18 +210,7 @@ public class ModificationLogsViewUniversalListener implements EntryUpdateListene
      */
     public void scrollToNewest()
     {
-        try
-        {
-            LdifContainer record = view.getMainWidget().getLdifModel().getLastContainer();
-            int offset = record.getOffset();
-            int line = view.getMainWidget().getSourceViewer().getDocument().getLineOfOffset( offset );
-            if ( line > 3 )
-                line -= 3;
-            view.getMainWidget().getSourceViewer().setTopIndex( line );
-        }
-        catch ( Exception e )
-        {
-        }
+        view.getLogFileViewer().scrollToNewest();
     }
 
 
@@ -227,29 +221,10 @@ public class ModificationLogsViewUniversalListener implements EntryUpdateListene
     {
         if ( input.getBrowserConnection().getConnection() != null )
         {
-            StringBuffer sb = new StringBuffer( "" ); //$NON-NLS-1$
-            FileWriter fw = null;
             LdifModificationLogger modificationLogger = ConnectionCorePlugin.getDefault().getLdifModificationLogger();
             File[] files = modificationLogger.getFiles( input.getBrowserConnection().getConnection() );
             modificationLogger.dispose( input.getBrowserConnection().getConnection() );
-            for ( int i = 0; i < files.length; i++ )
-            {
-                try
-                {
-                    if ( files[i] != null && files[i].exists() && !files[i].delete() )
-                    {
-                        fw = new FileWriter( files[i] );
-                        fw.write( "" ); //$NON-NLS-1$
-                    }
-
-                }
-                catch ( Exception e )
-                {
-                    sb.append( e.getMessage() );
-                }
-            }
-            view.getMainWidget().getSourceViewer().setTopIndex( 0 );
-            view.getMainWidget().getSourceViewer().getDocument().set( sb.toString() );
+            view.getLogFileViewer().clear( files );
         }
     }
 
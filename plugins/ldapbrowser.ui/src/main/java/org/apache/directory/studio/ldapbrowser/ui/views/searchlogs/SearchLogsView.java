@@ -22,6 +22,7 @@ package org.apache.directory.studio.ldapbrowser.ui.views.searchlogs;
 
 
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIConstants;
+import org.apache.directory.studio.ldapbrowser.ui.views.logs.LdifLogFileViewer;
 import org.apache.directory.studio.ldifeditor.widgets.LdifEditorWidget;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
@@ -46,6 +47,9 @@ public class SearchLogsView extends ViewPart
     /** The main widget. */
     private LdifEditorWidget mainWidget;
 
+    /** The log file viewer. */
+    private LdifLogFileViewer logFileViewer;
+
     /** The universal listener. */
     private SearchLogsViewUniversalListener universalListener;
 
@@ -90,6 +94,8 @@ public class SearchLogsView extends ViewPart
             actionGroup = null;
             universalListener.dispose();
             universalListener = null;
+            logFileViewer.dispose();
+            logFileViewer = null;
             mainWidget.dispose();
             mainWidget = null;
         }
@@ -113,6 +119,7 @@ public class SearchLogsView extends ViewPart
         mainWidget = new LdifEditorWidget( null, "", false ); //$NON-NLS-1$
         mainWidget.createWidget( composite );
         mainWidget.getSourceViewer().setEditable( false );
+        logFileViewer = new LdifLogFileViewer( mainWidget );
 
         // create actions and context menu (and register global actions)
         actionGroup = new SearchLogsViewActionGroup( this );
@@ -139,6 +146,17 @@ public class SearchLogsView extends ViewPart
     }
 
 
+    /**
+     * Gets the log file viewer.
+     * 
+     * @return the log file viewer
+     */
+    public LdifLogFileViewer getLogFileViewer()
+    {
+        return logFileViewer;
+    }
+
+
     /**
      * Gets the universal listener.
      * 
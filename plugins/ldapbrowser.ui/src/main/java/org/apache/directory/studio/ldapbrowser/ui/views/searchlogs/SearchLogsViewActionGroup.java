@@ -28,6 +28,7 @@ import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
 import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
 import org.apache.directory.studio.ldapbrowser.common.actions.proxy.ActionHandlerManager;
 import org.apache.directory.studio.ldapbrowser.ui.actions.proxy.SearchLogsViewActionProxy;
+import org.apache.directory.studio.ldapbrowser.ui.views.logs.FilterAction;
 import org.eclipse.jface.action.IMenuListener;
 import org.eclipse.jface.action.IMenuManager;
 import org.eclipse.jface.action.Separator;
@@ -61,6 +62,9 @@ public class SearchLogsViewActionGroup implements ActionHandlerManager, IMenuLis
     /** The Constant exportAction. */
     private static final String exportAction = "exportAction"; //$NON-NLS-1$
 
+    /** The Constant filterAction. */
+    private static final String filterAction = "filterAction"; //$NON-NLS-1$
+
     /** The enable search request logs action. */
     private EnableSearchRequestLogsAction enableSearchRequestLogsAction;
 
@@ -90,6 +94,9 @@ public class SearchLogsViewActionGroup implements ActionHandlerManager, IMenuLis
         searchLogsViewActionMap.put( refreshAction, new SearchLogsViewActionProxy( viewer, new RefreshAction( view ) ) );
         searchLogsViewActionMap.put( clearAction, new SearchLogsViewActionProxy( viewer, new ClearAction( view ) ) );
         searchLogsViewActionMap.put( exportAction, new SearchLogsViewActionProxy( viewer, new ExportAction() ) );
+        searchLogsViewActionMap.put( filterAction, new SearchLogsViewActionProxy( viewer,
+            new FilterAction( view.getLogFileViewer(),
+                Messages.getString( "FilterAction.FilterMessage" ) ) ) ); //$NON-NLS-1$
         enableSearchRequestLogsAction = new EnableSearchRequestLogsAction();
         enableSearchResultEntryLogsAction = new EnableSearchResultEntryLogsAction();
         openSearchLogsPreferencePageAction = new OpenSearchLogsPreferencePageAction();
@@ -134,6 +141,8 @@ public class SearchLogsViewActionGroup implements ActionHandlerManager, IMenuLis
         actionBars.getToolBarManager().add( searchLogsViewActionMap.get( olderAction ) );
         actionBars.getToolBarManager().add( searchLogsViewActionMap.get( newerAction ) );
         actionBars.getToolBarManager().add( new Separator() );
+        actionBars.getToolBarManager().add( searchLogsViewActionMap.get( filterAction ) );
+        actionBars.getToolBarManager().add( new Separator() );
         actionBars.getToolBarManager().add( searchLogsViewActionMap.get( exportAction ) );
 
         // Menu Bar
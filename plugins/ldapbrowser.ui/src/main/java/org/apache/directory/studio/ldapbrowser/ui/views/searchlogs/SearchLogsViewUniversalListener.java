@@ -22,8 +22,6 @@ package org.apache.directory.studio.ldapbrowser.ui.views.searchlogs;
 
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
@@ -42,7 +40,6 @@ import org.apache.directory.studio.ldapbrowser.core.events.SearchUpdateEvent;
 import org.apache.directory.studio.ldapbrowser.core.events.SearchUpdateListener;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.ui.views.connection.ConnectionView;
-import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.ui.INullSelectionListener;
 import org.eclipse.ui.IWorkbenchPart;
@@ -132,13 +129,22 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
 
 
     /**
-     * Refreshes the input.
+     * Refreshes the input. Only the log records appended to the displayed
+     * log file are read, the log file is read again if another log file
+     * must be displayed.
      */
     void refreshInput()
     {
-        SearchLogsViewInput newInput = input;
-        input = null;
-        setInput( newInput );
+        if ( view.getLogFileViewer().isDisplayed( getLogFile( input ) ) )
+        {
+            view.getLogFileViewer().refresh();
+        }
+        else
+        {
+            SearchLogsViewInput newInput = input;
+            input = null;
+            setInput( newInput );
+        }
     }
 
 
@@ -154,37 +160,36 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
         {
             this.input = input;
 
-            LdifSearchLogger searchLogger = ConnectionCorePlugin.getDefault().getLdifSearchLogger();
+            // read the newest log records of file %u %g
+            view.getLogFileViewer().setFile( getLogFile( input ) );
 
-            if ( ( input != null ) && ( input.getBrowserConnection() != null )
-                && ( input.getBrowserConnection().getConnection() != null ) && ( searchLogger != null ) )
-            {
-                // load file %u %g
-                StringBuffer sb = new StringBuffer();
-                File[] files = searchLogger.getFiles( input.getBrowserConnection().getConnection() );
-                int i = input.getIndex();
-                if ( 0 <= i && i < files.length && files[i] != null && files[i].exists() && files[i].canRead() )
-                {
-                    try
-                    {
-                        FileReader fr = new FileReader( files[i] );
-                        char[] cbuf = new char[4096];
-                        for ( int length = fr.read( cbuf ); length > 0; length = fr.read( cbuf ) )
-                        {
-                            sb.append( cbuf, 0, length );
-                        }
-                    }
-                    catch ( Exception e )
-                    {
-                        sb.append( e.getMessage() );
-                    }
-                }
+            view.getActionGroup().setInput( input );
+        }
+    }
+
+
+    /**
+     * Gets the displayed log file of the given input.
+     *
+     * @param input the input
+     * @return the log file, null if the log file doesn't exist
+     */
+    private File getLogFile( SearchLogsViewInput input )
+    {
+        LdifSearchLogger searchLogger = ConnectionCorePlugin.getDefault().getLdifSearchLogger();
 
-                // change input
-                view.getMainWidget().getSourceViewer().getDocument().set( sb.toString() );
-                view.getActionGroup().setInput( input );
+        if ( ( input != null ) && ( input.getBrowserConnection() != null )
+            && ( input.getBrowserConnection().getConnection() != null ) && ( searchLogger != null ) )
+        {
+            File[] files = searchLogger.getFiles( input.getBrowserConnection().getConnection() );
+            int i = input.getIndex();
+            if ( 0 <= i && i < files.length && files[i] != null && files[i].exists() && files[i].canRead() )
+            {
+                return files[i];
             }
         }
+
+        return null;
     }
 
 
@@ -249,7 +254,7 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
      */
     public void scrollToOldest()
     {
-        view.getMainWidget().getSourceViewer().setTopIndex( 0 );
+        view.getLogFileViewer().scrollToOldest();
     }
 
 
@@ -258,18 +263,7 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
      */
     public void scrollToNewest()
     {
-        try
-        {
-            LdifContainer record = view.getMainWidget().getLdifModel().getLastContainer();
-            int offset = record.getOffset();
-            int line = view.getMainWidget().getSourceViewer().getDocument().getLineOfOffset( offset );
-            if ( line > 3 )
-                line -= 3;
-            view.getMainWidget().getSourceViewer().setTopIndex( line );
-        }
-        catch ( Exception e )
-        {
-        }
+        view.getLogFileViewer().scrollToNewest();
     }
 
 
@@ -280,29 +274,10 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
     {
         if ( input.getBrowserConnection().getConnection() != null )
         {
-            StringBuffer sb = new StringBuffer( "" ); //$NON-NLS-1$
-            FileWriter fw = null;
             LdifSearchLogger searchLogger = ConnectionCorePlugin.getDefault().getLdifSearchLogger();
             File[] files = searchLogger.getFiles( input.getBrowserConnection().getConnection() );
             searchLogger.dispose( input.getBrowserConnection().getConnection() );
-            for ( int i = 0; i < files.length; i++ )
-            {
-                try
-                {
-                    if ( files[i] != null && files[i].exists() && !files[i].delete() )
-                    {
-                        fw = new FileWriter( files[i] );
-                        fw.write( "" ); //$NON-NLS-1$
-                    }
-
-                }
-                catch ( Exception e )
-                {
-                    sb.append( e.getMessage() );
-                }
-            }
-            view.getMainWidget().getSourceViewer().setTopIndex( 0 );
-            view.getMainWidget().getSourceViewer().getDocument().set( sb.toString() );
+            view.getLogFileViewer().clear( files );
         }
     }
 
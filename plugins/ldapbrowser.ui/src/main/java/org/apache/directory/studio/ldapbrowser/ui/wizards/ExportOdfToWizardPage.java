@@ -79,10 +79,6 @@ public class ExportOdfToWizardPage extends ExportBaseToPage
                     null, TextFormatsPreferencePage.ODF_TAB ).open();
             }
         } );
-
-        BaseWidgetUtils.createSpacer( composite, 3 );
-        BaseWidgetUtils.createSpacer( composite, 1 );
-        BaseWidgetUtils.createWrappedLabel( composite, Messages.getString( "ExportOdfToWizardPage.WarningOdf" ), 2 ); //$NON-NLS-1$
     }
 
 
@@ -128,18 +128,46 @@ import java.io.Reader;
 // ; as specified in [5]
 // BASE64-STRING = [*(BASE64-CHAR)]
 
+/**
+ * The scanner of the {@link LdifParser}.
+ * <p>
+ * The input is read into a reusable character window. Consumed characters are
+ * discarded when the window needs to be refilled, so the memory usage only depends on
+ * the size of the largest token and not on the size of the LDIF. Tokens are created
+ * directly from the window, folded lines are kept as they are (SEP + SPACE).
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
 public class LdifScanner
 {
+    /** The initial size of the character window */
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    /** The number of already consumed characters kept in the window, needed to detect a folding when unreading */
+    private static final int UNREAD_MARGIN = 16;
 
     private Reader ldifReader;
 
-    private char[] buffer = new char[256];
+    /** The character window */
+    private char[] window = new char[WINDOW_SIZE];
+
+    /** The absolute position of the first character in the window */
+    private long windowOffset;
+
+    /** The number of valid characters in the window */
+    private int windowLength;
 
-    private StringBuffer ldifBuffer;
+    /** The absolute position from which characters must be kept in the window */
+    private long keepFrom;
 
-    private int ldifBufferOffset;
+    /** Flag indicating that the end of the input was reached */
+    private boolean eof;
 
-    private int pos;
+    /** The absolute position of the last consumed character */
+    private long pos;
+
+    /** The position before the first character of the current token */
+    private long tokenStart;
 
 
     public LdifScanner()
@@ -153,57 +181,116 @@ public class LdifScanner
         // this.ldif = ldif;
         this.ldifReader = ldifReader;
         this.pos = -1;
+        this.tokenStart = -1;
 
-        this.ldifBuffer = new StringBuffer();
-        this.ldifBufferOffset = 0;
+        this.windowOffset = 0;
+        this.windowLength = 0;
+        this.keepFrom = 0;
+        this.eof = false;
+    }
+
+
+    /**
+     * Gets the character at the given absolute position, reads more input if necessary.
+     * 
+     * @param position the absolute position
+     * @return the character
+     * @throws EOFException if the position is beyond the end of the input
+     */
+    private char charAt( long position ) throws EOFException
+    {
+        while ( position >= windowOffset + windowLength && !eof )
+        {
+            fill();
+        }
+
+        if ( position < windowOffset || position >= windowOffset + windowLength )
+        {
+            throw new EOFException();
+        }
+
+        return window[( int ) ( position - windowOffset )];
     }
 
 
     char currentChar() throws EOFException
     {
+        return charAt( pos );
+    }
 
-        // check and fill buffer
-        try
+
+    /**
+     * Reads the next block of input into the window. Consumed characters are discarded
+     * first, the window is only enlarged if it is completely occupied by the current token.
+     */
+    private void fill()
+    {
+        if ( windowLength == window.length )
         {
-            int num = 0;
-            while ( ldifBufferOffset + ldifBuffer.length() <= pos && num > -1 )
+            int discard = ( int ) Math.max( 0, Math.min( keepFrom - windowOffset, windowLength ) );
+
+            if ( discard > 0 )
             {
-                num = this.ldifReader.read( buffer );
-                if ( num > -1 )
-                {
-                    ldifBuffer.append( buffer, 0, num );
-                }
+                System.arraycopy( window, discard, window, 0, windowLength - discard );
+                windowOffset += discard;
+                windowLength -= discard;
+            }
+            else
+            {
+                char[] newWindow = new char[window.length * 2];
+                System.arraycopy( window, 0, newWindow, 0, windowLength );
+                window = newWindow;
             }
-        }
-        catch ( IOException e )
-        {
         }
 
-        if ( 0 <= pos && pos < ldifBufferOffset + ldifBuffer.length() )
+        try
         {
-            try
+            int num = ldifReader.read( window, windowLength, window.length - windowLength );
+
+            if ( num > 0 )
             {
-                return ldifBuffer.charAt( pos - ldifBufferOffset );
+                windowLength += num;
             }
-            catch ( RuntimeException e )
+            else if ( num < 0 )
             {
-                e.printStackTrace();
-                throw e;
+                eof = true;
             }
         }
-        else
+        catch ( IOException e )
         {
-            throw new EOFException();
+            eof = true;
         }
+    }
 
-        // return 0<=pos&&pos<ldif.length() ? ldif.charAt(pos) : '\u0000';
+
+    /**
+     * Gets the characters consumed since the given position, the start position exclusive,
+     * the current position inclusive.
+     */
+    private String substring( long start )
+    {
+        return new String( window, ( int ) ( start + 1 - windowOffset ), ( int ) ( pos - start ) );
     }
 
 
-    void addFolding( StringBuffer sb )
+    /**
+     * Gets the offset of a token starting at the given absolute position. The input may
+     * be longer than {@link Integer#MAX_VALUE} characters, but token offsets are document
+     * offsets of type int: the offsets of all tokens beyond that limit are
+     * {@link Integer#MAX_VALUE}.
+     */
+    private static int offset( long position )
     {
+        return ( int ) Math.min( position, Integer.MAX_VALUE );
+    }
 
-        int oldPos = pos;
+
+    /**
+     * Consumes a folding sequence (SEP + SPACE) following the current position.
+     */
+    private void addFolding()
+    {
+        long oldPos = pos;
 
         try
         {
@@ -211,15 +298,14 @@ public class LdifScanner
             char c = currentChar();
             if ( c == '\n' || c == '\r' )
             {
-                StringBuffer temp = new StringBuffer( 3 );
-                temp.append( c );
+                int foldingLength = 1;
                 if ( c == '\r' )
                 {
                     pos++;
                     c = currentChar();
                     if ( c == '\n' )
                     {
-                        temp.append( c );
+                        foldingLength++;
                     }
                     else
                     {
@@ -232,7 +318,7 @@ public class LdifScanner
                     c = currentChar();
                     if ( c == '\r' )
                     {
-                        temp.append( c );
+                        foldingLength++;
                     }
                     else
                     {
@@ -242,19 +328,10 @@ public class LdifScanner
 
                 pos++;
                 c = currentChar();
-                if ( c == ' ' )
+                if ( c != ' ' )
                 {
-                    // space after newline, continue
-                    temp.append( c );
-                    sb.append( temp );
-                }
-                else
-                {
-                    for ( int i = 0; i < temp.length(); i++ )
-                    {
-                        pos--;
-                    }
-                    pos--;
+                    // no space after newline, no folding
+                    pos -= foldingLength + 1;
                 }
             }
             else
@@ -267,40 +344,30 @@ public class LdifScanner
             // reset position
             pos = oldPos;
         }
-
     }
 
 
     /**
-     * Reads the next character from input stram if available. If read was
-     * possible the character is appended to the given StringBuffer and
-     * returned. Otherwise throws a EOFException. Additionally this method
-     * checks folding sequence SEP + SPACE. If any folding sequence was
-     * found the sequence is appended to the given StringBuffer. So it is
-     * possible the StringBuffer doesn't end with the read character after
+     * Reads the next character from input stream if available. If read was
+     * possible the character is consumed and returned. Otherwise throws a
+     * EOFException. Additionally this method checks folding sequence SEP + SPACE.
+     * If any folding sequence was found the sequence is consumed too. So it is
+     * possible the consumed input doesn't end with the read character after
      * calling this method but with a folding sequence
      * 
-     * @param sb
      * @return the next character if available
      * @throws EOFException
      */
-    public char read( StringBuffer sb ) throws EOFException
+    private char read() throws EOFException
     {
         try
         {
-
-            // check EOF
-            // if(pos > -1) {
-            // currentChar();
-            // }
-
             // get next char
             pos++;
             char c = currentChar();
-            sb.append( c );
 
             // folding
-            addFolding( sb );
+            addFolding();
 
             return c;
         }
@@ -312,10 +379,12 @@ public class LdifScanner
     }
 
 
-    void removeFolding( StringBuffer sb )
+    /**
+     * Steps back over a folding sequence (SEP + SPACE) ending at the current position.
+     */
+    private void removeFolding()
     {
-
-        int oldPos = pos;
+        long oldPos = pos;
 
         try
         {
@@ -323,8 +392,6 @@ public class LdifScanner
             pos--;
             if ( c == ' ' )
             {
-                StringBuffer temp = new StringBuffer();
-                temp.insert( 0, c );
                 c = currentChar();
                 pos--;
 
@@ -332,34 +399,28 @@ public class LdifScanner
                 {
                     if ( c == '\r' )
                     {
-                        temp.insert( 0, c );
                         c = currentChar();
                         pos--;
-                        if ( c == '\n' )
-                        {
-                            temp.insert( 0, c );
-                        }
-                        else
+                        if ( c != '\n' )
                         {
                             pos++;
                         }
                     }
                     else if ( c == '\n' )
                     {
-                        temp.insert( 0, c );
                         c = currentChar();
                         pos--;
-                        if ( c == '\r' )
-                        {
-                            temp.insert( 0, c );
-                        }
-                        else
+                        if ( c != '\r' )
                         {
                             pos++;
                         }
                     }
 
-                    sb.delete( sb.length() - temp.length(), sb.length() );
+                    if ( pos <= tokenStart )
+                    {
+                        // the separator was not read by the current token, so it is no folding
+                        pos = oldPos;
+                    }
                 }
                 else
                 {
@@ -382,33 +443,68 @@ public class LdifScanner
 
     /**
      * Inverses the previous read().
-     * 
-     * @param sb
-     * @throws EOFException
      */
-    public void unread( StringBuffer sb )
+    private void unread()
     {
-        removeFolding( sb );
+        removeFolding();
 
         if ( pos > -1 )
         {
             pos--;
+        }
+    }
 
-            if ( sb.length() > 0 )
-            {
-                sb.deleteCharAt( sb.length() - 1 );
-            }
+
+    /**
+     * Reads the next character, the consumed input is appended to the given StringBuffer.
+     * 
+     * @param sb the StringBuffer
+     * @return the next character if available
+     * @throws EOFException
+     * @see #read()
+     */
+    public char read( StringBuffer sb ) throws EOFException
+    {
+        long start = pos;
+        char c = read();
+        sb.append( substring( start ) );
+        return c;
+    }
+
+
+    /**
+     * Inverses the previous read(), the unread input is removed from the given StringBuffer.
+     * 
+     * @param sb the StringBuffer
+     */
+    public void unread( StringBuffer sb )
+    {
+        long oldPos = pos;
+        unread();
+        sb.setLength( Math.max( 0, sb.length() - ( int ) ( oldPos - pos ) ) );
+    }
+
+
+    /**
+     * Inverses all reads since the given position.
+     */
+    private void unreadTo( long start )
+    {
+        while ( pos > start )
+        {
+            unread();
         }
     }
 
 
     private String getFullLine( String start )
     {
+        long startPos = pos;
         String s1 = this.getWord( start );
         if ( s1 != null )
         {
-            String s2 = getContent( false );
-            return s2 != null ? s1 + s2 : s1;
+            getContent( false );
+            return substring( startPos );
         }
         else
         {
@@ -419,30 +515,29 @@ public class LdifScanner
 
     private String getContent( boolean allowEmptyContent )
     {
-
-        StringBuffer sb = new StringBuffer( 256 );
+        long start = pos;
 
         try
         {
             char c = '\u0000';
             while ( c != '\n' && c != '\r' )
             {
-                c = read( sb );
+                c = read();
             }
-            unread( sb );
+            unread();
 
         }
         catch ( EOFException e )
         {
         }
 
-        return sb.length() > 0 || allowEmptyContent ? sb.toString() : null;
+        return pos > start || allowEmptyContent ? substring( start ) : null;
     }
 
 
     private String getWord( String word )
     {
-        StringBuffer sb = new StringBuffer();
+        long start = pos;
 
         // read
         try
@@ -451,19 +546,19 @@ public class LdifScanner
             for ( int i = 0; i < word.length(); i++ )
             {
 
-                char c = read( sb );
+                char c = read();
                 //if ( c != word.charAt( i ) )
                 if ( Character.toUpperCase( c ) != Character.toUpperCase( word.charAt( i ) ) )
                 {
                     matches = false;
-                    unread( sb );
+                    unread();
                     break;
                 }
             }
 
             if ( matches )
             {
-                return sb.toString();
+                return substring( start );
             }
         }
         catch ( EOFException e )
@@ -471,52 +566,44 @@ public class LdifScanner
         }
 
         // unread
-        while ( sb.length() > 0 )
-        {
-            unread( sb );
-        }
-        // prevChar(sb);
+        unreadTo( start );
         return null;
     }
 
 
     private String getWordTillColon( String word )
     {
+        long start = pos;
 
         String wordWithColon = word + ":"; //$NON-NLS-1$
         String line = getWord( wordWithColon );
         if ( line != null )
         {
-            StringBuffer sb = new StringBuffer( line );
-            unread( sb );
-            return sb.toString();
+            unread();
+            return substring( start );
         }
 
         // allow eof and sep
         line = getWord( word );
         if ( line != null )
         {
-            StringBuffer sb = new StringBuffer( line );
             try
             {
-                char c = read( sb );
-                unread( sb );
+                char c = read();
+                unread();
                 if ( c == '\r' || c == '\n' )
                 {
-                    return sb.toString();
+                    return substring( start );
                 }
                 else
                 {
-                    while ( sb.length() > 0 )
-                    {
-                        unread( sb );
-                    }
+                    unreadTo( start );
                     return null;
                 }
             }
             catch ( EOFException e )
             {
-                return sb.toString();
+                return substring( start );
             }
         }
 
@@ -524,15 +611,13 @@ public class LdifScanner
     }
 
 
+    /**
+     * Starts a new token and allows to discard the input consumed before the current position.
+     */
     private void flushBuffer()
     {
-        if ( this.ldifBufferOffset < this.pos && this.ldifBuffer.length() > 0 )
-        {
-            int delta = Math.min( pos - this.ldifBufferOffset, this.ldifBuffer.length() );
-            delta--;
-            this.ldifBuffer.delete( 0, delta );
-            this.ldifBufferOffset += delta;
-        }
+        this.tokenStart = pos;
+        this.keepFrom = Math.max( 0, pos - UNREAD_MARGIN );
     }
 
 
@@ -551,7 +636,7 @@ public class LdifScanner
             if ( sep != null )
                 line += sep.getValue();
 
-            return new LdifToken( LdifToken.UNKNOWN, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.UNKNOWN, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -568,7 +653,7 @@ public class LdifScanner
             LdifToken sep = matchSep();
             if ( sep != null )
                 line += sep.getValue();
-            return new LdifToken( LdifToken.UNKNOWN, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.UNKNOWN, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -579,16 +664,15 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        StringBuffer sb = new StringBuffer( 1 );
         try
         {
-            read( sb );
-            unread( sb );
+            read();
+            unread();
             return null;
         }
         catch ( EOFException e )
         {
-            return new LdifToken( LdifToken.EOF, "", pos + 1 ); //$NON-NLS-1$
+            return new LdifToken( LdifToken.EOF, "", offset( pos + 1 ) ); //$NON-NLS-1$
         }
 
     }
@@ -598,10 +682,11 @@ public class LdifScanner
     {
         this.flushBuffer();
 
+        long start = pos;
+
         try
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
+            char c = read();
             if ( c == '\n' || c == '\r' )
             {
 
@@ -610,18 +695,18 @@ public class LdifScanner
                 {
                     if ( c == '\r' )
                     {
-                        c = read( sb );
+                        c = read();
                         if ( c != '\n' )
                         {
-                            unread( sb );
+                            unread();
                         }
                     }
                     else if ( c == '\n' )
                     {
-                        c = read( sb );
+                        c = read();
                         if ( c != '\r' )
                         {
-                            unread( sb );
+                            unread();
                         }
                     }
                 }
@@ -629,11 +714,11 @@ public class LdifScanner
                 {
                 }
 
-                return new LdifToken( LdifToken.SEP, sb.toString(), pos - sb.length() + 1 );
+                return new LdifToken( LdifToken.SEP, substring( start ), offset( start + 1 ) );
             }
             else
             {
-                unread( sb );
+                unread();
             }
         }
         catch ( EOFException e )
@@ -651,7 +736,7 @@ public class LdifScanner
         String line = getFullLine( "#" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.COMMENT, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.COMMENT, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -665,7 +750,7 @@ public class LdifScanner
         String line = getWordTillColon( "version" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.VERSION_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.VERSION_SPEC, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -679,7 +764,7 @@ public class LdifScanner
         String line = getWordTillColon( "dn" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.DN_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.DN_SPEC, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -693,7 +778,7 @@ public class LdifScanner
         String line = getWordTillColon( "control" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.CONTROL_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.CONTROL_SPEC, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -707,7 +792,7 @@ public class LdifScanner
         String line = getWordTillColon( "changetype" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.CHANGETYPE_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.CHANGETYPE_SPEC, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -721,27 +806,27 @@ public class LdifScanner
         String line = getWord( "add" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.CHANGETYPE_ADD, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.CHANGETYPE_ADD, line, offset( pos - line.length() + 1 ) );
         }
         line = getWord( "modify" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.CHANGETYPE_MODIFY, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.CHANGETYPE_MODIFY, line, offset( pos - line.length() + 1 ) );
         }
         line = getWord( "delete" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.CHANGETYPE_DELETE, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.CHANGETYPE_DELETE, line, offset( pos - line.length() + 1 ) );
         }
         line = getWord( "moddn" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.CHANGETYPE_MODDN, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.CHANGETYPE_MODDN, line, offset( pos - line.length() + 1 ) );
         }
         line = getWord( "modrdn" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.CHANGETYPE_MODDN, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.CHANGETYPE_MODDN, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -752,36 +837,26 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        StringBuffer sb = new StringBuffer();
+        long start = pos;
 
         String s = getWord( " " ); //$NON-NLS-1$
         while ( s != null )
         {
-            sb.append( s );
             s = getWord( " " ); //$NON-NLS-1$
         }
 
         String t = getWord( "true" ); //$NON-NLS-1$
         if ( t != null )
         {
-            sb.append( t );
-            return new LdifToken( LdifToken.CONTROL_CRITICALITY_TRUE, sb.toString(), pos - sb.length() + 1 );
+            return new LdifToken( LdifToken.CONTROL_CRITICALITY_TRUE, substring( start ), offset( start + 1 ) );
         }
         String f = getWord( "false" ); //$NON-NLS-1$
         if ( f != null )
         {
-            sb.append( f );
-            return new LdifToken( LdifToken.CONTROL_CRITICALITY_FALSE, sb.toString(), pos - sb.length() + 1 );
+            return new LdifToken( LdifToken.CONTROL_CRITICALITY_FALSE, substring( start ), offset( start + 1 ) );
         }
 
-        while ( sb.length() > 0 )
-        {
-            unread( sb );
-        }
-
-        // for(int i=0; i<sb.length(); i++) {
-        // unread(sb);
-        // }
+        unreadTo( start );
 
         return null;
     }
@@ -791,10 +866,11 @@ public class LdifScanner
     {
         this.flushBuffer();
 
+        long start = pos;
+
         try
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
+            char c = read();
             if ( '0' <= c && c <= '9' )
             {
 
@@ -802,19 +878,19 @@ public class LdifScanner
                 {
                     while ( '0' <= c && c <= '9' )
                     {
-                        c = read( sb );
+                        c = read();
                     }
-                    unread( sb );
+                    unread();
                 }
                 catch ( EOFException e )
                 {
                 }
 
-                return new LdifToken( LdifToken.NUMBER, sb.toString(), pos - sb.length() + 1 );
+                return new LdifToken( LdifToken.NUMBER, substring( start ), offset( start + 1 ) );
             }
             else
             {
-                unread( sb );
+                unread();
             }
         }
         catch ( EOFException e )
@@ -829,10 +905,11 @@ public class LdifScanner
     {
         this.flushBuffer();
 
+        long start = pos;
+
         try
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
+            char c = read();
             if ( '0' <= c && c <= '9' )
             {
 
@@ -840,19 +917,19 @@ public class LdifScanner
                 {
                     while ( '0' <= c && c <= '9' || c == '.' )
                     {
-                        c = read( sb );
+                        c = read();
                     }
-                    unread( sb );
+                    unread();
                 }
                 catch ( EOFException e )
                 {
                 }
 
-                return new LdifToken( LdifToken.OID, sb.toString(), pos - sb.length() + 1 );
+                return new LdifToken( LdifToken.OID, substring( start ), offset( start + 1 ) );
             }
             else
             {
-                unread( sb );
+                unread();
             }
         }
         catch ( EOFException e )
@@ -867,10 +944,11 @@ public class LdifScanner
     {
         this.flushBuffer();
 
+        long start = pos;
+
         try
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
+            char c = read();
             if ( 'a' <= c && c <= 'z' || 'A' <= c && c <= 'Z' || '0' <= c && c <= '9' )
             {
 
@@ -879,43 +957,25 @@ public class LdifScanner
                     while ( 'a' <= c && c <= 'z' || 'A' <= c && c <= 'Z' || '0' <= c && c <= '9' || c == '.'
                         || c == ';' || c == '-' || c == '_' )
                     {
-                        c = read( sb );
+                        c = read();
                     }
-                    unread( sb );
+                    unread();
                 }
                 catch ( EOFException e )
                 {
                 }
 
-                return new LdifToken( LdifToken.ATTRIBUTE, sb.toString(), pos - sb.length() + 1 );
+                return new LdifToken( LdifToken.ATTRIBUTE, substring( start ), offset( start + 1 ) );
             }
             else
             {
-                unread( sb );
+                unread();
             }
         }
         catch ( EOFException e )
         {
         }
 
-        // // a-z,A-Z,0-9,.,-,;
-        // StringBuffer sb = new StringBuffer();
-        // char c = nextChar(sb);
-        // if('a'<=c&&c<='z' || 'A'<=c&&c<='Z' || '0'<=c&&c<='9') {
-        // while('a'<=c&&c<='z' || 'A'<=c&&c<='Z' || '0'<=c&&c<='9' || c=='.' ||
-        // c==';' || c=='-') {
-        // sb.append(c);
-        // c = nextChar(sb);
-        // }
-        // unread(sb);
-        //
-        // return new LdifToken(LdifToken.ATTRIBUTE, sb.toString(),
-        // pos-sb.length()+1);
-        // }
-        // else {
-        // unread(sb);
-        // }
-
         return null;
     }
 
@@ -932,17 +992,17 @@ public class LdifScanner
         String line = getWord( "add" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.MODTYPE_ADD_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.MODTYPE_ADD_SPEC, line, offset( pos - line.length() + 1 ) );
         }
         line = getWord( "replace" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.MODTYPE_REPLACE_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.MODTYPE_REPLACE_SPEC, line, offset( pos - line.length() + 1 ) );
         }
         line = getWord( "delete" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.MODTYPE_DELETE_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.MODTYPE_DELETE_SPEC, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -956,7 +1016,7 @@ public class LdifScanner
         String line = getWord( "-" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.MODTYPE_SEP, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.MODTYPE_SEP, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -967,17 +1027,18 @@ public class LdifScanner
     {
         this.flushBuffer();
 
+        long start = pos;
+
         try
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
+            char c = read();
             if ( c == ':' )
             {
 
                 int tokenType = LdifToken.VALUE_TYPE_SAFE;
                 try
                 {
-                    c = read( sb );
+                    c = read();
                     if ( c == ':' )
                     {
                         tokenType = LdifToken.VALUE_TYPE_BASE64;
@@ -989,26 +1050,26 @@ public class LdifScanner
                     else
                     {
                         tokenType = LdifToken.VALUE_TYPE_SAFE;
-                        unread( sb );
+                        unread();
                     }
 
-                    c = read( sb );
+                    c = read();
                     while ( c == ' ' )
                     {
-                        c = read( sb );
+                        c = read();
                     }
-                    unread( sb );
+                    unread();
 
                 }
                 catch ( EOFException e )
                 {
                 }
 
-                return new LdifToken( tokenType, sb.toString(), pos - sb.length() + 1 );
+                return new LdifToken( tokenType, substring( start ), offset( start + 1 ) );
             }
             else
             {
-                unread( sb );
+                unread();
             }
         }
         catch ( EOFException e )
@@ -1026,7 +1087,7 @@ public class LdifScanner
         String line = getContent( true );
         if ( line != null )
         {
-            return new LdifToken( LdifToken.VALUE, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.VALUE, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -1040,7 +1101,7 @@ public class LdifScanner
         String line = getWordTillColon( "newrdn" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.MODDN_NEWRDN_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.MODDN_NEWRDN_SPEC, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -1054,7 +1115,7 @@ public class LdifScanner
         String line = getWordTillColon( "deleteoldrdn" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.MODDN_DELOLDRDN_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.MODDN_DELOLDRDN_SPEC, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -1068,7 +1129,7 @@ public class LdifScanner
         String line = getWordTillColon( "newsuperior" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.MODDN_NEWSUPERIOR_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.MODDN_NEWSUPERIOR_SPEC, line, offset( pos - line.length() + 1 ) );
         }
 
         return null;
@@ -82,4 +82,20 @@ public class LdifParserTest extends TestCase
         assertEquals( ldif, formatted );
     }
 
+
+    public void testParseSpaceAfterSeparatorIsNoFolding()
+    {
+        String ldif = ""
+            + "dn: cn=foo,ou=users,ou=system\n"
+            + "\n"
+            + " \n"
+            + " \n";
+
+        LdifParser parser = new LdifParser();
+        LdifFile model = parser.parse( ldif );
+
+        assertEquals( 1, model.getRecords().length );
+        assertEquals( ldif, model.toRawString() );
+    }
+
 }
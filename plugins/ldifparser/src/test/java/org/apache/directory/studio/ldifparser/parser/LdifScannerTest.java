@@ -0,0 +1,336 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.studio.ldifparser.parser;
+
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
+import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
+import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
+
+
+/**
+ * Tests the LdifScanner with inputs larger than its 64K character window: tokens,
+ * folded lines and line separators that cross a refill or a compaction of the window.
+ * <p>
+ * The reference is the scanner behaviour before the window was introduced: it buffered
+ * the whole input, so each record parsed alone, from a small input, yields the same
+ * record as the one parsed from the large input. The raw string of the parsed records
+ * must also reproduce the input, and the offsets must be the absolute input positions.
+ */
+public class LdifScannerTest extends TestCase
+{
+    /** The size of the character window of the scanner */
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+
+    public void testLdifLargerThanWindow() throws Exception
+    {
+        List<String> records = new ArrayList<String>();
+        int length = 0;
+        for ( int i = 0; length < 4 * WINDOW_SIZE; i++ )
+        {
+            String record = contentRecord( i, "\n" );
+            records.add( record );
+            length += record.length();
+        }
+
+        assertParsedAsReference( records, new StringReader( join( records ) ) );
+        assertParsedAsReference( records, new ChunkedReader( join( records ), 7 ) );
+    }
+
+
+    public void testFoldedValueCrossingRefill() throws Exception
+    {
+        String value = repeat( "0123456789", 500 );
+        String folded = fold( "description: " + value, "\n" );
+
+        for ( int shift = 0; shift < 80; shift += 13 )
+        {
+            // the folded value starts shortly before the end of the first window
+            List<String> records = paddingRecords( WINDOW_SIZE - 100 + shift, "\n" );
+            records.add( "dn: cn=folded,ou=system\n" + folded + "\n\n" );
+            records.add( contentRecord( 1, "\n" ) );
+
+            List<LdifContainer> containers = assertParsedAsReference( records, new StringReader( join( records ) ) );
+            LdifAttrValLine line = ( ( LdifContentRecord ) containers.get( records.size() - 2 ) ).getAttrVals()[0];
+            assertEquals( value, line.getValueAsString() );
+        }
+    }
+
+
+    public void testBase64ValueCrossingRefill() throws Exception
+    {
+        byte[] bytes = new byte[3000];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            bytes[i] = ( byte ) ( i * 31 );
+        }
+        String folded = fold( "jpegPhoto:: " + Base64.getEncoder().encodeToString( bytes ), "\r\n" );
+
+        for ( int shift = 0; shift < 80; shift += 11 )
+        {
+            List<String> records = paddingRecords( WINDOW_SIZE - 50 + shift, "\r\n" );
+            records.add( "dn: cn=binary,ou=system\r\n" + folded + "\r\n\r\n" );
+            records.add( contentRecord( 2, "\r\n" ) );
+
+            List<LdifContainer> containers = assertParsedAsReference( records,
+                new ChunkedReader( join( records ), 1000 ) );
+            LdifAttrValLine line = ( ( LdifContentRecord ) containers.get( records.size() - 2 ) ).getAttrVals()[0];
+            assertTrue( Arrays.equals( bytes, ( byte[] ) line.getValueAsObject() ) );
+        }
+    }
+
+
+    public void testLineSeparatorSplitAcrossReads() throws Exception
+    {
+        List<String> records = new ArrayList<String>();
+        int length = 0;
+        for ( int i = 0; length < WINDOW_SIZE + 1000; i++ )
+        {
+            String record = contentRecord( i, "\r\n" );
+            records.add( record );
+            length += record.length();
+        }
+        String ldif = join( records );
+
+        // each read ends between the CR and the LF of a line separator
+        assertParsedAsReference( records, new ChunkedReader( ldif, ldif.indexOf( "\r\n" ) + 1 ) );
+
+        // single character reads split every line separator, also at the window boundary
+        assertParsedAsReference( records, new ChunkedReader( ldif, 1 ) );
+    }
+
+
+    public void testTokenStartingBeforeCompaction() throws Exception
+    {
+        for ( int shift = -3; shift <= 3; shift++ )
+        {
+            // the attribute description of the last line starts right before the window is compacted
+            List<String> records = paddingRecords( WINDOW_SIZE - 30 + shift, "\n" );
+            records.add( "dn: cn=compaction,ou=system\nobjectClass: top\n\n" );
+            records.add( contentRecord( 3, "\n" ) );
+
+            assertParsedAsReference( records, new StringReader( join( records ) ) );
+            assertParsedAsReference( records, new ChunkedReader( join( records ), 4096 ) );
+        }
+    }
+
+
+    public void testTokenLargerThanWindow() throws Exception
+    {
+        // an unfolded value larger than the window, the window must grow
+        String value = repeat( "abcdefghijklmnopqrstuvwxyz", 3 * WINDOW_SIZE / 26 );
+        List<String> records = paddingRecords( WINDOW_SIZE / 2, "\n" );
+        records.add( "dn: cn=huge,ou=system\ndescription: " + value + "\n\n" );
+        records.add( contentRecord( 4, "\n" ) );
+
+        List<LdifContainer> containers = assertParsedAsReference( records, new ChunkedReader( join( records ), 333 ) );
+        LdifAttrValLine line = ( ( LdifContentRecord ) containers.get( records.size() - 2 ) ).getAttrVals()[0];
+        assertEquals( value, line.getValueAsString() );
+    }
+
+
+    /**
+     * Parses the given input and checks each record against the record parsed alone.
+     */
+    private static List<LdifContainer> assertParsedAsReference( List<String> records, Reader reader )
+        throws Exception
+    {
+        List<LdifContainer> containers = parse( reader );
+        assertEquals( records.size(), containers.size() );
+
+        int offset = 0;
+        for ( int i = 0; i < records.size(); i++ )
+        {
+            String record = records.get( i );
+            LdifContainer container = containers.get( i );
+
+            List<LdifContainer> reference = parse( new StringReader( record ) );
+            assertEquals( 1, reference.size() );
+
+            assertEquals( "record " + i, record, container.toRawString() );
+            assertEquals( "record " + i, reference.get( 0 ).toRawString(), container.toRawString() );
+            assertEquals( "record " + i, offset, container.getOffset() );
+            assertEquals( "record " + i, reference.get( 0 ).getLength(), container.getLength() );
+            assertEquals( "record " + i, reference.get( 0 ).isValid(), container.isValid() );
+            assertSameValues( ( LdifContentRecord ) reference.get( 0 ), ( LdifContentRecord ) container );
+
+            offset += record.length();
+        }
+
+        return containers;
+    }
+
+
+    private static void assertSameValues( LdifContentRecord expected, LdifContentRecord actual )
+    {
+        assertEquals( expected.getDnLine().getValueAsString(), actual.getDnLine().getValueAsString() );
+
+        LdifAttrValLine[] expectedLines = expected.getAttrVals();
+        LdifAttrValLine[] actualLines = actual.getAttrVals();
+        assertEquals( expectedLines.length, actualLines.length );
+
+        for ( int i = 0; i < expectedLines.length; i++ )
+        {
+            assertEquals( expectedLines[i].getUnfoldedAttributeDescription(),
+                actualLines[i].getUnfoldedAttributeDescription() );
+            Object expectedValue = expectedLines[i].getValueAsObject();
+            Object actualValue = actualLines[i].getValueAsObject();
+            if ( expectedValue instanceof byte[] )
+            {
+                assertTrue( Arrays.equals( ( byte[] ) expectedValue, ( byte[] ) actualValue ) );
+            }
+            else
+            {
+                assertEquals( expectedValue, actualValue );
+            }
+        }
+    }
+
+
+    private static List<LdifContainer> parse( Reader reader ) throws Exception
+    {
+        List<LdifContainer> containers = new ArrayList<LdifContainer>();
+        LdifEnumeration enumeration = new LdifParser().parse( reader );
+        while ( enumeration.hasNext() )
+        {
+            containers.add( enumeration.next() );
+        }
+        return containers;
+    }
+
+
+    /**
+     * Creates content records with a total length of exactly the given number of characters.
+     */
+    private static List<String> paddingRecords( int length, String separator )
+    {
+        List<String> records = new ArrayList<String>();
+        int remaining = length;
+        for ( int i = 0; remaining > 0; i++ )
+        {
+            String record = contentRecord( i, separator );
+            if ( record.length() > remaining - 60 )
+            {
+                // the last record is padded with its description
+                String start = "dn: cn=padding,ou=system" + separator + "description: "; //$NON-NLS-1$ //$NON-NLS-2$
+                int padding = remaining - start.length() - 2 * separator.length();
+                assertTrue( padding > 0 );
+                record = start + repeat( "x", padding ) + separator + separator; //$NON-NLS-1$
+            }
+            records.add( record );
+            remaining -= record.length();
+        }
+        assertEquals( 0, remaining );
+        return records;
+    }
+
+
+    private static String contentRecord( int i, String separator )
+    {
+        return "dn: cn=user" + i + ",ou=users,ou=system" + separator
+            + "objectClass: inetOrgPerson" + separator
+            + "cn: user" + i + separator
+            + "sn:: " + Base64.getEncoder().encodeToString( ( "M\u00fcller " + i ).getBytes( StandardCharsets.UTF_8 ) )
+            + separator
+            + fold( "description: " + repeat( "description of user " + i + " ", 1 + i % 7 ), separator )
+            + separator + separator;
+    }
+
+
+    /**
+     * Folds the given line after 76 characters.
+     */
+    private static String fold( String line, String separator )
+    {
+        StringBuilder sb = new StringBuilder( line.substring( 0, Math.min( 76, line.length() ) ) );
+        for ( int i = 76; i < line.length(); i += 75 )
+        {
+            sb.append( separator ).append( ' ' ).append( line, i, Math.min( i + 75, line.length() ) );
+        }
+        return sb.toString();
+    }
+
+
+    private static String repeat( String s, int count )
+    {
+        StringBuilder sb = new StringBuilder( s.length() * count );
+        for ( int i = 0; i < count; i++ )
+        {
+            sb.append( s );
+        }
+        return sb.toString();
+    }
+
+
+    private static String join( List<String> records )
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( String record : records )
+        {
+            sb.append( record );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A reader that returns at most the given number of characters per read.
+     */
+    private static class ChunkedReader extends Reader
+    {
+        private final Reader reader;
+
+        private final int chunkSize;
+
+
+        private ChunkedReader( String s, int chunkSize )
+        {
+            this.reader = new StringReader( s );
+            this.chunkSize = chunkSize;
+        }
+
+
+        @Override
+        public int read( char[] cbuf, int off, int len ) throws IOException
+        {
+            return reader.read( cbuf, off, Math.min( len, chunkSize ) );
+        }
+
+
+        @Override
+        public void close() throws IOException
+        {
+            reader.close();
+        }
+    }
+}
@@ -476,23 +476,23 @@ public class ConfigurationReader
 
         // Looking for the 'ou=config' base entry
         Entry configEntry = null;
-        StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, configSearchParameter,
-            monitor );
-
-        // Checking if an error occurred
-        if ( monitor.errorsReported() )
+        try ( StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection,
+            configSearchParameter, monitor ) )
         {
-            throw monitor.getException();
-        }
+            // Checking if an error occurred
+            if ( monitor.errorsReported() )
+            {
+                throw monitor.getException();
+            }
 
-        // Getting the entry
-        if ( enumeration.hasMore() )
-        {
-            // Creating the base entry
-            StudioSearchResult searchResult =  enumeration.next();
-            configEntry = searchResult.getEntry();
+            // Getting the entry
+            if ( enumeration.hasMore() )
+            {
+                // Creating the base entry
+                StudioSearchResult searchResult =  enumeration.next();
+                configEntry = searchResult.getEntry();
+            }
         }
-        enumeration.close();
 
         // Verifying we found the base entry
         if ( configEntry == null )
@@ -522,25 +522,25 @@ public class ConfigurationReader
             searchParameter.setReturningAttributes( SchemaConstants.ALL_USER_ATTRIBUTES_ARRAY );
 
             // Looking for the children of the entry
-            StudioSearchResultEnumeration childrenEnumeration = SearchRunnable.search( browserConnection,
-                searchParameter, monitor );
-
-            // Checking if an error occurred
-            if ( monitor.errorsReported() )
+            try ( StudioSearchResultEnumeration childrenEnumeration = SearchRunnable.search( browserConnection,
+                searchParameter, monitor ) )
             {
-                throw monitor.getException();
-            }
+                // Checking if an error occurred
+                if ( monitor.errorsReported() )
+                {
+                    throw monitor.getException();
+                }
 
-            while ( childrenEnumeration.hasMore() )
-            {
-                // Creating the child entry
-                StudioSearchResult searchResult =  childrenEnumeration.next();
-                Entry childEntry = searchResult.getEntry();
+                while ( childrenEnumeration.hasMore() )
+                {
+                    // Creating the child entry
+                    StudioSearchResult searchResult =  childrenEnumeration.next();
+                    Entry childEntry = searchResult.getEntry();
 
-                // Adding the children to the list of entries
-                entries.add( childEntry );
+                    // Adding the children to the list of entries
+                    entries.add( childEntry );
+                }
             }
-            childrenEnumeration.close();
         }
 
         // Setting the created partition to the input
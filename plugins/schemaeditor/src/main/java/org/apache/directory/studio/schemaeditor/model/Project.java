@@ -256,6 +256,14 @@ public class Project
                 monitor.reportError( e );
             }
 
+            // Discarding the partially fetched schemas, the online schema is fetched again next time
+            if ( monitor.isCanceled() )
+            {
+                initialSchema = null;
+                monitor.done();
+                return;
+            }
+
             // Adding each schema to the schema handler
             if ( initialSchema != null )
             {
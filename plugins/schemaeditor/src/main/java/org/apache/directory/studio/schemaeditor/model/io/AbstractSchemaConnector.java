@@ -20,10 +20,12 @@
 package org.apache.directory.studio.schemaeditor.model.io;
 
 
+import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.Connection.AliasDereferencingMethod;
 import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMethod;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
 
 
 /**
@@ -107,4 +109,26 @@ public abstract class AbstractSchemaConnector implements SchemaConnector
     {
         this.name = name;
     }
+
+
+    /**
+     * Closes the given search result enumeration. This releases the connection
+     * used by the search, even if not all results were read.
+     *
+     * @param answer the search result enumeration, may be null
+     */
+    protected static void close( StudioSearchResultEnumeration answer )
+    {
+        if ( answer != null )
+        {
+            try
+            {
+                answer.close();
+            }
+            catch ( LdapException e )
+            {
+                // Nothing to do, the connection is released anyway
+            }
+        }
+    }
 }
@@ -21,6 +21,7 @@ package org.apache.directory.studio.schemaeditor.model.io;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -38,6 +39,7 @@ import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.entry.Value;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
+import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.api.ldap.model.schema.LdapSyntax;
 import org.apache.directory.api.ldap.model.schema.MatchingRule;
@@ -47,6 +49,7 @@ import org.apache.directory.api.ldap.model.schema.UsageEnum;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.io.ConnectionWrapper;
+import org.apache.directory.studio.connection.core.io.OperationPipeline;
 import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
 import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
 import org.apache.directory.studio.schemaeditor.model.Project;
@@ -69,19 +72,91 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
         ATTRIBUTE_TYPE, OBJECT_CLASS, MATCHING_RULE, SYNTAX, UNKNOWN
     }
 
+    /** The minimum number of schemas fetched concurrently */
+    private static final int SCHEMA_FETCH_WINDOW_SIZE = 4;
+
 
     /**
      * {@inheritDoc}
+     * 
+     * The schemas are fetched and parsed concurrently, see {@link #SCHEMA_FETCH_WINDOW_SIZE},
+     * and added to the project in the order they are listed by the server.
      */
-    public void importSchema( Project project, StudioProgressMonitor monitor )
+    public void importSchema( final Project project, final StudioProgressMonitor monitor )
         throws SchemaConnectorException
     {
-        monitor.beginTask( Messages.getString( "ApacheDsSchemaConnector.FetchingSchema" ), 1 ); //$NON-NLS-1$
-        List<Schema> schemas = new ArrayList<Schema>();
+        final List<Schema> schemas = new ArrayList<Schema>();
         project.setInitialSchema( schemas );
-        ConnectionWrapper wrapper = project.getConnection().getConnectionWrapper();
+        final ConnectionWrapper wrapper = project.getConnection().getConnectionWrapper();
 
         // Looking for all the defined schemas
+        List<String> schemaNames = getSchemaNames( wrapper, monitor );
+        monitor.beginTask( Messages.getString( "ApacheDsSchemaConnector.FetchingSchema" ), schemaNames.size() ); //$NON-NLS-1$
+
+        // The results are handled in the calling thread, in submission order
+        OperationPipeline<Schema> pipeline = new OperationPipeline<Schema>( wrapper,
+            Math.max( SCHEMA_FETCH_WINDOW_SIZE, OperationPipeline.getDefaultWindowSize() ), monitor,
+            new OperationPipeline.ResultHandler<Schema>()
+            {
+                public boolean handle( Schema schema, StudioProgressMonitor schemaMonitor )
+                {
+                    if ( ( schemaMonitor != null ) && schemaMonitor.errorsReported() )
+                    {
+                        monitor.reportError( schemaMonitor.getException() );
+                    }
+
+                    schema.setProject( project );
+                    schemas.add( schema );
+
+                    monitor.subTask( schema.getSchemaName() );
+                    monitor.worked( 1 );
+
+                    return !monitor.isCanceled();
+                }
+            } );
+
+        try
+        {
+            for ( String name : schemaNames )
+            {
+                final Schema schema = new Schema( name );
+
+                // The searches don't modify anything, so they never conflict
+                if ( monitor.isCanceled() || !pipeline.submit( schema, Collections.<Dn> emptyList(),
+                    schemaMonitor -> getSchema( wrapper, schema, schemaMonitor ) ) )
+                {
+                    break;
+                }
+            }
+
+            pipeline.flush();
+        }
+        catch ( Exception e )
+        {
+            throw new SchemaConnectorException( e );
+        }
+
+        // The schemas are incomplete if the import was canceled
+        if ( monitor.isCanceled() )
+        {
+            schemas.clear();
+        }
+    }
+
+
+    /**
+     * Gets the names of the schemas defined on the server.
+     *
+     * @param wrapper the connection wrapper
+     * @param monitor the progress monitor
+     * @return the names of the schemas
+     * @throws SchemaConnectorException if the names could not be read
+     */
+    private static List<String> getSchemaNames( ConnectionWrapper wrapper, StudioProgressMonitor monitor )
+        throws SchemaConnectorException
+    {
+        List<String> schemaNames = new ArrayList<String>();
+
         SearchControls constraintSearch = new SearchControls();
         constraintSearch.setSearchScope( SearchControls.ONELEVEL_SCOPE );
 
@@ -106,9 +181,7 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
                     {
                         for ( Value cnValue : cnAttribute )
                         {
-                            Schema schema = getSchema( wrapper, cnValue.getString(), monitor );
-                            schema.setProject( project );
-                            schemas.add( schema );
+                            schemaNames.add( cnValue.getString() );
                         }
                     }
                 }
@@ -117,9 +190,13 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
             {
                 throw new SchemaConnectorException( e );
             }
+            finally
+            {
+                close( answer );
+            }
         }
 
-        monitor.worked( 1 );
+        return schemaNames;
     }
 
 
@@ -175,19 +252,29 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
             {
                 monitor.reportError( e );
             }
+            finally
+            {
+                close( answer );
+            }
         }
 
         return false;
     }
 
 
-    private static Schema getSchema( ConnectionWrapper wrapper, String name, StudioProgressMonitor monitor )
+    /**
+     * Reads the nodes of the given schema from the DIT. Called concurrently
+     * for different schemas, each with its own progress monitor.
+     *
+     * @param wrapper the connection wrapper
+     * @param schema the schema to fill
+     * @param monitor the progress monitor of the schema
+     * @throws LdapException if the search fails
+     */
+    private static void getSchema( ConnectionWrapper wrapper, Schema schema, StudioProgressMonitor monitor )
         throws LdapException
     {
-        monitor.subTask( name );
-
-        // Creating the schema
-        Schema schema = new Schema( name );
+        String name = schema.getSchemaName();
 
         // Looking for the nodes of the schema
         SearchControls constraintSearch = new SearchControls();
@@ -200,7 +287,7 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
         {
             try
             {
-                while ( answer.hasMore() )
+                while ( !monitor.isCanceled() && answer.hasMore() )
                 {
                     Entry entry = answer.next().getEntry();
                     
@@ -239,9 +326,12 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
             {
                 monitor.reportError( e );
             }
+            finally
+            {
+                // Releasing the connection, the results may not have been read completely
+                close( answer );
+            }
         }
-
-        return schema;
     }
 
 
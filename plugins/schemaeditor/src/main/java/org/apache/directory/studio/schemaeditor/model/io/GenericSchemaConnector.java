@@ -22,7 +22,9 @@ package org.apache.directory.studio.schemaeditor.model.io;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.naming.directory.SearchControls;
 
@@ -59,6 +61,18 @@ import org.eclipse.osgi.util.NLS;
  */
 public class GenericSchemaConnector extends AbstractSchemaConnector implements SchemaConnector
 {
+    /**
+     * Parses a schema description.
+     *
+     * @param <T> the type of the parsed schema object
+     */
+    @FunctionalInterface
+    private interface DescriptionParser<T>
+    {
+        T parse( String description ) throws ParseException;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -95,7 +109,7 @@ public class GenericSchemaConnector extends AbstractSchemaConnector implements S
             try
             {
                 // Looping the results
-                while ( answer.hasMore() )
+                while ( !monitor.isCanceled() && answer.hasMore() )
                 {
                     // Creating the schema
                     Schema schema = new Schema( "schema" ); //$NON-NLS-1$
@@ -113,6 +127,16 @@ public class GenericSchemaConnector extends AbstractSchemaConnector implements S
             {
                 throw new SchemaConnectorException( e );
             }
+            finally
+            {
+                close( answer );
+            }
+        }
+
+        // The schemas are incomplete if the import was canceled
+        if ( monitor.isCanceled() )
+        {
+            schemas.clear();
         }
 
         monitor.worked( 1 );
@@ -175,6 +199,10 @@ public class GenericSchemaConnector extends AbstractSchemaConnector implements S
             {
                 monitor.reportError( e );
             }
+            finally
+            {
+                close( answer );
+            }
         }
 
         return null;
@@ -187,111 +215,110 @@ public class GenericSchemaConnector extends AbstractSchemaConnector implements S
         // The counter for parser exceptions
         int parseErrorCount = 0;
 
-        Attribute attributeTypesAttribute = entry.get( SchemaConstants.ATTRIBUTE_TYPES_AT );
-        if ( attributeTypesAttribute != null )
+        List<AttributeType> attributeTypes = parse( entry.get( SchemaConstants.ATTRIBUTE_TYPES_AT ), value -> {
+            AttributeTypeDescriptionSchemaParser parser = new AttributeTypeDescriptionSchemaParser();
+            parser.setQuirksMode( true );
+            return parser.parse( value );
+        }, "Unable to parse the attribute type.", monitor ); //$NON-NLS-1$
+
+        if ( monitor.isCanceled() )
         {
-                for ( Value value : attributeTypesAttribute )
-                {
-                    try
-                    {
-                        AttributeTypeDescriptionSchemaParser parser = new AttributeTypeDescriptionSchemaParser();
-                        parser.setQuirksMode( true );
-
-                        AttributeType atd = parser.parse( value.getString() );
-
-                        AttributeType impl = new AttributeType( atd.getOid() );
-                        impl.setNames( atd.getNames().toArray( new String[0] ) );
-                        impl.setDescription( atd.getDescription() );
-                        impl.setSuperiorOid( atd.getSuperiorOid() );
-                        impl.setUsage( atd.getUsage() );
-                        impl.setSyntaxOid( atd.getSyntaxOid() );
-                        impl.setSyntaxLength( atd.getSyntaxLength() );
-                        impl.setObsolete( atd.isObsolete() );
-                        impl.setCollective( atd.isCollective() );
-                        impl.setSingleValued( atd.isSingleValued() );
-                        impl.setUserModifiable( atd.isUserModifiable() );
-                        impl.setEqualityOid( atd.getEqualityOid() );
-                        impl.setOrderingOid( atd.getOrderingOid() );
-                        impl.setSubstringOid( atd.getSubstringOid() );
-                        impl.setSchemaName( schema.getSchemaName() );
-
-                        // Active Directory hack
-                        if ( impl.getSyntaxOid() != null && "OctetString".equalsIgnoreCase( impl.getSyntaxOid() ) ) //$NON-NLS-1$
-                        {
-                            impl.setSyntaxOid( SchemaConstants.OCTET_STRING_SYNTAX );
-                        }
-
-                        schema.addAttributeType( impl );
-                    }
-                    catch ( ParseException e )
-                    {
-                        // Logging the exception and incrementing the counter
-                        PluginUtils.logError( "Unable to parse the attribute type.", e ); //$NON-NLS-1$
-                        parseErrorCount++;
-                    }
+            return;
+        }
+
+        for ( AttributeType atd : attributeTypes )
+        {
+            if ( atd == null )
+            {
+                parseErrorCount++;
+                continue;
             }
+
+            AttributeType impl = new AttributeType( atd.getOid() );
+            impl.setNames( atd.getNames().toArray( new String[0] ) );
+            impl.setDescription( atd.getDescription() );
+            impl.setSuperiorOid( atd.getSuperiorOid() );
+            impl.setUsage( atd.getUsage() );
+            impl.setSyntaxOid( atd.getSyntaxOid() );
+            impl.setSyntaxLength( atd.getSyntaxLength() );
+            impl.setObsolete( atd.isObsolete() );
+            impl.setCollective( atd.isCollective() );
+            impl.setSingleValued( atd.isSingleValued() );
+            impl.setUserModifiable( atd.isUserModifiable() );
+            impl.setEqualityOid( atd.getEqualityOid() );
+            impl.setOrderingOid( atd.getOrderingOid() );
+            impl.setSubstringOid( atd.getSubstringOid() );
+            impl.setSchemaName( schema.getSchemaName() );
+
+            // Active Directory hack
+            if ( impl.getSyntaxOid() != null && "OctetString".equalsIgnoreCase( impl.getSyntaxOid() ) ) //$NON-NLS-1$
+            {
+                impl.setSyntaxOid( SchemaConstants.OCTET_STRING_SYNTAX );
+            }
+
+            schema.addAttributeType( impl );
         }
 
-        Attribute objectClassesAttribute = entry.get( SchemaConstants.OBJECT_CLASSES_AT );
-        if ( objectClassesAttribute != null )
+        List<ObjectClass> objectClasses = parse( entry.get( SchemaConstants.OBJECT_CLASSES_AT ), value -> {
+            ObjectClassDescriptionSchemaParser parser = new ObjectClassDescriptionSchemaParser();
+            parser.setQuirksMode( true );
+            return parser.parse( value );
+        }, "Unable to parse the object class.", monitor ); //$NON-NLS-1$
+
+        if ( monitor.isCanceled() )
         {
-                for ( Value value : objectClassesAttribute )
-                {
-                    try
-                    {
-                        ObjectClassDescriptionSchemaParser parser = new ObjectClassDescriptionSchemaParser();
-                        parser.setQuirksMode( true );
-                        ObjectClass ocd = parser.parse( value.getString() );
-
-                        ObjectClass impl = new ObjectClass( ocd.getOid() );
-                        impl.setNames( ocd.getNames().toArray( new String[0] ) );
-                        impl.setDescription( ocd.getDescription() );
-                        impl.setSuperiorOids( ocd.getSuperiorOids() );
-                        impl.setType( ocd.getType() );
-                        impl.setObsolete( ocd.isObsolete() );
-                        impl.setMustAttributeTypeOids( ocd.getMustAttributeTypeOids() );
-                        impl.setMayAttributeTypeOids( ocd.getMayAttributeTypeOids() );
-                        impl.setSchemaName( schema.getSchemaName() );
-
-                        schema.addObjectClass( impl );
-                    }
-                    catch ( ParseException e )
-                    {
-                        // Logging the exception and incrementing the counter
-                        PluginUtils.logError( "Unable to parse the object class.", e ); //$NON-NLS-1$
-                        parseErrorCount++;
-                    }
-                }
+            return;
         }
 
-        Attribute ldapSyntaxesAttribute = entry.get( SchemaConstants.LDAP_SYNTAXES_AT );
-        if ( ldapSyntaxesAttribute != null )
+        for ( ObjectClass ocd : objectClasses )
         {
-                for ( Value value : ldapSyntaxesAttribute )
-                {
-                    try
-                    {
-                        LdapSyntaxDescriptionSchemaParser parser = new LdapSyntaxDescriptionSchemaParser();
-                        parser.setQuirksMode( true );
-                        LdapSyntax lsd = parser.parse( value.getString() );
-
-                        LdapSyntax impl = new LdapSyntax( lsd.getOid() );
-                        impl.setDescription( lsd.getDescription() );
-                        impl.setNames( new String[]
-                            { lsd.getDescription() } );
-                        //impl.setObsolete( lsd.isObsolete() );
-                        impl.setHumanReadable( true );
-                        impl.setSchemaName( schema.getSchemaName() );
-
-                        schema.addSyntax( impl );
-                    }
-                    catch ( ParseException e )
-                    {
-                        // Logging the exception and incrementing the counter
-                        PluginUtils.logError( "Unable to parse the syntax.", e ); //$NON-NLS-1$
-                        parseErrorCount++;
-                    }
-                }
+            if ( ocd == null )
+            {
+                parseErrorCount++;
+                continue;
+            }
+
+            ObjectClass impl = new ObjectClass( ocd.getOid() );
+            impl.setNames( ocd.getNames().toArray( new String[0] ) );
+            impl.setDescription( ocd.getDescription() );
+            impl.setSuperiorOids( ocd.getSuperiorOids() );
+            impl.setType( ocd.getType() );
+            impl.setObsolete( ocd.isObsolete() );
+            impl.setMustAttributeTypeOids( ocd.getMustAttributeTypeOids() );
+            impl.setMayAttributeTypeOids( ocd.getMayAttributeTypeOids() );
+            impl.setSchemaName( schema.getSchemaName() );
+
+            schema.addObjectClass( impl );
+        }
+
+        List<LdapSyntax> ldapSyntaxes = parse( entry.get( SchemaConstants.LDAP_SYNTAXES_AT ), value -> {
+            LdapSyntaxDescriptionSchemaParser parser = new LdapSyntaxDescriptionSchemaParser();
+            parser.setQuirksMode( true );
+            return parser.parse( value );
+        }, "Unable to parse the syntax.", monitor ); //$NON-NLS-1$
+
+        if ( monitor.isCanceled() )
+        {
+            return;
+        }
+
+        for ( LdapSyntax lsd : ldapSyntaxes )
+        {
+            if ( lsd == null )
+            {
+                parseErrorCount++;
+                continue;
+            }
+
+            LdapSyntax impl = new LdapSyntax( lsd.getOid() );
+            impl.setDescription( lsd.getDescription() );
+            impl.setNames( new String[]
+                { lsd.getDescription() } );
+            //impl.setObsolete( lsd.isObsolete() );
+            impl.setHumanReadable( true );
+            impl.setSchemaName( schema.getSchemaName() );
+
+            schema.addSyntax( impl );
         }
 
         // if online: assume all received syntaxes in attributes are valid -> create dummy syntaxes if missing
@@ -311,33 +338,33 @@ public class GenericSchemaConnector extends AbstractSchemaConnector implements S
             }
         }
 
-        Attribute matchingRulesAttribute = entry.get( SchemaConstants.MATCHING_RULES_AT );
-        if ( matchingRulesAttribute != null )
+        List<MatchingRule> matchingRules = parse( entry.get( SchemaConstants.MATCHING_RULES_AT ), value -> {
+            MatchingRuleDescriptionSchemaParser parser = new MatchingRuleDescriptionSchemaParser();
+            parser.setQuirksMode( true );
+            return parser.parse( value );
+        }, "Unable to parse the matching rule.", monitor ); //$NON-NLS-1$
+
+        if ( monitor.isCanceled() )
         {
-                for ( Value value : matchingRulesAttribute )
-                {
-                    try
-                    {
-                        MatchingRuleDescriptionSchemaParser parser = new MatchingRuleDescriptionSchemaParser();
-                        parser.setQuirksMode( true );
-                        MatchingRule mrd = parser.parse( value.getString() );
-
-                        MatchingRule impl = new MatchingRule( mrd.getOid() );
-                        impl.setDescription( mrd.getDescription() );
-                        impl.setNames( mrd.getNames().toArray( new String[0] ) );
-                        impl.setObsolete( mrd.isObsolete() );
-                        impl.setSyntaxOid( mrd.getSyntaxOid() );
-                        impl.setSchemaName( schema.getSchemaName() );
-
-                        schema.addMatchingRule( impl );
-                    }
-                    catch ( ParseException e )
-                    {
-                        // Logging the exception and incrementing the counter
-                        PluginUtils.logError( "Unable to parse the matching rule.", e ); //$NON-NLS-1$
-                        parseErrorCount++;
-                    }
-                }
+            return;
+        }
+
+        for ( MatchingRule mrd : matchingRules )
+        {
+            if ( mrd == null )
+            {
+                parseErrorCount++;
+                continue;
+            }
+
+            MatchingRule impl = new MatchingRule( mrd.getOid() );
+            impl.setDescription( mrd.getDescription() );
+            impl.setNames( mrd.getNames().toArray( new String[0] ) );
+            impl.setObsolete( mrd.isObsolete() );
+            impl.setSyntaxOid( mrd.getSyntaxOid() );
+            impl.setSchemaName( schema.getSchemaName() );
+
+            schema.addMatchingRule( impl );
         }
 
         // if online: assume all received matching rules in attributes are valid -> create dummy matching rules if missing
@@ -368,6 +395,52 @@ public class GenericSchemaConnector extends AbstractSchemaConnector implements S
     }
 
 
+    /**
+     * Parses the values of the given attribute concurrently.
+     *
+     * @param <T> the type of the parsed schema objects
+     * @param attribute the attribute containing the schema descriptions, may be null
+     * @param parser the parser of a schema description
+     * @param errorMessage the message logged when a description can't be parsed
+     * @param monitor the progress monitor, no more descriptions are parsed once it is canceled
+     * @return the parsed schema objects, in the order of the values, with null for the
+     *      values that couldn't be parsed or were skipped because the monitor is canceled
+     */
+    private static <T> List<T> parse( Attribute attribute, final DescriptionParser<T> parser,
+        final String errorMessage, final StudioProgressMonitor monitor )
+    {
+        if ( attribute == null )
+        {
+            return Collections.emptyList();
+        }
+
+        List<String> descriptions = new ArrayList<String>( attribute.size() );
+
+        for ( Value value : attribute )
+        {
+            descriptions.add( value.getString() );
+        }
+
+        return descriptions.parallelStream().map( description -> {
+            if ( monitor.isCanceled() )
+            {
+                return null;
+            }
+
+            try
+            {
+                return parser.parse( description );
+            }
+            catch ( ParseException e )
+            {
+                // Logging the exception, the caller counts it
+                PluginUtils.logError( errorMessage, e );
+                return null;
+            }
+        } ).collect( Collectors.toList() );
+    }
+
+
     private static void checkMatchingRules( Schema schema, String... matchingRuleNames )
     {
         for ( String matchingRuleName : matchingRuleNames )
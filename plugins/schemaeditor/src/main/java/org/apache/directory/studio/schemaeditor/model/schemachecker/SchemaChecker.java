@@ -21,7 +21,10 @@ package org.apache.directory.studio.schemaeditor.model.schemachecker;
 
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
@@ -59,8 +62,11 @@ public class SchemaChecker
     /** The SchemaChecker instance */
     private static SchemaChecker instance;
 
-    /** The schema manager */
-    private SchemaManager schemaManager;
+    /** The delay in milliseconds used to group the checks of bursts of modifications */
+    private static final long CHECK_DELAY = 300L;
+
+    /** The errors list */
+    private List<Throwable> errorsList = new ArrayList<Throwable>();
 
     /** The errors map */
     private MultiValuedMap<Object, Object> errorsMap = new ArrayListValuedHashMap<>();
@@ -80,78 +86,97 @@ public class SchemaChecker
     /** The listeners List */
     private List<SchemaCheckerListener> listeners = new ArrayList<SchemaCheckerListener>();
 
+    /** The dependency graph of the checked attribute types and object classes */
+    private SchemaDependencyGraph dependencyGraph = new SchemaDependencyGraph();
+
+    /** The schema objects modified since the last check, mapped to true if they were removed */
+    private Map<SchemaObject, Boolean> pendingModifications = new IdentityHashMap<SchemaObject, Boolean>();
+
+    /** The flag indicating that the whole schema must be checked */
+    private boolean wholeSchemaCheckPending = false;
+
+    /** The job checking the schema */
+    private Job checkJob = new Job( "Checking Schema" ) //$NON-NLS-1$
+    {
+        protected IStatus run( IProgressMonitor monitor )
+        {
+            boolean wholeSchema;
+            Map<SchemaObject, Boolean> modifications;
+
+            synchronized ( SchemaChecker.this )
+            {
+                wholeSchema = wholeSchemaCheckPending;
+                modifications = pendingModifications;
+                wholeSchemaCheckPending = false;
+                pendingModifications = new IdentityHashMap<SchemaObject, Boolean>();
+            }
+
+            if ( wholeSchema )
+            {
+                checkWholeSchema();
+            }
+            else if ( !modifications.isEmpty() )
+            {
+                checkModifiedSchemaObjects( modifications );
+            }
+
+            // Notify listeners
+            notifyListeners();
+
+            monitor.done();
+
+            return Status.OK_STATUS;
+        }
+    };
+
     /** The SchemaHandlerListener */
     private SchemaHandlerListener schemaHandlerListener = new SchemaHandlerAdapter()
     {
         public void attributeTypeAdded( AttributeType at )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            scheduleCheck( at, false );
         }
 
 
         public void attributeTypeModified( AttributeType at )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            scheduleCheck( at, false );
         }
 
 
         public void attributeTypeRemoved( AttributeType at )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            scheduleCheck( at, true );
         }
 
 
         public void objectClassAdded( ObjectClass oc )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            scheduleCheck( oc, false );
         }
 
 
         public void objectClassModified( ObjectClass oc )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            scheduleCheck( oc, false );
         }
 
 
         public void objectClassRemoved( ObjectClass oc )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            scheduleCheck( oc, true );
         }
 
 
         public void schemaAdded( Schema schema )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            scheduleWholeSchemaCheck();
         }
 
 
         public void schemaRemoved( Schema schema )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            scheduleWholeSchemaCheck();
         }
 
 
@@ -213,7 +238,7 @@ public class SchemaChecker
             {
                 Activator.getDefault().getSchemaHandler().addListener( schemaHandlerListener );
                 listeningToModifications = true;
-                recheckWholeSchema();
+                scheduleWholeSchemaCheck();
             }
         }
     }
@@ -240,10 +265,7 @@ public class SchemaChecker
      */
     public void reload()
     {
-        synchronized ( this )
-        {
-            recheckWholeSchema();
-        }
+        scheduleWholeSchemaCheck();
     }
 
 
@@ -262,49 +284,171 @@ public class SchemaChecker
 
 
     /**
-     * Checks the whole schema.
+     * Schedules the check of the whole schema.
      */
-    private void recheckWholeSchema()
+    private void scheduleWholeSchemaCheck()
     {
-        Job job = new Job( "Checking Schema" )
+        synchronized ( this )
         {
-            protected IStatus run( IProgressMonitor monitor )
+            wholeSchemaCheckPending = true;
+            pendingModifications.clear();
+            rescheduleCheckJob();
+        }
+    }
+
+
+    /**
+     * Schedules the check of the given modified schema object and of its dependents.
+     *
+     * @param schemaObject
+     *      the added, modified or removed schema object
+     * @param removed
+     *      true if the schema object was removed
+     */
+    private void scheduleCheck( SchemaObject schemaObject, boolean removed )
+    {
+        synchronized ( this )
+        {
+            if ( !wholeSchemaCheckPending )
             {
-                // Checks the whole schema via the schema manager
-                try
-                {
-                    schemaManager = new DefaultSchemaManager( new SchemaEditorSchemaLoader() );
-                    schemaManager.loadAllEnabled();
-                }
-                catch ( Exception e )
+                pendingModifications.put( schemaObject, removed );
+            }
+
+            rescheduleCheckJob();
+        }
+    }
+
+
+    /**
+     * Delays the check job, so a burst of modifications is checked at once. A running
+     * check is not interrupted, the job is run again once it has finished.
+     */
+    private void rescheduleCheckJob()
+    {
+        if ( checkJob.getState() != Job.RUNNING )
+        {
+            checkJob.cancel();
+        }
+
+        checkJob.schedule( CHECK_DELAY );
+    }
+
+
+    /**
+     * Checks the whole schema via the schema manager.
+     */
+    private void checkWholeSchema()
+    {
+        SchemaManager schemaManager = new DefaultSchemaManager( new SchemaEditorSchemaLoader() );
+
+        try
+        {
+            schemaManager.loadAllEnabled();
+        }
+        catch ( Exception e )
+        {
+            // TODO Auto-generated catch block
+            e.printStackTrace();
+        }
+
+        // Rebuilds the dependency graph
+        SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
+        dependencyGraph.clear();
+
+        if ( schemaHandler != null )
+        {
+            for ( AttributeType attributeType : schemaHandler.getAttributeTypes() )
+            {
+                dependencyGraph.add( attributeType );
+            }
+
+            for ( ObjectClass objectClass : schemaHandler.getObjectClasses() )
+            {
+                dependencyGraph.add( objectClass );
+            }
+        }
+
+        // Attaches the errors to the schema objects of the schema handler
+        List<Throwable> errors = new ArrayList<Throwable>( schemaManager.getErrors() );
+
+        for ( Throwable error : errors )
+        {
+            if ( error instanceof LdapSchemaException )
+            {
+                LdapSchemaException ldapSchemaException = ( LdapSchemaException ) error;
+                SchemaObject source = getSchemaHandlerObject( ldapSchemaException.getSourceObject() );
+
+                if ( source != null )
                 {
-                    // TODO Auto-generated catch block
-                    e.printStackTrace();
+                    ldapSchemaException.setSourceObject( source );
                 }
+            }
+        }
+
+        // Updates errors and warnings
+        updateErrorsAndWarnings( errors );
+    }
+
+
+    /**
+     * Checks the modified attribute types and object classes and their dependents only,
+     * the errors of the other schema objects are kept.
+     *
+     * @param modifications
+     *      the modified schema objects, mapped to true if they were removed
+     */
+    private void checkModifiedSchemaObjects( Map<SchemaObject, Boolean> modifications )
+    {
+        SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
+
+        if ( schemaHandler == null )
+        {
+            return;
+        }
 
-                // Updates errors and warnings
-                updateErrorsAndWarnings();
+        Set<SchemaObject> affected = dependencyGraph.update( modifications );
+        List<Throwable> errors = new ArrayList<Throwable>();
 
-                // Notify listeners
-                notifyListeners();
+        synchronized ( lock )
+        {
+            for ( Throwable error : errorsList )
+            {
+                if ( error instanceof LdapSchemaException )
+                {
+                    SchemaObject source = ( ( LdapSchemaException ) error ).getSourceObject();
 
-                monitor.done();
+                    if ( affected.contains( source ) || Boolean.TRUE.equals( modifications.get( source ) ) )
+                    {
+                        continue;
+                    }
+                }
 
-                return Status.OK_STATUS;
+                errors.add( error );
             }
-        };
-        job.schedule();
+        }
+
+        for ( SchemaObject schemaObject : affected )
+        {
+            errors.addAll( SchemaObjectValidator.check( schemaObject, schemaHandler ) );
+        }
+
+        // Updates errors and warnings
+        updateErrorsAndWarnings( errors );
     }
 
 
     /**
      * Updates the errors and warnings. 
+     *
+     * @param errors
+     *      the new errors
      */
-    private synchronized void updateErrorsAndWarnings()
+    private void updateErrorsAndWarnings( List<Throwable> errors )
     {
         synchronized ( lock )
         {
             // Errors
+            errorsList = errors;
             errorsMap.clear();
             indexErrors();
 
@@ -321,7 +465,7 @@ public class SchemaChecker
      */
     private void indexErrors()
     {
-        for ( Throwable error : schemaManager.getErrors() )
+        for ( Throwable error : errorsList )
         {
             if ( error instanceof LdapSchemaException )
             {
@@ -329,25 +473,6 @@ public class SchemaChecker
                 SchemaObject source = ldapSchemaException.getSourceObject();
                 if ( source != null )
                 {
-                    SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
-
-                    if ( source instanceof AttributeType )
-                    {
-                        source = schemaHandler.getAttributeType( source.getOid() );
-                    }
-                    else if ( source instanceof LdapSyntax )
-                    {
-                        source = schemaHandler.getSyntax( source.getOid() );
-                    }
-                    else if ( source instanceof MatchingRule )
-                    {
-                        source = schemaHandler.getMatchingRule( source.getOid() );
-                    }
-                    else if ( source instanceof ObjectClass )
-                    {
-                        source = schemaHandler.getObjectClass( source.getOid() );
-                    }
-
                     errorsMap.put( source, ldapSchemaException );
                 }
             }
@@ -355,6 +480,44 @@ public class SchemaChecker
     }
 
 
+    /**
+     * Gets the schema object of the schema handler corresponding to the given schema
+     * object of the schema manager.
+     *
+     * @param schemaObject
+     *      the schema object of the schema manager
+     * @return
+     *      the schema object of the schema handler, or null if not found
+     */
+    private SchemaObject getSchemaHandlerObject( SchemaObject schemaObject )
+    {
+        SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
+
+        if ( ( schemaObject == null ) || ( schemaHandler == null ) )
+        {
+            return null;
+        }
+        else if ( schemaObject instanceof AttributeType )
+        {
+            return schemaHandler.getAttributeType( schemaObject.getOid() );
+        }
+        else if ( schemaObject instanceof LdapSyntax )
+        {
+            return schemaHandler.getSyntax( schemaObject.getOid() );
+        }
+        else if ( schemaObject instanceof MatchingRule )
+        {
+            return schemaHandler.getMatchingRule( schemaObject.getOid() );
+        }
+        else if ( schemaObject instanceof ObjectClass )
+        {
+            return schemaHandler.getObjectClass( schemaObject.getOid() );
+        }
+
+        return null;
+    }
+
+
     /**
      * Creates the warnings.
      */
@@ -417,13 +580,9 @@ public class SchemaChecker
      */
     public List<Throwable> getErrors()
     {
-        if ( schemaManager != null )
-        {
-            return schemaManager.getErrors();
-        }
-        else
+        synchronized ( lock )
         {
-            return new ArrayList<Throwable>();
+            return new ArrayList<Throwable>( errorsList );
         }
     }
 
@@ -0,0 +1,301 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.schemaeditor.model.schemachecker;
+
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.SchemaObject;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * This class represents the dependency graph of the attribute types and object classes
+ * checked by the SchemaChecker.
+ * <p>
+ * It indexes the identifiers (names and OID) held by each schema object and the
+ * identifiers it references (superiors, syntax, matching rules, mandatory and optional
+ * attribute types). As the SchemaHandler modifies the schema objects in place, the
+ * identifiers are kept as they were when the schema object was indexed, so the
+ * dependents of a renamed schema object are still found.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class SchemaDependencyGraph
+{
+    /** The identifiers held by the indexed schema objects */
+    private Map<SchemaObject, Set<String>> identifiers = new IdentityHashMap<>();
+
+    /** The identifiers referenced by the indexed schema objects */
+    private Map<SchemaObject, Set<String>> references = new IdentityHashMap<>();
+
+    /** The schema objects holding an identifier */
+    private Map<String, Set<SchemaObject>> holders = new HashMap<>();
+
+    /** The schema objects referencing an identifier */
+    private Map<String, Set<SchemaObject>> referrers = new HashMap<>();
+
+
+    /**
+     * Removes all the schema objects.
+     */
+    void clear()
+    {
+        identifiers.clear();
+        references.clear();
+        holders.clear();
+        referrers.clear();
+    }
+
+
+    /**
+     * Indexes the given schema object.
+     *
+     * @param schemaObject
+     *      the schema object
+     */
+    void add( SchemaObject schemaObject )
+    {
+        Set<String> heldIds = getIdentifiers( schemaObject );
+        Set<String> referencedIds = getReferences( schemaObject );
+        identifiers.put( schemaObject, heldIds );
+        references.put( schemaObject, referencedIds );
+
+        for ( String id : heldIds )
+        {
+            holders.computeIfAbsent( id, k -> newIdentitySet() ).add( schemaObject );
+        }
+
+        for ( String id : referencedIds )
+        {
+            referrers.computeIfAbsent( id, k -> newIdentitySet() ).add( schemaObject );
+        }
+    }
+
+
+    /**
+     * Removes the given schema object, using the identifiers it had when it was indexed.
+     *
+     * @param schemaObject
+     *      the schema object
+     */
+    void remove( SchemaObject schemaObject )
+    {
+        Set<String> heldIds = identifiers.remove( schemaObject );
+        Set<String> referencedIds = references.remove( schemaObject );
+
+        if ( heldIds != null )
+        {
+            for ( String id : heldIds )
+            {
+                removeFrom( holders, id, schemaObject );
+            }
+        }
+
+        if ( referencedIds != null )
+        {
+            for ( String id : referencedIds )
+            {
+                removeFrom( referrers, id, schemaObject );
+            }
+        }
+    }
+
+
+    /**
+     * Re-indexes the given changed schema objects and gets the schema objects that
+     * need to be checked again: the changed schema objects, the schema objects sharing
+     * one of their old or new identifiers, and all the schema objects that depend on
+     * them, directly or transitively.
+     *
+     * @param changes
+     *      the changed schema objects, mapped to true if the schema object was removed
+     * @return
+     *      the schema objects to check again
+     */
+    Set<SchemaObject> update( Map<SchemaObject, Boolean> changes )
+    {
+        Deque<String> queue = new ArrayDeque<>();
+
+        for ( Map.Entry<SchemaObject, Boolean> change : changes.entrySet() )
+        {
+            SchemaObject schemaObject = change.getKey();
+            Set<String> oldIds = identifiers.get( schemaObject );
+
+            if ( oldIds != null )
+            {
+                queue.addAll( oldIds );
+            }
+
+            remove( schemaObject );
+
+            if ( !change.getValue() )
+            {
+                add( schemaObject );
+                queue.addAll( identifiers.get( schemaObject ) );
+            }
+        }
+
+        Set<SchemaObject> affected = newIdentitySet();
+        Set<String> visited = new HashSet<>();
+
+        while ( !queue.isEmpty() )
+        {
+            String id = queue.poll();
+
+            if ( !visited.add( id ) )
+            {
+                continue;
+            }
+
+            addAffected( holders.get( id ), affected, queue );
+            addAffected( referrers.get( id ), affected, queue );
+        }
+
+        return affected;
+    }
+
+
+    private void addAffected( Set<SchemaObject> schemaObjects, Set<SchemaObject> affected, Deque<String> queue )
+    {
+        if ( schemaObjects != null )
+        {
+            for ( SchemaObject schemaObject : schemaObjects )
+            {
+                if ( affected.add( schemaObject ) )
+                {
+                    queue.addAll( identifiers.get( schemaObject ) );
+                }
+            }
+        }
+    }
+
+
+    private static void removeFrom( Map<String, Set<SchemaObject>> map, String id, SchemaObject schemaObject )
+    {
+        Set<SchemaObject> schemaObjects = map.get( id );
+
+        if ( schemaObjects != null )
+        {
+            schemaObjects.remove( schemaObject );
+
+            if ( schemaObjects.isEmpty() )
+            {
+                map.remove( id );
+            }
+        }
+    }
+
+
+    private static Set<SchemaObject> newIdentitySet()
+    {
+        return Collections.newSetFromMap( new IdentityHashMap<SchemaObject, Boolean>() );
+    }
+
+
+    /**
+     * Gets the lower cased names and OID of the given schema object.
+     *
+     * @param schemaObject
+     *      the schema object
+     * @return
+     *      the identifiers of the schema object
+     */
+    static Set<String> getIdentifiers( SchemaObject schemaObject )
+    {
+        Set<String> ids = new HashSet<>();
+        addId( ids, schemaObject.getOid() );
+
+        if ( schemaObject.getNames() != null )
+        {
+            for ( String name : schemaObject.getNames() )
+            {
+                addId( ids, name );
+            }
+        }
+
+        return ids;
+    }
+
+
+    /**
+     * Gets the lower cased identifiers referenced by the given schema object.
+     *
+     * @param schemaObject
+     *      the schema object
+     * @return
+     *      the identifiers referenced by the schema object
+     */
+    static Set<String> getReferences( SchemaObject schemaObject )
+    {
+        Set<String> ids = new HashSet<>();
+
+        if ( schemaObject instanceof AttributeType )
+        {
+            AttributeType attributeType = ( AttributeType ) schemaObject;
+            addId( ids, attributeType.getSuperiorOid() );
+            addId( ids, attributeType.getSyntaxOid() );
+            addId( ids, attributeType.getEqualityOid() );
+            addId( ids, attributeType.getOrderingOid() );
+            addId( ids, attributeType.getSubstringOid() );
+        }
+        else if ( schemaObject instanceof ObjectClass )
+        {
+            ObjectClass objectClass = ( ObjectClass ) schemaObject;
+            addIds( ids, objectClass.getSuperiorOids() );
+            addIds( ids, objectClass.getMustAttributeTypeOids() );
+            addIds( ids, objectClass.getMayAttributeTypeOids() );
+        }
+
+        return ids;
+    }
+
+
+    private static void addIds( Set<String> ids, List<String> values )
+    {
+        if ( values != null )
+        {
+            for ( String value : values )
+            {
+                addId( ids, value );
+            }
+        }
+    }
+
+
+    private static void addId( Set<String> ids, String value )
+    {
+        if ( !Strings.isEmpty( value ) )
+        {
+            ids.add( Strings.toLowerCase( value ) );
+        }
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.schemaeditor.model.schemachecker;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.exception.LdapSchemaException;
+import org.apache.directory.api.ldap.model.exception.LdapSchemaExceptionCodes;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.ObjectClassTypeEnum;
+import org.apache.directory.api.ldap.model.schema.SchemaObject;
+import org.apache.directory.api.ldap.model.schema.UsageEnum;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.studio.schemaeditor.controller.SchemaHandler;
+
+
+/**
+ * This class checks a single attribute type or object class against the schema
+ * objects of a SchemaHandler.
+ * <p>
+ * It applies the rules the schema manager applies when it registers an attribute type
+ * or an object class: the resolution of the referenced schema objects, the type and
+ * usage hierarchy rules and the uniqueness of the names and OIDs. As with the schema
+ * manager the first registered schema object wins, the following schema objects with
+ * the same name or OID are reported.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class SchemaObjectValidator
+{
+    private SchemaObjectValidator()
+    {
+    }
+
+
+    /**
+     * Checks the given schema object.
+     *
+     * @param schemaObject
+     *      the attribute type or object class
+     * @param schemaHandler
+     *      the SchemaHandler holding the schema objects
+     * @return
+     *      the errors of the schema object
+     */
+    static List<LdapSchemaException> check( SchemaObject schemaObject, SchemaHandler schemaHandler )
+    {
+        List<LdapSchemaException> errors = new ArrayList<>();
+
+        if ( schemaObject instanceof AttributeType )
+        {
+            checkAttributeType( ( AttributeType ) schemaObject, schemaHandler, errors );
+        }
+        else if ( schemaObject instanceof ObjectClass )
+        {
+            checkObjectClass( ( ObjectClass ) schemaObject, schemaHandler, errors );
+        }
+
+        return errors;
+    }
+
+
+    private static void checkAttributeType( AttributeType attributeType, SchemaHandler schemaHandler,
+        List<LdapSchemaException> errors )
+    {
+        checkRegistration( attributeType, schemaHandler, errors );
+
+        // Superior
+        AttributeType superior = null;
+        String superiorOid = attributeType.getSuperiorOid();
+
+        if ( superiorOid != null )
+        {
+            superior = schemaHandler.getAttributeType( superiorOid );
+
+            if ( superior == null )
+            {
+                errors.add( createError( LdapSchemaExceptionCodes.AT_NONEXISTENT_SUPERIOR, attributeType,
+                    superiorOid ) );
+            }
+            else if ( isAttributeTypeCycle( attributeType, superior, schemaHandler ) )
+            {
+                errors.add( createError( LdapSchemaExceptionCodes.AT_CYCLE_TYPE_HIERARCHY, attributeType,
+                    superiorOid ) );
+            }
+            else
+            {
+                if ( superior.isCollective() )
+                {
+                    errors.add( createError( LdapSchemaExceptionCodes.AT_CANNOT_SUBTYPE_COLLECTIVE_AT,
+                        attributeType, superiorOid ) );
+                }
+
+                if ( attributeType.getUsage() != superior.getUsage() )
+                {
+                    errors.add( createError( LdapSchemaExceptionCodes.AT_MUST_HAVE_SAME_USAGE_THAN_SUPERIOR,
+                        attributeType, superiorOid ) );
+                }
+            }
+        }
+
+        // Syntax
+        String syntaxOid = attributeType.getSyntaxOid();
+
+        if ( syntaxOid != null )
+        {
+            if ( schemaHandler.getSyntax( syntaxOid ) == null )
+            {
+                errors.add( createError( LdapSchemaExceptionCodes.AT_NONEXISTENT_SYNTAX, attributeType, syntaxOid ) );
+            }
+        }
+        else if ( superior == null )
+        {
+            errors.add( createError( LdapSchemaExceptionCodes.AT_SYNTAX_OR_SUPERIOR_REQUIRED, attributeType,
+                attributeType.getOid() ) );
+        }
+
+        // Matching rules
+        checkMatchingRule( attributeType.getEqualityOid(),
+            LdapSchemaExceptionCodes.AT_NONEXISTENT_EQUALITY_MATCHING_RULE, attributeType, schemaHandler, errors );
+        checkMatchingRule( attributeType.getOrderingOid(),
+            LdapSchemaExceptionCodes.AT_NONEXISTENT_ORDERING_MATCHING_RULE, attributeType, schemaHandler, errors );
+        checkMatchingRule( attributeType.getSubstringOid(),
+            LdapSchemaExceptionCodes.AT_NONEXISTENT_SUBSTRING_MATCHING_RULE, attributeType, schemaHandler, errors );
+
+        // Usage
+        if ( !attributeType.isUserModifiable() && ( attributeType.getUsage() == UsageEnum.USER_APPLICATIONS ) )
+        {
+            errors.add( createError( LdapSchemaExceptionCodes.AT_USER_APPLICATIONS_USAGE_MUST_BE_USER_MODIFIABLE,
+                attributeType, attributeType.getOid() ) );
+        }
+
+        // Collective
+        if ( attributeType.isCollective() )
+        {
+            if ( attributeType.getUsage() != UsageEnum.USER_APPLICATIONS )
+            {
+                errors.add( createError( LdapSchemaExceptionCodes.AT_COLLECTIVE_MUST_HAVE_USER_APPLICATIONS_USAGE,
+                    attributeType, attributeType.getOid() ) );
+            }
+
+            if ( attributeType.isSingleValued() )
+            {
+                errors.add( createError( LdapSchemaExceptionCodes.AT_COLLECTIVE_CANNOT_BE_SINGLE_VALUED,
+                    attributeType, attributeType.getOid() ) );
+            }
+        }
+    }
+
+
+    private static void checkMatchingRule( String matchingRuleOid, LdapSchemaExceptionCodes code,
+        AttributeType attributeType, SchemaHandler schemaHandler, List<LdapSchemaException> errors )
+    {
+        if ( ( matchingRuleOid != null ) && ( schemaHandler.getMatchingRule( matchingRuleOid ) == null ) )
+        {
+            errors.add( createError( code, attributeType, matchingRuleOid ) );
+        }
+    }
+
+
+    /**
+     * Checks if the superior chain starting at the given superior leads back to the
+     * attribute type.
+     */
+    private static boolean isAttributeTypeCycle( AttributeType attributeType, AttributeType superior,
+        SchemaHandler schemaHandler )
+    {
+        Set<SchemaObject> visited = newIdentitySet();
+
+        while ( superior != null && visited.add( superior ) )
+        {
+            if ( superior == attributeType )
+            {
+                return true;
+            }
+
+            superior = superior.getSuperiorOid() == null ? null : schemaHandler.getAttributeType( superior
+                .getSuperiorOid() );
+        }
+
+        // a cycle above the superior is reported on the attribute types of the cycle
+        return false;
+    }
+
+
+    private static void checkObjectClass( ObjectClass objectClass, SchemaHandler schemaHandler,
+        List<LdapSchemaException> errors )
+    {
+        checkRegistration( objectClass, schemaHandler, errors );
+
+        // Superiors
+        if ( objectClass.getSuperiorOids() != null )
+        {
+            for ( String superiorOid : objectClass.getSuperiorOids() )
+            {
+                ObjectClass superior = schemaHandler.getObjectClass( superiorOid );
+
+                if ( superior == null )
+                {
+                    errors.add( createError( LdapSchemaExceptionCodes.OC_NONEXISTENT_SUPERIOR, objectClass,
+                        superiorOid ) );
+                }
+                else if ( isObjectClassCycle( objectClass, superior, schemaHandler ) )
+                {
+                    errors.add( createError( LdapSchemaExceptionCodes.OC_CYCLE_CLASS_HIERARCHY, objectClass,
+                        superiorOid ) );
+                }
+                else
+                {
+                    checkObjectClassType( objectClass, superior, superiorOid, errors );
+                }
+            }
+        }
+
+        // Mandatory and optional attribute types
+        List<AttributeType> mayAttributeTypes = checkAttributeTypes( objectClass,
+            objectClass.getMayAttributeTypeOids(), LdapSchemaExceptionCodes.OC_NONEXISTENT_MAY_AT,
+            LdapSchemaExceptionCodes.OC_COLLECTIVE_NOT_ALLOWED_IN_MAY, LdapSchemaExceptionCodes.OC_DUPLICATE_AT_IN_MAY,
+            schemaHandler, errors );
+        List<AttributeType> mustAttributeTypes = checkAttributeTypes( objectClass,
+            objectClass.getMustAttributeTypeOids(), LdapSchemaExceptionCodes.OC_NONEXISTENT_MUST_AT,
+            LdapSchemaExceptionCodes.OC_COLLECTIVE_NOT_ALLOWED_IN_MUST,
+            LdapSchemaExceptionCodes.OC_DUPLICATE_AT_IN_MUST, schemaHandler, errors );
+
+        for ( AttributeType mustAttributeType : mustAttributeTypes )
+        {
+            for ( AttributeType mayAttributeType : mayAttributeTypes )
+            {
+                if ( mustAttributeType == mayAttributeType )
+                {
+                    errors.add( createError( LdapSchemaExceptionCodes.OC_DUPLICATE_AT_IN_MAY_AND_MUST, objectClass,
+                        mustAttributeType.getOid() ) );
+                }
+            }
+        }
+    }
+
+
+    private static void checkObjectClassType( ObjectClass objectClass, ObjectClass superior, String superiorOid,
+        List<LdapSchemaException> errors )
+    {
+        switch ( objectClass.getType() )
+        {
+            case ABSTRACT:
+                if ( superior.getType() != ObjectClassTypeEnum.ABSTRACT )
+                {
+                    errors.add( createError( LdapSchemaExceptionCodes.OC_ABSTRACT_MUST_INHERIT_FROM_ABSTRACT_OC,
+                        objectClass, superiorOid ) );
+                }
+                break;
+
+            case AUXILIARY:
+                if ( superior.getType() == ObjectClassTypeEnum.STRUCTURAL )
+                {
+                    errors.add( createError( LdapSchemaExceptionCodes.OC_AUXILIARY_CANNOT_INHERIT_FROM_STRUCTURAL_OC,
+                        objectClass, superiorOid ) );
+                }
+                break;
+
+            case STRUCTURAL:
+                if ( superior.getType() == ObjectClassTypeEnum.AUXILIARY )
+                {
+                    errors.add( createError( LdapSchemaExceptionCodes.OC_STRUCTURAL_CANNOT_INHERIT_FROM_AUXILIARY_OC,
+                        objectClass, superiorOid ) );
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
+
+
+    /**
+     * Checks if one of the superior chains starting at the given superior leads back to
+     * the object class.
+     */
+    private static boolean isObjectClassCycle( ObjectClass objectClass, ObjectClass superior,
+        SchemaHandler schemaHandler )
+    {
+        Set<SchemaObject> visited = newIdentitySet();
+        List<ObjectClass> stack = new ArrayList<>();
+        stack.add( superior );
+
+        while ( !stack.isEmpty() )
+        {
+            ObjectClass current = stack.remove( stack.size() - 1 );
+
+            if ( current == objectClass )
+            {
+                return true;
+            }
+
+            if ( visited.add( current ) && ( current.getSuperiorOids() != null ) )
+            {
+                for ( String superiorOid : current.getSuperiorOids() )
+                {
+                    ObjectClass next = schemaHandler.getObjectClass( superiorOid );
+
+                    if ( next != null )
+                    {
+                        stack.add( next );
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Checks the mandatory or optional attribute types of an object class.
+     *
+     * @return the resolved attribute types
+     */
+    private static List<AttributeType> checkAttributeTypes( ObjectClass objectClass, List<String> oids,
+        LdapSchemaExceptionCodes nonExistentCode, LdapSchemaExceptionCodes collectiveCode,
+        LdapSchemaExceptionCodes duplicateCode, SchemaHandler schemaHandler, List<LdapSchemaException> errors )
+    {
+        List<AttributeType> attributeTypes = new ArrayList<>();
+        Set<SchemaObject> resolved = newIdentitySet();
+
+        if ( oids != null )
+        {
+            for ( String oid : oids )
+            {
+                AttributeType attributeType = schemaHandler.getAttributeType( oid );
+
+                if ( attributeType == null )
+                {
+                    errors.add( createError( nonExistentCode, objectClass, oid ) );
+                }
+                else if ( attributeType.isCollective() )
+                {
+                    errors.add( createError( collectiveCode, objectClass, oid ) );
+                }
+                else if ( resolved.contains( attributeType ) )
+                {
+                    errors.add( createError( duplicateCode, objectClass, oid ) );
+                }
+                else
+                {
+                    resolved.add( attributeType );
+                    attributeTypes.add( attributeType );
+                }
+            }
+        }
+
+        return attributeTypes;
+    }
+
+
+    /**
+     * Checks that the names and the OID of the schema object are not already registered
+     * by another schema object.
+     */
+    private static void checkRegistration( SchemaObject schemaObject, SchemaHandler schemaHandler,
+        List<LdapSchemaException> errors )
+    {
+        boolean isAttributeType = schemaObject instanceof AttributeType;
+
+        if ( schemaObject.getNames() != null )
+        {
+            for ( String name : schemaObject.getNames() )
+            {
+                String id = Strings.toLowerCase( name );
+                List<?> registered = isAttributeType ? schemaHandler.getAttributeTypeList( id ) : schemaHandler
+                    .getObjectClassList( id );
+                SchemaObject other = getOther( schemaObject, registered );
+
+                if ( other != null )
+                {
+                    LdapSchemaException error = createError( LdapSchemaExceptionCodes.NAME_ALREADY_REGISTERED,
+                        schemaObject, name );
+                    error.setOtherObject( other );
+                    errors.add( error );
+                }
+            }
+        }
+
+        // The OIDs are shared by all the schema objects, the syntaxes, matching rules
+        // and attribute types are registered before the object classes
+        String oid = schemaObject.getOid();
+        SchemaObject other = getOther( schemaObject, schemaHandler.getSyntaxList( oid ) );
+
+        if ( other == null )
+        {
+            other = getOther( schemaObject, schemaHandler.getMatchingRuleList( oid ) );
+        }
+
+        if ( other == null )
+        {
+            other = getOther( schemaObject, schemaHandler.getAttributeTypeList( oid ) );
+        }
+
+        if ( ( other == null ) && !isAttributeType )
+        {
+            other = getOther( schemaObject, schemaHandler.getObjectClassList( oid ) );
+        }
+
+        if ( other != null )
+        {
+            LdapSchemaException error = createError( LdapSchemaExceptionCodes.OID_ALREADY_REGISTERED, schemaObject,
+                oid );
+            error.setOtherObject( other );
+            errors.add( error );
+        }
+    }
+
+
+    /**
+     * Gets the schema object registered before the given schema object.
+     *
+     * @return the first registered schema object, null if it is the given schema object
+     */
+    private static SchemaObject getOther( SchemaObject schemaObject, List<?> registered )
+    {
+        if ( ( registered != null ) && !registered.isEmpty() && ( registered.get( 0 ) != schemaObject ) )
+        {
+            return ( SchemaObject ) registered.get( 0 );
+        }
+
+        return null;
+    }
+
+
+    private static LdapSchemaException createError( LdapSchemaExceptionCodes code, SchemaObject source,
+        String relatedId )
+    {
+        LdapSchemaException error = new LdapSchemaException( code );
+        error.setSourceObject( source );
+        error.setRelatedId( relatedId );
+
+        return error;
+    }
+
+
+    private static Set<SchemaObject> newIdentitySet()
+    {
+        return Collections.newSetFromMap( new IdentityHashMap<SchemaObject, Boolean>() );
+    }
+}
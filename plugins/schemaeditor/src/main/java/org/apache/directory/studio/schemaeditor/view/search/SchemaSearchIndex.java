@@ -0,0 +1,454 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.schemaeditor.view.search;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.SchemaObject;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.studio.schemaeditor.PluginConstants;
+import org.apache.directory.studio.schemaeditor.controller.SchemaHandler;
+import org.apache.directory.studio.schemaeditor.controller.SchemaHandlerAdapter;
+import org.apache.directory.studio.schemaeditor.model.Schema;
+import org.apache.directory.studio.schemaeditor.view.search.SearchPage.SearchInEnum;
+
+
+/**
+ * This class implements an index of the attribute types and object classes of
+ * a SchemaHandler, used to answer the searches of the Search View.
+ * <p>
+ * The index maps the lower-cased values of the searchable fields (aliases, OID,
+ * description, superiors, syntax, matching rules and attributes) to the schema
+ * objects they belong to. It is sorted, so the search string only has to be
+ * matched against the values starting with its literal prefix, and each distinct
+ * value is matched only once. The index is kept up to date with the events of
+ * the SchemaHandler.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SchemaSearchIndex extends SchemaHandlerAdapter
+{
+    /** The characters having a special meaning in a search string */
+    private static final String SPECIAL_CHARACTERS = "\\[](){}.*?+^$|"; //$NON-NLS-1$
+
+    /** The indexed SchemaHandler */
+    private SchemaHandler schemaHandler;
+
+    /** The lower-cased values, with the schema objects and fields they appear in */
+    private NavigableMap<String, Map<SchemaObject, Set<SearchInEnum>>> values =
+        new TreeMap<String, Map<SchemaObject, Set<SearchInEnum>>>();
+
+    /** The lower-cased values of each schema object */
+    private Map<SchemaObject, Set<String>> objectValues = new IdentityHashMap<SchemaObject, Set<String>>();
+
+
+    /**
+     * Creates a new instance of SchemaSearchIndex, indexes the attribute
+     * types and object classes of the given SchemaHandler and listens
+     * to its changes.
+     *
+     * @param schemaHandler
+     *      the SchemaHandler
+     */
+    public SchemaSearchIndex( SchemaHandler schemaHandler )
+    {
+        this.schemaHandler = schemaHandler;
+
+        for ( AttributeType at : schemaHandler.getAttributeTypes() )
+        {
+            add( at );
+        }
+
+        for ( ObjectClass oc : schemaHandler.getObjectClasses() )
+        {
+            add( oc );
+        }
+
+        schemaHandler.addListener( this );
+    }
+
+
+    /**
+     * Gets the indexed SchemaHandler.
+     *
+     * @return
+     *      the indexed SchemaHandler
+     */
+    public SchemaHandler getSchemaHandler()
+    {
+        return schemaHandler;
+    }
+
+
+    /**
+     * Stops listening to the changes of the SchemaHandler.
+     */
+    public void dispose()
+    {
+        schemaHandler.removeListener( this );
+    }
+
+
+    /**
+     * Searches the objects corresponding to the search parameters.
+     * <p>
+     * The search string must match a whole value, ignoring case. A '*' matches
+     * any sequence of non-whitespace characters, a '?' matches a single one.
+     *
+     * @param searchString
+     *      the search String
+     * @param searchIn
+     *      the search In
+     * @param scope
+     *      the scope
+     * @return
+     *      the matching attribute types and object classes
+     */
+    public List<SchemaObject> search( String searchString, SearchInEnum[] searchIn, int scope )
+    {
+        List<SchemaObject> searchResults = new ArrayList<SchemaObject>();
+
+        if ( ( searchString == null ) || ( searchIn.length == 0 ) )
+        {
+            return searchResults;
+        }
+
+        String computedSearchString = searchString.replaceAll( "\\*", "[\\\\S]*" ); //$NON-NLS-1$ //$NON-NLS-2$
+        computedSearchString = computedSearchString.replaceAll( "\\?", "[\\\\S]" ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        Pattern pattern = Pattern.compile( computedSearchString, Pattern.CASE_INSENSITIVE );
+
+        boolean searchAttributeTypes = ( scope == PluginConstants.PREFS_SEARCH_PAGE_SCOPE_AT_AND_OC )
+            || ( scope == PluginConstants.PREFS_SEARCH_PAGE_SCOPE_AT_ONLY );
+        boolean searchObjectClasses = ( scope == PluginConstants.PREFS_SEARCH_PAGE_SCOPE_AT_AND_OC )
+            || ( scope == PluginConstants.PREFS_SEARCH_PAGE_SCOPE_OC_ONLY );
+        Set<SearchInEnum> searchScope = EnumSet.copyOf( Arrays.asList( searchIn ) );
+
+        // Only the values starting with the literal prefix can match
+        String prefix = getLiteralPrefix( searchString );
+        Map<String, Map<SchemaObject, Set<SearchInEnum>>> candidates = values;
+
+        if ( prefix.length() > 0 )
+        {
+            candidates = values.subMap( prefix, true, prefix + Character.MAX_VALUE, false );
+        }
+
+        Set<SchemaObject> found = Collections.newSetFromMap( new IdentityHashMap<SchemaObject, Boolean>() );
+
+        for ( Map.Entry<String, Map<SchemaObject, Set<SearchInEnum>>> candidate : candidates.entrySet() )
+        {
+            if ( !pattern.matcher( candidate.getKey() ).matches() )
+            {
+                continue;
+            }
+
+            for ( Map.Entry<SchemaObject, Set<SearchInEnum>> objectFields : candidate.getValue().entrySet() )
+            {
+                SchemaObject object = objectFields.getKey();
+
+                if ( ( ( object instanceof AttributeType ) && !searchAttributeTypes )
+                    || ( ( object instanceof ObjectClass ) && !searchObjectClasses ) || found.contains( object ) )
+                {
+                    continue;
+                }
+
+                if ( !Collections.disjoint( objectFields.getValue(), searchScope ) )
+                {
+                    found.add( object );
+                    searchResults.add( object );
+                }
+            }
+        }
+
+        return searchResults;
+    }
+
+
+    /**
+     * Gets the lower-cased literal prefix of the given search string, that
+     * is the part that every matching value must start with.
+     *
+     * @param searchString
+     *      the search String
+     * @return
+     *      the literal prefix, may be empty
+     */
+    static String getLiteralPrefix( String searchString )
+    {
+        if ( searchString.indexOf( '|' ) != -1 )
+        {
+            // Alternatives, the values don't share a prefix
+            return ""; //$NON-NLS-1$
+        }
+
+        int length = 0;
+
+        while ( ( length < searchString.length() )
+            && ( SPECIAL_CHARACTERS.indexOf( searchString.charAt( length ) ) == -1 ) )
+        {
+            length++;
+        }
+
+        if ( ( length < searchString.length() ) && ( searchString.charAt( length ) == '{' ) && ( length > 0 ) )
+        {
+            // The quantifier may make the preceding character optional
+            length--;
+        }
+
+        return Strings.toLowerCaseAscii( searchString.substring( 0, length ) );
+    }
+
+
+    /**
+     * Adds the given schema object to the index.
+     *
+     * @param object
+     *      the attribute type or object class
+     */
+    private void add( SchemaObject object )
+    {
+        remove( object );
+
+        if ( object instanceof AttributeType )
+        {
+            AttributeType at = ( AttributeType ) object;
+
+            add( at, SearchInEnum.ALIASES, at.getNames() );
+            add( at, SearchInEnum.OID, at.getOid() );
+            add( at, SearchInEnum.DESCRIPTION, at.getDescription() );
+            add( at, SearchInEnum.SUPERIOR, at.getSuperiorOid() );
+            add( at, SearchInEnum.SYNTAX, at.getSyntaxOid() );
+            add( at, SearchInEnum.MATCHING_RULES, at.getEqualityOid() );
+            add( at, SearchInEnum.MATCHING_RULES, at.getOrderingOid() );
+            add( at, SearchInEnum.MATCHING_RULES, at.getSubstringOid() );
+        }
+        else if ( object instanceof ObjectClass )
+        {
+            ObjectClass oc = ( ObjectClass ) object;
+
+            add( oc, SearchInEnum.ALIASES, oc.getNames() );
+            add( oc, SearchInEnum.OID, oc.getOid() );
+            add( oc, SearchInEnum.DESCRIPTION, oc.getDescription() );
+            add( oc, SearchInEnum.SUPERIORS, oc.getSuperiorOids() );
+            add( oc, SearchInEnum.MANDATORY_ATTRIBUTES, oc.getMustAttributeTypeOids() );
+            add( oc, SearchInEnum.OPTIONAL_ATTRIBUTES, oc.getMayAttributeTypeOids() );
+        }
+    }
+
+
+    /**
+     * Adds the given values of a field of the given schema object to the index.
+     *
+     * @param object
+     *      the schema object
+     * @param field
+     *      the field
+     * @param fieldValues
+     *      the values, may be null
+     */
+    private void add( SchemaObject object, SearchInEnum field, List<String> fieldValues )
+    {
+        if ( fieldValues != null )
+        {
+            for ( String value : fieldValues )
+            {
+                add( object, field, value );
+            }
+        }
+    }
+
+
+    /**
+     * Adds the given value of a field of the given schema object to the index.
+     *
+     * @param object
+     *      the schema object
+     * @param field
+     *      the field
+     * @param value
+     *      the value, may be null
+     */
+    private void add( SchemaObject object, SearchInEnum field, String value )
+    {
+        if ( value == null )
+        {
+            return;
+        }
+
+        String key = Strings.toLowerCaseAscii( value );
+
+        Map<SchemaObject, Set<SearchInEnum>> objects = values.get( key );
+
+        if ( objects == null )
+        {
+            objects = new IdentityHashMap<SchemaObject, Set<SearchInEnum>>();
+            values.put( key, objects );
+        }
+
+        Set<SearchInEnum> fields = objects.get( object );
+
+        if ( fields == null )
+        {
+            fields = EnumSet.noneOf( SearchInEnum.class );
+            objects.put( object, fields );
+        }
+
+        fields.add( field );
+
+        Set<String> keys = objectValues.get( object );
+
+        if ( keys == null )
+        {
+            keys = new HashSet<String>();
+            objectValues.put( object, keys );
+        }
+
+        keys.add( key );
+    }
+
+
+    /**
+     * Removes the given schema object from the index.
+     *
+     * @param object
+     *      the attribute type or object class
+     */
+    private void remove( SchemaObject object )
+    {
+        Set<String> keys = objectValues.remove( object );
+
+        if ( keys != null )
+        {
+            for ( String key : keys )
+            {
+                Map<SchemaObject, Set<SearchInEnum>> objects = values.get( key );
+                objects.remove( object );
+
+                if ( objects.isEmpty() )
+                {
+                    values.remove( key );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void attributeTypeAdded( AttributeType at )
+    {
+        add( at );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void attributeTypeModified( AttributeType at )
+    {
+        add( at );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void attributeTypeRemoved( AttributeType at )
+    {
+        remove( at );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void objectClassAdded( ObjectClass oc )
+    {
+        add( oc );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void objectClassModified( ObjectClass oc )
+    {
+        add( oc );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void objectClassRemoved( ObjectClass oc )
+    {
+        remove( oc );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void schemaAdded( Schema schema )
+    {
+        for ( AttributeType at : schema.getAttributeTypes() )
+        {
+            add( at );
+        }
+
+        for ( ObjectClass oc : schema.getObjectClasses() )
+        {
+            add( oc );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void schemaRemoved( Schema schema )
+    {
+        for ( AttributeType at : schema.getAttributeTypes() )
+        {
+            remove( at );
+        }
+
+        for ( ObjectClass oc : schema.getObjectClasses() )
+        {
+            remove( oc );
+        }
+    }
+}
@@ -24,7 +24,7 @@ package org.apache.directory.studio.schemaeditor.view.views;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.api.ldap.model.schema.ObjectClass;
@@ -39,6 +39,7 @@ import org.apache.directory.studio.schemaeditor.view.editors.attributetype.Attri
 import org.apache.directory.studio.schemaeditor.view.editors.attributetype.AttributeTypeEditorInput;
 import org.apache.directory.studio.schemaeditor.view.editors.objectclass.ObjectClassEditor;
 import org.apache.directory.studio.schemaeditor.view.editors.objectclass.ObjectClassEditorInput;
+import org.apache.directory.studio.schemaeditor.view.search.SchemaSearchIndex;
 import org.apache.directory.studio.schemaeditor.view.search.SearchPage;
 import org.apache.directory.studio.schemaeditor.view.search.SearchPage.SearchInEnum;
 import org.eclipse.jface.action.Action;
@@ -87,6 +88,9 @@ public class SearchView extends ViewPart
     /** The current Search String */
     private String searchString;
 
+    /** The index of the current SchemaHandler */
+    private SchemaSearchIndex searchIndex;
+
     // UI fields
     private Text searchField;
     private Button searchButton;
@@ -191,6 +195,7 @@ public class SearchView extends ViewPart
             public void modifyText( ModifyEvent e )
             {
                 validateSearchField();
+                searchAsYouType();
             }
         } );
         searchField.addKeyListener( new KeyAdapter()
@@ -679,214 +684,52 @@ public class SearchView extends ViewPart
      */
     private List<SchemaObject> search( String searchString, SearchInEnum[] searchIn, int scope )
     {
-        List<SchemaObject> searchResults = new ArrayList<SchemaObject>();
+        SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
 
-        if ( searchString != null )
+        if ( ( searchString == null ) || ( schemaHandler == null ) )
         {
-            String computedSearchString = searchString.replaceAll( "\\*", "[\\\\S]*" ); //$NON-NLS-1$ //$NON-NLS-2$
-            computedSearchString = computedSearchString.replaceAll( "\\?", "[\\\\S]" ); //$NON-NLS-1$ //$NON-NLS-2$
-
-            Pattern pattern = Pattern.compile( computedSearchString, Pattern.CASE_INSENSITIVE );
+            return new ArrayList<SchemaObject>();
+        }
 
-            SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
-            if ( schemaHandler != null )
+        // The index is bound to the SchemaHandler of the opened project
+        if ( ( searchIndex == null ) || ( searchIndex.getSchemaHandler() != schemaHandler ) )
+        {
+            if ( searchIndex != null )
             {
-                List<SearchInEnum> searchScope = new ArrayList<SearchInEnum>( Arrays.asList( searchIn ) );
-
-                if ( ( scope == PluginConstants.PREFS_SEARCH_PAGE_SCOPE_AT_AND_OC )
-                    || ( scope == PluginConstants.PREFS_SEARCH_PAGE_SCOPE_AT_ONLY ) )
-                {
-                    // Looping on attribute types
-                    List<AttributeType> attributeTypes = schemaHandler.getAttributeTypes();
-                    for ( AttributeType at : attributeTypes )
-                    {
-                        // Aliases
-                        if ( searchScope.contains( SearchInEnum.ALIASES ) )
-                        {
-                            if ( checkList( pattern, at.getNames() ) )
-                            {
-                                searchResults.add( at );
-                                continue;
-                            }
-                        }
-
-                        // OID
-                        if ( searchScope.contains( SearchInEnum.OID ) )
-                        {
-                            if ( checkString( pattern, at.getOid() ) )
-                            {
-                                searchResults.add( at );
-                                continue;
-                            }
-                        }
-
-                        // Description
-                        if ( searchScope.contains( SearchInEnum.DESCRIPTION ) )
-                        {
-                            if ( checkString( pattern, at.getDescription() ) )
-                            {
-                                searchResults.add( at );
-                                continue;
-                            }
-                        }
-
-                        // Superior
-                        if ( searchScope.contains( SearchInEnum.SUPERIOR ) )
-                        {
-                            if ( checkString( pattern, at.getSuperiorOid() ) )
-                            {
-                                searchResults.add( at );
-                                continue;
-                            }
-                        }
-
-                        // Syntax
-                        if ( searchScope.contains( SearchInEnum.SYNTAX ) )
-                        {
-                            if ( checkString( pattern, at.getSyntaxOid() ) )
-                            {
-                                searchResults.add( at );
-                                continue;
-                            }
-                        }
-
-                        // Matching Rules
-                        if ( searchScope.contains( SearchInEnum.MATCHING_RULES ) )
-                        {
-                            // Equality
-                            if ( checkString( pattern, at.getEqualityOid() ) )
-                            {
-                                searchResults.add( at );
-                                continue;
-                            }
-
-                            // Ordering
-                            if ( checkString( pattern, at.getOrderingOid() ) )
-                            {
-                                searchResults.add( at );
-                                continue;
-                            }
-
-                            // Substring
-                            if ( checkString( pattern, at.getSubstringOid() ) )
-                            {
-                                searchResults.add( at );
-                                continue;
-                            }
-                        }
-                    }
-                }
-
-                if ( ( scope == PluginConstants.PREFS_SEARCH_PAGE_SCOPE_AT_AND_OC )
-                    || ( scope == PluginConstants.PREFS_SEARCH_PAGE_SCOPE_OC_ONLY ) )
-                {
-                    // Looping on object classes
-                    List<ObjectClass> objectClasses = schemaHandler.getObjectClasses();
-                    for ( ObjectClass oc : objectClasses )
-                    {
-                        // Aliases
-                        if ( searchScope.contains( SearchInEnum.ALIASES ) )
-                        {
-                            if ( checkList( pattern, oc.getNames() ) )
-                            {
-                                searchResults.add( oc );
-                                continue;
-                            }
-                        }
-
-                        // OID
-                        if ( searchScope.contains( SearchInEnum.OID ) )
-                        {
-                            if ( checkString( pattern, oc.getOid() ) )
-                            {
-                                searchResults.add( oc );
-                                continue;
-                            }
-                        }
-
-                        // Description
-                        if ( searchScope.contains( SearchInEnum.DESCRIPTION ) )
-                        {
-                            if ( checkString( pattern, oc.getDescription() ) )
-                            {
-                                searchResults.add( oc );
-                                continue;
-                            }
-                        }
-
-                        // Superiors
-                        if ( searchScope.contains( SearchInEnum.SUPERIORS ) )
-                        {
-                            if ( checkList( pattern, oc.getSuperiorOids() ) )
-                            {
-                                searchResults.add( oc );
-                                continue;
-                            }
-                        }
-
-                        // Mandatory Attributes
-                        if ( searchScope.contains( SearchInEnum.MANDATORY_ATTRIBUTES ) )
-                        {
-                            if ( checkList( pattern, oc.getMustAttributeTypeOids() ) )
-                            {
-                                searchResults.add( oc );
-                                continue;
-                            }
-                        }
-
-                        // Optional Attributes
-                        if ( searchScope.contains( SearchInEnum.OPTIONAL_ATTRIBUTES ) )
-                        {
-                            if ( checkList( pattern, oc.getMayAttributeTypeOids() ) )
-                            {
-                                searchResults.add( oc );
-                                continue;
-                            }
-                        }
-                    }
-                }
+                searchIndex.dispose();
             }
+
+            searchIndex = new SchemaSearchIndex( schemaHandler );
         }
 
-        return searchResults;
+        return searchIndex.search( searchString, searchIn, scope );
     }
 
 
     /**
-     * Check an array with the given pattern.
-     *
-     * @param pattern
-     *      the Regex pattern
-     * @param list
-     *      the array
-     * @return
-     *      true if the pattern matches one of the aliases, false, if not.
+     * Updates the search results while the search String is typed.
      */
-    private boolean checkList( Pattern pattern, List<String> list )
+    private void searchAsYouType()
     {
-        if ( list != null )
+        String text = searchField.getText();
+
+        if ( ( text.length() == 0 ) || text.equals( searchString ) )
         {
-            for ( String string : list )
-            {
-                if ( pattern.matcher( string ).matches() )
-                {
-                    return true;
-                }
-            }
+            return;
         }
 
-        return false;
-    }
-
-
-    private boolean checkString( Pattern pattern, String string )
-    {
-        if ( string != null )
+        try
         {
-            return pattern.matcher( string ).matches();
+            List<SchemaObject> results = search( text, SearchPage.loadSearchIn().toArray( new SearchInEnum[0] ),
+                SearchPage.loadScope() );
+            searchString = text;
+            setSearchResultsLabel( text, results.size() );
+            resultsTableViewer.setInput( results );
+        }
+        catch ( PatternSyntaxException e )
+        {
+            // The search String is not complete yet, keeping the previous results
         }
-
-        return false;
     }
 
 
@@ -968,6 +811,21 @@ public class SearchView extends ViewPart
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public void dispose()
+    {
+        if ( searchIndex != null )
+        {
+            searchIndex.dispose();
+            searchIndex = null;
+        }
+
+        super.dispose();
+    }
+
+
     /**
      * Refreshes the view.
      */
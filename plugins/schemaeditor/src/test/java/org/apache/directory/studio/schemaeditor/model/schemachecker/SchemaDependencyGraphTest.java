@@ -0,0 +1,184 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.schemaeditor.model.schemachecker;
+
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.directory.api.ldap.model.exception.LdapSchemaException;
+import org.apache.directory.api.ldap.model.exception.LdapSchemaExceptionCodes;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.LdapSyntax;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.SchemaObject;
+import org.apache.directory.studio.schemaeditor.controller.SchemaHandler;
+import org.apache.directory.studio.schemaeditor.model.Schema;
+
+
+/**
+ * This class tests the {@link SchemaDependencyGraph} and {@link SchemaObjectValidator} classes.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SchemaDependencyGraphTest extends TestCase
+{
+    private SchemaHandler schemaHandler;
+
+    private SchemaDependencyGraph graph;
+
+    private AttributeType name;
+
+    private AttributeType cn;
+
+    private AttributeType description;
+
+    private ObjectClass person;
+
+
+    protected void setUp() throws Exception
+    {
+        Schema schema = new Schema( "test" ); //$NON-NLS-1$
+
+        LdapSyntax syntax = new LdapSyntax( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+        syntax.setSchemaName( "test" ); //$NON-NLS-1$
+        schema.addSyntax( syntax );
+
+        name = new AttributeType( "2.5.4.41" ); //$NON-NLS-1$
+        name.setNames( "name" ); //$NON-NLS-1$
+        name.setSchemaName( "test" ); //$NON-NLS-1$
+        name.setSyntaxOid( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+        schema.addAttributeType( name );
+
+        cn = new AttributeType( "2.5.4.3" ); //$NON-NLS-1$
+        cn.setNames( "cn" ); //$NON-NLS-1$
+        cn.setSchemaName( "test" ); //$NON-NLS-1$
+        cn.setSuperiorOid( "name" ); //$NON-NLS-1$
+        schema.addAttributeType( cn );
+
+        description = new AttributeType( "2.5.4.13" ); //$NON-NLS-1$
+        description.setNames( "description" ); //$NON-NLS-1$
+        description.setSchemaName( "test" ); //$NON-NLS-1$
+        description.setSyntaxOid( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+        schema.addAttributeType( description );
+
+        person = new ObjectClass( "2.5.6.6" ); //$NON-NLS-1$
+        person.setNames( "person" ); //$NON-NLS-1$
+        person.setSchemaName( "test" ); //$NON-NLS-1$
+        person.setMustAttributeTypeOids( Collections.singletonList( "cn" ) ); //$NON-NLS-1$
+        schema.addObjectClass( person );
+
+        schemaHandler = new SchemaHandler();
+        schemaHandler.addSchema( schema );
+
+        graph = new SchemaDependencyGraph();
+        graph.add( name );
+        graph.add( cn );
+        graph.add( description );
+        graph.add( person );
+    }
+
+
+    public void testValidSchema()
+    {
+        for ( SchemaObject schemaObject : new SchemaObject[]
+            { name, cn, description, person } )
+        {
+            assertTrue( SchemaObjectValidator.check( schemaObject, schemaHandler ).isEmpty() );
+        }
+    }
+
+
+    public void testModifiedSuperiorAffectsDependents()
+    {
+        Set<SchemaObject> affected = graph.update( Collections.singletonMap( ( SchemaObject ) name, false ) );
+
+        assertEquals( 3, affected.size() );
+        assertTrue( affected.contains( name ) );
+        assertTrue( affected.contains( cn ) );
+        assertTrue( affected.contains( person ) );
+        assertFalse( affected.contains( description ) );
+    }
+
+
+    public void testRenamedAttributeTypeAffectsOldReferrers()
+    {
+        AttributeType renamed = new AttributeType( "2.5.4.3" ); //$NON-NLS-1$
+        renamed.setNames( "commonName" ); //$NON-NLS-1$
+        renamed.setSuperiorOid( "name" ); //$NON-NLS-1$
+        schemaHandler.modifyAttributeType( cn, renamed );
+
+        Set<SchemaObject> affected = graph.update( Collections.singletonMap( ( SchemaObject ) cn, false ) );
+        assertTrue( affected.contains( person ) );
+
+        List<LdapSchemaException> errors = SchemaObjectValidator.check( person, schemaHandler );
+        assertEquals( 1, errors.size() );
+        assertEquals( LdapSchemaExceptionCodes.OC_NONEXISTENT_MUST_AT, errors.get( 0 ).getCode() );
+        assertEquals( "cn", errors.get( 0 ).getRelatedId() ); //$NON-NLS-1$
+        assertSame( person, errors.get( 0 ).getSourceObject() );
+    }
+
+
+    public void testRemovedAttributeType()
+    {
+        schemaHandler.removeAttributeType( name );
+
+        Set<SchemaObject> affected = graph.update( Collections.singletonMap( ( SchemaObject ) name, true ) );
+        assertFalse( affected.contains( name ) );
+        assertTrue( affected.contains( cn ) );
+
+        List<LdapSchemaException> errors = SchemaObjectValidator.check( cn, schemaHandler );
+        assertEquals( 2, errors.size() );
+        assertEquals( LdapSchemaExceptionCodes.AT_NONEXISTENT_SUPERIOR, errors.get( 0 ).getCode() );
+        assertEquals( LdapSchemaExceptionCodes.AT_SYNTAX_OR_SUPERIOR_REQUIRED, errors.get( 1 ).getCode() );
+    }
+
+
+    public void testCycleAndDuplicateName()
+    {
+        AttributeType cyclic = new AttributeType( "2.5.4.41" ); //$NON-NLS-1$
+        cyclic.setNames( "name" ); //$NON-NLS-1$
+        cyclic.setSuperiorOid( "cn" ); //$NON-NLS-1$
+        schemaHandler.modifyAttributeType( name, cyclic );
+
+        List<LdapSchemaException> errors = SchemaObjectValidator.check( name, schemaHandler );
+        assertEquals( 1, errors.size() );
+        assertEquals( LdapSchemaExceptionCodes.AT_CYCLE_TYPE_HIERARCHY, errors.get( 0 ).getCode() );
+
+        AttributeType duplicate = new AttributeType( "1.2.3.4" ); //$NON-NLS-1$
+        duplicate.setNames( "description" ); //$NON-NLS-1$
+        duplicate.setSchemaName( "test" ); //$NON-NLS-1$
+        duplicate.setSyntaxOid( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+        schemaHandler.addAttributeType( duplicate );
+
+        Set<SchemaObject> affected = graph.update( Collections.singletonMap( ( SchemaObject ) duplicate, false ) );
+        assertTrue( affected.contains( description ) );
+        assertTrue( SchemaObjectValidator.check( description, schemaHandler ).isEmpty() );
+
+        errors = SchemaObjectValidator.check( duplicate, schemaHandler );
+        assertEquals( 1, errors.size() );
+        assertEquals( LdapSchemaExceptionCodes.NAME_ALREADY_REGISTERED, errors.get( 0 ).getCode() );
+        assertSame( description, errors.get( 0 ).getOtherObject() );
+    }
+}
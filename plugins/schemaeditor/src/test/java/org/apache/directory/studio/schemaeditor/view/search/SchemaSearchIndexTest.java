@@ -0,0 +1,166 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.schemaeditor.view.search;
+
+
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.SchemaObject;
+import org.apache.directory.studio.schemaeditor.PluginConstants;
+import org.apache.directory.studio.schemaeditor.controller.SchemaHandler;
+import org.apache.directory.studio.schemaeditor.model.Schema;
+import org.apache.directory.studio.schemaeditor.view.search.SearchPage.SearchInEnum;
+
+
+/**
+ * This class tests the {@link SchemaSearchIndex} class.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SchemaSearchIndexTest extends TestCase
+{
+    private SchemaHandler schemaHandler;
+
+    private SchemaSearchIndex index;
+
+    private AttributeType name;
+
+    private AttributeType cn;
+
+    private ObjectClass person;
+
+
+    protected void setUp() throws Exception
+    {
+        Schema schema = new Schema( "test" ); //$NON-NLS-1$
+
+        name = new AttributeType( "2.5.4.41" ); //$NON-NLS-1$
+        name.setNames( "name" ); //$NON-NLS-1$
+        name.setSchemaName( "test" ); //$NON-NLS-1$
+        name.setDescription( "RFC4519: common supertype of name attributes" ); //$NON-NLS-1$
+        name.setSyntaxOid( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+        schema.addAttributeType( name );
+
+        cn = new AttributeType( "2.5.4.3" ); //$NON-NLS-1$
+        cn.setNames( "cn", "commonName" ); //$NON-NLS-1$ //$NON-NLS-2$
+        cn.setSchemaName( "test" ); //$NON-NLS-1$
+        cn.setSuperiorOid( "name" ); //$NON-NLS-1$
+        schema.addAttributeType( cn );
+
+        person = new ObjectClass( "2.5.6.6" ); //$NON-NLS-1$
+        person.setNames( "person" ); //$NON-NLS-1$
+        person.setSchemaName( "test" ); //$NON-NLS-1$
+        person.setMustAttributeTypeOids( Collections.singletonList( "cn" ) ); //$NON-NLS-1$
+        schema.addObjectClass( person );
+
+        schemaHandler = new SchemaHandler();
+        schemaHandler.addSchema( schema );
+
+        index = new SchemaSearchIndex( schemaHandler );
+    }
+
+
+    private List<SchemaObject> search( String searchString, int scope, SearchInEnum... searchIn )
+    {
+        return index.search( searchString, searchIn, scope );
+    }
+
+
+    private List<SchemaObject> search( String searchString, SearchInEnum... searchIn )
+    {
+        return search( searchString, PluginConstants.PREFS_SEARCH_PAGE_SCOPE_AT_AND_OC, searchIn );
+    }
+
+
+    public void testSearchAliases()
+    {
+        List<SchemaObject> results = search( "COMMON*", SearchInEnum.ALIASES ); //$NON-NLS-1$
+        assertEquals( 1, results.size() );
+        assertSame( cn, results.get( 0 ) );
+
+        // The whole value must match
+        assertTrue( search( "comm", SearchInEnum.ALIASES ).isEmpty() ); //$NON-NLS-1$
+        assertEquals( 3, search( "*n*", SearchInEnum.ALIASES ).size() ); //$NON-NLS-1$
+    }
+
+
+    public void testSearchFieldsAndScope()
+    {
+        assertEquals( 3, search( "2.5.?.*", SearchInEnum.OID ).size() ); //$NON-NLS-1$
+        assertEquals( 2, search( "2.5.?.*", PluginConstants.PREFS_SEARCH_PAGE_SCOPE_AT_ONLY, //$NON-NLS-1$
+            SearchInEnum.OID ).size() );
+
+        List<SchemaObject> results = search( "name", SearchInEnum.SUPERIOR ); //$NON-NLS-1$
+        assertEquals( 1, results.size() );
+        assertSame( cn, results.get( 0 ) );
+
+        results = search( "cn", PluginConstants.PREFS_SEARCH_PAGE_SCOPE_OC_ONLY, //$NON-NLS-1$
+            SearchInEnum.MANDATORY_ATTRIBUTES );
+        assertEquals( 1, results.size() );
+        assertSame( person, results.get( 0 ) );
+
+        // Wildcards don't match whitespaces
+        assertTrue( search( "RFC4519:*", SearchInEnum.DESCRIPTION ).isEmpty() ); //$NON-NLS-1$
+        results = search( "RFC4519: common * of name attributes", SearchInEnum.DESCRIPTION ); //$NON-NLS-1$
+        assertEquals( 1, results.size() );
+        assertSame( name, results.get( 0 ) );
+    }
+
+
+    public void testIndexFollowsSchemaHandler()
+    {
+        AttributeType renamed = new AttributeType( "2.5.4.3" ); //$NON-NLS-1$
+        renamed.setNames( "fullName" ); //$NON-NLS-1$
+        schemaHandler.modifyAttributeType( cn, renamed );
+
+        assertTrue( search( "cn", SearchInEnum.ALIASES ).isEmpty() ); //$NON-NLS-1$
+        assertTrue( search( "name", SearchInEnum.SUPERIOR ).isEmpty() ); //$NON-NLS-1$
+        assertSame( cn, search( "full*", SearchInEnum.ALIASES ).get( 0 ) ); //$NON-NLS-1$
+
+        schemaHandler.removeAttributeType( cn );
+        assertTrue( search( "full*", SearchInEnum.ALIASES ).isEmpty() ); //$NON-NLS-1$
+
+        Schema other = new Schema( "other" ); //$NON-NLS-1$
+        ObjectClass account = new ObjectClass( "0.9.2342.19200300.100.4.5" ); //$NON-NLS-1$
+        account.setNames( "account" ); //$NON-NLS-1$
+        account.setSchemaName( "other" ); //$NON-NLS-1$
+        other.addObjectClass( account );
+        schemaHandler.addSchema( other );
+        assertSame( account, search( "acc*", SearchInEnum.ALIASES ).get( 0 ) ); //$NON-NLS-1$
+
+        schemaHandler.removeSchema( other );
+        assertTrue( search( "acc*", SearchInEnum.ALIASES ).isEmpty() ); //$NON-NLS-1$
+    }
+
+
+    public void testLiteralPrefix()
+    {
+        assertEquals( "common", SchemaSearchIndex.getLiteralPrefix( "Common*" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( "2", SchemaSearchIndex.getLiteralPrefix( "2.5.4.3" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( "c", SchemaSearchIndex.getLiteralPrefix( "cn{0,1}" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( "", SchemaSearchIndex.getLiteralPrefix( "cn|sn" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}